@@ -0,0 +1,95 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.efs;
+
+import static junit.framework.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import org.chromium.debug.core.efs.FileContents.ByteArrayChunk;
+import org.chromium.debug.core.efs.FileContents.TextChunk;
+import org.junit.Test;
+
+public class FileContentsTest {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  @Test
+  public void appendAndSnapshot() throws IOException {
+    FileContents contents = new FileContents();
+    contents.set(new TextChunk("var a = 1;\n", UTF8));
+    InputStream snapshot = contents.openInputStream();
+    contents.append(new ByteArrayChunk("var b;".getBytes(UTF8)));
+
+    assertEquals("var a = 1;\n", readAll(snapshot));
+    assertEquals("var a = 1;\nvar b;", readAll(contents.openInputStream()));
+    assertEquals(17, contents.getLength());
+    assertEquals(6, contents.getSpillableSize());
+  }
+
+  @Test
+  public void nonAsciiText() throws IOException {
+    String text = "// \u043f\u0440\u0438\u0432\u0435\u0442\n";
+    FileContents contents = new FileContents();
+    contents.set(new TextChunk(text, UTF8));
+    assertEquals(text.getBytes(UTF8).length, contents.getLength());
+    assertEquals(text, readAll(contents.openInputStream()));
+    assertEquals(0, contents.getSpillableSize());
+  }
+
+  @Test
+  public void spill() throws IOException {
+    FileContents contents = new FileContents();
+    contents.set(new ByteArrayChunk("first;".getBytes(UTF8)),
+        new TextChunk("second;", UTF8));
+    contents.append(new ByteArrayChunk("third;".getBytes(UTF8)));
+    SpillFile spillFile = SpillFile.create();
+    try {
+      assertEquals(12, contents.spill(spillFile));
+      assertEquals(0, contents.getSpillableSize());
+      assertEquals(12, spillFile.getSize());
+      assertEquals("first;second;third;", readAll(contents.openInputStream()));
+    } finally {
+      spillFile.getFile().delete();
+    }
+  }
+
+  @Test
+  public void moveSpilled() throws IOException {
+    FileContents contents = new FileContents();
+    contents.set(new ByteArrayChunk("first;".getBytes(UTF8)),
+        new TextChunk("second;", UTF8));
+    SpillFile oldSpillFile = SpillFile.create();
+    SpillFile newSpillFile = SpillFile.create();
+    try {
+      contents.spill(oldSpillFile);
+      InputStream snapshot = contents.openInputStream();
+      assertEquals(6, contents.getSpilledSize());
+
+      contents.moveSpilled(newSpillFile);
+      oldSpillFile.delete();
+      assertEquals(6, contents.getSpilledSize());
+      assertEquals(6, newSpillFile.getSize());
+      assertEquals("first;second;", readAll(contents.openInputStream()));
+      assertEquals("first;second;", readAll(snapshot));
+    } finally {
+      newSpillFile.delete();
+    }
+  }
+
+  private static String readAll(InputStream stream) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[3];
+    int len;
+    while ((len = stream.read(buffer)) != -1) {
+      output.write(buffer, 0, len);
+    }
+    return new String(output.toByteArray(), UTF8);
+  }
+}
@@ -0,0 +1,101 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class LazyFileCacheTest {
+  private final RecordingBackend backend = new RecordingBackend();
+
+  @Test
+  public void fileIsCreatedOnFirstRequestOnly() {
+    LazyFileCache<String, Object> cache = new LazyFileCache<String, Object>(2, backend);
+    assertFalse(cache.contains("a"));
+
+    Object file = cache.get("a");
+    assertSame(file, cache.get("a"));
+    assertEquals(Arrays.asList("a"), backend.created);
+    assertTrue(cache.contains("a"));
+  }
+
+  @Test
+  public void leastRecentlyUsedFileIsEvictedAndRecreated() {
+    LazyFileCache<String, Object> cache = new LazyFileCache<String, Object>(2, backend);
+    cache.get("a");
+    Object oldB = cache.get("b");
+    // Touch "a" so that "b" becomes the oldest.
+    cache.get("a");
+    cache.get("c");
+
+    assertEquals(Arrays.asList("b"), backend.deleted);
+    assertFalse(cache.contains("b"));
+    assertEquals(2, cache.size());
+
+    Object newB = cache.get("b");
+    assertNotSame(oldB, newB);
+    assertEquals(Arrays.asList("a", "b", "c", "b"), backend.created);
+    assertEquals(Arrays.asList("b", "a"), backend.deleted);
+  }
+
+  @Test
+  public void fileInUseIsKept() {
+    LazyFileCache<String, Object> cache = new LazyFileCache<String, Object>(1, backend);
+    backend.inUse.add("a");
+    cache.get("a");
+    cache.get("b");
+
+    // Only "a" is older than the new file, and it is in use.
+    assertTrue(backend.deleted.isEmpty());
+    assertEquals(2, cache.size());
+
+    backend.inUse.clear();
+    cache.get("c");
+    assertEquals(Arrays.asList("a", "b"), backend.deleted);
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void removeDeletesFile() {
+    LazyFileCache<String, Object> cache = new LazyFileCache<String, Object>(2, backend);
+    cache.get("a");
+
+    assertTrue(cache.remove("a"));
+    assertFalse(cache.remove("a"));
+    assertEquals(Arrays.asList("a"), backend.deleted);
+  }
+
+  private static class RecordingBackend implements LazyFileCache.Backend<String, Object> {
+    final List<String> created = new ArrayList<String>();
+    final List<String> deleted = new ArrayList<String>();
+    final Set<String> inUse = new HashSet<String>();
+
+    public Object createFile(String key) {
+      created.add(key);
+      return new Object();
+    }
+
+    public void deleteFile(String key, Object file) {
+      deleted.add(key);
+    }
+
+    public boolean isInUse(String key, Object file) {
+      return inUse.contains(key);
+    }
+  }
+}
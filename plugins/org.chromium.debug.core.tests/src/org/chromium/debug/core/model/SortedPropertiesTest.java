@@ -0,0 +1,167 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.chromium.sdk.JsDeclarativeVariable;
+import org.chromium.sdk.JsObjectProperty;
+import org.chromium.sdk.JsValue;
+import org.chromium.sdk.JsVariable;
+import org.chromium.sdk.util.JavaScriptExpressionBuilder;
+import org.eclipse.debug.core.model.IVariable;
+import org.junit.Test;
+
+public class SortedPropertiesTest {
+  private final RecordingNode expressionNode = new RecordingNode();
+
+  @Test
+  public void orderMatchesOldComparator() {
+    List<String> names = Arrays.asList("b", "10", "a", "2", "_x", "01", "1e3", "-1", "0",
+        "4294967294", "4294967295", "B", "", "length", "100", "9");
+    SortedProperties properties = create(names);
+
+    List<String> expected = new ArrayList<String>(names);
+    Collections.sort(expected, OLD_COMPARATOR);
+    assertEquals(expected, getNames(properties.getTopLevelVariables()));
+  }
+
+  @Test
+  public void bucketBoundaries() throws Exception {
+    List<Variable> flat = create(createIndexNames(100)).getTopLevelVariables();
+    assertEquals(100, flat.size());
+    assertNotNull(flat.get(0).asRealVariable());
+
+    List<Variable> twoBuckets = create(createIndexNames(101)).getTopLevelVariables();
+    assertEquals(Arrays.asList("[0 .. 99]", "[100 .. 100]"), getNames(twoBuckets));
+    assertEquals(100, expand(twoBuckets.get(0)).length);
+    assertEquals(1, expand(twoBuckets.get(1)).length);
+
+    List<Variable> nested = create(createIndexNames(10001)).getTopLevelVariables();
+    assertEquals(Arrays.asList("[0 .. 9999]", "[10000 .. 10000]"), getNames(nested));
+    IVariable[] subBuckets = expand(nested.get(0));
+    assertEquals(100, subBuckets.length);
+    assertEquals("[9900 .. 9999]", subBuckets[99].getName());
+    IVariable[] leaves = expand(subBuckets[99]);
+    assertEquals(100, leaves.length);
+    assertEquals("9900", leaves[0].getName());
+    assertEquals(1, expand(nested.get(1)).length);
+  }
+
+  @Test
+  public void onlyExpandedBucketCreatesVariables() throws Exception {
+    List<Variable> buckets = create(createIndexNames(250)).getTopLevelVariables();
+    assertEquals(3, buckets.size());
+    assertTrue(expressionNode.created.isEmpty());
+
+    IVariable[] children = expand(buckets.get(1));
+    assertEquals(100, children.length);
+    assertEquals(100, expressionNode.created.size());
+    assertEquals("100", expressionNode.created.get(0));
+    assertEquals("199", expressionNode.created.get(99));
+
+    // Expanding again reuses the variables.
+    expand(buckets.get(1));
+    assertEquals(100, expressionNode.created.size());
+  }
+
+  private SortedProperties create(List<String> names) {
+    List<JsVariable> jsVars = new ArrayList<JsVariable>(names.size());
+    for (String name : names) {
+      jsVars.add(new StubJsVariable(name));
+    }
+    return SortedProperties.create(null, jsVars, Collections.<String>emptySet(),
+        expressionNode);
+  }
+
+  private static IVariable[] expand(IVariable bucket) throws Exception {
+    assertNull(((Variable) bucket).asRealVariable());
+    return bucket.getValue().getVariables();
+  }
+
+  private static List<String> createIndexNames(int count) {
+    List<String> names = new ArrayList<String>(count);
+    for (int i = count - 1; i >= 0; i--) {
+      names.add(String.valueOf(i));
+    }
+    return names;
+  }
+
+  private static List<String> getNames(List<Variable> variables) {
+    List<String> names = new ArrayList<String>(variables.size());
+    for (Variable variable : variables) {
+      names.add(variable.getName());
+    }
+    return names;
+  }
+
+  /**
+   * The comparator StackFrame used before {@link SortedProperties}: names go before
+   * array indexes, names are compared as strings and indexes as numbers.
+   */
+  private static final Comparator<String> OLD_COMPARATOR = new Comparator<String>() {
+    public int compare(String name1, String name2) {
+      Long index1 = JavaScriptExpressionBuilder.parsePropertyNameAsArrayIndex(name1);
+      Long index2 = JavaScriptExpressionBuilder.parsePropertyNameAsArrayIndex(name2);
+      if (index1 == null) {
+        return index2 == null ? name1.compareTo(name2) : -1;
+      } else {
+        return index2 == null ? 1 : index1.compareTo(index2);
+      }
+    }
+  };
+
+  private static class RecordingNode implements ExpressionTracker.Node {
+    final List<String> created = new ArrayList<String>();
+
+    public String calculateQualifiedName() {
+      return null;
+    }
+
+    public String calculateParentQualifiedName() {
+      return null;
+    }
+
+    public ExpressionTracker.Node createVariableNode(JsVariable jsVariable, boolean isInternal) {
+      created.add(jsVariable.getName());
+      return this;
+    }
+  }
+
+  private static class StubJsVariable implements JsVariable {
+    private final String name;
+
+    StubJsVariable(String name) {
+      this.name = name;
+    }
+
+    public JsValue getValue() {
+      return null;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public JsObjectProperty asObjectProperty() {
+      return null;
+    }
+
+    public JsDeclarativeVariable asDeclarativeVariable() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.model;
+
+import static junit.framework.Assert.assertEquals;
+
+import org.chromium.debug.core.sourcemap.TextSectionMapping;
+import org.chromium.debug.core.sourcemap.TextSectionMapping.Direction;
+import org.chromium.debug.core.sourcemap.TextSectionMapping.TextPoint;
+import org.chromium.debug.core.sourcemap.TextSectionMappingImpl;
+import org.junit.Test;
+
+public class StreamingJavaScriptFormatterTest {
+  @Test
+  public void minifiedCode() {
+    String source = "function f(a){if(a){return 1}else{for(var i=0;i<2;i++){g()}}return{}}" +
+        "var s=\"a;{b}\";var r=/[;}]/g;x=a/2/b;";
+    String expected =
+        "function f(a){\n" +
+        "  if(a){\n" +
+        "    return 1\n" +
+        "  }else{\n" +
+        "    for(var i=0;i<2;i++){\n" +
+        "      g()\n" +
+        "    }\n" +
+        "  }\n" +
+        "  return{}\n" +
+        "}\n" +
+        "var s=\"a;{b}\";\n" +
+        "var r=/[;}]/g;\n" +
+        "x=a/2/b;";
+    JavaScriptFormatter.Result result = new StreamingJavaScriptFormatter().format(source);
+    assertEquals(expected, result.getFormattedText());
+    checkMapping(source, result);
+  }
+
+  @Test
+  public void commentsAndExistingLineBreaks() {
+    String source = "a();// x;{y}\n  b();/* c;d */e()\n";
+    JavaScriptFormatter.Result result = new StreamingJavaScriptFormatter().format(source);
+    assertEquals("a();// x;{y}\n  b();\n/* c;d */e()\n", result.getFormattedText());
+    checkMapping(source, result);
+  }
+
+  /**
+   * Checks that every input character maps to the same character in the formatted text
+   * and back.
+   */
+  private static void checkMapping(String source, JavaScriptFormatter.Result result) {
+    TextSectionMapping mapping = new TextSectionMappingImpl(result.getFormattedTextData(),
+        result.getInputTextData());
+    String[] inputLines = source.split("\n", -1);
+    String[] outputLines = result.getFormattedText().split("\n", -1);
+    for (int line = 0; line < inputLines.length; line++) {
+      for (int column = 0; column < inputLines[line].length(); column++) {
+        TextPoint inputPoint = new TextPoint(line, column);
+        TextPoint outputPoint = mapping.transform(inputPoint, Direction.REVERSE);
+        assertEquals(inputLines[line].charAt(column),
+            outputLines[outputPoint.getLine()].charAt(outputPoint.getColumn()));
+        assertEquals(inputPoint, mapping.transform(outputPoint, Direction.DIRECT));
+      }
+    }
+  }
+}
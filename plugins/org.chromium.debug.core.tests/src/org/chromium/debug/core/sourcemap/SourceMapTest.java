@@ -0,0 +1,216 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.sourcemap;
+
+import static junit.framework.Assert.*;
+
+import java.util.Arrays;
+
+import org.chromium.debug.core.model.VmResourceId;
+import org.chromium.debug.core.sourcemap.SourceMap.OriginalPosition;
+import org.chromium.debug.core.sourcemap.SourcePositionMap.TranslateDirection;
+import org.chromium.debug.core.sourcemap.SourcePositionMapBuilder.CannotAddException;
+import org.chromium.debug.core.sourcemap.SourcePositionMapBuilder.MappingHandle;
+import org.chromium.debug.core.sourcemap.SourcePositionMapBuilder.ResourceSection;
+import org.chromium.debug.core.sourcemap.TextSectionMapping.TextPoint;
+import org.junit.Test;
+
+public class SourceMapTest {
+  /**
+   * Segments of generated file: each row is (generated line, generated column,
+   * source index, original line, original column).
+   */
+  private static final int[][] SEGMENTS = {
+    { 0, 0, 0, 0, 0 },
+    { 0, 9, 0, 1, 2 },
+    { 0, 20, 1, 0, 0 },
+    { 0, 31, 1, 3, 4 },
+    { 2, 0, 0, 5, 0 },
+    { 2, 7, 1, 1, 0 },
+  };
+
+  private static final String PLAIN_MAP = "{\"version\":3,\"file\":\"out.js\"," +
+      "\"sourceRoot\":\"src\",\"sources\":[\"a.js\",\"b.js\"],\"names\":[]," +
+      "\"mappings\":\"" + encodeMappings(SEGMENTS) + "\"}";
+
+  @Test
+  public void plainMap() throws SourceMapException {
+    SourceMap map = SourceMapParser.parse(PLAIN_MAP);
+    assertEquals(Arrays.asList("src/a.js", "src/b.js"), map.getSources());
+
+    assertEquals(new OriginalPosition(0, 0, 0), map.findOriginal(0, 0));
+    assertEquals(new OriginalPosition(0, 0, 0), map.findOriginal(0, 8));
+    assertEquals(new OriginalPosition(0, 1, 2), map.findOriginal(0, 9));
+    assertEquals(new OriginalPosition(1, 3, 4), map.findOriginal(0, 1000));
+    assertNull(map.findOriginal(1, 0));
+    assertEquals(new OriginalPosition(1, 1, 0), map.findOriginal(2, 7));
+    assertNull(map.findOriginal(3, 0));
+
+    assertEquals(new TextPoint(0, 9), map.findGenerated(0, 1, 2));
+    assertEquals(new TextPoint(2, 0), map.findGenerated(0, 5, 0));
+    assertEquals(new TextPoint(0, 31), map.findGenerated(1, 3, 0));
+    // Unmapped line goes to the next mapped one.
+    assertEquals(new TextPoint(0, 31), map.findGenerated(1, 2, 0));
+    assertEquals(new TextPoint(2, 7), map.findGenerated(1, 1, 0));
+  }
+
+  @Test
+  public void indexedMap() throws SourceMapException {
+    String text = "{\"version\":3,\"sections\":[" +
+        "{\"offset\":{\"line\":0,\"column\":0},\"map\":" + PLAIN_MAP + "}," +
+        "{\"offset\":{\"line\":10,\"column\":5},\"map\":{\"version\":3,\"sources\":[\"c.js\"]," +
+        "\"names\":[],\"mappings\":\"" + encodeMappings(new int[][] {{ 0, 0, 0, 4, 0 }}) +
+        "\"}}]}";
+    SourceMap map = SourceMapParser.parse(text);
+    assertEquals(Arrays.asList("src/a.js", "src/b.js", "c.js"), map.getSources());
+    assertEquals(new OriginalPosition(0, 1, 2), map.findOriginal(0, 10));
+    assertEquals(new OriginalPosition(2, 4, 0), map.findOriginal(10, 5));
+    assertNull(map.findOriginal(10, 4));
+    assertEquals(new TextPoint(10, 5), map.findGenerated(2, 4, 0));
+    assertEquals(new TextPoint(2, 7), map.findGenerated(1, 1, 0));
+  }
+
+  @Test
+  public void indexedMapPicksNearestSection() throws SourceMapException {
+    String text = "{\"version\":3,\"sections\":[" +
+        "{\"offset\":{\"line\":0,\"column\":0},\"map\":" + PLAIN_MAP + "}," +
+        "{\"offset\":{\"line\":20,\"column\":0},\"map\":{\"version\":3," +
+        "\"sources\":[\"src/a.js\"],\"names\":[],\"mappings\":\"" +
+        encodeMappings(new int[][] {{ 0, 0, 0, 3, 0 }}) + "\"}}]}";
+    SourceMap map = SourceMapParser.parse(text);
+    assertEquals(Arrays.asList("src/a.js", "src/b.js"), map.getSources());
+    // The first section only has the next mapped line, the second one has the exact line.
+    assertEquals(new TextPoint(20, 0), map.findGenerated(0, 3, 0));
+    assertEquals(new TextPoint(0, 9), map.findGenerated(0, 1, 2));
+    assertEquals(new TextPoint(2, 0), map.findGenerated(0, 5, 0));
+  }
+
+  @Test(expected = SourceMapException.class)
+  public void badVersion() throws SourceMapException {
+    SourceMapParser.parse("{\"version\":2,\"sources\":[],\"mappings\":\"\"}");
+  }
+
+  @Test(expected = SourceMapException.class)
+  public void badMappings() throws SourceMapException {
+    SourceMapParser.parse("{\"version\":3,\"sources\":[\"a.js\"],\"mappings\":\"AA!A\"}");
+  }
+
+  @Test
+  public void positionMapBuilder() throws SourceMapException, CannotAddException {
+    SourceMap map = SourceMapParser.parse(PLAIN_MAP);
+    VmResourceId compiled = new VmResourceId("out.js", null);
+    VmResourceId sourceA = new VmResourceId("a.js", null);
+    VmResourceId sourceB = new VmResourceId("b.js", null);
+
+    SourcePositionMapBuilder builder = new PositionMapBuilderImpl();
+    SourcePositionMap positionMap = builder.getSourcePositionMap();
+    SourcePositionMap.Token token = positionMap.getCurrentToken();
+
+    MappingHandle handle = builder.addSourceMap(
+        new ResourceSection(compiled, 0, 0, 3, 0), map, Arrays.asList(sourceA, sourceB));
+    assertTrue(token.isUpdated());
+
+    assertEquals(new SourcePosition(sourceB, 3, 4),
+        positionMap.translatePosition(compiled, 0, 35, TranslateDirection.VM_TO_USER));
+    assertEquals(new SourcePosition(sourceA, 5, 0),
+        positionMap.translatePosition(compiled, 2, 3, TranslateDirection.VM_TO_USER));
+    // Not mapped position stays as is.
+    assertEquals(new SourcePosition(compiled, 1, 3),
+        positionMap.translatePosition(compiled, 1, 3, TranslateDirection.VM_TO_USER));
+
+    assertEquals(new SourcePosition(compiled, 2, 7),
+        positionMap.translatePosition(sourceB, 1, 0, TranslateDirection.USER_TO_VM));
+    assertEquals(new SourcePosition(compiled, 0, 9),
+        positionMap.translatePosition(sourceA, 1, 0, TranslateDirection.USER_TO_VM));
+
+    handle.delete();
+    assertEquals(new SourcePosition(sourceA, 1, 0),
+        positionMap.translatePosition(sourceA, 1, 0, TranslateDirection.USER_TO_VM));
+  }
+
+  @Test
+  public void sourceMappingUrl() {
+    assertEquals("out.js.map",
+        SourceMapParser.findSourceMappingUrl("var a;\n//# sourceMappingURL=out.js.map\n\n"));
+    assertEquals("old.map",
+        SourceMapParser.findSourceMappingUrl("var a;\n//@ sourceMappingURL=old.map"));
+    assertNull(SourceMapParser.findSourceMappingUrl("//# sourceMappingURL=x.map\nvar a;"));
+  }
+
+  @Test
+  public void sourceMapUrls() throws SourceMapException {
+    assertEquals("http://host/js/out.js.map",
+        SourceMapUrls.resolve("http://host/js/out.js", "out.js.map"));
+    assertEquals("http://host/maps/out.map",
+        SourceMapUrls.resolve("http://host/js/out.js", "/maps/out.map"));
+    assertEquals("out.js.map", SourceMapUrls.resolve(null, "out.js.map"));
+
+    // "{\"a\":1}" in Base64 and percent-encoded.
+    assertEquals("{\"a\":1}",
+        SourceMapUrls.readText("data:application/json;charset=utf-8;base64,eyJhIjoxfQ=="));
+    assertEquals("{\"a\":1}", SourceMapUrls.readText("data:application/json,%7B%22a%22:1%7D"));
+  }
+
+  @Test
+  public void cacheEviction() throws SourceMapException {
+    SourceMap map = SourceMapParser.parse(PLAIN_MAP);
+    SourceMapCache cache = new SourceMapCache(map.getEstimatedSize() * 2);
+    cache.put("1", map);
+    cache.put("2", SourceMapParser.parse(PLAIN_MAP));
+    assertNotNull(cache.get("1"));
+    cache.put("3", SourceMapParser.parse(PLAIN_MAP));
+    // "2" is the least recently used one.
+    assertNull(cache.get("2"));
+    assertNotNull(cache.get("1"));
+    assertNotNull(cache.get("3"));
+    assertEquals(map.getEstimatedSize() * 2, cache.getCurrentSize());
+  }
+
+  private static String encodeMappings(int[][] segments) {
+    StringBuilder builder = new StringBuilder();
+    int line = 0;
+    int previousColumn = 0;
+    int previousSource = 0;
+    int previousLine = 0;
+    int previousOriginalColumn = 0;
+    boolean lineStart = true;
+    for (int[] segment : segments) {
+      while (line < segment[0]) {
+        builder.append(';');
+        line++;
+        previousColumn = 0;
+        lineStart = true;
+      }
+      if (!lineStart) {
+        builder.append(',');
+      }
+      lineStart = false;
+      encodeVlq(segment[1] - previousColumn, builder);
+      encodeVlq(segment[2] - previousSource, builder);
+      encodeVlq(segment[3] - previousLine, builder);
+      encodeVlq(segment[4] - previousOriginalColumn, builder);
+      previousColumn = segment[1];
+      previousSource = segment[2];
+      previousLine = segment[3];
+      previousOriginalColumn = segment[4];
+    }
+    return builder.toString();
+  }
+
+  private static void encodeVlq(int value, StringBuilder output) {
+    String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    int vlq = value < 0 ? ((-value) << 1) + 1 : value << 1;
+    do {
+      int digit = vlq & 31;
+      vlq >>>= 5;
+      if (vlq > 0) {
+        digit |= 32;
+      }
+      output.append(alphabet.charAt(digit));
+    } while (vlq > 0);
+  }
+}
@@ -6,16 +6,24 @@
 
 package org.chromium.debug.core.efs;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.chromium.debug.core.ChromiumDebugPlugin;
+import org.chromium.debug.core.efs.FileContents.ByteArrayChunk;
+import org.chromium.debug.core.efs.FileContents.Chunk;
+import org.chromium.debug.core.efs.FileContents.TextChunk;
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileInfo;
 import org.eclipse.core.filesystem.provider.FileInfo;
@@ -27,9 +35,28 @@ import org.eclipse.core.runtime.Status;
 /**
  * A memory-based storage for browser scripts. All resource-related EFS
  * operations are delegated into here.
+ * <p>
+ * File contents are kept as chunks (see {@link FileContents}). Script texts are stored
+ * as strings shared with SDK. When byte contents of all files exceed a heap limit,
+ * the least recently used files are moved into a memory-mapped temporary file.
+ * Once less than half of that file is still referenced by files, the live blocks are copied
+ * into a new file and the old one is deleted.
  */
 public class ChromiumScriptStorage {
 
+  /**
+   * System property that defines how many bytes of file contents may be kept on heap.
+   */
+  private static final String HEAP_LIMIT_PROPERTY =
+      "org.chromium.debug.core.efs.heapLimit"; //$NON-NLS-1$
+
+  private static final long DEFAULT_HEAP_LIMIT = 32L * 1024 * 1024;
+
+  /**
+   * A smaller spill file is not compacted.
+   */
+  private static final long MIN_COMPACTED_SPILL_SIZE = 4L * 1024 * 1024;
+
   /**
    * The filesystem root path.
    */
@@ -112,52 +139,242 @@ public class ChromiumScriptStorage {
     }
   }
 
-  private static class FileNode extends CommonNode {
-    private static final byte[] EMPTY_BYTES = new byte[0];
-
-    protected volatile byte[] contents = EMPTY_BYTES;
+  private class FileNode extends CommonNode {
+    private final FileContents contents = new FileContents();
 
     FileNode(IPath path, FolderNode parent) {
       super(path, parent, false);
     }
 
-    synchronized InputStream getInputStream() {
-      return new ByteArrayInputStream(contents);
+    InputStream getInputStream() {
+      touchFile(this);
+      return contents.openInputStream();
     }
 
-    synchronized OutputStream getOutputStream(final int options) {
+    OutputStream getOutputStream(final int options) {
       return new ByteArrayOutputStream() {
         @Override
         public void close() throws IOException {
           super.close();
-          byte[] data;
+          Chunk chunk = new ByteArrayChunk(this.toByteArray());
           if ((options & EFS.APPEND) == 0) {
-            data = this.toByteArray();
+            setFileContents(chunk);
           } else {
-            byte[] outputData = this.toByteArray();
-            data = new byte[contents.length + this.size()];
-            System.arraycopy(contents, 0, data, 0, contents.length);
-            System.arraycopy(outputData, 0, data, contents.length, outputData.length);
+            appendFileContents(chunk);
           }
-          setFileContents(data);
         }
       };
+    }
 
+    void setFileContents(Chunk... chunks) {
+      long heapDelta;
+      synchronized (this) {
+        long oldSpillable = contents.getSpillableSize();
+        spilledBytes.addAndGet(-contents.getSpilledSize());
+        contents.set(chunks);
+        spilledBytes.addAndGet(contents.getSpilledSize());
+        heapDelta = contentsUpdated(oldSpillable);
+      }
+      // Called outside the lock, because it may spill or move other files.
+      heapBytesChanged(this, heapDelta);
+      compactSpillFileIfSparse();
     }
 
-    protected synchronized void setFileContents(byte[] data) {
-      contents = data;
-      info.setLength(data.length);
-      info.setLastModified(System.currentTimeMillis());
-      info.setExists(true);
+    void appendFileContents(Chunk chunk) {
+      long heapDelta;
+      synchronized (this) {
+        long oldSpillable = contents.getSpillableSize();
+        contents.append(chunk);
+        heapDelta = contentsUpdated(oldSpillable);
+      }
+      heapBytesChanged(this, heapDelta);
+    }
+
+    synchronized long spill(SpillFile spillFile) throws IOException {
+      long oldSpilled = contents.getSpilledSize();
+      long released = contents.spill(spillFile);
+      spilledBytes.addAndGet(contents.getSpilledSize() - oldSpilled);
+      return released;
     }
 
+    synchronized void moveSpilled(SpillFile newSpillFile) throws IOException {
+      contents.moveSpilled(newSpillFile);
+    }
+
+    synchronized long getSpillableSize() {
+      return contents.getSpillableSize();
+    }
+
+    synchronized long getSpilledSize() {
+      return contents.getSpilledSize();
+    }
+
+    /**
+     * @return change of heap bytes
+     */
+    private long contentsUpdated(long oldSpillable) {
+      info.setLength(contents.getLength());
+      // Make sure workspace notices the change even within the same millisecond.
+      long lastModified = System.currentTimeMillis();
+      if (lastModified <= info.getLastModified()) {
+        lastModified = info.getLastModified() + 1;
+      }
+      info.setLastModified(lastModified);
+      info.setExists(true);
+      return contents.getSpillableSize() - oldSpillable;
+    }
   }
 
   private static final String[] EMPTY_NAMES = new String[0];
 
   private final RootNode ROOT = new RootNode();
 
+  private final long heapLimit = Long.getLong(HEAP_LIMIT_PROPERTY, DEFAULT_HEAP_LIMIT);
+
+  private final AtomicLong heapBytes = new AtomicLong(0);
+
+  /** Number of spill file bytes that files still refer to. */
+  private final AtomicLong spilledBytes = new AtomicLong(0);
+
+  /**
+   * Files in the order of access, least recently used first. Guarded by itself.
+   */
+  private final LinkedHashMap<FileNode, Boolean> recentFiles =
+      new LinkedHashMap<FileNode, Boolean>(16, 0.75f, true);
+
+  private final Object spillLock = new Object();
+
+  // Guarded by spillLock.
+  private SpillFile spillFile = null;
+
+  /**
+   * Sets file contents as text. The strings are kept as is and get encoded only when
+   * the file is read, so they can be shared with their producer (e.g. script sources).
+   * The file must already exist. Workspace should be refreshed afterwards.
+   * @param uri chromiumdebug file system URI of the file
+   */
+  public void setTextContents(URI uri, List<String> textParts, Charset charset)
+      throws CoreException {
+    IPath path = ChromiumScriptFileSystem.toPath(uri);
+    CommonNode node = find(path);
+    if (node == null) {
+      throw newCoreException("File not found: " + path, null); //$NON-NLS-1$
+    }
+    if (!node.isFile()) {
+      throw newCoreException("Cannot write text to directory: " + path, null); //$NON-NLS-1$
+    }
+    List<Chunk> chunks = new ArrayList<Chunk>(textParts.size());
+    for (String part : textParts) {
+      if (part.length() != 0) {
+        chunks.add(new TextChunk(part, charset));
+      }
+    }
+    ((FileNode) node).setFileContents(chunks.toArray(new Chunk[chunks.size()]));
+  }
+
+  private void touchFile(FileNode fileNode) {
+    synchronized (recentFiles) {
+      recentFiles.put(fileNode, Boolean.TRUE);
+    }
+  }
+
+  private void heapBytesChanged(FileNode fileNode, long delta) {
+    touchFile(fileNode);
+    if (heapBytes.addAndGet(delta) > heapLimit) {
+      spillColdFiles();
+    }
+  }
+
+  /**
+   * Moves least recently used files out of heap until heap usage goes below 3/4 of the limit.
+   */
+  private void spillColdFiles() {
+    List<FileNode> candidates = getRecentFiles();
+    long target = heapLimit / 4 * 3;
+    synchronized (spillLock) {
+      for (FileNode fileNode : candidates) {
+        if (heapBytes.get() <= target) {
+          break;
+        }
+        if (fileNode.getSpillableSize() == 0) {
+          continue;
+        }
+        try {
+          long released = fileNode.spill(getSpillFile());
+          heapBytes.addAndGet(-released);
+        } catch (IOException e) {
+          ChromiumDebugPlugin.log(e);
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Copies the blocks that files still refer to into a new spill file and deletes the old
+   * one, if less than half of the old file is in use.
+   */
+  private void compactSpillFileIfSparse() {
+    synchronized (spillLock) {
+      if (spillFile == null) {
+        return;
+      }
+      long fileSize = spillFile.getSize();
+      if (fileSize < MIN_COMPACTED_SPILL_SIZE || spilledBytes.get() * 2 >= fileSize) {
+        return;
+      }
+      SpillFile newSpillFile;
+      try {
+        newSpillFile = SpillFile.create();
+        for (FileNode fileNode : getRecentFiles()) {
+          if (fileNode.getSpilledSize() != 0) {
+            fileNode.moveSpilled(newSpillFile);
+          }
+        }
+      } catch (IOException e) {
+        // Blocks that have been copied stay valid; both files are deleted on VM exit.
+        ChromiumDebugPlugin.log(e);
+        return;
+      }
+      spillFile.delete();
+      spillFile = newSpillFile;
+    }
+  }
+
+  private SpillFile getSpillFile() throws IOException {
+    synchronized (spillLock) {
+      if (spillFile == null) {
+        spillFile = SpillFile.create();
+      }
+      return spillFile;
+    }
+  }
+
+  private List<FileNode> getRecentFiles() {
+    synchronized (recentFiles) {
+      return new ArrayList<FileNode>(recentFiles.keySet());
+    }
+  }
+
+  private void fileRemoved(CommonNode node) {
+    if (node.isFile()) {
+      FileNode fileNode = (FileNode) node;
+      synchronized (recentFiles) {
+        recentFiles.remove(fileNode);
+      }
+      heapBytes.addAndGet(-fileNode.getSpillableSize());
+      spilledBytes.addAndGet(-fileNode.getSpilledSize());
+    } else {
+      List<CommonNode> children;
+      synchronized (((FolderNode) node).children) {
+        children = new ArrayList<CommonNode>(((FolderNode) node).children.values());
+      }
+      for (CommonNode child : children) {
+        fileRemoved(child);
+      }
+    }
+  }
+
   private CommonNode find(IPath path) {
     if (path == null) {
       return null;
@@ -252,7 +469,12 @@ public class ChromiumScriptStorage {
       throw newCoreException("Parent is not a directory: " + getParentPath(path), null); //$NON-NLS-1$
     }
     FolderNode parentFolder = (FolderNode) parent;
+    CommonNode node = parentFolder.children.get(path.lastSegment());
     parentFolder.remove(path.lastSegment());
+    if (node != null) {
+      fileRemoved(node);
+      compactSpillFileIfSparse();
+    }
   }
 
   InputStream openInputStream(IPath path, int options) throws CoreException {
@@ -315,7 +537,7 @@ public class ChromiumScriptStorage {
     new FolderNode(path, (FolderNode) parentNode);
   }
 
-  private static FileNode createFile(IPath path, CommonNode parent) {
+  private FileNode createFile(IPath path, CommonNode parent) {
     return new FileNode(path, (FolderNode) parent);
   }
 
@@ -0,0 +1,421 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.efs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+
+/**
+ * Contents of a file in {@link ChromiumScriptStorage}: a sequence of immutable chunks.
+ * Appending a chunk costs O(1) (amortized): chunks already stored are never modified,
+ * so input streams opened earlier keep working on their own snapshot of the chunk array.
+ * <p>
+ * A chunk may be a byte array, a text string that is encoded on the fly (this lets
+ * the file share the script source string with SDK instead of holding a byte copy)
+ * or a region of a memory-mapped {@link SpillFile}.
+ */
+class FileContents {
+  private static final Chunk[] EMPTY_CHUNKS = new Chunk[0];
+
+  // Guarded by 'this'.
+  private Chunk[] chunks = EMPTY_CHUNKS;
+  private int chunkCount = 0;
+  private long length = 0;
+  private long spillableSize = 0;
+  private long spilledSize = 0;
+
+  synchronized long getLength() {
+    return length;
+  }
+
+  /**
+   * Replaces all contents with the chunks.
+   */
+  synchronized void set(Chunk... newChunks) {
+    chunks = newChunks.clone();
+    chunkCount = chunks.length;
+    long newLength = 0;
+    long newSpillableSize = 0;
+    long newSpilledSize = 0;
+    for (Chunk chunk : chunks) {
+      newLength += chunk.getLength();
+      newSpillableSize += chunk.getSpillableSize();
+      newSpilledSize += chunk.getSpilledSize();
+    }
+    length = newLength;
+    spillableSize = newSpillableSize;
+    spilledSize = newSpilledSize;
+  }
+
+  synchronized void append(Chunk chunk) {
+    if (chunkCount == chunks.length) {
+      chunks = Arrays.copyOf(chunks, Math.max(4, chunkCount * 2));
+    }
+    chunks[chunkCount++] = chunk;
+    length += chunk.getLength();
+    spillableSize += chunk.getSpillableSize();
+    spilledSize += chunk.getSpilledSize();
+  }
+
+  synchronized InputStream openInputStream() {
+    if (chunkCount == 0) {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+    if (chunkCount == 1) {
+      return chunks[0].openStream();
+    }
+    final Chunk[] snapshot = chunks;
+    final int snapshotCount = chunkCount;
+    return new SequenceInputStream(new Enumeration<InputStream>() {
+      private int pos = 0;
+
+      public boolean hasMoreElements() {
+        return pos < snapshotCount;
+      }
+
+      public InputStream nextElement() {
+        if (pos >= snapshotCount) {
+          throw new NoSuchElementException();
+        }
+        return snapshot[pos++].openStream();
+      }
+    });
+  }
+
+  /**
+   * @return number of bytes that chunks hold on heap and that could be moved into
+   *     a spill file
+   */
+  synchronized long getSpillableSize() {
+    return spillableSize;
+  }
+
+  /**
+   * Moves all spillable chunks into the spill file. Chunks are replaced with equivalent
+   * ones, so concurrent readers are not affected.
+   * @return number of bytes released from heap
+   */
+  synchronized long spill(SpillFile spillFile) throws IOException {
+    long released = 0;
+    for (int i = 0; i < chunkCount; i++) {
+      long size = chunks[i].getSpillableSize();
+      if (size == 0) {
+        continue;
+      }
+      chunks[i] = chunks[i].spill(spillFile);
+      released += size;
+      spillableSize -= size;
+      spilledSize += chunks[i].getSpilledSize();
+    }
+    return released;
+  }
+
+  /**
+   * @return number of bytes that chunks hold in a spill file
+   */
+  synchronized long getSpilledSize() {
+    return spilledSize;
+  }
+
+  /**
+   * Copies all chunks held in a spill file into another spill file. Chunks are replaced
+   * with equivalent ones, so concurrent readers are not affected.
+   */
+  synchronized void moveSpilled(SpillFile newSpillFile) throws IOException {
+    for (int i = 0; i < chunkCount; i++) {
+      if (chunks[i].getSpilledSize() != 0) {
+        chunks[i] = chunks[i].moveSpilled(newSpillFile);
+      }
+    }
+  }
+
+  /**
+   * An immutable part of file contents.
+   */
+  static abstract class Chunk {
+    abstract long getLength();
+
+    abstract InputStream openStream();
+
+    /**
+     * @return number of heap bytes this chunk exclusively holds or 0 if it cannot be spilled
+     */
+    long getSpillableSize() {
+      return 0;
+    }
+
+    Chunk spill(SpillFile spillFile) throws IOException {
+      return this;
+    }
+
+    /**
+     * @return number of bytes this chunk holds in a spill file
+     */
+    long getSpilledSize() {
+      return 0;
+    }
+
+    Chunk moveSpilled(SpillFile newSpillFile) throws IOException {
+      return this;
+    }
+  }
+
+  static class ByteArrayChunk extends Chunk {
+    private final byte[] bytes;
+
+    /**
+     * @param bytes array that must not be modified after the call
+     */
+    ByteArrayChunk(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    long getLength() {
+      return bytes.length;
+    }
+
+    @Override
+    InputStream openStream() {
+      return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    long getSpillableSize() {
+      return bytes.length;
+    }
+
+    @Override
+    Chunk spill(SpillFile spillFile) throws IOException {
+      return new SpilledChunk(spillFile.write(bytes));
+    }
+  }
+
+  /**
+   * A chunk backed by a read-only (typically memory-mapped) buffer.
+   */
+  static class ByteBufferChunk extends Chunk {
+    private final ByteBuffer buffer;
+
+    ByteBufferChunk(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    long getLength() {
+      return buffer.limit();
+    }
+
+    /**
+     * @return a view of the whole buffer with its own position
+     */
+    ByteBuffer newReadBuffer() {
+      ByteBuffer readBuffer = buffer.duplicate();
+      readBuffer.rewind();
+      return readBuffer;
+    }
+
+    @Override
+    InputStream openStream() {
+      final ByteBuffer readBuffer = newReadBuffer();
+      return new InputStream() {
+        @Override
+        public int read() {
+          if (!readBuffer.hasRemaining()) {
+            return -1;
+          }
+          return readBuffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+          if (len == 0) {
+            return 0;
+          }
+          if (!readBuffer.hasRemaining()) {
+            return -1;
+          }
+          int actualLen = Math.min(len, readBuffer.remaining());
+          readBuffer.get(b, off, actualLen);
+          return actualLen;
+        }
+
+        @Override
+        public int available() {
+          return readBuffer.remaining();
+        }
+      };
+    }
+  }
+
+  /**
+   * A chunk that lives in a {@link SpillFile}.
+   */
+  static class SpilledChunk extends ByteBufferChunk {
+    SpilledChunk(ByteBuffer buffer) {
+      super(buffer);
+    }
+
+    @Override
+    long getSpilledSize() {
+      return getLength();
+    }
+
+    @Override
+    Chunk moveSpilled(SpillFile newSpillFile) throws IOException {
+      return new SpilledChunk(newSpillFile.write(newReadBuffer()));
+    }
+  }
+
+  /**
+   * A chunk that holds text and encodes it while being read. The text is normally shared
+   * with whoever produced it (e.g. a script source), so the chunk costs no extra heap.
+   */
+  static class TextChunk extends Chunk {
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final String text;
+    private final Charset charset;
+    private final long length;
+
+    TextChunk(String text, Charset charset) {
+      this.text = text;
+      this.charset = charset;
+      this.length = countBytes(text, charset);
+    }
+
+    @Override
+    long getLength() {
+      return length;
+    }
+
+    @Override
+    InputStream openStream() {
+      return new EncodingInputStream(text, charset);
+    }
+
+    private static long countBytes(String text, Charset charset) {
+      if (isAsciiCompatible(charset) && isAscii(text)) {
+        return text.length();
+      }
+      CharsetEncoder encoder = newEncoder(charset);
+      CharBuffer input = CharBuffer.wrap(text);
+      ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+      long result = 0;
+      while (true) {
+        CoderResult coderResult = encoder.encode(input, output, true);
+        result += output.position();
+        output.clear();
+        if (coderResult.isUnderflow()) {
+          break;
+        }
+      }
+      while (true) {
+        CoderResult coderResult = encoder.flush(output);
+        result += output.position();
+        output.clear();
+        if (coderResult.isUnderflow()) {
+          break;
+        }
+      }
+      return result;
+    }
+
+    private static boolean isAscii(String text) {
+      for (int i = 0, len = text.length(); i < len; i++) {
+        if (text.charAt(i) >= 0x80) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+      String name = charset.name();
+      return "UTF-8".equals(name) || "US-ASCII".equals(name) || "ISO-8859-1".equals(name) ||
+          name.startsWith("windows-125");
+    }
+
+    private static CharsetEncoder newEncoder(Charset charset) {
+      // The same behavior as String.getBytes.
+      return charset.newEncoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private static class EncodingInputStream extends InputStream {
+      private final CharBuffer input;
+      private final CharsetEncoder encoder;
+      private final ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+      private boolean inputDone = false;
+      private boolean flushed = false;
+
+      EncodingInputStream(String text, Charset charset) {
+        this.input = CharBuffer.wrap(text);
+        this.encoder = newEncoder(charset);
+        output.flip();
+      }
+
+      @Override
+      public int read() {
+        if (!fill()) {
+          return -1;
+        }
+        return output.get() & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+          return 0;
+        }
+        if (!fill()) {
+          return -1;
+        }
+        int actualLen = Math.min(len, output.remaining());
+        output.get(b, off, actualLen);
+        return actualLen;
+      }
+
+      /**
+       * @return false if there are no more bytes
+       */
+      private boolean fill() {
+        while (!output.hasRemaining()) {
+          if (flushed) {
+            return false;
+          }
+          output.clear();
+          if (!inputDone) {
+            CoderResult result = encoder.encode(input, output, true);
+            if (result.isUnderflow()) {
+              inputDone = true;
+            }
+          } else {
+            CoderResult result = encoder.flush(output);
+            if (result.isUnderflow()) {
+              flushed = true;
+            }
+          }
+          output.flip();
+        }
+        return true;
+      }
+    }
+  }
+}
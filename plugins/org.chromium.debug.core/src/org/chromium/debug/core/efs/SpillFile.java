@@ -0,0 +1,83 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.efs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An append-only temporary file that holds file contents moved out of heap. Each written
+ * block is returned as a read-only memory-mapped buffer. Blocks are never freed; the storage
+ * compacts the file by copying live blocks into a new file and deleting the old one.
+ * Any file that is left gets deleted on VM exit.
+ */
+class SpillFile {
+  private final File file;
+  private final FileChannel channel;
+
+  // Guarded by 'this'.
+  private long size = 0;
+
+  static SpillFile create() throws IOException {
+    File file = File.createTempFile("chromiumdebug-efs", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+    file.deleteOnExit();
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+    return new SpillFile(file, randomAccessFile.getChannel());
+  }
+
+  private SpillFile(File file, FileChannel channel) {
+    this.file = file;
+    this.channel = channel;
+  }
+
+  /**
+   * Appends bytes to the file.
+   * @return read-only buffer mapped to the written block
+   */
+  ByteBuffer write(byte[] bytes) throws IOException {
+    return write(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Appends the remaining bytes of the buffer to the file.
+   * @return read-only buffer mapped to the written block
+   */
+  synchronized ByteBuffer write(ByteBuffer source) throws IOException {
+    long position = size;
+    int length = source.remaining();
+    int start = source.position();
+    while (source.hasRemaining()) {
+      channel.write(source, position + source.position() - start);
+    }
+    size += length;
+    return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+  }
+
+  synchronized long getSize() {
+    return size;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  /**
+   * Closes and deletes the file. Buffers that have been mapped stay valid (where the OS
+   * does not allow to delete a mapped file, it is deleted on VM exit).
+   */
+  void delete() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // Nothing is written after this point, so the error does not matter.
+    }
+    file.delete();
+  }
+}
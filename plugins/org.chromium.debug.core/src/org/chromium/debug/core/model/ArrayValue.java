@@ -21,23 +21,27 @@ import org.eclipse.debug.core.model.IVariable;
  */
 public class ArrayValue extends Value implements IIndexedValue {
 
-  private final AtomicReference<IVariable[]> elementsRef = new AtomicReference<IVariable[]>(null);
+  private final AtomicReference<SortedProperties> elementsRef =
+      new AtomicReference<SortedProperties>(null);
 
   public ArrayValue(EvaluateContext evaluateContext, JsArray array,
       ExpressionTracker.Node expressionTrackerNode) {
     super(evaluateContext, array, expressionTrackerNode);
   }
 
-  private IVariable[] createElements() {
+  private SortedProperties createElements() {
     JsArray jsArray = (JsArray) getJsValue();
-    return StackFrame.wrapVariables(getEvaluateContext(), jsArray.getProperties(),
-        ARRAY_HIDDEN_PROPERTY_NAMES,
-        // Do not show internal properties for arrays (this may be an option).
-        null, null, getExpressionTrackerNode());
+    // Do not show internal properties for arrays (this may be an option).
+    return SortedProperties.create(getEvaluateContext(), jsArray.getProperties(),
+        ARRAY_HIDDEN_PROPERTY_NAMES, getExpressionTrackerNode());
   }
 
-  private IVariable[] getElements() {
-    IVariable[] result = elementsRef.get();
+  /**
+   * Eclipse partitions indexed values by itself, so elements are not grouped into ranges
+   * here; they are only wrapped when requested.
+   */
+  private SortedProperties getElements() {
+    SortedProperties result = elementsRef.get();
     if (result == null) {
       result = createElements();
       elementsRef.compareAndSet(null, result);
@@ -52,22 +56,21 @@ public class ArrayValue extends Value implements IIndexedValue {
   }
 
   public int getSize() throws DebugException {
-    return getElements().length;
+    return getElements().size();
   }
 
   public IVariable getVariable(int offset) throws DebugException {
-    return getElements()[offset];
+    return getElements().getVariable(offset);
   }
 
   public IVariable[] getVariables(int offset, int length) throws DebugException {
-    IVariable[] result = new IVariable[length];
-    System.arraycopy(getElements(), offset, result, 0, length);
-    return result;
+    return getElements().getVariables(offset, length);
   }
 
   @Override
   public IVariable[] getVariables() throws DebugException {
-    return getElements();
+    SortedProperties elements = getElements();
+    return elements.getVariables(0, elements.size());
   }
 
   @Override
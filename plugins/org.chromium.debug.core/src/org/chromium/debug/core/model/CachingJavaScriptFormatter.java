@@ -0,0 +1,57 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.chromium.sdk.util.BasicUtil;
+
+/**
+ * Wraps a {@link JavaScriptFormatter} and caches its results by the content hash of source,
+ * so formatting the same script again (e.g. after reconnect or in another tab) is free.
+ * The cache is shared by all instances and bounded by the total size of formatted texts.
+ */
+class CachingJavaScriptFormatter implements JavaScriptFormatter {
+  private static final long MAX_CACHED_CHARS = 8L * 1024 * 1024;
+
+  // Guarded by itself.
+  private static final LinkedHashMap<String, Result> CACHE =
+      new LinkedHashMap<String, Result>(16, 0.75f, true);
+  // Guarded by CACHE.
+  private static long cachedChars = 0;
+
+  private final JavaScriptFormatter formatter;
+
+  CachingJavaScriptFormatter(JavaScriptFormatter formatter) {
+    this.formatter = formatter;
+  }
+
+  public Result format(String sourceString) {
+    String key = formatter.getClass().getName() + ":" + //$NON-NLS-1$
+        BasicUtil.computeContentHash(sourceString);
+    synchronized (CACHE) {
+      Result cached = CACHE.get(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    Result result = formatter.format(sourceString);
+    synchronized (CACHE) {
+      if (CACHE.put(key, result) == null) {
+        cachedChars += result.getFormattedText().length();
+      }
+      Iterator<Map.Entry<String, Result>> it = CACHE.entrySet().iterator();
+      while (cachedChars > MAX_CACHED_CHARS && CACHE.size() > 1) {
+        cachedChars -= it.next().getValue().getFormattedText().length();
+        it.remove();
+      }
+    }
+    return result;
+  }
+}
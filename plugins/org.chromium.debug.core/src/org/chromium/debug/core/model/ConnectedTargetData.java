@@ -181,6 +181,21 @@ public class ConnectedTargetData {
         : singleThread;
   }
 
+  /**
+   * @return the context VM is currently suspended in or null
+   */
+  DebugContext getCurrentDebugContext() {
+    JavascriptThread thread = getThread();
+    if (thread == null) {
+      return null;
+    }
+    EvaluateContext evaluateContext = thread.getEvaluateContext();
+    if (evaluateContext == null) {
+      return null;
+    }
+    return evaluateContext.getThreadSuspendedState().getDebugContext();
+  }
+
   private void fireEventForThread(int kind, int detail) {
     try {
       IThread[] threads = debugTargetState.getThreads();
@@ -291,7 +306,8 @@ public class ConnectedTargetData {
     }
   };
 
-  private class DebugEventListenerImpl implements DebugEventListener {
+  private class DebugEventListenerImpl
+      implements DebugEventListener, DebugEventListener.ScriptBatchListener {
 
     public void disconnected() {
       if (!disconnectAspect.isDisconnected()) {
@@ -324,6 +340,11 @@ public class ConnectedTargetData {
       workspaceRelations.scriptCollected(script);
     }
 
+    public void scriptsLoaded(Collection<Script> newScripts) {
+      listenerBlock.waitUntilReady();
+      workspaceRelations.scriptsLoaded(newScripts);
+    }
+
     public void scriptContentChanged(Script newScript) {
       listenerBlock.waitUntilReady();
       workspaceRelations.reloadScript(newScript);
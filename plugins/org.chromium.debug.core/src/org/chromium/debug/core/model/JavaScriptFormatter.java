@@ -44,9 +44,19 @@ public interface JavaScriptFormatter {
     public static final String CLASS_PROPERTY = "class";
 
     /**
-     * @return an instance of (any random) implementation of {@link JavaScriptFormatter} or null
+     * @return an instance of (any random) registered implementation of
+     *     {@link JavaScriptFormatter} or {@link StreamingJavaScriptFormatter} if none is
+     *     registered; results are cached by source content
      */
     public static JavaScriptFormatter getInstance() {
+      JavaScriptFormatter formatter = getRegisteredInstance();
+      if (formatter == null) {
+        formatter = new StreamingJavaScriptFormatter();
+      }
+      return new CachingJavaScriptFormatter(formatter);
+    }
+
+    private static JavaScriptFormatter getRegisteredInstance() {
       IExtensionPoint extensionPoint = RegistryFactory.getRegistry().getExtensionPoint(
           EXTENSION_POINT_ID);
       IExtension[] extensions = extensionPoint.getExtensions();
@@ -32,15 +32,17 @@ import org.chromium.sdk.wip.WipBrowser;
 import org.chromium.sdk.wip.WipBrowser.WipTabConnector;
 import org.chromium.sdk.wip.WipBrowserFactory;
 import org.chromium.sdk.wip.WipBrowserTab;
+import org.chromium.sdk.wip.WipConsoleStream;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.debug.core.model.ITerminate;
 
 public class JavascriptVmEmbedderFactory {
   public static JavascriptVmEmbedder.ConnectionToRemote connectToWipBrowser(String host, int port,
       WipBackend backend,
       final NamedConnectionLoggerFactory browserLoggerFactory,
       final NamedConnectionLoggerFactory tabLoggerFactory,
-      WipTabSelector tabSelector) throws CoreException {
+      WipTabSelector tabSelector, PageConsoleFactory pageConsoleFactory) throws CoreException {
 
     InetSocketAddress address = new InetSocketAddress(host, port);
     WipBrowserFactory.LoggerFactory factory = new WipBrowserFactory.LoggerFactory() {
@@ -58,11 +60,12 @@ public class JavascriptVmEmbedderFactory {
     final WipBrowser browser =
         WipBrowserFactory.INSTANCE.createBrowser(address, factory);
 
-    return connectWip(browser, backend, tabSelector);
+    return connectWip(browser, backend, tabSelector, pageConsoleFactory);
   }
 
   private static JavascriptVmEmbedder.ConnectionToRemote connectWip(final WipBrowser browser,
-      final WipBackend backend, final WipTabSelector tabSelector) throws CoreException {
+      final WipBackend backend, final WipTabSelector tabSelector,
+      final PageConsoleFactory pageConsoleFactory) throws CoreException {
     return new JavascriptVmEmbedder.ConnectionToRemote() {
       public JavascriptVmEmbedder.VmConnector selectVm() throws CoreException {
         WipTabSelector.BrowserAndBackend browserAndBackend =
@@ -84,10 +87,12 @@ public class JavascriptVmEmbedderFactory {
           return null;
         }
 
-        return new WipEmbeddingTabConnector(targetTabConnector, backend.getId());
+        return new WipEmbeddingTabConnector(targetTabConnector, backend.getId(),
+            pageConsoleFactory);
       }
 
       public void disposeConnection() {
+        browser.dispose();
       }
     };
   }
@@ -157,10 +162,13 @@ public class JavascriptVmEmbedderFactory {
   private static class WipEmbeddingTabConnector
       extends EmbeddingTabConnectorBase<WipBrowser.WipTabConnector> {
     private final String backendId;
+    private final PageConsoleFactory pageConsoleFactory;
 
-    WipEmbeddingTabConnector(WipTabConnector targetTabConnector, String backendId) {
+    WipEmbeddingTabConnector(WipTabConnector targetTabConnector, String backendId,
+        PageConsoleFactory pageConsoleFactory) {
       super(targetTabConnector);
       this.backendId = backendId;
+      this.pageConsoleFactory = pageConsoleFactory;
     }
 
     @Override
@@ -172,6 +180,7 @@ public class JavascriptVmEmbedderFactory {
       } catch (IOException e) {
         throw newCoreException("Failed to connect to browser tab: " + e.getMessage(), e);
       }
+      startPageConsole(browserTab);
       return new EmbedderBase() {
         public JavascriptVm getJavascriptVm() {
           return browserTab.getJavascriptVm();
@@ -186,6 +195,35 @@ public class JavascriptVmEmbedderFactory {
         }
       };
     }
+
+    private void startPageConsole(final WipBrowserTab browserTab) {
+      if (pageConsoleFactory == null) {
+        return;
+      }
+      WipConsoleStream consoleStream = browserTab.getConsoleStream();
+      if (consoleStream == null) {
+        return;
+      }
+      ITerminate terminate = new ITerminate() {
+        public boolean canTerminate() {
+          return browserTab.getJavascriptVm().isAttached();
+        }
+        public boolean isTerminated() {
+          return !browserTab.getJavascriptVm().isAttached();
+        }
+        public void terminate() {
+          browserTab.getJavascriptVm().detach();
+        }
+      };
+      String title = MessageFormat.format(Messages.JavascriptVmEmbedderFactory_PageConsoleTitle,
+          browserTab.getUrl());
+      ConsolePseudoProcess.Retransmitter retransmitter =
+          pageConsoleFactory.createPageConsole(title, terminate);
+      if (retransmitter == null) {
+        return;
+      }
+      new PageConsoleForwarder(retransmitter).start(consoleStream);
+    }
   }
 
   public static JavascriptVmEmbedder.ConnectionToRemote connectToStandalone(String host, int port,
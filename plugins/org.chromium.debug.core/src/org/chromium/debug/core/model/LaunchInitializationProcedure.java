@@ -6,6 +6,8 @@
 
 package org.chromium.debug.core.model;
 
+import java.util.concurrent.TimeUnit;
+
 import org.chromium.debug.core.ChromiumDebugPlugin;
 import org.chromium.debug.core.util.ProgressUtil;
 import org.chromium.debug.core.util.ProgressUtil.MonitorWrapper;
@@ -25,8 +27,19 @@ import org.eclipse.osgi.util.NLS;
 /**
  * Does several things we need on debug session start. This procedure works asynchronously while
  * user may already start his debug activity.
+ * <p>
+ * The work is staged so that the debugger gets usable as early as possible: breakpoints
+ * are synchronized right away for the scripts that can be resolved without loading them, while
+ * scripts are being loaded into the virtual project in parallel; after that breakpoints are
+ * synchronized once more (in {@link BreakpointSynchronizer.Direction#MERGE} direction) to pick
+ * up the remote breakpoints whose scripts were not known during the first pass.
+ * Each stage is reported in the progress monitor and the whole procedure may be canceled
+ * between and within stages.
  */
 class LaunchInitializationProcedure {
+  /** How often a waiting stage checks the cancellation. */
+  private static final long CANCEL_CHECK_PERIOD_MS = 200;
+
   static void startAsync(VProjectWorkspaceBridge workspaceBridge,
       BreakpointSynchronizer.Direction presetDirection) {
     final LaunchInitializationProcedure procedure =
@@ -59,17 +72,17 @@ class LaunchInitializationProcedure {
   private interface WorkPlan {
     Stage PREINIT = new Stage(Messages.LaunchInitializationProcedure_UPDATE_DEBUGGER_STATE, 0.1f);
     Stage SET_OPTIONS = new Stage(Messages.LaunchInitializationProcedure_SET_OPTIONS, 1f);
-    Stage LOAD_SCRIPTS = new Stage(Messages.LaunchInitializationProcedure_LOAD_SCRIPTS, 1f);
     Stage SYNCHRONIZE_BREAKPOINTS =
         new Stage(Messages.LaunchInitializationProcedure_SYNCHRONIZE_BREAKPOINTS, 1f);
+    Stage LOAD_SCRIPTS = new Stage(Messages.LaunchInitializationProcedure_LOAD_SCRIPTS, 1f);
+    Stage SYNCHRONIZE_REMAINING_BREAKPOINTS = new Stage(
+        Messages.LaunchInitializationProcedure_SYNCHRONIZE_REMAINING_BREAKPOINTS, 1f);
 
-    boolean IS_INITIZALIZED = ProgressUtil.layoutProgressPlan(PREINIT, SET_OPTIONS, LOAD_SCRIPTS,
-        SYNCHRONIZE_BREAKPOINTS);
+    boolean IS_INITIZALIZED = ProgressUtil.layoutProgressPlan(PREINIT, SET_OPTIONS,
+        SYNCHRONIZE_BREAKPOINTS, LOAD_SCRIPTS, SYNCHRONIZE_REMAINING_BREAKPOINTS);
   }
 
   private IStatus execute(IProgressMonitor monitor) {
-    ConnectedTargetData connectedTargetData = workspaceBridge.getConnectedTargetData();
-
     MonitorWrapper monitorWrapper = new MonitorWrapper(monitor, ""); //$NON-NLS-1$
 
     monitorWrapper.beginTask();
@@ -82,13 +95,29 @@ class LaunchInitializationProcedure {
       // Not implemented yet
       WorkPlan.SET_OPTIONS.finish(monitorWrapper);
       checkIsCanceled(monitorWrapper);
+
+      // Scripts are loaded in background while breakpoints are being synchronized.
+      CallbackSemaphore scriptsSemaphore = new CallbackSemaphore();
+      RelayOk scriptsRelayOk = workspaceBridge.reloadScriptsAtStart(scriptsSemaphore);
+
+      BreakpointSynchronizer.Direction direction = readDirection();
+      if (direction != null) {
+        synchronizeBreakpoints(direction,
+            WorkPlan.SYNCHRONIZE_BREAKPOINTS.createSubMonitorWrapper(monitorWrapper));
+      }
+      checkIsCanceled(monitorWrapper);
+
       WorkPlan.LOAD_SCRIPTS.start(monitorWrapper);
-      workspaceBridge.reloadScriptsAtStart();
+      waitCancelable(scriptsSemaphore, scriptsRelayOk, monitorWrapper);
       WorkPlan.LOAD_SCRIPTS.finish(monitorWrapper);
       checkIsCanceled(monitorWrapper);
-      synchronizeBreakpoints(
-          WorkPlan.SYNCHRONIZE_BREAKPOINTS.createSubMonitorWrapper(monitorWrapper));
 
+      // Remote breakpoints in scripts that have just been loaded could not be resolved
+      // during the first pass; there is nothing left to do if they were all deleted.
+      if (direction != null && direction != BreakpointSynchronizer.Direction.RESET_REMOTE) {
+        synchronizeBreakpoints(BreakpointSynchronizer.Direction.MERGE,
+            WorkPlan.SYNCHRONIZE_REMAINING_BREAKPOINTS.createSubMonitorWrapper(monitorWrapper));
+      }
     } finally {
       monitorWrapper.done();
     }
@@ -105,31 +134,28 @@ class LaunchInitializationProcedure {
     boolean IS_LAYOUTED = ProgressUtil.layoutProgressPlan(ANALYZE, REMOTE_CHANGES);
   }
 
-  private void synchronizeBreakpoints(MonitorWrapper monitor) {
+  private BreakpointSynchronizer.Direction readDirection() {
+    if (presetDirection != null) {
+      return presetDirection;
+    }
+    DebugTargetImpl debugTarget = workspaceBridge.getConnectedTargetData().getDebugTarget();
+    ILaunchConfiguration launchConfiguration = debugTarget.getLaunch().getLaunchConfiguration();
+    try {
+      return LaunchParams.readBreakpointSyncDirection(launchConfiguration);
+    } catch (CoreException e) {
+      ChromiumDebugPlugin.log(
+          new Exception("Failed to read breakpoint synchronization direction " + //$NON-NLS-1$
+              "from launch configuration " + launchConfiguration.getName(), e)); //$NON-NLS-1$
+      return null;
+    }
+  }
+
+  private void synchronizeBreakpoints(BreakpointSynchronizer.Direction direction,
+      MonitorWrapper monitor) {
     monitor.beginTask();
     try {
       BreakpointsWorkPlan.ANALYZE.start(monitor);
 
-      DebugTargetImpl debugTarget = workspaceBridge.getConnectedTargetData().getDebugTarget();
-      ILaunchConfiguration launchConfiguration = debugTarget.getLaunch().getLaunchConfiguration();
-
-      BreakpointSynchronizer.Direction direction;
-      if (presetDirection == null) {
-        try {
-          direction = LaunchParams.readBreakpointSyncDirection(launchConfiguration);
-        } catch (CoreException e) {
-          ChromiumDebugPlugin.log(
-              new Exception("Failed to read breakpoint synchronization direction " + //$NON-NLS-1$
-                  "from launch configuration " + launchConfiguration.getName(), e)); //$NON-NLS-1$
-          direction = null;
-        }
-      } else {
-        direction = presetDirection;
-      }
-
-      if (direction == null) {
-        return;
-      }
       final CallbackSemaphore callbackSemaphore = new CallbackSemaphore();
       BreakpointSynchronizer.Callback callback = new BreakpointSynchronizer.Callback() {
         public void onDone(IStatus status) {
@@ -143,7 +169,7 @@ class LaunchInitializationProcedure {
       BreakpointsWorkPlan.ANALYZE.finish(monitor);
 
       BreakpointsWorkPlan.REMOTE_CHANGES.start(monitor);
-      callbackSemaphore.tryAcquireDefault(relayOk);
+      waitCancelable(callbackSemaphore, relayOk, monitor);
       BreakpointsWorkPlan.REMOTE_CHANGES.finish(monitor);
 
     } finally {
@@ -151,6 +177,21 @@ class LaunchInitializationProcedure {
     }
   }
 
+  /**
+   * Waits for an asynchronous operation with the default timeout, regularly checking
+   * whether the user has canceled the procedure.
+   */
+  private static void waitCancelable(CallbackSemaphore semaphore, RelayOk relayOk,
+      MonitorWrapper monitor) {
+    long deadline = System.currentTimeMillis() + CallbackSemaphore.OPERATION_TIMEOUT_MS;
+    while (!semaphore.tryAcquire(CANCEL_CHECK_PERIOD_MS, TimeUnit.MILLISECONDS)) {
+      checkIsCanceled(monitor);
+      if (System.currentTimeMillis() > deadline) {
+        return;
+      }
+    }
+  }
+
   private static void checkIsCanceled(MonitorWrapper monitor) {
     if (monitor.isCanceled()) {
       throw new OperationCanceledException();
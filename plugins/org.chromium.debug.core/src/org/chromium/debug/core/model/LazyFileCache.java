@@ -0,0 +1,97 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds files that are created on the first request. Above the limit the least recently
+ * used files that are not in use get deleted; such file is created again on the next request.
+ * The class is not thread-safe.
+ * @param <K> type of the key the file is created for
+ * @param <F> type of the file
+ */
+class LazyFileCache<K, F> {
+  interface Backend<K, F> {
+    F createFile(K key);
+
+    void deleteFile(K key, F file);
+
+    /**
+     * @return whether the file must be kept even if it is over the limit
+     */
+    boolean isInUse(K key, F file);
+  }
+
+  private final int maxSize;
+  private final Backend<K, F> backend;
+
+  /** Access-ordered map: the least recently used file goes first. */
+  private final LinkedHashMap<K, F> files = new LinkedHashMap<K, F>(16, 0.75f, true);
+
+  LazyFileCache(int maxSize, Backend<K, F> backend) {
+    this.maxSize = maxSize;
+    this.backend = backend;
+  }
+
+  /**
+   * Returns the file for the key, creating it if needed.
+   */
+  F get(K key) {
+    F file = files.get(key);
+    if (file != null) {
+      return file;
+    }
+    file = backend.createFile(key);
+    files.put(key, file);
+    evict(key);
+    return file;
+  }
+
+  boolean contains(K key) {
+    return files.containsKey(key);
+  }
+
+  int size() {
+    return files.size();
+  }
+
+  /**
+   * Forgets the key and deletes its file.
+   * @return false if there was no file for the key
+   */
+  boolean remove(K key) {
+    F file = files.remove(key);
+    if (file == null) {
+      return false;
+    }
+    backend.deleteFile(key, file);
+    return true;
+  }
+
+  /**
+   * Forgets all files without deleting them.
+   */
+  void clear() {
+    files.clear();
+  }
+
+  private void evict(K justCreated) {
+    Iterator<Map.Entry<K, F>> it = files.entrySet().iterator();
+    while (files.size() > maxSize && it.hasNext()) {
+      Map.Entry<K, F> entry = it.next();
+      if (entry.getKey().equals(justCreated) ||
+          backend.isInUse(entry.getKey(), entry.getValue())) {
+        continue;
+      }
+      it.remove();
+      backend.deleteFile(entry.getKey(), entry.getValue());
+    }
+  }
+}
@@ -61,6 +61,8 @@ public class Messages extends NLS {
 
   public static String HardcodedSourceWrapProvider_WITH_DEFINED_2;
 
+  public static String JavascriptVmEmbedderFactory_PageConsoleTitle;
+
   public static String JavascriptVmEmbedderFactory_TargetName0;
 
   public static String JavascriptVmEmbedderFactory_Terminated;
@@ -85,6 +87,8 @@ public class Messages extends NLS {
 
   public static String LaunchInitializationProcedure_SYNCHRONIZE_BREAKPOINTS;
 
+  public static String LaunchInitializationProcedure_SYNCHRONIZE_REMAINING_BREAKPOINTS;
+
   public static String LaunchInitializationProcedure_UPDATE_DEBUGGER_STATE;
 
   public static String LaunchParams_MERGE_OPTION;
@@ -99,6 +103,12 @@ public class Messages extends NLS {
 
   public static String MockUpResourceWriter_SCRIPTS_OVERLAPPED;
 
+  public static String PageConsoleForwarder_CLEARED;
+
+  public static String PageConsoleForwarder_LOST_MESSAGES;
+
+  public static String PageConsoleForwarder_REPEATED;
+
   public static String ResourceManager_UnnamedScriptName;
 
   public static String StackFrame_NameFormat;
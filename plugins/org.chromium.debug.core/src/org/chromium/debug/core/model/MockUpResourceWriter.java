@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
 import org.chromium.sdk.Script;
 import org.eclipse.osgi.util.NLS;
@@ -17,9 +18,11 @@ import org.eclipse.osgi.util.NLS;
 /**
  * Creates from a set of scripts a mock-up of full resource (scripts are positioned according
  * to their line numbers and the whitespace is filled with text pattern).
+ * The result is a list of text parts; script sources go there as is (not copied), so that
+ * the resource storage could share them with SDK.
  */
 class MockUpResourceWriter {
-  static String writeScriptSource(Collection<Script> scripts) {
+  static List<String> writeScriptSource(Collection<Script> scripts) {
     ArrayList<Script> sortedScriptsArrayList = new ArrayList<Script>();
     for (Script script : scripts) {
       if (script.isCollected()) {
@@ -38,6 +41,7 @@ class MockUpResourceWriter {
 
   private int line = 0;
   private int col = 0;
+  private final List<String> parts = new ArrayList<String>();
   private final StringBuilder builder = new StringBuilder();
 
   private void writeSript(Script script) {
@@ -77,18 +81,31 @@ class MockUpResourceWriter {
   }
 
   private void writeText(String text) {
+    flushBuilder();
+    parts.add(text);
+    int lastNlPos = -1;
     int pos = 0;
     while (true) {
       int nlPos = text.indexOf('\n', pos);
       if (nlPos == -1) {
-        String rest = text.substring(pos);
-        builder.append(rest);
-        col += rest.length();
         break;
       }
-      writeln(text.substring(pos, nlPos));
+      line++;
+      lastNlPos = nlPos;
       pos = nlPos + 1;
     }
+    if (lastNlPos == -1) {
+      col += text.length();
+    } else {
+      col = text.length() - lastNlPos - 1;
+    }
+  }
+
+  private void flushBuilder() {
+    if (builder.length() != 0) {
+      parts.add(builder.toString());
+      builder.setLength(0);
+    }
   }
 
   private void writeln(String str) {
@@ -133,8 +150,9 @@ class MockUpResourceWriter {
     }
   }
 
-  private String getResult() {
-    return builder.toString();
+  private List<String> getResult() {
+    flushBuilder();
+    return parts;
   }
 
   private static final String NOT_A_JAVASCRIPT_FILLER =
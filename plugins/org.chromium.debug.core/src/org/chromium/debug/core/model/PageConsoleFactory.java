@@ -0,0 +1,21 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.model;
+
+import org.eclipse.debug.core.model.ITerminate;
+
+/**
+ * The factory provides a console for page messages (e.g. console.log output)
+ * of a debugged browser tab, supposedly in some UI.
+ */
+public interface PageConsoleFactory {
+  /**
+   * @param terminate controls the connection the console belongs to
+   * @return retransmitter that receives the console text or null
+   */
+  ConsolePseudoProcess.Retransmitter createPageConsole(String title, ITerminate terminate);
+}
@@ -0,0 +1,80 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.model;
+
+import java.text.MessageFormat;
+import java.util.List;
+
+import org.chromium.sdk.wip.WipConsoleStream;
+
+/**
+ * Writes page console messages into {@link ConsolePseudoProcess.Retransmitter}.
+ * The stream delivers messages in rate-limited batches, so each batch is formatted into
+ * one string and flushed to the Eclipse console at once.
+ */
+class PageConsoleForwarder implements WipConsoleStream.Listener {
+  /** How many messages are kept while waiting for delivery. */
+  static final int BUFFER_CAPACITY = 2000;
+
+  /** Minimal interval between console updates. */
+  static final long DELIVERY_INTERVAL_MS = 200;
+
+  private final ConsolePseudoProcess.Retransmitter retransmitter;
+
+  PageConsoleForwarder(ConsolePseudoProcess.Retransmitter retransmitter) {
+    this.retransmitter = retransmitter;
+  }
+
+  void start(WipConsoleStream consoleStream) {
+    consoleStream.start(this, BUFFER_CAPACITY, DELIVERY_INTERVAL_MS);
+  }
+
+  public void messagesAdded(List<? extends WipConsoleStream.Message> messages,
+      long lostCount) {
+    StringBuilder builder = new StringBuilder();
+    if (lostCount > 0) {
+      builder.append(MessageFormat.format(Messages.PageConsoleForwarder_LOST_MESSAGES,
+          lostCount)).append('\n');
+    }
+    for (WipConsoleStream.Message message : messages) {
+      formatMessage(message, builder);
+      builder.append('\n');
+    }
+    writeAndFlush(builder.toString());
+  }
+
+  public void messagesCleared() {
+    writeAndFlush(Messages.PageConsoleForwarder_CLEARED + '\n');
+  }
+
+  public void streamClosed() {
+    retransmitter.processClosed();
+  }
+
+  private void writeAndFlush(String text) {
+    retransmitter.write(text.toCharArray(), 0, text.length());
+    retransmitter.flush();
+  }
+
+  private static void formatMessage(WipConsoleStream.Message message, StringBuilder output) {
+    if (message.getLevel() != WipConsoleStream.Level.LOG) {
+      output.append('[').append(message.getLevel().name()).append("] "); //$NON-NLS-1$
+    }
+    output.append(message.getText());
+    if (message.getUrl() != null) {
+      output.append(" (").append(message.getUrl()); //$NON-NLS-1$
+      if (message.getLine() >= 0) {
+        output.append(':').append(message.getLine());
+      }
+      output.append(')');
+    }
+    if (message.getRepeatCount() > 1) {
+      output.append(MessageFormat.format(Messages.PageConsoleForwarder_REPEATED,
+          message.getRepeatCount()));
+    }
+  }
+}
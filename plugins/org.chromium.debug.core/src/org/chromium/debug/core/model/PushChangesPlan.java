@@ -7,9 +7,15 @@
 package org.chromium.debug.core.model;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.chromium.debug.core.util.ChromiumDebugPluginUtil;
 import org.chromium.debug.core.util.ScriptTargetMapping;
+import org.chromium.sdk.JavascriptVm;
+import org.chromium.sdk.LiveEditBatchExtension;
 import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.Script;
 import org.chromium.sdk.SyncCallback;
@@ -82,12 +88,7 @@ public class PushChangesPlan {
 
   public RelayOk execute(boolean previewOnly,
       UpdatableScript.UpdateCallback callback, SyncCallback syncCallback) {
-    String wrappedSource;
-    if (wrapperMatch == null) {
-      wrappedSource = newSource;
-    } else {
-      wrappedSource = wrapperMatch.wrap(newSource);
-    }
+    String wrappedSource = getWrappedSource();
 
     if (previewOnly) {
       return script.previewSetSource(wrappedSource, callback, syncCallback);
@@ -95,4 +96,68 @@ public class PushChangesPlan {
       return script.setSourceOnRemote(wrappedSource, callback, syncCallback);
     }
   }
+
+  /**
+   * Executes several plans. Plans that target the same VM are pushed as one
+   * {@link LiveEditBatchExtension} operation when the VM supports it, so the scripts are
+   * previewed concurrently and the debug context is rebuilt only once; otherwise each plan is
+   * executed on its own.
+   * @param planToCallback plans in the order of execution with their callbacks (that may
+   *     be null)
+   */
+  public static void executeAll(
+      Map<PushChangesPlan, UpdatableScript.UpdateCallback> planToCallback, boolean previewOnly) {
+    Map<JavascriptVm, List<LiveEditBatchExtension.Change>> vmToChanges =
+        new LinkedHashMap<JavascriptVm, List<LiveEditBatchExtension.Change>>();
+    for (Map.Entry<PushChangesPlan, UpdatableScript.UpdateCallback> en :
+        planToCallback.entrySet()) {
+      PushChangesPlan plan = en.getKey();
+      JavascriptVm vm = plan.getScriptTargetMapping().getJavascriptVm();
+      if (vm.getLiveEditBatchExtension() == null) {
+        plan.execute(previewOnly, en.getValue(), null);
+        continue;
+      }
+      List<LiveEditBatchExtension.Change> changes = vmToChanges.get(vm);
+      if (changes == null) {
+        changes = new ArrayList<LiveEditBatchExtension.Change>();
+        vmToChanges.put(vm, changes);
+      }
+      changes.add(plan.createBatchChange(en.getValue()));
+    }
+    for (Map.Entry<JavascriptVm, List<LiveEditBatchExtension.Change>> en :
+        vmToChanges.entrySet()) {
+      LiveEditBatchExtension extension = en.getKey().getLiveEditBatchExtension();
+      if (previewOnly) {
+        extension.previewSetSources(en.getValue(), null, null);
+      } else {
+        extension.setSourcesOnRemote(en.getValue(), null, null);
+      }
+    }
+  }
+
+  private LiveEditBatchExtension.Change createBatchChange(
+      final UpdatableScript.UpdateCallback callback) {
+    final String wrappedSource = getWrappedSource();
+    return new LiveEditBatchExtension.Change() {
+      @Override public Script getScript() {
+        return script;
+      }
+
+      @Override public String getNewSource() {
+        return wrappedSource;
+      }
+
+      @Override public UpdatableScript.UpdateCallback getCallback() {
+        return callback;
+      }
+    };
+  }
+
+  private String getWrappedSource() {
+    if (wrapperMatch == null) {
+      return newSource;
+    } else {
+      return wrapperMatch.wrap(newSource);
+    }
+  }
 }
@@ -12,8 +12,12 @@ import static org.chromium.sdk.util.BasicUtil.removeSafe;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.chromium.debug.core.ChromiumDebugPlugin;
@@ -21,9 +25,12 @@ import org.chromium.debug.core.model.VmResource.Metadata;
 import org.chromium.debug.core.util.ChromiumDebugPluginUtil;
 import org.chromium.debug.core.util.UniqueKeyGenerator;
 import org.chromium.sdk.Script;
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.LocationKind;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.NullProgressMonitor;
@@ -31,8 +38,25 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 /**
  * This object handles the mapping between {@link Script}s and their corresponding resources
  * inside Eclipse.
+ * <p>
+ * If "org.chromium.debug.core.lazyVirtualProject" system property is set, script resources
+ * are only registered in the index and their files are created when somebody first asks
+ * for them via {@link VmResource#getVProjectFile()} (a stack frame, a breakpoint or a source
+ * lookup). In this mode at most "org.chromium.debug.core.lazyVirtualProject.maxFiles" script
+ * files are kept: the least recently used files get deleted and are re-created on the next
+ * request. A file is never deleted while it has markers (e.g. breakpoints), is open in an
+ * editor or belongs to a frame of the current debug context.
+ * <p>
+ * Note that in lazy mode the virtual project only shows the scripts that have been requested
+ * so far; a script that no frame, breakpoint or lookup has asked for is not visible in
+ * the workspace.
  */
 public class ResourceManager {
+  private static final boolean LAZY_FILES =
+      Boolean.getBoolean("org.chromium.debug.core.lazyVirtualProject"); //$NON-NLS-1$
+  private static final int MAX_LAZY_FILES =
+      Integer.getInteger("org.chromium.debug.core.lazyVirtualProject.maxFiles", 200); //$NON-NLS-1$
+
   private final IProject debugProject;
 
   private final VmResourceIdMap<VmResourceInfo> resourceIdToInfo =
@@ -40,8 +64,45 @@ public class ResourceManager {
 
   private final Map<IFile, VmResourceInfo> file2Info = new HashMap<IFile, VmResourceInfo>();
 
-  public ResourceManager(IProject debugProject) {
+  /** All resources, including the ones that have no file yet. */
+  private final Set<VmResourceInfo> allInfos = new LinkedHashSet<VmResourceInfo>();
+
+  /** Script resources whose files were created on demand. */
+  private final LazyFileCache<VmResourceInfo, IFile> lazyFiles =
+      new LazyFileCache<VmResourceInfo, IFile>(MAX_LAZY_FILES,
+          new LazyFileCache.Backend<VmResourceInfo, IFile>() {
+            public IFile createFile(VmResourceInfo info) {
+              createResourceFile(info);
+              writeScriptSource(((ScriptSet) info.metadata).asCollection(), info.file);
+              return info.file;
+            }
+
+            public void deleteFile(VmResourceInfo info, IFile file) {
+              ResourceManager.this.deleteFile(info);
+            }
+
+            public boolean isInUse(VmResourceInfo info, IFile file) {
+              return hasMarkers(file) || isOpenInEditor(file) ||
+                  getContextResourceIds().contains(info.id);
+            }
+          });
+
+  private final ContextScripts contextScripts;
+
+  /**
+   * Gives the scripts of the current debug context. Their files are never deleted
+   * in lazy mode.
+   */
+  public interface ContextScripts {
+    /**
+     * @return scripts of the current stack frames or empty collection if VM is running
+     */
+    Collection<Script> getScripts();
+  }
+
+  public ResourceManager(IProject debugProject, ContextScripts contextScripts) {
     this.debugProject = debugProject;
+    this.contextScripts = contextScripts;
   }
 
   public synchronized VmResource getVmResource(VmResourceId id) {
@@ -54,7 +115,7 @@ public class ResourceManager {
 
   public synchronized Collection<? extends VmResource> findVmResources(Pattern pattern) {
     List<VmResource> result = new ArrayList<VmResource>(1);
-    for (VmResourceInfo info : file2Info.values()) {
+    for (VmResourceInfo info : allInfos) {
       String name = info.id.getName();
       if (name == null) {
         continue;
@@ -78,23 +139,54 @@ public class ResourceManager {
   public synchronized void addScript(Script newScript) {
     VmResourceId id = VmResourceId.forScript(newScript);
     try {
-      VmResourceInfo info = resourceIdToInfo.get(id);
-      ScriptSet scriptSet;
-      if (info == null) {
-        scriptSet = new ScriptSet();
-        info = createAndRegisterResourceFile(id, scriptSet);
-      } else {
-        // TODO(peter.rybin): support adding scripts to one resource at once not to rewrite file
-        // every time.
-        scriptSet = (ScriptSet) info.metadata;
+      VmResourceInfo info = addScriptToSet(id, newScript);
+      if (info.file != null) {
+        writeScriptSource(((ScriptSet) info.metadata).asCollection(), info.file);
       }
-      scriptSet.add(newScript);
-      writeScriptSource(scriptSet.asCollection(), info.file);
     } catch (RuntimeException e) {
       throw new RuntimeException("Failed to add script " + id, e);
     }
   }
 
+  /**
+   * Adds several scripts at once. Each resource file is written only once, even if
+   * several of the scripts belong to it.
+   */
+  public synchronized void addScripts(Collection<Script> newScripts) {
+    Map<VmResourceId, VmResourceInfo> changed =
+        new LinkedHashMap<VmResourceId, VmResourceInfo>();
+    for (Script script : newScripts) {
+      VmResourceId id = VmResourceId.forScript(script);
+      try {
+        changed.put(id, addScriptToSet(id, script));
+      } catch (RuntimeException e) {
+        throw new RuntimeException("Failed to add script " + id, e);
+      }
+    }
+    for (VmResourceInfo info : changed.values()) {
+      if (info.file == null) {
+        continue;
+      }
+      writeScriptSource(((ScriptSet) info.metadata).asCollection(), info.file);
+    }
+  }
+
+  private VmResourceInfo addScriptToSet(VmResourceId id, Script newScript) {
+    VmResourceInfo info = resourceIdToInfo.get(id);
+    ScriptSet scriptSet;
+    if (info == null) {
+      scriptSet = new ScriptSet();
+      info = registerResource(id, scriptSet);
+      if (!LAZY_FILES) {
+        createResourceFile(info);
+      }
+    } else {
+      scriptSet = (ScriptSet) info.metadata;
+    }
+    scriptSet.add(newScript);
+    return info;
+  }
+
   public synchronized VmResource createTemporaryFile(final Metadata metadata,
       String proposedFileName) {
 
@@ -107,7 +199,9 @@ public class ResourceManager {
             }
             // Temporary file has no script id.
             VmResourceId id = new VmResourceId(uniqueName, null);
-            return createAndRegisterResourceFile(id, metadata);
+            VmResourceInfo newInfo = registerResource(id, metadata);
+            createResourceFile(newInfo);
+            return newInfo;
           }
     };
 
@@ -117,8 +211,15 @@ public class ResourceManager {
     return info.vmResourceImpl;
   }
 
-  private VmResourceInfo createAndRegisterResourceFile(VmResourceId id,
-      VmResource.Metadata metadata) {
+  private VmResourceInfo registerResource(VmResourceId id, VmResource.Metadata metadata) {
+    VmResourceInfo info = new VmResourceInfo(id, metadata);
+    resourceIdToInfo.put(id, info);
+    allInfos.add(info);
+    return info;
+  }
+
+  private void createResourceFile(VmResourceInfo info) {
+    VmResourceId id = info.id;
     IFile scriptFile;
     if (id.getName() == null) {
       IFolder specialDir = getOrCreateUnnamedScriptFolder(debugProject);
@@ -129,13 +230,53 @@ public class ResourceManager {
           getFileNameForScriptName(id.getName()));
     }
 
-    VmResourceInfo info = new VmResourceInfo(scriptFile, id, metadata);
-    resourceIdToInfo.put(id, info);
+    info.file = scriptFile;
     Object conflict = file2Info.put(scriptFile, info);
     if (conflict != null) {
       throw new RuntimeException();
     }
-    return info;
+  }
+
+  private synchronized IFile getOrCreateFile(VmResourceInfo info) {
+    if (info.file != null && !lazyFiles.contains(info)) {
+      // Eagerly created file.
+      return info.file;
+    }
+    return lazyFiles.get(info);
+  }
+
+  private Set<VmResourceId> getContextResourceIds() {
+    Set<VmResourceId> result = new HashSet<VmResourceId>();
+    for (Script script : contextScripts.getScripts()) {
+      result.add(VmResourceId.forScript(script));
+    }
+    return result;
+  }
+
+  private static boolean isOpenInEditor(IFile file) {
+    // Text editors keep a file buffer connected while open.
+    return FileBuffers.getTextFileBufferManager().getTextFileBuffer(file.getFullPath(),
+        LocationKind.IFILE) != null;
+  }
+
+  private static boolean hasMarkers(IFile file) {
+    try {
+      return file.findMarkers(null, true, IResource.DEPTH_ZERO).length != 0;
+    } catch (CoreException e) {
+      // Better keep the file.
+      return true;
+    }
+  }
+
+  private void deleteFile(VmResourceInfo info) {
+    IFile file = info.file;
+    removeSafe(file2Info, file);
+    info.file = null;
+    try {
+      file.delete(false, new NullProgressMonitor());
+    } catch (CoreException e) {
+      ChromiumDebugPlugin.log(e);
+    }
   }
 
   private static String getFileNameForScriptName(String scriptName) {
@@ -174,7 +315,9 @@ public class ResourceManager {
     }
     ScriptSet scriptSet = (ScriptSet) info.metadata;
     scriptSet.add(script);
-    writeScriptSource(scriptSet.asCollection(), info.file);
+    if (info.file != null) {
+      writeScriptSource(scriptSet.asCollection(), info.file);
+    }
   }
 
   public synchronized void clear() {
@@ -182,6 +325,8 @@ public class ResourceManager {
 
     resourceIdToInfo.clear();
     file2Info.clear();
+    allInfos.clear();
+    lazyFiles.clear();
   }
 
   private void deleteAllScriptFiles() {
@@ -194,7 +339,7 @@ public class ResourceManager {
   }
 
   private static void writeScriptSource(Collection<Script> scripts, IFile file) {
-    String fileSource = MockUpResourceWriter.writeScriptSource(scripts);
+    List<String> fileSource = MockUpResourceWriter.writeScriptSource(scripts);
 
     try {
       ChromiumDebugPluginUtil.writeFile(file, fileSource);
@@ -204,11 +349,11 @@ public class ResourceManager {
   }
 
   private class VmResourceInfo {
-    final IFile file;
+    /** The file or null if it hasn't been created yet. Guarded by ResourceManager.this. */
+    IFile file = null;
     final VmResourceId id;
     final VmResource.Metadata metadata;
-    VmResourceInfo(IFile file, VmResourceId id, VmResource.Metadata metadata) {
-      this.file = file;
+    VmResourceInfo(VmResourceId id, VmResource.Metadata metadata) {
       this.id = id;
       this.metadata = metadata;
     }
@@ -221,20 +366,19 @@ public class ResourceManager {
         return metadata;
       }
       public IFile getVProjectFile() {
-        return file;
+        return getOrCreateFile(VmResourceInfo.this);
       }
       public void deleteResourceAndFile() {
-        resourceIdToInfo.remove(id);
-        removeSafe(file2Info, file);
-
-        try {
-          file.delete(false, new NullProgressMonitor());
-        } catch (CoreException e) {
-          ChromiumDebugPlugin.log(e);
+        synchronized (ResourceManager.this) {
+          resourceIdToInfo.remove(id);
+          allInfos.remove(VmResourceInfo.this);
+          if (!lazyFiles.remove(VmResourceInfo.this) && file != null) {
+            deleteFile(VmResourceInfo.this);
+          }
         }
       }
       public String getLocalVisibleFileName() {
-        String name = file.getName();
+        String name = getVProjectFile().getName();
         if (name.endsWith(ChromiumDebugPluginUtil.CHROMIUM_EXTENSION_SUFFIX)) {
           return name.substring(0, name.length() -
               ChromiumDebugPluginUtil.CHROMIUM_EXTENSION_SUFFIX.length());
@@ -0,0 +1,195 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.chromium.sdk.JsVariable;
+import org.chromium.sdk.util.JavaScriptExpressionBuilder;
+import org.eclipse.debug.core.DebugException;
+import org.eclipse.debug.core.model.IVariable;
+
+/**
+ * Regular properties of an object in the order the Variables view shows them: names first,
+ * then array indexes in numeric order. The sort key of each property is computed only once.
+ * {@link Variable}s (and their expression nodes) are created lazily, only for the properties
+ * that are actually requested.
+ * <p>
+ * Big property sets are presented as a tree of ranges ("buckets") of at most
+ * {@link #BUCKET_SIZE} children each, similar to the partitions Eclipse builds for
+ * indexed values. A bucket creates variables when the user expands it.
+ */
+class SortedProperties {
+  static final int BUCKET_SIZE = 100;
+
+  static SortedProperties create(EvaluateContext evaluateContext,
+      Collection<? extends JsVariable> jsVars, Set<? extends String> propertyNameBlackList,
+      ExpressionTracker.Node expressionNode) {
+    SortKey[] keys = new SortKey[jsVars.size()];
+    int size = 0;
+    for (JsVariable jsVar : jsVars) {
+      String name = jsVar.getName();
+      if (propertyNameBlackList.contains(name)) {
+        continue;
+      }
+      keys[size++] = new SortKey(jsVar, name);
+    }
+    Arrays.sort(keys, 0, size);
+    JsVariable[] properties = new JsVariable[size];
+    for (int i = 0; i < size; i++) {
+      properties[i] = keys[i].jsVariable;
+    }
+    return new SortedProperties(evaluateContext, properties, expressionNode);
+  }
+
+  private final EvaluateContext evaluateContext;
+  private final JsVariable[] properties;
+  private final ExpressionTracker.Node expressionNode;
+  private final AtomicReferenceArray<Variable> variables;
+
+  private SortedProperties(EvaluateContext evaluateContext, JsVariable[] properties,
+      ExpressionTracker.Node expressionNode) {
+    this.evaluateContext = evaluateContext;
+    this.properties = properties;
+    this.expressionNode = expressionNode;
+    this.variables = new AtomicReferenceArray<Variable>(properties.length);
+  }
+
+  int size() {
+    return properties.length;
+  }
+
+  Variable getVariable(int index) {
+    Variable result = variables.get(index);
+    if (result == null) {
+      JsVariable jsVar = properties[index];
+      ExpressionTracker.Node expressionTrackerNode =
+          expressionNode.createVariableNode(jsVar, false);
+      result = Variable.forRealValue(evaluateContext, jsVar, false, expressionTrackerNode);
+      if (!variables.compareAndSet(index, null, result)) {
+        result = variables.get(index);
+      }
+    }
+    return result;
+  }
+
+  Variable[] getVariables(int offset, int length) {
+    Variable[] result = new Variable[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = getVariable(offset + i);
+    }
+    return result;
+  }
+
+  /**
+   * @return variables for all properties if there are not too many of them, or bucket
+   *     variables otherwise
+   */
+  List<Variable> getTopLevelVariables() {
+    return getRangeChildren(0, properties.length);
+  }
+
+  private List<Variable> getRangeChildren(int from, int to) {
+    int size = to - from;
+    if (size <= BUCKET_SIZE) {
+      return Arrays.asList(getVariables(from, size));
+    }
+    int bucketSize = BUCKET_SIZE;
+    while (size > bucketSize * BUCKET_SIZE) {
+      bucketSize *= BUCKET_SIZE;
+    }
+    List<Variable> result = new ArrayList<Variable>((size + bucketSize - 1) / bucketSize);
+    for (int start = from; start < to; start += bucketSize) {
+      int end = Math.min(start + bucketSize, to);
+      result.add(Variable.forPropertyRange(evaluateContext, getRangeName(start, end),
+          new RangeValue(start, end)));
+    }
+    return result;
+  }
+
+  private String getRangeName(int from, int to) {
+    return "[" + properties[from].getName() + " .. " + //$NON-NLS-1$ //$NON-NLS-2$
+        properties[to - 1].getName() + "]"; //$NON-NLS-1$
+  }
+
+  /**
+   * A value of a bucket: its children are either properties or smaller buckets.
+   */
+  private class RangeValue extends ValueBase.ValueWithLazyVariables {
+    private final int from;
+    private final int to;
+
+    RangeValue(int from, int to) {
+      super(evaluateContext);
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override public String getReferenceTypeName() throws DebugException {
+      return "<range>"; //$NON-NLS-1$
+    }
+
+    @Override public String getValueString() {
+      return ""; //$NON-NLS-1$
+    }
+
+    @Override public boolean isAllocated() throws DebugException {
+      return true;
+    }
+
+    @Override public boolean hasVariables() throws DebugException {
+      return true;
+    }
+
+    @Override public Value asRealValue() {
+      return null;
+    }
+
+    @Override protected IVariable[] calculateVariables() {
+      List<Variable> children = getRangeChildren(from, to);
+      return children.toArray(new IVariable[children.size()]);
+    }
+  }
+
+  /**
+   * A precomputed sort key of a property: property names that are array indexes go after
+   * other names and are compared as numbers.
+   */
+  private static class SortKey implements Comparable<SortKey> {
+    final JsVariable jsVariable;
+    final String name;
+    /** The array index or -1. */
+    final long index;
+
+    SortKey(JsVariable jsVariable, String name) {
+      this.jsVariable = jsVariable;
+      this.name = name;
+      Long index = JavaScriptExpressionBuilder.parsePropertyNameAsArrayIndex(name);
+      this.index = index == null ? -1 : index.longValue();
+    }
+
+    @Override
+    public int compareTo(SortKey other) {
+      if (index == -1) {
+        if (other.index == -1) {
+          return name.compareTo(other.name);
+        }
+        return -1;
+      } else {
+        if (other.index == -1) {
+          return 1;
+        }
+        return index < other.index ? -1 : (index == other.index ? 0 : 1);
+      }
+    }
+  }
+}
@@ -0,0 +1,187 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.chromium.debug.core.ChromiumDebugPlugin;
+import org.chromium.debug.core.sourcemap.SourceMap;
+import org.chromium.debug.core.sourcemap.SourceMapCache;
+import org.chromium.debug.core.sourcemap.SourceMapException;
+import org.chromium.debug.core.sourcemap.SourceMapParser;
+import org.chromium.debug.core.sourcemap.SourceMapUrls;
+import org.chromium.debug.core.sourcemap.SourcePositionMapBuilder;
+import org.chromium.debug.core.sourcemap.SourcePositionMapBuilder.CannotAddException;
+import org.chromium.debug.core.sourcemap.SourcePositionMapBuilder.MappingHandle;
+import org.chromium.debug.core.sourcemap.SourcePositionMapBuilder.ResourceSection;
+import org.chromium.sdk.Script;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Finds "sourceMappingURL" comments in loaded scripts, loads the source maps in a background
+ * job and registers them in {@link SourcePositionMapBuilder}. Original sources get resource ids
+ * by their names resolved relative to the map url, so that the source lookup finds them
+ * in the workspace.
+ * <p>
+ * Maps that are fetched by url are kept in a {@link SourceMapCache} bounded by
+ * "org.chromium.debug.core.sourceMapCacheSize" system property (bytes).
+ */
+class SourceMapLoader {
+  private static final long CACHE_SIZE =
+      Long.getLong("org.chromium.debug.core.sourceMapCacheSize", 32L << 20); //$NON-NLS-1$
+
+  private final SourcePositionMapBuilder positionMapBuilder;
+  private final SourceMapCache cache = new SourceMapCache(CACHE_SIZE);
+
+  /**
+   * Script id -> entry of a map that is being loaded or already registered.
+   * Guarded by 'this'.
+   */
+  private final Map<Object, Entry> scriptIdToEntry = new HashMap<Object, Entry>();
+
+  SourceMapLoader(SourcePositionMapBuilder positionMapBuilder) {
+    this.positionMapBuilder = positionMapBuilder;
+  }
+
+  void scriptsLoaded(Collection<Script> scripts) {
+    final List<Entry> newEntries = new ArrayList<Entry>(0);
+    for (Script script : scripts) {
+      // Never force loading of the source here.
+      if (!script.hasSource() || script.getSource() == null) {
+        continue;
+      }
+      String url = SourceMapParser.findSourceMappingUrl(script.getSource());
+      if (url == null) {
+        continue;
+      }
+      Entry entry = new Entry(script, SourceMapUrls.resolve(script.getName(), url));
+      putEntry(script.getId(), entry);
+      newEntries.add(entry);
+    }
+    if (newEntries.isEmpty()) {
+      return;
+    }
+    Job job = new Job("Load source maps") { //$NON-NLS-1$
+      @Override
+      protected IStatus run(IProgressMonitor monitor) {
+        for (Entry entry : newEntries) {
+          if (monitor.isCanceled()) {
+            return Status.CANCEL_STATUS;
+          }
+          load(entry);
+        }
+        return Status.OK_STATUS;
+      }
+    };
+    job.setSystem(true);
+    job.schedule();
+  }
+
+  /**
+   * Replaces the mapping of the script because its source (and the map url) may have changed.
+   */
+  void scriptReloaded(Script script) {
+    scriptCollected(script);
+    List<Script> list = new ArrayList<Script>(1);
+    list.add(script);
+    scriptsLoaded(list);
+  }
+
+  void scriptCollected(Script script) {
+    putEntry(script.getId(), null);
+  }
+
+  synchronized void clear() {
+    for (Entry entry : scriptIdToEntry.values()) {
+      entry.deleteMapping();
+    }
+    scriptIdToEntry.clear();
+    cache.clear();
+  }
+
+  private synchronized void putEntry(Object scriptId, Entry entry) {
+    Entry oldEntry;
+    if (entry == null) {
+      oldEntry = scriptIdToEntry.remove(scriptId);
+    } else {
+      oldEntry = scriptIdToEntry.put(scriptId, entry);
+    }
+    if (oldEntry != null) {
+      oldEntry.deleteMapping();
+    }
+  }
+
+  private void load(Entry entry) {
+    SourceMap sourceMap;
+    try {
+      if (SourceMapUrls.isDataUrl(entry.mapUrl)) {
+        // Inline maps belong to a single script, do not cache them.
+        sourceMap = SourceMapParser.parse(SourceMapUrls.readText(entry.mapUrl));
+      } else {
+        sourceMap = cache.get(entry.mapUrl);
+        if (sourceMap == null) {
+          sourceMap = SourceMapParser.parse(SourceMapUrls.readText(entry.mapUrl));
+          cache.put(entry.mapUrl, sourceMap);
+        }
+      }
+    } catch (SourceMapException e) {
+      ChromiumDebugPlugin.log(new Exception("Failed to load source map for script " + //$NON-NLS-1$
+          entry.script.getName(), e));
+      return;
+    }
+
+    String sourceBase = SourceMapUrls.isDataUrl(entry.mapUrl)
+        ? entry.script.getName() : entry.mapUrl;
+    List<VmResourceId> originalIds = new ArrayList<VmResourceId>(sourceMap.getSources().size());
+    for (String source : sourceMap.getSources()) {
+      originalIds.add(source == null
+          ? null : new VmResourceId(SourceMapUrls.resolve(sourceBase, source), null));
+    }
+    Script script = entry.script;
+    ResourceSection vmSection = new ResourceSection(VmResourceId.forScript(script),
+        script.getStartLine(), script.getStartColumn(), script.getEndLine(), Integer.MAX_VALUE);
+
+    synchronized (this) {
+      if (scriptIdToEntry.get(script.getId()) != entry) {
+        // The script has been collected or reloaded meanwhile.
+        return;
+      }
+      try {
+        entry.handle = positionMapBuilder.addSourceMap(vmSection, sourceMap, originalIds);
+      } catch (CannotAddException e) {
+        ChromiumDebugPlugin.log(new Exception("Failed to apply source map to script " + //$NON-NLS-1$
+            script.getName(), e));
+      }
+    }
+  }
+
+  private static class Entry {
+    final Script script;
+    final String mapUrl;
+    /** Registered mapping or null. Guarded by SourceMapLoader.this. */
+    MappingHandle handle = null;
+
+    Entry(Script script, String mapUrl) {
+      this.script = script;
+      this.mapUrl = mapUrl;
+    }
+
+    void deleteMapping() {
+      if (handle != null) {
+        handle.delete();
+        handle = null;
+      }
+    }
+  }
+}
@@ -82,17 +82,10 @@ public class StackFrame extends StackFrameBase implements IDropToFrame {
       Set<? extends String> propertyNameBlackList,
       Collection <? extends JsVariable> jsInternalProperties,
       Collection<? extends Variable> additional, ExpressionTracker.Node expressionNode) {
-    List<Variable> vars = new ArrayList<Variable>(jsVars.size());
-    for (JsVariable jsVar : jsVars) {
-      if (propertyNameBlackList.contains(jsVar.getName())) {
-        continue;
-      }
-      ExpressionTracker.Node expressionTrackerNode =
-          expressionNode.createVariableNode(jsVar, false);
-      vars.add(Variable.forRealValue(evaluateContext, jsVar, false, expressionTrackerNode));
-    }
-    // Sort all regular properties by name.
-    Collections.sort(vars, VARIABLE_COMPARATOR);
+    // Regular properties sorted by name, grouped into ranges if there are too many of them.
+    SortedProperties sortedProperties = SortedProperties.create(evaluateContext, jsVars,
+        propertyNameBlackList, expressionNode);
+    List<Variable> vars = new ArrayList<Variable>(sortedProperties.getTopLevelVariables());
     // Always put internal properties in the end.
     if (jsInternalProperties != null) {
       for (JsVariable jsMetaVar : jsInternalProperties) {
@@ -0,0 +1,410 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.model;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A single-pass token-stream formatter designed for big minified scripts. It only inserts
+ * line breaks with indentation (after statements and around blocks) and never changes
+ * original characters, so the position mapping is built on the fly as the text is copied.
+ * <p>
+ * Unlike a simple character scanner, it recognizes string, template, RegExp literals
+ * and comments and leaves their content intact. RegExp literals are told from division
+ * by the previous significant token, which is the usual heuristic of JavaScript tools.
+ * <p>The class is stateless and thread-safe.
+ */
+public class StreamingJavaScriptFormatter implements JavaScriptFormatter {
+  private static final int INDENT_SIZE = 2;
+  private static final int MAX_KEYWORD_LENGTH = 10;
+
+  @Override
+  public Result format(String sourceString) {
+    Session session = new Session(sourceString);
+    session.run();
+    return session.createResult();
+  }
+
+  /**
+   * Kinds of the previous significant token that the formatter needs to know.
+   */
+  private enum TokenKind {
+    NONE, WORD, KEYWORD_BEFORE_EXPRESSION, NUMBER, LITERAL, CLOSE_PAREN, OPEN_BRACE,
+    CLOSE_BRACE, PUNCTUATOR
+  }
+
+  private static class Session {
+    private final String input;
+    private final int length;
+    private final StringBuilder output;
+
+    // Mapping points: quadruples (input line, input column, output line, output column).
+    private int[] points = new int[64];
+    private int pointsSize = 0;
+
+    private int pos = 0;
+    private int inputLine = 0;
+    private int inputColumn = 0;
+    private int outputLine = 0;
+    private int outputColumn = 0;
+
+    private int braceDepth = 0;
+    private int parenDepth = 0;
+    private TokenKind lastToken = TokenKind.NONE;
+    /** A line break is due before the next token. */
+    private boolean breakPending = false;
+    /** Nothing but spaces has been output since the last line break. */
+    private boolean atLineStart = true;
+
+    Session(String input) {
+      this.input = input;
+      this.length = input.length();
+      // Minified code typically grows by a few percent.
+      this.output = new StringBuilder(length + length / 8 + 16);
+      addPoint();
+    }
+
+    void run() {
+      while (pos < length) {
+        char ch = input.charAt(pos);
+        switch (ch) {
+          case '\n':
+            copyChars(1);
+            breakPending = false;
+            break;
+          case ' ':
+          case '\t':
+          case '\r':
+          case '\f':
+          case '\u000B':
+            copyChars(1);
+            break;
+          case '"':
+          case '\'':
+          case '`':
+            beforeToken();
+            copyChars(scanQuoted(pos, ch) - pos);
+            lastToken = TokenKind.LITERAL;
+            break;
+          case '/':
+            handleSlash();
+            break;
+          case '{':
+            beforeToken();
+            copyChars(1);
+            braceDepth++;
+            lastToken = TokenKind.OPEN_BRACE;
+            // Keep empty blocks '{}' on one line.
+            breakPending = nextSignificantChar() != '}';
+            break;
+          case '}':
+            if (braceDepth > 0) {
+              braceDepth--;
+            }
+            if (!atLineStart && lastToken != TokenKind.OPEN_BRACE) {
+              insertLineBreak();
+            }
+            breakPending = false;
+            copyChars(1);
+            lastToken = TokenKind.CLOSE_BRACE;
+            breakPending = isBreakAfterCloseBraceNeeded();
+            break;
+          case ';':
+            breakPending = false;
+            copyChars(1);
+            lastToken = TokenKind.PUNCTUATOR;
+            breakPending = parenDepth == 0 && nextSignificantChar() != '}';
+            break;
+          case '(':
+          case '[':
+            beforeToken();
+            copyChars(1);
+            parenDepth++;
+            lastToken = TokenKind.PUNCTUATOR;
+            break;
+          case ')':
+          case ']':
+            beforeToken();
+            copyChars(1);
+            if (parenDepth > 0) {
+              parenDepth--;
+            }
+            lastToken = TokenKind.CLOSE_PAREN;
+            break;
+          default:
+            beforeToken();
+            if (isIdentifierPart(ch)) {
+              int end = pos + 1;
+              while (end < length && isIdentifierPart(input.charAt(end))) {
+                end++;
+              }
+              if (Character.isDigit(ch)) {
+                lastToken = TokenKind.NUMBER;
+              } else if (end - pos <= MAX_KEYWORD_LENGTH &&
+                  KEYWORDS_BEFORE_EXPRESSION.contains(input.substring(pos, end))) {
+                lastToken = TokenKind.KEYWORD_BEFORE_EXPRESSION;
+              } else {
+                lastToken = TokenKind.WORD;
+              }
+              copyChars(end - pos);
+            } else {
+              copyChars(1);
+              lastToken = TokenKind.PUNCTUATOR;
+            }
+        }
+      }
+    }
+
+    Result createResult() {
+      int pointCount = pointsSize / 4;
+      final int[] inputArray = new int[pointCount * 2];
+      final int[] formattedArray = new int[pointCount * 2];
+      for (int i = 0; i < pointCount; i++) {
+        inputArray[i * 2] = points[i * 4];
+        inputArray[i * 2 + 1] = points[i * 4 + 1];
+        formattedArray[i * 2] = points[i * 4 + 2];
+        formattedArray[i * 2 + 1] = points[i * 4 + 3];
+      }
+      final String formattedText = output.toString();
+      final StringMappingData inputTextData =
+          new StringMappingData(inputArray, inputLine, inputColumn);
+      final StringMappingData formattedTextData =
+          new StringMappingData(formattedArray, outputLine, outputColumn);
+
+      return new Result() {
+        public String getFormattedText() {
+          return formattedText;
+        }
+
+        public StringMappingData getInputTextData() {
+          return inputTextData;
+        }
+
+        public StringMappingData getFormattedTextData() {
+          return formattedTextData;
+        }
+      };
+    }
+
+    private void handleSlash() {
+      char next = pos + 1 < length ? input.charAt(pos + 1) : 0;
+      if (next == '/') {
+        // A trailing comment stays on its line; the pending break is served by the line end.
+        int end = pos + 2;
+        while (end < length && input.charAt(end) != '\n') {
+          end++;
+        }
+        copyChars(end - pos);
+        // The original line end follows; the previous token stays relevant.
+        return;
+      }
+      if (next == '*') {
+        beforeToken();
+        int end = input.indexOf("*/", pos + 2); //$NON-NLS-1$
+        end = end == -1 ? length : end + 2;
+        copyChars(end - pos);
+        return;
+      }
+      beforeToken();
+      if (isRegExpAllowed()) {
+        copyChars(scanRegExp(pos) - pos);
+        lastToken = TokenKind.LITERAL;
+      } else {
+        copyChars(1);
+        lastToken = TokenKind.PUNCTUATOR;
+      }
+    }
+
+    private boolean isRegExpAllowed() {
+      switch (lastToken) {
+        case WORD:
+        case NUMBER:
+        case LITERAL:
+        case CLOSE_PAREN:
+        case CLOSE_BRACE:
+          return false;
+        default:
+          return true;
+      }
+    }
+
+    private boolean isBreakAfterCloseBraceNeeded() {
+      int nextPos = skipSpaces(pos);
+      if (nextPos >= length) {
+        return false;
+      }
+      char next = input.charAt(nextPos);
+      switch (next) {
+        case ';':
+        case ',':
+        case ')':
+        case ']':
+        case '.':
+        case '(':
+        case '}':
+        case '\n':
+          return false;
+      }
+      return !startsWithWord(nextPos, "else") && !startsWithWord(nextPos, "catch") && //$NON-NLS-1$ //$NON-NLS-2$
+          !startsWithWord(nextPos, "finally") && !startsWithWord(nextPos, "while"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    private boolean startsWithWord(int from, String word) {
+      int end = from + word.length();
+      return input.startsWith(word, from) &&
+          (end >= length || !isIdentifierPart(input.charAt(end)));
+    }
+
+    /**
+     * Called before any significant token: performs a pending line break.
+     */
+    private void beforeToken() {
+      if (breakPending) {
+        breakPending = false;
+        if (!atLineStart) {
+          insertLineBreak();
+        }
+      }
+    }
+
+    private char nextSignificantChar() {
+      int nextPos = skipSpaces(pos);
+      return nextPos < length ? input.charAt(nextPos) : 0;
+    }
+
+    private int skipSpaces(int from) {
+      while (from < length) {
+        char ch = input.charAt(from);
+        if (ch != ' ' && ch != '\t' && ch != '\r') {
+          break;
+        }
+        from++;
+      }
+      return from;
+    }
+
+    /**
+     * Copies input characters to output and advances both positions.
+     */
+    private void copyChars(int count) {
+      int end = pos + count;
+      output.append(input, pos, end);
+      for (int i = pos; i < end; i++) {
+        char ch = input.charAt(i);
+        if (ch == '\n') {
+          inputLine++;
+          inputColumn = 0;
+          outputLine++;
+          outputColumn = 0;
+          atLineStart = true;
+        } else {
+          inputColumn++;
+          outputColumn++;
+          if (ch != ' ' && ch != '\t' && ch != '\r') {
+            atLineStart = false;
+          }
+        }
+      }
+      pos = end;
+    }
+
+    /**
+     * Inserts a new line with indentation into output, registering a mapping segment that
+     * corresponds to an empty range in the input.
+     */
+    private void insertLineBreak() {
+      addPoint();
+      output.append('\n');
+      int indent = braceDepth * INDENT_SIZE;
+      for (int i = 0; i < indent; i++) {
+        output.append(' ');
+      }
+      outputLine++;
+      outputColumn = indent;
+      atLineStart = true;
+      addPoint();
+    }
+
+    private void addPoint() {
+      if (pointsSize + 4 > points.length) {
+        points = Arrays.copyOf(points, points.length * 2);
+      }
+      points[pointsSize++] = inputLine;
+      points[pointsSize++] = inputColumn;
+      points[pointsSize++] = outputLine;
+      points[pointsSize++] = outputColumn;
+    }
+
+    /**
+     * @return position after the closing quote (or the end of line/text for unterminated one)
+     */
+    private int scanQuoted(int start, char quote) {
+      int i = start + 1;
+      while (i < length) {
+        char ch = input.charAt(i);
+        if (ch == '\\') {
+          i += 2;
+          continue;
+        }
+        if (ch == quote) {
+          return i + 1;
+        }
+        if (ch == '\n' && quote != '`') {
+          return i;
+        }
+        i++;
+      }
+      return length;
+    }
+
+    /**
+     * @return position after the RegExp literal flags
+     */
+    private int scanRegExp(int start) {
+      int i = start + 1;
+      boolean inClass = false;
+      while (i < length) {
+        char ch = input.charAt(i);
+        if (ch == '\\') {
+          i += 2;
+          continue;
+        }
+        if (ch == '\n') {
+          return i;
+        }
+        if (inClass) {
+          if (ch == ']') {
+            inClass = false;
+          }
+        } else if (ch == '[') {
+          inClass = true;
+        } else if (ch == '/') {
+          i++;
+          while (i < length && isIdentifierPart(input.charAt(i))) {
+            i++;
+          }
+          return i;
+        }
+        i++;
+      }
+      return length;
+    }
+  }
+
+  private static boolean isIdentifierPart(char ch) {
+    return Character.isLetterOrDigit(ch) || ch == '_' || ch == '$';
+  }
+
+  /**
+   * Keywords after which '/' starts a RegExp literal rather than a division.
+   */
+  private static final Set<String> KEYWORDS_BEFORE_EXPRESSION = new HashSet<String>(
+      Arrays.asList("return", "typeof", "instanceof", "in", "of", "new", "delete", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+          "void", "throw", "case", "do", "else", "yield")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+}
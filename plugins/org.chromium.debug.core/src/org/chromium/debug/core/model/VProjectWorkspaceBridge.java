@@ -23,6 +23,7 @@ import org.chromium.debug.core.util.ChromiumDebugPluginUtil;
 import org.chromium.debug.core.util.JavaScriptRegExpSupport;
 import org.chromium.sdk.Breakpoint;
 import org.chromium.sdk.CallFrame;
+import org.chromium.sdk.DebugContext;
 import org.chromium.sdk.ExceptionData;
 import org.chromium.sdk.JavascriptVm;
 import org.chromium.sdk.JavascriptVm.ExceptionCatchMode;
@@ -75,13 +76,16 @@ public class VProjectWorkspaceBridge implements WorkspaceBridge {
   private final ResourceManager resourceManager;
   private final ConnectedTargetData connectedTargetData;
   private final ChromiumSourceDirector sourceDirector;
+  private final SourceMapLoader sourceMapLoader;
 
   public VProjectWorkspaceBridge(String projectName, ConnectedTargetData connectedTargetData,
       JavascriptVm javascriptVm) {
     this.connectedTargetData = connectedTargetData;
     this.javascriptVm = javascriptVm;
     this.debugProject = ChromiumDebugPluginUtil.createEmptyProject(projectName);
-    this.resourceManager = new ResourceManager(debugProject);
+    this.resourceManager = new ResourceManager(debugProject, contextScripts);
+    this.sourceMapLoader =
+        new SourceMapLoader(connectedTargetData.getSourcePositionMapBuilder());
 
     ILaunch launch = connectedTargetData.getDebugTarget().getLaunch();
 
@@ -116,18 +120,29 @@ public class VProjectWorkspaceBridge implements WorkspaceBridge {
 
   public void handleVmResetEvent() {
     resourceManager.clear();
+    sourceMapLoader.clear();
   }
 
   public void scriptLoaded(Script newScript) {
     resourceManager.addScript(newScript);
+    sourceMapLoader.scriptsLoaded(Collections.singletonList(newScript));
+  }
+
+  public void scriptsLoaded(Collection<Script> newScripts) {
+    resourceManager.addScripts(newScripts);
+    sourceMapLoader.scriptsLoaded(newScripts);
   }
 
   public void scriptCollected(Script script) {
     resourceManager.scriptCollected(script);
+    sourceMapLoader.scriptCollected(script);
   }
 
-  public void reloadScriptsAtStart() {
-    javascriptVm.getScripts(new ScriptsCallback() {
+  /**
+   * Asynchronously loads all scripts that VM already has and puts them into the project.
+   */
+  public RelayOk reloadScriptsAtStart(SyncCallback syncCallback) {
+    return javascriptVm.getScripts(new ScriptsCallback() {
       public void failure(String errorMessage) {
         ChromiumDebugPlugin.logError(errorMessage);
       }
@@ -136,11 +151,10 @@ public class VProjectWorkspaceBridge implements WorkspaceBridge {
         if (!javascriptVm.isAttached()) {
           return;
         }
-        for (Script script : scripts) {
-          resourceManager.addScript(script);
-        }
+        resourceManager.addScripts(scripts);
+        sourceMapLoader.scriptsLoaded(scripts);
       }
-    });
+    }, syncCallback);
   }
 
   public Collection<? extends VmResource> findVmResourcesFromWorkspaceFile(IFile resource)
@@ -191,12 +205,31 @@ public class VProjectWorkspaceBridge implements WorkspaceBridge {
 
   public void reloadScript(Script script) {
     resourceManager.reloadScript(script);
+    sourceMapLoader.scriptReloaded(script);
   }
 
   public BreakpointHandler getBreakpointHandler() {
     return breakpointHandler;
   }
 
+  private final ResourceManager.ContextScripts contextScripts =
+      new ResourceManager.ContextScripts() {
+        public Collection<Script> getScripts() {
+          DebugContext debugContext = connectedTargetData.getCurrentDebugContext();
+          if (debugContext == null) {
+            return Collections.emptyList();
+          }
+          List<Script> result = new ArrayList<Script>();
+          for (CallFrame callFrame : debugContext.getCallFrames()) {
+            Script script = callFrame.getScript();
+            if (script != null) {
+              result.add(script);
+            }
+          }
+          return result;
+        }
+      };
+
   private final BreakpointHandlerImpl breakpointHandler = new BreakpointHandlerImpl();
 
   private class BreakpointHandlerImpl implements BreakpointHandler,
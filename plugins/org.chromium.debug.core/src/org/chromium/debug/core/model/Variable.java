@@ -113,6 +113,14 @@ public abstract class Variable extends DebugElementImpl.WithEvaluate implements
     return forScopeImpl(evaluateContext, scopeVariableName, value);
   }
 
+  /**
+   * Creates a node that groups a range of properties of a big object.
+   */
+  static Variable forPropertyRange(EvaluateContext evaluateContext, String rangeName,
+      ValueBase rangeValue) {
+    return new Variable.Virtual(evaluateContext, rangeName, "<range>", rangeValue, null);
+  }
+
   private static Variable forScopeImpl(EvaluateContext evaluateContext, String scopeName,
       ValueBase scopeValue) {
     return new Variable.Virtual(evaluateContext, scopeName, "<scope>", scopeValue, null);
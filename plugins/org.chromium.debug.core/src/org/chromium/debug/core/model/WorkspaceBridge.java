@@ -73,6 +73,11 @@ public interface WorkspaceBridge {
    */
   void scriptLoaded(Script newScript);
 
+  /**
+   * Reports about several new scripts loaded in JavaScript VM at once.
+   */
+  void scriptsLoaded(Collection<Script> newScripts);
+
   /**
    * Reports about the script having been collected and disposed in JavaScript VM.
    */
@@ -0,0 +1,145 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.sourcemap;
+
+import java.util.List;
+
+import org.chromium.debug.core.sourcemap.TextSectionMapping.TextPoint;
+
+/**
+ * Implementation of an indexed (sectioned) {@link SourceMap}. Each section is a regular map
+ * that covers a part of generated file starting with a given offset. Sources of all sections
+ * are merged into one list; each section keeps a table from its own source indexes to
+ * indexes in the merged list.
+ */
+class IndexedSourceMapImpl implements SourceMap {
+  private final List<String> sources;
+
+  // Section offsets in generated file, sorted.
+  private final int[] offsetLines;
+  private final int[] offsetColumns;
+  private final SourceMap[] sections;
+
+  // For each section: section source index -> global source index.
+  private final int[][] sectionToGlobalSource;
+
+  IndexedSourceMapImpl(List<String> sources, int[] offsetLines, int[] offsetColumns,
+      SourceMap[] sections, int[][] sectionToGlobalSource) {
+    this.sources = sources;
+    this.offsetLines = offsetLines;
+    this.offsetColumns = offsetColumns;
+    this.sections = sections;
+    this.sectionToGlobalSource = sectionToGlobalSource;
+  }
+
+  public List<String> getSources() {
+    return sources;
+  }
+
+  public OriginalPosition findOriginal(int generatedLine, int generatedColumn) {
+    int sectionIndex = findSection(generatedLine, generatedColumn);
+    if (sectionIndex == -1) {
+      return null;
+    }
+    int line = generatedLine - offsetLines[sectionIndex];
+    int column = generatedColumn;
+    if (line == 0) {
+      column -= offsetColumns[sectionIndex];
+    }
+    OriginalPosition result = sections[sectionIndex].findOriginal(line, column);
+    if (result == null) {
+      return null;
+    }
+    return new OriginalPosition(sectionToGlobalSource[sectionIndex][result.getSourceIndex()],
+        result.getLine(), result.getColumn());
+  }
+
+  /**
+   * Asks every section that contains the source and returns the candidate whose original
+   * position is the closest to the requested one, using the same preference as a plain map:
+   * the same line first, then the next mapped line, then a previous line.
+   */
+  public TextPoint findGenerated(int sourceIndex, int line, int column) {
+    TextPoint best = null;
+    long bestDistance = Long.MAX_VALUE;
+    for (int i = 0; i < sections.length; i++) {
+      int[] sourceTable = sectionToGlobalSource[i];
+      for (int j = 0; j < sourceTable.length; j++) {
+        if (sourceTable[j] != sourceIndex) {
+          continue;
+        }
+        TextPoint result = sections[i].findGenerated(j, line, column);
+        if (result == null) {
+          continue;
+        }
+        long distance = getDistance(sections[i].findOriginal(result.getLine(),
+            result.getColumn()), j, line, column);
+        if (distance < bestDistance) {
+          bestDistance = distance;
+          int resultLine = result.getLine() + offsetLines[i];
+          int resultColumn = result.getColumn();
+          if (result.getLine() == 0) {
+            resultColumn += offsetColumns[i];
+          }
+          best = new TextPoint(resultLine, resultColumn);
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * @param found original position that a section candidate maps back to
+   * @return ordering key: a smaller value means a closer candidate
+   */
+  private static long getDistance(OriginalPosition found, int sectionSourceIndex, int line,
+      int column) {
+    final long lineFactor = 1L << 32;
+    if (found == null || found.getSourceIndex() != sectionSourceIndex) {
+      // Should not happen; still usable as the last resort.
+      return Long.MAX_VALUE - 1;
+    }
+    int lineDiff = found.getLine() - line;
+    if (lineDiff == 0) {
+      return Math.abs(found.getColumn() - column);
+    } else if (lineDiff > 0) {
+      return lineFactor * lineDiff + found.getColumn();
+    } else {
+      // Previous lines go after any next line.
+      return Long.MAX_VALUE / 2 + lineFactor * -lineDiff - found.getColumn();
+    }
+  }
+
+  public long getEstimatedSize() {
+    long result = 0;
+    for (SourceMap section : sections) {
+      result += section.getEstimatedSize();
+    }
+    return result;
+  }
+
+  /**
+   * @return index of the last section that starts at or before the point or -1
+   */
+  private int findSection(int line, int column) {
+    int low = 0;
+    int high = sections.length - 1;
+    int found = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      boolean beforeOrAt = offsetLines[middle] < line ||
+          (offsetLines[middle] == line && offsetColumns[middle] <= column);
+      if (beforeOrAt) {
+        found = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return found;
+  }
+}
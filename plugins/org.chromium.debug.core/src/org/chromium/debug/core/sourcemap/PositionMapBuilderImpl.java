@@ -8,8 +8,12 @@ package org.chromium.debug.core.sourcemap;
 
 import static org.chromium.sdk.util.BasicUtil.getSafe;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.chromium.debug.core.model.VmResourceId;
@@ -49,10 +53,11 @@ public class PositionMapBuilderImpl implements SourcePositionMapBuilder {
     RangeAdder originalSideAdder = userSide.checkCanAddRange(originalSection);
     RangeAdder vmSideAdder = vmSide.checkCanAddRange(vmSection);
 
-    final RangeDeleter originalDeleter = originalSideAdder.commit(fromOriginalToVmSectionMapping,
-        vmSection.getResourceId());
-    final RangeDeleter vmDeleter = vmSideAdder.commit(fromOriginalToVmSectionMapping,
-        originalSection.getResourceId());
+    final RangeDeleter originalDeleter = originalSideAdder.commit(
+        new SectionTargetMapping(vmSection.getResourceId(), fromOriginalToVmSectionMapping));
+    final RangeDeleter vmDeleter = vmSideAdder.commit(
+        new SectionTargetMapping(originalSection.getResourceId(),
+            fromOriginalToVmSectionMapping));
 
     updateToken();
     return new MappingHandle() {
@@ -64,6 +69,49 @@ public class PositionMapBuilderImpl implements SourcePositionMapBuilder {
     };
   }
 
+  public MappingHandle addSourceMap(ResourceSection vmSection, SourceMap sourceMap,
+      List<VmResourceId> originalResourceIds) throws CannotAddException {
+    if (originalResourceIds.size() != sourceMap.getSources().size()) {
+      throw new IllegalArgumentException("Resource ids do not match source map sources");
+    }
+    TextPoint vmStart = vmSection.getStart();
+
+    // Check everything first, so that we don't have to roll back.
+    RangeAdder vmSideAdder = vmSide.checkCanAddRange(vmSection);
+    List<RangeAdder> originalSideAdders = new ArrayList<RangeAdder>();
+    List<Integer> originalSourceIndexes = new ArrayList<Integer>();
+    Set<VmResourceId> usedIds = new HashSet<VmResourceId>();
+    for (int i = 0; i < originalResourceIds.size(); i++) {
+      VmResourceId id = originalResourceIds.get(i);
+      if (id == null || !usedIds.add(id)) {
+        continue;
+      }
+      ResourceSection wholeResource =
+          new ResourceSection(id, 0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+      originalSideAdders.add(userSide.checkCanAddRange(wholeResource));
+      originalSourceIndexes.add(i);
+    }
+
+    final List<RangeDeleter> deleters = new ArrayList<RangeDeleter>();
+    deleters.add(vmSideAdder.commit(
+        new SourceMapVmTargetMapping(sourceMap, vmStart, originalResourceIds)));
+    for (int i = 0; i < originalSideAdders.size(); i++) {
+      deleters.add(originalSideAdders.get(i).commit(
+          new SourceMapOriginalTargetMapping(sourceMap, originalSourceIndexes.get(i),
+              vmSection.getResourceId(), vmStart)));
+    }
+
+    updateToken();
+    return new MappingHandle() {
+      public void delete() {
+        for (RangeDeleter deleter : deleters) {
+          deleter.delete();
+        }
+        updateToken();
+      }
+    };
+  }
+
   /**
    * A "side" of transformation -- either "original" or "vm".
    */
@@ -105,7 +153,7 @@ public class PositionMapBuilderImpl implements SourcePositionMapBuilder {
         /**
          * Commits 'add' operation. No conflicts are expected at this stage.
          */
-        public RangeDeleter commit(TextSectionMapping mapTable, VmResourceId destinationResource) {
+        public RangeDeleter commit(TargetMapping targetMapping) {
           ResourceData commitData = resourceIdToData.get(resourceId);
           if (commitData == null) {
             commitData = new ResourceData();
@@ -113,7 +161,7 @@ public class PositionMapBuilderImpl implements SourcePositionMapBuilder {
           }
 
           final ResourceData commitDataFinal = commitData;
-          commitDataFinal.addRange(range, mapTable, destinationResource);
+          commitDataFinal.addRange(range, targetMapping);
 
           return new RangeDeleter() {
             public void delete() {
@@ -134,7 +182,7 @@ public class PositionMapBuilderImpl implements SourcePositionMapBuilder {
   }
 
   private interface RangeAdder {
-    RangeDeleter commit(TextSectionMapping mapTable, VmResourceId destinationResource);
+    RangeDeleter commit(TargetMapping targetMapping);
   }
 
   private interface RangeDeleter {
@@ -153,9 +201,7 @@ public class PositionMapBuilderImpl implements SourcePositionMapBuilder {
       if (structure == null) {
         return null;
       }
-      TextPoint resPoint = structure.nonEmptyRangeMapping.mapTable.transform(point, direction);
-      return new SourcePosition(structure.nonEmptyRangeMapping.targetResourceId,
-          resPoint.getLine(), resPoint.getColumn());
+      return structure.nonEmptyRangeMapping.targetMapping.transform(point, direction);
     }
 
     void checkCanAddRange(Range range) throws CannotAddException {
@@ -176,7 +222,7 @@ public class PositionMapBuilderImpl implements SourcePositionMapBuilder {
       }
     }
 
-    void addRange(Range range, TextSectionMapping mapTable, VmResourceId destinationResource) {
+    void addRange(Range range, TargetMapping targetMapping) {
       RangeGroup structure = getSafe(rangeMap, range.start);
       if (structure == null) {
         structure = new RangeGroup();
@@ -188,7 +234,7 @@ public class PositionMapBuilderImpl implements SourcePositionMapBuilder {
         if (structure.nonEmptyRangeMapping != null) {
           throw new RuntimeException();
         }
-        structure.nonEmptyRangeMapping = new RangeMapping(range, destinationResource, mapTable);
+        structure.nonEmptyRangeMapping = new RangeMapping(range, targetMapping);
       }
     }
 
@@ -247,14 +293,106 @@ public class PositionMapBuilderImpl implements SourcePositionMapBuilder {
    */
   private static class RangeMapping {
     final Range sourceRange;
-    final VmResourceId targetResourceId;
-    final TextSectionMapping mapTable;
+    final TargetMapping targetMapping;
 
-    RangeMapping(Range sourceRange, VmResourceId targetResourceId, TextSectionMapping mapTable) {
+    RangeMapping(Range sourceRange, TargetMapping targetMapping) {
       this.sourceRange = sourceRange;
+      this.targetMapping = targetMapping;
+    }
+  }
+
+  /**
+   * Transforms a point within a range into a position in a target resource.
+   */
+  private interface TargetMapping {
+    /**
+     * @return target position or null if the point is not mapped
+     */
+    SourcePosition transform(TextPoint point, TextSectionMapping.Direction direction);
+  }
+
+  /**
+   * A mapping into a single target resource defined by {@link TextSectionMapping}.
+   */
+  private static class SectionTargetMapping implements TargetMapping {
+    private final VmResourceId targetResourceId;
+    private final TextSectionMapping mapTable;
+
+    SectionTargetMapping(VmResourceId targetResourceId, TextSectionMapping mapTable) {
       this.targetResourceId = targetResourceId;
       this.mapTable = mapTable;
     }
+
+    public SourcePosition transform(TextPoint point, TextSectionMapping.Direction direction) {
+      TextPoint resPoint = mapTable.transform(point, direction);
+      return new SourcePosition(targetResourceId, resPoint.getLine(), resPoint.getColumn());
+    }
+  }
+
+  /**
+   * A mapping from "vm" (generated) resource into several original resources according
+   * to a {@link SourceMap}.
+   */
+  private static class SourceMapVmTargetMapping implements TargetMapping {
+    private final SourceMap sourceMap;
+    private final TextPoint vmStart;
+    private final List<VmResourceId> originalResourceIds;
+
+    SourceMapVmTargetMapping(SourceMap sourceMap, TextPoint vmStart,
+        List<VmResourceId> originalResourceIds) {
+      this.sourceMap = sourceMap;
+      this.vmStart = vmStart;
+      this.originalResourceIds = originalResourceIds;
+    }
+
+    public SourcePosition transform(TextPoint point, TextSectionMapping.Direction direction) {
+      int line = point.getLine() - vmStart.getLine();
+      int column = point.getColumn();
+      if (line == 0) {
+        column -= vmStart.getColumn();
+      }
+      SourceMap.OriginalPosition original = sourceMap.findOriginal(line, column);
+      if (original == null) {
+        return null;
+      }
+      VmResourceId resourceId = originalResourceIds.get(original.getSourceIndex());
+      if (resourceId == null) {
+        return null;
+      }
+      return new SourcePosition(resourceId, original.getLine(), original.getColumn());
+    }
+  }
+
+  /**
+   * A mapping from one of original resources into "vm" (generated) resource according
+   * to a {@link SourceMap}.
+   */
+  private static class SourceMapOriginalTargetMapping implements TargetMapping {
+    private final SourceMap sourceMap;
+    private final int sourceIndex;
+    private final VmResourceId vmResourceId;
+    private final TextPoint vmStart;
+
+    SourceMapOriginalTargetMapping(SourceMap sourceMap, int sourceIndex,
+        VmResourceId vmResourceId, TextPoint vmStart) {
+      this.sourceMap = sourceMap;
+      this.sourceIndex = sourceIndex;
+      this.vmResourceId = vmResourceId;
+      this.vmStart = vmStart;
+    }
+
+    public SourcePosition transform(TextPoint point, TextSectionMapping.Direction direction) {
+      TextPoint generated =
+          sourceMap.findGenerated(sourceIndex, point.getLine(), point.getColumn());
+      if (generated == null) {
+        return null;
+      }
+      int column = generated.getColumn();
+      if (generated.getLine() == 0) {
+        column += vmStart.getColumn();
+      }
+      return new SourcePosition(vmResourceId, generated.getLine() + vmStart.getLine(), column);
+    }
   }
 
   private static class Range {
@@ -0,0 +1,101 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.sourcemap;
+
+import java.util.List;
+
+/**
+ * A parsed source map ("Source Map Revision 3" format). It maps positions inside
+ * one "generated" file (typically a minified bundle that VM actually runs) to positions inside
+ * several "original" source files and back.
+ * <p>
+ * Implementations keep segments in packed int arrays and decode them lazily, so the map is cheap
+ * to hold even for very large bundles. Instances are immutable from the user's point of view
+ * and are thread-safe.
+ * <p>
+ * All line/column numbers are 0-based.
+ */
+public interface SourceMap {
+  /**
+   * @return list of original source names as declared in the map (with source root applied)
+   */
+  List<String> getSources();
+
+  /**
+   * Translates a position inside generated file into original source.
+   * @return original position or null if the position is not mapped
+   */
+  OriginalPosition findOriginal(int generatedLine, int generatedColumn);
+
+  /**
+   * Translates a position inside original source into generated file. If there is no exact
+   * mapping for the position, the closest mapping on the same line (or the next mapped line)
+   * is used.
+   * @param sourceIndex index in {@link #getSources()} list
+   * @return generated position or null if the source has no mappings at all
+   */
+  TextSectionMapping.TextPoint findGenerated(int sourceIndex, int line, int column);
+
+  /**
+   * @return an approximate number of bytes the map takes when fully decoded; used for
+   *     size-bounded caching
+   */
+  long getEstimatedSize();
+
+  /**
+   * A position inside one of original sources.
+   */
+  final class OriginalPosition {
+    private final int sourceIndex;
+    private final int line;
+    private final int column;
+
+    public OriginalPosition(int sourceIndex, int line, int column) {
+      this.sourceIndex = sourceIndex;
+      this.line = line;
+      this.column = column;
+    }
+
+    /**
+     * @return index in {@link SourceMap#getSources()} list
+     */
+    public int getSourceIndex() {
+      return sourceIndex;
+    }
+
+    public int getLine() {
+      return line;
+    }
+
+    public int getColumn() {
+      return column;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (obj instanceof OriginalPosition == false) {
+        return false;
+      }
+      OriginalPosition other = (OriginalPosition) obj;
+      return this.sourceIndex == other.sourceIndex && this.line == other.line &&
+          this.column == other.column;
+    }
+
+    @Override
+    public int hashCode() {
+      return sourceIndex + 17 * line + 31 * column;
+    }
+
+    @Override
+    public String toString() {
+      return "#" + sourceIndex + ":" + line + ":" + column;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.sourcemap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of parsed {@link SourceMap}s bounded by their total estimated size. Least recently
+ * used maps are evicted first. A key is typically a source map url or a hash of its content.
+ */
+public class SourceMapCache {
+  private final long maxSize;
+
+  // Access-ordered. Guarded by 'this'.
+  private final LinkedHashMap<String, SourceMap> maps =
+      new LinkedHashMap<String, SourceMap>(16, 0.75f, true);
+  private long currentSize = 0;
+
+  /**
+   * @param maxSize max total estimated size of cached maps in bytes
+   */
+  public SourceMapCache(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public synchronized SourceMap get(String key) {
+    return maps.get(key);
+  }
+
+  public synchronized void put(String key, SourceMap map) {
+    SourceMap oldMap = maps.put(key, map);
+    if (oldMap != null) {
+      currentSize -= oldMap.getEstimatedSize();
+    }
+    currentSize += map.getEstimatedSize();
+    evict(key);
+  }
+
+  /**
+   * Returns a cached map or parses the text and caches the result. Parsing is done
+   * outside the lock.
+   */
+  public SourceMap getOrParse(String key, String text) throws SourceMapException {
+    SourceMap result = get(key);
+    if (result != null) {
+      return result;
+    }
+    result = SourceMapParser.parse(text);
+    put(key, result);
+    return result;
+  }
+
+  public synchronized void remove(String key) {
+    SourceMap oldMap = maps.remove(key);
+    if (oldMap != null) {
+      currentSize -= oldMap.getEstimatedSize();
+    }
+  }
+
+  public synchronized void clear() {
+    maps.clear();
+    currentSize = 0;
+  }
+
+  public synchronized long getCurrentSize() {
+    return currentSize;
+  }
+
+  /**
+   * Evicts least recently used maps until the size fits, but always keeps the map that
+   * has just been added.
+   */
+  private void evict(String keptKey) {
+    Iterator<Map.Entry<String, SourceMap>> it = maps.entrySet().iterator();
+    while (currentSize > maxSize && it.hasNext()) {
+      Map.Entry<String, SourceMap> entry = it.next();
+      if (entry.getKey().equals(keptKey)) {
+        continue;
+      }
+      currentSize -= entry.getValue().getEstimatedSize();
+      it.remove();
+    }
+  }
+}
@@ -0,0 +1,27 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.sourcemap;
+
+/**
+ * Signals that a source map text is malformed or uses unsupported features.
+ */
+public class SourceMapException extends Exception {
+  public SourceMapException() {
+  }
+
+  public SourceMapException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public SourceMapException(String message) {
+    super(message);
+  }
+
+  public SourceMapException(Throwable cause) {
+    super(cause);
+  }
+}
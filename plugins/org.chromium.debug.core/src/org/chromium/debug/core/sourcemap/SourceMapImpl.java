@@ -0,0 +1,462 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.sourcemap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.chromium.debug.core.sourcemap.TextSectionMapping.TextPoint;
+
+/**
+ * Implementation of a plain (not sectioned) {@link SourceMap}. The "mappings" string is kept
+ * as is; a single scan on construction records where each generated line starts and what
+ * the decoder state is at that point. Segments of a particular generated line get decoded
+ * only when the line is first asked for. The reverse (original to generated) index is built
+ * on the first request in that direction.
+ * <p>
+ * Decoded segments are stored in packed int arrays, {@link #STRIDE} ints per segment.
+ */
+class SourceMapImpl implements SourceMap {
+  /**
+   * Ints per packed segment. For generated line: generated column, source index,
+   * original line, original column. For reverse index: original line, original column,
+   * generated line, generated column.
+   */
+  private static final int STRIDE = 4;
+
+  private static final int[] EMPTY_LINE = new int[0];
+
+  private final List<String> sources;
+  private final String mappings;
+
+  /**
+   * Offset of each generated line start inside {@link #mappings}. Contains one extra element
+   * pointing one char past the end.
+   */
+  private final int[] lineStarts;
+
+  /**
+   * Decoder state at each line start: 3 ints (source index, original line, original column).
+   */
+  private final int[] lineStartStates;
+  private final int lineCount;
+  private final int segmentCount;
+
+  private final AtomicReferenceArray<int[]> decodedLines;
+
+  /**
+   * Packed reverse index per source, sorted by original position. Guarded by 'this'.
+   */
+  private int[][] reverseIndex = null;
+
+  SourceMapImpl(List<String> sources, String mappings) throws SourceMapException {
+    this.sources = sources;
+    this.mappings = mappings;
+
+    int[] starts = new int[16];
+    int[] states = new int[16 * 3];
+    int lines = 0;
+    int segments = 0;
+
+    int sourceIndex = 0;
+    int originalLine = 0;
+    int originalColumn = 0;
+
+    starts[0] = 0;
+    lines = 1;
+
+    VlqReader reader = new VlqReader(mappings);
+    while (reader.hasMore()) {
+      char ch = reader.peek();
+      if (ch == ';') {
+        reader.skip();
+        if (lines == starts.length) {
+          starts = Arrays.copyOf(starts, lines * 2);
+          states = Arrays.copyOf(states, lines * 2 * 3);
+        }
+        starts[lines] = reader.getPosition();
+        states[lines * 3] = sourceIndex;
+        states[lines * 3 + 1] = originalLine;
+        states[lines * 3 + 2] = originalColumn;
+        lines++;
+      } else if (ch == ',') {
+        reader.skip();
+      } else {
+        // Generated column is relative within line, we don't need it here.
+        reader.readValue();
+        if (!reader.atSegmentEnd()) {
+          sourceIndex += reader.readValue();
+          originalLine += reader.readValue();
+          originalColumn += reader.readValue();
+          if (!reader.atSegmentEnd()) {
+            // Name index.
+            reader.readValue();
+          }
+          if (sourceIndex < 0 || sourceIndex >= sources.size()) {
+            throw new SourceMapException("Source index out of range: " + sourceIndex);
+          }
+        }
+        if (!reader.atSegmentEnd()) {
+          throw new SourceMapException("Malformed segment at " + reader.getPosition());
+        }
+        segments++;
+      }
+    }
+    if (lines == starts.length) {
+      starts = Arrays.copyOf(starts, lines + 1);
+    }
+    starts[lines] = mappings.length() + 1;
+
+    this.lineStarts = starts;
+    this.lineStartStates = states;
+    this.lineCount = lines;
+    this.segmentCount = segments;
+    this.decodedLines = new AtomicReferenceArray<int[]>(lines);
+  }
+
+  public List<String> getSources() {
+    return sources;
+  }
+
+  public OriginalPosition findOriginal(int generatedLine, int generatedColumn) {
+    if (generatedLine < 0 || generatedLine >= lineCount) {
+      return null;
+    }
+    int[] line = getDecodedLine(generatedLine);
+    // Find the last segment that starts at or before the column.
+    int low = 0;
+    int high = line.length / STRIDE - 1;
+    int found = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (line[middle * STRIDE] <= generatedColumn) {
+        found = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    if (found == -1) {
+      return null;
+    }
+    int pos = found * STRIDE;
+    if (line[pos + 1] == -1) {
+      return null;
+    }
+    return new OriginalPosition(line[pos + 1], line[pos + 2], line[pos + 3]);
+  }
+
+  public TextPoint findGenerated(int sourceIndex, int line, int column) {
+    if (sourceIndex < 0 || sourceIndex >= sources.size()) {
+      return null;
+    }
+    int[] index = getReverseIndex()[sourceIndex];
+    int size = index.length / STRIDE;
+    if (size == 0) {
+      return null;
+    }
+    // Find the first entry that is not less than (line, column).
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (comparePacked(index, middle * STRIDE, line, column) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    int resultPos;
+    if (low < size && index[low * STRIDE] == line) {
+      resultPos = low * STRIDE;
+    } else if (low > 0 && index[(low - 1) * STRIDE] == line) {
+      resultPos = (low - 1) * STRIDE;
+    } else if (low < size) {
+      resultPos = low * STRIDE;
+    } else {
+      resultPos = (size - 1) * STRIDE;
+    }
+    return new TextPoint(index[resultPos + 2], index[resultPos + 3]);
+  }
+
+  public long getEstimatedSize() {
+    // Chars of mappings string, line tables and fully decoded segments in both directions.
+    return 2L * mappings.length() + 16L * lineCount + 2L * 4 * STRIDE * segmentCount;
+  }
+
+  private int[] getDecodedLine(int lineNumber) {
+    int[] result = decodedLines.get(lineNumber);
+    if (result == null) {
+      result = decodeLine(lineNumber);
+      // Races are harmless: all threads decode the same data.
+      decodedLines.set(lineNumber, result);
+    }
+    return result;
+  }
+
+  private int[] decodeLine(int lineNumber) {
+    try {
+      return decodeLineImpl(lineNumber);
+    } catch (SourceMapException e) {
+      // The whole string has been validated in constructor.
+      throw new RuntimeException(e);
+    }
+  }
+
+  private int[] decodeLineImpl(int lineNumber) throws SourceMapException {
+    int start = lineStarts[lineNumber];
+    int end = lineStarts[lineNumber + 1] - 1;
+    if (start >= end) {
+      return EMPTY_LINE;
+    }
+    int segments = 1;
+    for (int i = start; i < end; i++) {
+      if (mappings.charAt(i) == ',') {
+        segments++;
+      }
+    }
+    int[] result = new int[segments * STRIDE];
+    int sourceIndex = lineStartStates[lineNumber * 3];
+    int originalLine = lineStartStates[lineNumber * 3 + 1];
+    int originalColumn = lineStartStates[lineNumber * 3 + 2];
+    int generatedColumn = 0;
+    boolean sorted = true;
+
+    VlqReader reader = new VlqReader(mappings, start, end);
+    int pos = 0;
+    while (reader.hasMore()) {
+      if (reader.peek() == ',') {
+        reader.skip();
+        continue;
+      }
+      int previousColumn = generatedColumn;
+      generatedColumn += reader.readValue();
+      if (pos > 0 && generatedColumn < previousColumn) {
+        sorted = false;
+      }
+      result[pos] = generatedColumn;
+      if (reader.atSegmentEnd()) {
+        result[pos + 1] = -1;
+      } else {
+        sourceIndex += reader.readValue();
+        originalLine += reader.readValue();
+        originalColumn += reader.readValue();
+        if (!reader.atSegmentEnd()) {
+          reader.readValue();
+        }
+        result[pos + 1] = sourceIndex;
+        result[pos + 2] = originalLine;
+        result[pos + 3] = originalColumn;
+      }
+      pos += STRIDE;
+    }
+    if (pos != result.length) {
+      // Empty segments (",,") are tolerated.
+      result = Arrays.copyOf(result, pos);
+    }
+    if (!sorted) {
+      sortPacked(result, 1);
+    }
+    return result;
+  }
+
+  private synchronized int[][] getReverseIndex() {
+    if (reverseIndex != null) {
+      return reverseIndex;
+    }
+    int sourceCount = sources.size();
+    int[] counts = new int[sourceCount];
+    for (int i = 0; i < lineCount; i++) {
+      int[] line = getDecodedLine(i);
+      for (int pos = 0; pos < line.length; pos += STRIDE) {
+        if (line[pos + 1] != -1) {
+          counts[line[pos + 1]]++;
+        }
+      }
+    }
+    int[][] result = new int[sourceCount][];
+    for (int i = 0; i < sourceCount; i++) {
+      result[i] = new int[counts[i] * STRIDE];
+    }
+    int[] fillPositions = new int[sourceCount];
+    for (int i = 0; i < lineCount; i++) {
+      int[] line = getDecodedLine(i);
+      for (int pos = 0; pos < line.length; pos += STRIDE) {
+        int source = line[pos + 1];
+        if (source == -1) {
+          continue;
+        }
+        int[] target = result[source];
+        int targetPos = fillPositions[source];
+        target[targetPos] = line[pos + 2];
+        target[targetPos + 1] = line[pos + 3];
+        target[targetPos + 2] = i;
+        target[targetPos + 3] = line[pos];
+        fillPositions[source] = targetPos + STRIDE;
+      }
+    }
+    for (int[] sourceIndex : result) {
+      if (!isSortedPacked(sourceIndex)) {
+        sortPacked(sourceIndex, STRIDE);
+      }
+    }
+    reverseIndex = result;
+    return reverseIndex;
+  }
+
+  private static int comparePacked(int[] array, int pos, int line, int column) {
+    int lineDiff = array[pos] - line;
+    if (lineDiff != 0) {
+      return lineDiff;
+    }
+    return array[pos + 1] - column;
+  }
+
+  private static boolean isSortedPacked(int[] array) {
+    for (int pos = STRIDE; pos < array.length; pos += STRIDE) {
+      if (comparePacked(array, pos - STRIDE, array[pos], array[pos + 1]) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Sorts packed array by the first int of each record (and by the second, if keyLength is 2).
+   * Uses heap sort, because it needs no extra memory; this path is only taken
+   * for unusual maps.
+   */
+  private static void sortPacked(int[] array, int keyLength) {
+    int size = array.length / STRIDE;
+    for (int i = size / 2 - 1; i >= 0; i--) {
+      siftDown(array, i, size, keyLength);
+    }
+    for (int end = size - 1; end > 0; end--) {
+      swapRecords(array, 0, end);
+      siftDown(array, 0, end, keyLength);
+    }
+  }
+
+  private static void siftDown(int[] array, int root, int size, int keyLength) {
+    while (true) {
+      int child = root * 2 + 1;
+      if (child >= size) {
+        return;
+      }
+      if (child + 1 < size && compareRecords(array, child, child + 1, keyLength) < 0) {
+        child++;
+      }
+      if (compareRecords(array, root, child, keyLength) >= 0) {
+        return;
+      }
+      swapRecords(array, root, child);
+      root = child;
+    }
+  }
+
+  private static int compareRecords(int[] array, int record1, int record2, int keyLength) {
+    int pos1 = record1 * STRIDE;
+    int pos2 = record2 * STRIDE;
+    for (int i = 0; i < keyLength; i++) {
+      int diff = array[pos1 + i] - array[pos2 + i];
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return 0;
+  }
+
+  private static void swapRecords(int[] array, int record1, int record2) {
+    int pos1 = record1 * STRIDE;
+    int pos2 = record2 * STRIDE;
+    for (int i = 0; i < STRIDE; i++) {
+      int tmp = array[pos1 + i];
+      array[pos1 + i] = array[pos2 + i];
+      array[pos2 + i] = tmp;
+    }
+  }
+
+  /**
+   * Reads Base64 VLQ values directly from the mappings string without copying it.
+   */
+  static class VlqReader {
+    private static final int VLQ_BASE_SHIFT = 5;
+    private static final int VLQ_BASE_MASK = (1 << VLQ_BASE_SHIFT) - 1;
+    private static final int VLQ_CONTINUATION_BIT = 1 << VLQ_BASE_SHIFT;
+
+    static final int[] BASE64_VALUES = new int[128];
+    static {
+      Arrays.fill(BASE64_VALUES, -1);
+      String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+      for (int i = 0; i < alphabet.length(); i++) {
+        BASE64_VALUES[alphabet.charAt(i)] = i;
+      }
+    }
+
+    private final String string;
+    private final int end;
+    private int pos;
+
+    VlqReader(String string) {
+      this(string, 0, string.length());
+    }
+
+    VlqReader(String string, int start, int end) {
+      this.string = string;
+      this.pos = start;
+      this.end = end;
+    }
+
+    boolean hasMore() {
+      return pos < end;
+    }
+
+    char peek() {
+      return string.charAt(pos);
+    }
+
+    void skip() {
+      pos++;
+    }
+
+    int getPosition() {
+      return pos;
+    }
+
+    boolean atSegmentEnd() {
+      if (pos >= end) {
+        return true;
+      }
+      char ch = string.charAt(pos);
+      return ch == ',' || ch == ';';
+    }
+
+    int readValue() throws SourceMapException {
+      int result = 0;
+      int shift = 0;
+      while (true) {
+        if (pos >= end) {
+          throw new SourceMapException("Unexpected end of VLQ value");
+        }
+        char ch = string.charAt(pos++);
+        int digit = ch < 128 ? BASE64_VALUES[ch] : -1;
+        if (digit == -1) {
+          throw new SourceMapException("Bad Base64 char '" + ch + "' at " + (pos - 1));
+        }
+        result += (digit & VLQ_BASE_MASK) << shift;
+        if ((digit & VLQ_CONTINUATION_BIT) == 0) {
+          break;
+        }
+        shift += VLQ_BASE_SHIFT;
+      }
+      boolean negative = (result & 1) == 1;
+      result >>>= 1;
+      return negative ? -result : result;
+    }
+  }
+}
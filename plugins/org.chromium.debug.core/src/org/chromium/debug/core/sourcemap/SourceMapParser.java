@@ -0,0 +1,180 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.sourcemap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Parses source map text (version 3) into {@link SourceMap}. Both plain and indexed
+ * (sectioned) maps are supported; sections that refer to external maps by "url" are not.
+ */
+public class SourceMapParser {
+  private static final String XSSI_PREFIX = ")]}";
+
+  private static final String[] SOURCE_MAPPING_URL_PREFIXES = {
+    "//# sourceMappingURL=",
+    "//@ sourceMappingURL="
+  };
+
+  public static SourceMap parse(String text) throws SourceMapException {
+    if (text.startsWith(XSSI_PREFIX)) {
+      int lineEnd = text.indexOf('\n');
+      text = lineEnd == -1 ? "" : text.substring(lineEnd + 1);
+    }
+    Object parsed;
+    try {
+      parsed = new JSONParser().parse(text);
+    } catch (ParseException e) {
+      throw new SourceMapException("Failed to parse source map JSON", e);
+    }
+    if (parsed instanceof JSONObject == false) {
+      throw new SourceMapException("Source map must be a JSON object");
+    }
+    return parseMap((JSONObject) parsed);
+  }
+
+  /**
+   * Looks for a "sourceMappingURL" comment at the end of script source.
+   * @return url as written in the comment or null
+   */
+  public static String findSourceMappingUrl(String scriptSource) {
+    int end = scriptSource.length();
+    // The comment must be the last one in file, only check the trailing lines.
+    while (end > 0) {
+      int lineStart = scriptSource.lastIndexOf('\n', end - 1) + 1;
+      String line = scriptSource.substring(lineStart, end).trim();
+      if (line.length() != 0) {
+        for (String prefix : SOURCE_MAPPING_URL_PREFIXES) {
+          if (line.startsWith(prefix)) {
+            String url = line.substring(prefix.length()).trim();
+            return url.length() == 0 ? null : url;
+          }
+        }
+        if (!line.startsWith("//")) {
+          return null;
+        }
+      }
+      end = lineStart - 1;
+    }
+    return null;
+  }
+
+  private static SourceMap parseMap(JSONObject json) throws SourceMapException {
+    Object version = json.get("version");
+    if (version instanceof Number == false || ((Number) version).intValue() != 3) {
+      throw new SourceMapException("Unsupported source map version: " + version);
+    }
+    Object sections = json.get("sections");
+    if (sections != null) {
+      return parseIndexedMap(getArray(sections, "sections"));
+    }
+    return parsePlainMap(json);
+  }
+
+  private static SourceMap parsePlainMap(JSONObject json) throws SourceMapException {
+    Object mappings = json.get("mappings");
+    if (mappings instanceof String == false) {
+      throw new SourceMapException("'mappings' field must be a string");
+    }
+    String sourceRoot = null;
+    Object sourceRootObject = json.get("sourceRoot");
+    if (sourceRootObject instanceof String && ((String) sourceRootObject).length() != 0) {
+      sourceRoot = (String) sourceRootObject;
+      if (!sourceRoot.endsWith("/")) {
+        sourceRoot = sourceRoot + "/";
+      }
+    }
+    JSONArray sourcesArray = getArray(json.get("sources"), "sources");
+    List<String> sources = new ArrayList<String>(sourcesArray.size());
+    for (Object source : sourcesArray) {
+      String sourceName = source == null ? null : source.toString();
+      if (sourceRoot != null && sourceName != null) {
+        sourceName = sourceRoot + sourceName;
+      }
+      sources.add(sourceName);
+    }
+    return new SourceMapImpl(Collections.unmodifiableList(sources), (String) mappings);
+  }
+
+  private static SourceMap parseIndexedMap(JSONArray sectionsArray) throws SourceMapException {
+    int size = sectionsArray.size();
+    int[] offsetLines = new int[size];
+    int[] offsetColumns = new int[size];
+    SourceMap[] sections = new SourceMap[size];
+    int[][] sectionToGlobalSource = new int[size][];
+
+    List<String> globalSources = new ArrayList<String>();
+    Map<String, Integer> globalSourceIndexes = new HashMap<String, Integer>();
+
+    for (int i = 0; i < size; i++) {
+      Object sectionObject = sectionsArray.get(i);
+      if (sectionObject instanceof JSONObject == false) {
+        throw new SourceMapException("Section must be an object");
+      }
+      JSONObject section = (JSONObject) sectionObject;
+      Object offsetObject = section.get("offset");
+      if (offsetObject instanceof JSONObject == false) {
+        throw new SourceMapException("Section must have an 'offset' object");
+      }
+      JSONObject offset = (JSONObject) offsetObject;
+      offsetLines[i] = getInt(offset.get("line"), "line");
+      offsetColumns[i] = getInt(offset.get("column"), "column");
+      if (i > 0 && (offsetLines[i] < offsetLines[i - 1] ||
+          (offsetLines[i] == offsetLines[i - 1] && offsetColumns[i] < offsetColumns[i - 1]))) {
+        throw new SourceMapException("Sections must be sorted by offset");
+      }
+      if (section.get("url") != null) {
+        throw new SourceMapException("Sections with 'url' are not supported");
+      }
+      Object mapObject = section.get("map");
+      if (mapObject instanceof JSONObject == false) {
+        throw new SourceMapException("Section must have a 'map' object");
+      }
+      SourceMap sectionMap = parseMap((JSONObject) mapObject);
+      sections[i] = sectionMap;
+
+      List<String> sectionSources = sectionMap.getSources();
+      int[] table = new int[sectionSources.size()];
+      for (int j = 0; j < table.length; j++) {
+        String name = sectionSources.get(j);
+        Integer globalIndex = globalSourceIndexes.get(name);
+        if (globalIndex == null) {
+          globalIndex = globalSources.size();
+          globalSources.add(name);
+          globalSourceIndexes.put(name, globalIndex);
+        }
+        table[j] = globalIndex;
+      }
+      sectionToGlobalSource[i] = table;
+    }
+    return new IndexedSourceMapImpl(Collections.unmodifiableList(globalSources), offsetLines,
+        offsetColumns, sections, sectionToGlobalSource);
+  }
+
+  private static JSONArray getArray(Object object, String fieldName) throws SourceMapException {
+    if (object instanceof JSONArray == false) {
+      throw new SourceMapException("'" + fieldName + "' field must be an array");
+    }
+    return (JSONArray) object;
+  }
+
+  private static int getInt(Object object, String fieldName) throws SourceMapException {
+    if (object instanceof Number == false) {
+      throw new SourceMapException("'" + fieldName + "' field must be a number");
+    }
+    return ((Number) object).intValue();
+  }
+}
@@ -0,0 +1,146 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.core.sourcemap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+
+/**
+ * Helpers for getting a source map by the url from "sourceMappingURL" comment: resolving
+ * relative urls and reading the map text either from an inline "data:" url or from network.
+ */
+public class SourceMapUrls {
+  private static final String DATA_PREFIX = "data:";
+  private static final String BASE64_SUFFIX = ";base64";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int FETCH_TIMEOUT_MS = 10000;
+
+  /**
+   * Resolves url relative to a base url (e.g. map url relative to the script name).
+   * @param base base url or null
+   * @return resolved url or the url unchanged if it cannot be resolved
+   */
+  public static String resolve(String base, String url) {
+    if (base == null || isDataUrl(base) || isDataUrl(url)) {
+      return url;
+    }
+    try {
+      return new URI(base).resolve(new URI(url)).toString();
+    } catch (URISyntaxException e) {
+      return url;
+    } catch (IllegalArgumentException e) {
+      return url;
+    }
+  }
+
+  public static boolean isDataUrl(String url) {
+    return url.regionMatches(true, 0, DATA_PREFIX, 0, DATA_PREFIX.length());
+  }
+
+  /**
+   * Reads the map text: decodes a "data:" url or fetches any other url.
+   */
+  public static String readText(String url) throws SourceMapException {
+    if (isDataUrl(url)) {
+      return decodeDataUrl(url);
+    }
+    try {
+      URLConnection connection = new URL(url).openConnection();
+      connection.setConnectTimeout(FETCH_TIMEOUT_MS);
+      connection.setReadTimeout(FETCH_TIMEOUT_MS);
+      InputStream stream = connection.getInputStream();
+      try {
+        Reader reader = new InputStreamReader(stream, UTF_8);
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+          builder.append(buffer, 0, read);
+        }
+        return builder.toString();
+      } finally {
+        stream.close();
+      }
+    } catch (IOException e) {
+      throw new SourceMapException("Failed to load source map from " + url, e);
+    }
+  }
+
+  static String decodeDataUrl(String url) throws SourceMapException {
+    int comma = url.indexOf(',');
+    if (comma == -1) {
+      throw new SourceMapException("Malformed data url");
+    }
+    String header = url.substring(DATA_PREFIX.length(), comma);
+    byte[] bytes;
+    if (header.toLowerCase().endsWith(BASE64_SUFFIX)) {
+      bytes = decodeBase64(url, comma + 1);
+    } else {
+      bytes = decodePercent(url, comma + 1);
+    }
+    return new String(bytes, UTF_8);
+  }
+
+  private static byte[] decodeBase64(String text, int from) throws SourceMapException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(text.length() * 3 / 4);
+    int accumulator = 0;
+    int bits = 0;
+    for (int i = from; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      if (ch == '=') {
+        break;
+      }
+      int digit = ch < 128 ? SourceMapImpl.VlqReader.BASE64_VALUES[ch] : -1;
+      if (digit == -1) {
+        if (Character.isWhitespace(ch)) {
+          continue;
+        }
+        throw new SourceMapException("Bad Base64 char '" + ch + "' in data url");
+      }
+      accumulator = (accumulator << 6) | digit;
+      bits += 6;
+      if (bits >= 8) {
+        bits -= 8;
+        output.write((accumulator >> bits) & 0xFF);
+      }
+    }
+    return output.toByteArray();
+  }
+
+  private static byte[] decodePercent(String text, int from) throws SourceMapException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(text.length() - from);
+    for (int i = from; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      if (ch == '%') {
+        if (i + 2 >= text.length()) {
+          throw new SourceMapException("Malformed escape in data url");
+        }
+        int high = Character.digit(text.charAt(i + 1), 16);
+        int low = Character.digit(text.charAt(i + 2), 16);
+        if (high == -1 || low == -1) {
+          throw new SourceMapException("Malformed escape in data url");
+        }
+        output.write((high << 4) | low);
+        i += 2;
+      } else if (ch < 0x80) {
+        output.write(ch);
+      } else {
+        byte[] encoded = String.valueOf(ch).getBytes(UTF_8);
+        output.write(encoded, 0, encoded.length);
+      }
+    }
+    return output.toByteArray();
+  }
+}
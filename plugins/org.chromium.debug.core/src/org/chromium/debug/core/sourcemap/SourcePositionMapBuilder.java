@@ -6,6 +6,8 @@
 
 package org.chromium.debug.core.sourcemap;
 
+import java.util.List;
+
 import org.chromium.debug.core.model.VmResourceId;
 
 /**
@@ -31,6 +33,18 @@ public interface SourcePositionMapBuilder {
   MappingHandle addMapping(ResourceSection originalSection, ResourceSection vmSection,
       TextSectionMapping fromOriginalToVmSectionMapping) throws CannotAddException;
 
+  /**
+   * Adds a mapping between a "vm" resource section that holds generated code and all
+   * original resources described by a source map. Each original resource is mapped as a whole.
+   * @param vmSection a section of "vm" resource that the source map describes; positions inside
+   *     source map are relative to the section start
+   * @param originalResourceIds resource ids for each element of {@link SourceMap#getSources()};
+   *     null elements are left unmapped
+   * @return a handle that could be used to control a created mapping
+   */
+  MappingHandle addSourceMap(ResourceSection vmSection, SourceMap sourceMap,
+      List<VmResourceId> originalResourceIds) throws CannotAddException;
+
   /**
    * A handle that gives control over created mapping.
    */
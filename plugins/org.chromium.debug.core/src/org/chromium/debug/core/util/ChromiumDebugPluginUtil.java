@@ -12,6 +12,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -21,6 +22,7 @@ import java.util.regex.Pattern;
 
 import org.chromium.debug.core.ChromiumDebugPlugin;
 import org.chromium.debug.core.efs.ChromiumScriptFileSystem;
+import org.chromium.debug.core.efs.ChromiumScriptStorage;
 import org.chromium.sdk.Breakpoint;
 import org.chromium.sdk.BreakpointTypeExtension;
 import org.eclipse.core.filesystem.EFS;
@@ -320,15 +322,55 @@ public class ChromiumDebugPluginUtil {
    */
   public static void writeFile(IFile file, String data) throws CoreException {
     if (file != null && file.exists()) {
-      ResourceAttributes resourceAttributes = file.getResourceAttributes();
-      if (resourceAttributes.isReadOnly()) {
-        resourceAttributes.setReadOnly(false);
-        file.setResourceAttributes(resourceAttributes);
-      }
+      ResourceAttributes resourceAttributes = makeWritable(file);
       file.setContents(new ByteArrayInputStream(data.getBytes()), IFile.FORCE, null);
-      resourceAttributes.setReadOnly(true);
+      makeReadOnly(file, resourceAttributes);
+    }
+  }
+
+  /**
+   * Writes text data into a file. For files in chromiumdebug file system the text parts
+   * are stored as is (see {@link ChromiumScriptStorage#setTextContents}) and the workspace
+   * gets refreshed; other files are written as a concatenated string. In both cases
+   * the file is made read-only afterwards, as in {@link #writeFile(IFile, String)}.
+   *
+   * @param file to set contents for
+   * @param textParts parts of text to write into the file
+   * @throws CoreException
+   */
+  public static void writeFile(IFile file, List<String> textParts) throws CoreException {
+    if (file == null || !file.exists()) {
+      return;
+    }
+    URI locationUri = file.getLocationURI();
+    if (locationUri != null && ChromiumScriptFileSystem.isChromiumDebugURI(locationUri)) {
+      ResourceAttributes resourceAttributes = makeWritable(file);
+      ChromiumScriptStorage.getInstance().setTextContents(locationUri, textParts,
+          Charset.defaultCharset());
+      file.refreshLocal(IResource.DEPTH_ZERO, null);
+      makeReadOnly(file, resourceAttributes);
+      return;
+    }
+    StringBuilder builder = new StringBuilder();
+    for (String part : textParts) {
+      builder.append(part);
+    }
+    writeFile(file, builder.toString());
+  }
+
+  private static ResourceAttributes makeWritable(IFile file) throws CoreException {
+    ResourceAttributes resourceAttributes = file.getResourceAttributes();
+    if (resourceAttributes.isReadOnly()) {
+      resourceAttributes.setReadOnly(false);
       file.setResourceAttributes(resourceAttributes);
     }
+    return resourceAttributes;
+  }
+
+  private static void makeReadOnly(IFile file, ResourceAttributes resourceAttributes)
+      throws CoreException {
+    resourceAttributes.setReadOnly(true);
+    file.setResourceAttributes(resourceAttributes);
   }
 
   public static boolean isInteger(String value) {
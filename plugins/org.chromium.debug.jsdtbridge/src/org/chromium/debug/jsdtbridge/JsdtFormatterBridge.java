@@ -7,6 +7,7 @@
 package org.chromium.debug.jsdtbridge;
 
 import org.chromium.debug.core.model.JavaScriptFormatter;
+import org.chromium.debug.core.model.StreamingJavaScriptFormatter;
 import org.chromium.debug.core.model.StringMappingData;
 import org.eclipse.text.edits.ReplaceEdit;
 import org.eclipse.text.edits.TextEdit;
@@ -18,25 +19,48 @@ import org.eclipse.wst.jsdt.core.formatter.CodeFormatter;
  * JSDT-based implementation of {@link JavaScriptFormatter}.
  */
 public class JsdtFormatterBridge implements JavaScriptFormatter {
+  /**
+   * Sources that are bigger or have longer lines (i.e. are minified) are formatted by
+   * {@link StreamingJavaScriptFormatter}: JSDT formatter needs a full parse and is too slow
+   * for them.
+   */
+  private static final int MAX_JSDT_SOURCE_LENGTH = 256 * 1024;
+  private static final int MAX_JSDT_LINE_LENGTH = 2000;
+
   public Result format(String sourceString) {
+    if (!isJsdtApplicable(sourceString)) {
+      return new StreamingJavaScriptFormatter().format(sourceString);
+    }
+
     TextEdit textEdit = jsdtFormat(sourceString);
 
     if (textEdit == null) {
-      final boolean useFallbackFormatter = true;
-      if (useFallbackFormatter) {
-        // While JSDT formatter has chances to fail
-        // (see https://bugs.eclipse.org/bugs/show_bug.cgi?id=329716),
-        // there is a fall-back implementation, that only insert new-lines in some places
-        // thus making a source a bit more readable.
-        String header = Messages.JsdtFormatterBridge_FALLBACK_COMMENT;
-        textEdit = AdHocFormatter.format(sourceString, header);
-      } else {
-        throw new RuntimeException("Formatter failed"); //$NON-NLS-1$
-      }
+      // While JSDT formatter has chances to fail
+      // (see https://bugs.eclipse.org/bugs/show_bug.cgi?id=329716),
+      // there is a fall-back implementation, that only insert new-lines in some places
+      // thus making a source a bit more readable.
+      return new StreamingJavaScriptFormatter().format(sourceString);
     }
     return convertResult(sourceString, textEdit);
   }
 
+  private static boolean isJsdtApplicable(String sourceString) {
+    if (sourceString.length() > MAX_JSDT_SOURCE_LENGTH) {
+      return false;
+    }
+    int lineStart = 0;
+    while (true) {
+      int lineEnd = sourceString.indexOf(LINE_END_CHAR, lineStart);
+      if (lineEnd == -1) {
+        return sourceString.length() - lineStart <= MAX_JSDT_LINE_LENGTH;
+      }
+      if (lineEnd - lineStart > MAX_JSDT_LINE_LENGTH) {
+        return false;
+      }
+      lineStart = lineEnd + 1;
+    }
+  }
+
   private TextEdit jsdtFormat(String sourceString) {
     CodeFormatter jsdtFormatter = ToolFactory.createCodeFormatter(
         JavaScriptCore.getDefaultOptions());
@@ -0,0 +1,137 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.ui.editors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.rules.IToken;
+import org.eclipse.jface.text.rules.ITokenScanner;
+import org.eclipse.jface.text.rules.Token;
+import org.junit.Test;
+
+public class BoundedLineScannerTest {
+  private static final IToken CODE = new Token("code");
+  private static final IToken DEFAULT = new Token("default");
+
+  @Test
+  public void smallDocumentIsDelegatedAsIs() {
+    String longLine = repeat('a', LargeFileMode.MAX_LINE_SCAN_LENGTH * 2);
+    Document document = new Document("var a;\n" + longLine + "\n");
+    assertFalse(LargeFileMode.isLarge(document));
+
+    RecordingScanner delegate = new RecordingScanner();
+    List<String> tokens = scan(new BoundedLineScanner(delegate, DEFAULT), document);
+
+    assertEquals(Arrays.asList("0+" + document.getLength()), delegate.ranges);
+    assertEquals(Arrays.asList("code 0+" + document.getLength()), tokens);
+  }
+
+  @Test
+  public void longLineIsCutInLargeDocument() {
+    int cap = LargeFileMode.MAX_LINE_SCAN_LENGTH;
+    String first = "var a = 1;\n";
+    String longLine = repeat('a', cap + 1000);
+    Document document = new Document(first + longLine + "\n" + createFiller());
+    assertTrue(LargeFileMode.isLarge(document));
+
+    RecordingScanner delegate = new RecordingScanner();
+    List<String> tokens = scan(new BoundedLineScanner(delegate, DEFAULT), document);
+
+    int cutOffset = first.length() + cap;
+    int lineEnd = first.length() + longLine.length();
+    int length = document.getLength();
+    assertEquals(Arrays.asList("0+" + cutOffset, lineEnd + "+" + (length - lineEnd)),
+        delegate.ranges);
+    assertEquals(Arrays.asList("code 0+" + cutOffset, "default " + cutOffset + "+1000",
+        "code " + lineEnd + "+" + (length - lineEnd)), tokens);
+  }
+
+  @Test
+  public void lineAtLimitIsNotCut() {
+    String line = repeat('a', LargeFileMode.MAX_LINE_SCAN_LENGTH);
+    Document document = new Document(line + "\n" + createFiller());
+    assertTrue(LargeFileMode.isLarge(document));
+
+    RecordingScanner delegate = new RecordingScanner();
+    List<String> tokens = scan(new BoundedLineScanner(delegate, DEFAULT), document);
+
+    assertEquals(Arrays.asList("0+" + document.getLength()), delegate.ranges);
+    assertEquals(Arrays.asList("code 0+" + document.getLength()), tokens);
+  }
+
+  private static List<String> scan(ITokenScanner scanner, IDocument document) {
+    scanner.setRange(document, 0, document.getLength());
+    List<String> result = new ArrayList<String>();
+    while (true) {
+      IToken token = scanner.nextToken();
+      if (token.isEOF()) {
+        return result;
+      }
+      result.add(token.getData() + " " + scanner.getTokenOffset() + "+" +
+          scanner.getTokenLength());
+    }
+  }
+
+  /**
+   * @return short lines that make any document large
+   */
+  private static String createFiller() {
+    StringBuilder builder = new StringBuilder();
+    String line = repeat('b', 99) + "\n";
+    while (builder.length() <= LargeFileMode.THRESHOLD) {
+      builder.append(line);
+    }
+    return builder.toString();
+  }
+
+  private static String repeat(char ch, int count) {
+    char[] chars = new char[count];
+    Arrays.fill(chars, ch);
+    return new String(chars);
+  }
+
+  /**
+   * Returns the whole range it was given as a single token and records the ranges.
+   */
+  private static class RecordingScanner implements ITokenScanner {
+    final List<String> ranges = new ArrayList<String>();
+    private int offset;
+    private int length;
+    private boolean done;
+
+    public void setRange(IDocument document, int offset, int length) {
+      ranges.add(offset + "+" + length);
+      this.offset = offset;
+      this.length = length;
+      this.done = length == 0;
+    }
+
+    public IToken nextToken() {
+      if (done) {
+        return Token.EOF;
+      }
+      done = true;
+      return CODE;
+    }
+
+    public int getTokenOffset() {
+      return offset;
+    }
+
+    public int getTokenLength() {
+      return length;
+    }
+  }
+}
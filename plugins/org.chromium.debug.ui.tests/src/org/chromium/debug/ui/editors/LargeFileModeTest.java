@@ -0,0 +1,30 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.ui.editors;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.eclipse.jface.text.Document;
+import org.junit.Test;
+
+public class LargeFileModeTest {
+  @Test
+  public void threshold() {
+    assertFalse(LargeFileMode.isLarge(null));
+    assertFalse(LargeFileMode.isLarge(new Document(createText(LargeFileMode.THRESHOLD))));
+    assertTrue(LargeFileMode.isLarge(new Document(createText(LargeFileMode.THRESHOLD + 1))));
+  }
+
+  private static String createText(int length) {
+    char[] chars = new char[length];
+    Arrays.fill(chars, 'x');
+    return new String(chars);
+  }
+}
@@ -6,7 +6,9 @@
 
 package org.chromium.debug.ui.actions;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.chromium.debug.core.ChromiumDebugPlugin;
 import org.chromium.debug.core.model.PushChangesPlan;
@@ -31,16 +33,18 @@ public class PushChangesAction extends V8ScriptAction {
       IWorkbenchPart workbenchPart) {
     LiveEditResultDialog.ErrorPositionHighlighter positionHighlighter =
         createPositionHighlighter(workbenchPart);
+    Map<PushChangesPlan, UpdatableScript.UpdateCallback> planToCallback =
+        new LinkedHashMap<PushChangesPlan, UpdatableScript.UpdateCallback>();
     for (ScriptTargetMapping pair : filePairList) {
-      execute(pair, shell, positionHighlighter);
+      PushChangesPlan plan = PushChangesPlan.create(pair);
+      planToCallback.put(plan, createCallback(plan, shell, positionHighlighter));
     }
+    PushChangesPlan.executeAll(planToCallback, false);
   }
 
-  private void execute(final ScriptTargetMapping filePair, final Shell shell,
-      final LiveEditResultDialog.ErrorPositionHighlighter positionHighlighter) {
-    final PushChangesPlan plan = PushChangesPlan.create(filePair);
-
-    UpdatableScript.UpdateCallback callback = new UpdatableScript.UpdateCallback() {
+  private static UpdatableScript.UpdateCallback createCallback(final PushChangesPlan plan,
+      final Shell shell, final LiveEditResultDialog.ErrorPositionHighlighter positionHighlighter) {
+    return new UpdatableScript.UpdateCallback() {
       @Override
       public void success(boolean resumed, Object report, ChangeDescription changeDescription) {
         ChromiumDebugPlugin.log(new Status(IStatus.OK, ChromiumDebugPlugin.PLUGIN_ID,
@@ -61,8 +65,6 @@ public class PushChangesAction extends V8ScriptAction {
         });
       }
     };
-
-    plan.execute(false, callback, null);
   }
 
   public static LiveEditResultDialog.ErrorPositionHighlighter createPositionHighlighter(
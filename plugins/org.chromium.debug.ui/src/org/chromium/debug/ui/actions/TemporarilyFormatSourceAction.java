@@ -93,12 +93,8 @@ public class TemporarilyFormatSourceAction
     }
 
     if (firstElementMode == ActionMode.FORMAT) {
-      JavaScriptFormatter formatter = JavaScriptFormatter.Access.getInstance();
-      if (formatter == null) {
-        return noFormatterActionStub;
-      } else {
-        return new FormatActionRunnable(resourceDataList, formatter);
-      }
+      return new FormatActionRunnable(resourceDataList,
+          JavaScriptFormatter.Access.getInstance());
     } else {
       return new DeleteFormattedActionRunnable(resourceDataList);
     }
@@ -249,20 +245,6 @@ public class TemporarilyFormatSourceAction
     }
   }
 
-  private final ActionRunnable noFormatterActionStub = new ActionRunnable() {
-    public void adjustAction() {
-      restoreActionText();
-      String baseText = getAction().getText();
-      modifyActionText(baseText +
-          Messages.TemporarilyFormatSourceAction_NO_FORMATTER_DISABLED_SUFFIX);
-      getAction().setEnabled(false);
-    }
-
-    public void run(Shell shell, IWorkbenchPart workbenchPart) {
-      // Should be unreachable. Do nothing.
-    }
-  };
-
   /**
    * Depending on user selection, the action may work in 2 modes: format or
    * delete formatted.
@@ -0,0 +1,118 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.ui.editors;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.rules.IToken;
+import org.eclipse.jface.text.rules.ITokenScanner;
+import org.eclipse.jface.text.rules.Token;
+
+/**
+ * A token scanner wrapper that, for large documents, lets the real scanner see only
+ * the first {@link LargeFileMode#MAX_LINE_SCAN_LENGTH} characters of each line and returns
+ * the rest of a long line as one default token. For small documents it simply delegates.
+ */
+class BoundedLineScanner implements ITokenScanner {
+  private final ITokenScanner delegate;
+  private final IToken defaultToken;
+
+  private IDocument document;
+  private int rangeEnd;
+  /** Where the current delegate segment ends; a default token may follow it. */
+  private int segmentEnd;
+  /** Where the default-styled tail of a long line ends (equals segmentEnd if there is none). */
+  private int tailEnd;
+  private boolean inTail;
+  private int tokenOffset;
+  private int tokenLength;
+
+  BoundedLineScanner(ITokenScanner delegate, IToken defaultToken) {
+    this.delegate = delegate;
+    this.defaultToken = defaultToken;
+  }
+
+  public void setRange(IDocument document, int offset, int length) {
+    this.document = document;
+    this.rangeEnd = offset + length;
+    if (LargeFileMode.isLarge(document)) {
+      startSegment(offset);
+    } else {
+      delegate.setRange(document, offset, length);
+      segmentEnd = rangeEnd;
+      tailEnd = rangeEnd;
+      inTail = false;
+    }
+  }
+
+  public IToken nextToken() {
+    while (true) {
+      if (!inTail) {
+        IToken token = delegate.nextToken();
+        if (!token.isEOF()) {
+          tokenOffset = delegate.getTokenOffset();
+          tokenLength = delegate.getTokenLength();
+          return token;
+        }
+        if (tailEnd > segmentEnd) {
+          inTail = true;
+          tokenOffset = segmentEnd;
+          tokenLength = tailEnd - segmentEnd;
+          return defaultToken;
+        }
+      } else {
+        inTail = false;
+      }
+      if (tailEnd >= rangeEnd) {
+        tokenOffset = rangeEnd;
+        tokenLength = 0;
+        return Token.EOF;
+      }
+      startSegment(tailEnd);
+    }
+  }
+
+  public int getTokenOffset() {
+    return tokenOffset;
+  }
+
+  public int getTokenLength() {
+    return tokenLength;
+  }
+
+  /**
+   * Sets the delegate on a run of lines that ends either with the range or with a long
+   * line cut at the scan limit.
+   */
+  private void startSegment(int start) {
+    segmentEnd = rangeEnd;
+    tailEnd = rangeEnd;
+    try {
+      int line = document.getLineOfOffset(start);
+      int lineStart = start;
+      while (lineStart < rangeEnd) {
+        IRegion lineInfo = document.getLineInformation(line);
+        int lineEnd = Math.min(lineInfo.getOffset() + lineInfo.getLength(), rangeEnd);
+        if (lineEnd - lineStart > LargeFileMode.MAX_LINE_SCAN_LENGTH) {
+          segmentEnd = lineStart + LargeFileMode.MAX_LINE_SCAN_LENGTH;
+          tailEnd = lineEnd;
+          break;
+        }
+        line++;
+        if (line >= document.getNumberOfLines()) {
+          break;
+        }
+        lineStart = document.getLineOffset(line);
+      }
+    } catch (BadLocationException e) {
+      // The range is out of the document; scan it as is.
+    }
+    inTail = false;
+    delegate.setRange(document, start, segmentEnd - start);
+  }
+}
@@ -28,6 +28,8 @@ public class JsCodeScanner extends BufferedRuleBasedScanner {
 
   private Token commentToken;
 
+  private Token normalToken;
+
   private final TextAttribute commentAttribute =
       new TextAttribute(EditorColors.getColor(new RGB(63, 127, 95)), null, SWT.NORMAL);
 
@@ -46,6 +48,10 @@ public class JsCodeScanner extends BufferedRuleBasedScanner {
     return jsDocAttribute;
   }
 
+  Token getNormalToken() {
+    return normalToken;
+  }
+
   /**
    * Use the default Eclipse higlighting scheme.
    */
@@ -65,7 +71,7 @@ public class JsCodeScanner extends BufferedRuleBasedScanner {
     Token numberToken = new Token(
         new TextAttribute(EditorColors.getColor(blackRgb), null, SWT.NORMAL));
 
-    Token normalToken = new Token(
+    normalToken = new Token(
         new TextAttribute(EditorColors.getColor(blackRgb), null, SWT.NORMAL));
     setDefaultReturnToken(normalToken);
 
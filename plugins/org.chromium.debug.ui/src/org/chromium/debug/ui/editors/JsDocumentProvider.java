@@ -22,7 +22,9 @@ public class JsDocumentProvider extends FileDocumentProvider {
   @Override
   protected IDocument createDocument(Object element) throws CoreException {
     IDocument doc = super.createDocument(element);
-    if (doc != null) {
+    // Partitioning scans the whole document, so a large document is left unpartitioned:
+    // all of it is of the default content type.
+    if (doc != null && !LargeFileMode.isLarge(doc)) {
       IDocumentPartitioner partitioner = new FastPartitioner(
           new JsPartitionScanner(), JsPartitionScanner.PARTITION_TYPES);
       partitioner.connect(doc);
@@ -13,18 +13,24 @@ import org.eclipse.jface.text.presentation.IPresentationReconciler;
 import org.eclipse.jface.text.presentation.PresentationReconciler;
 import org.eclipse.jface.text.rules.BufferedRuleBasedScanner;
 import org.eclipse.jface.text.rules.DefaultDamagerRepairer;
+import org.eclipse.jface.text.rules.IToken;
+import org.eclipse.jface.text.rules.ITokenScanner;
 import org.eclipse.jface.text.rules.Token;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.ui.editors.text.TextSourceViewerConfiguration;
 
 /**
- * A JavaScript source viewer configuration.
+ * A JavaScript source viewer configuration. Highlighting switches to large-file mode
+ * (see {@link LargeFileMode}) automatically for big documents.
  */
 public class JsSourceViewerConfiguration extends TextSourceViewerConfiguration {
 
   private static class MultilineCommentScanner extends BufferedRuleBasedScanner {
+    private final IToken defaultToken;
+
     public MultilineCommentScanner(TextAttribute attr) {
-      setDefaultReturnToken(new Token(attr));
+      defaultToken = new Token(attr);
+      setDefaultReturnToken(defaultToken);
     }
   }
 
@@ -43,18 +49,26 @@ public class JsSourceViewerConfiguration extends TextSourceViewerConfiguration {
 
   @Override
   public IPresentationReconciler getPresentationReconciler(ISourceViewer sourceViewer) {
-    PresentationReconciler pr = new PresentationReconciler();
+    PresentationReconciler pr = new ViewportPresentationReconciler();
     pr.setDocumentPartitioning(getConfiguredDocumentPartitioning(sourceViewer));
-    setDamagerRepairer(pr, new DefaultDamagerRepairer(scanner), IDocument.DEFAULT_CONTENT_TYPE);
-    setDamagerRepairer(
-        pr, new DefaultDamagerRepairer(new MultilineCommentScanner(scanner.getCommentAttribute())),
+    setDamagerRepairer(pr, createDamagerRepairer(scanner, scanner.getNormalToken()),
+        IDocument.DEFAULT_CONTENT_TYPE);
+    MultilineCommentScanner commentScanner =
+        new MultilineCommentScanner(scanner.getCommentAttribute());
+    setDamagerRepairer(pr, createDamagerRepairer(commentScanner, commentScanner.defaultToken),
         JsPartitionScanner.MULTILINE_COMMENT);
-    setDamagerRepairer(
-        pr, new DefaultDamagerRepairer(new MultilineCommentScanner(scanner.getJsDocAttribute())),
+    MultilineCommentScanner jsDocScanner =
+        new MultilineCommentScanner(scanner.getJsDocAttribute());
+    setDamagerRepairer(pr, createDamagerRepairer(jsDocScanner, jsDocScanner.defaultToken),
         JsPartitionScanner.JSDOC);
     return pr;
   }
 
+  private static DefaultDamagerRepairer createDamagerRepairer(ITokenScanner tokenScanner,
+      IToken defaultToken) {
+    return new DefaultDamagerRepairer(new BoundedLineScanner(tokenScanner, defaultToken));
+  }
+
   private void setDamagerRepairer(
       PresentationReconciler pr,
       DefaultDamagerRepairer damagerRepairer,
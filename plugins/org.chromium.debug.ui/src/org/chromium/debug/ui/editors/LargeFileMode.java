@@ -0,0 +1,36 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.ui.editors;
+
+import org.eclipse.jface.text.IDocument;
+
+/**
+ * Parameters of the large-file mode of {@link JsEditor}. Big scripts (typically minified
+ * libraries that are several megabytes in one line) are not partitioned and get
+ * viewport-limited highlighting and a bounded scan length per line. Without partitioning
+ * multi-line comments are highlighted as code. The mode is chosen automatically by
+ * the document size when the document is created.
+ */
+class LargeFileMode {
+  /**
+   * Document length in characters above which the large-file mode is on.
+   */
+  static final int THRESHOLD = 512 * 1024;
+
+  /**
+   * How many characters of each line are highlighted in large-file mode. The rest of
+   * a longer line is shown with the default style.
+   */
+  static final int MAX_LINE_SCAN_LENGTH = 4000;
+
+  static boolean isLarge(IDocument document) {
+    return document != null && document.getLength() > THRESHOLD;
+  }
+
+  private LargeFileMode() {
+  }
+}
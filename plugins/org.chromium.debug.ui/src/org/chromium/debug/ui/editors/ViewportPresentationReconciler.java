@@ -0,0 +1,98 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.debug.ui.editors;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.ITextViewerExtension2;
+import org.eclipse.jface.text.IViewportListener;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.TextPresentation;
+import org.eclipse.jface.text.presentation.PresentationReconciler;
+
+/**
+ * A presentation reconciler that in large-file mode only repairs a window around
+ * the visible part of the document instead of the whole document. When the viewport
+ * leaves the window, the presentation of the new window is invalidated and repaired.
+ * For small documents it behaves exactly as {@link PresentationReconciler}.
+ */
+class ViewportPresentationReconciler extends PresentationReconciler {
+  private ITextViewer viewer = null;
+
+  /** The window whose presentation is up to date (for large documents). */
+  private int windowStart = 0;
+  private int windowEnd = 0;
+
+  private final IViewportListener viewportListener = new IViewportListener() {
+    public void viewportChanged(int verticalOffset) {
+      onViewportChanged();
+    }
+  };
+
+  @Override
+  public void install(ITextViewer textViewer) {
+    super.install(textViewer);
+    this.viewer = textViewer;
+    textViewer.addViewportListener(viewportListener);
+  }
+
+  @Override
+  public void uninstall() {
+    if (viewer != null) {
+      viewer.removeViewportListener(viewportListener);
+      viewer = null;
+    }
+    super.uninstall();
+  }
+
+  @Override
+  protected TextPresentation createPresentation(IRegion damage, IDocument document) {
+    if (viewer == null || !LargeFileMode.isLarge(document)) {
+      return super.createPresentation(damage, document);
+    }
+    IRegion window = computeWindow(document);
+    windowStart = window.getOffset();
+    windowEnd = window.getOffset() + window.getLength();
+    int start = Math.max(damage.getOffset(), windowStart);
+    int end = Math.min(damage.getOffset() + damage.getLength(), windowEnd);
+    if (start >= end) {
+      return null;
+    }
+    return super.createPresentation(new Region(start, end - start), document);
+  }
+
+  private void onViewportChanged() {
+    if (viewer == null || !LargeFileMode.isLarge(viewer.getDocument())) {
+      return;
+    }
+    int visibleStart = viewer.getTopIndexStartOffset();
+    int visibleEnd = viewer.getBottomIndexEndOffset();
+    if (visibleStart >= windowStart && visibleEnd <= windowEnd) {
+      return;
+    }
+    if (viewer instanceof ITextViewerExtension2 == false) {
+      return;
+    }
+    IRegion window = computeWindow(viewer.getDocument());
+    ((ITextViewerExtension2) viewer).invalidateTextPresentation(window.getOffset(),
+        window.getLength());
+  }
+
+  /**
+   * @return visible range extended by its own length in both directions, so that
+   *     scrolling by a page does not require a repair
+   */
+  private IRegion computeWindow(IDocument document) {
+    int visibleStart = viewer.getTopIndexStartOffset();
+    int visibleEnd = viewer.getBottomIndexEndOffset();
+    int margin = Math.max(visibleEnd - visibleStart, 0);
+    int start = Math.max(visibleStart - margin, 0);
+    int end = Math.min(visibleEnd + margin, document.getLength());
+    return new Region(start, Math.max(end - start, 0));
+  }
+}
@@ -34,6 +34,7 @@ import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.ILaunchManager;
 import org.eclipse.debug.core.model.ILaunchConfigurationDelegate;
+import org.eclipse.debug.core.model.ITerminate;
 
 /**
  * A launch configuration delegate for the JavaScript debugging.
@@ -163,6 +164,18 @@ public abstract class LaunchTypeBase implements ILaunchConfigurationDelegate {
     return new ConnectionLoggerImpl(consoleRetransmitter, consoleController);
   }
 
+  /**
+   * Creates a console process for page messages. Unlike the connection log console,
+   * it is shown right away.
+   */
+  static ConsolePseudoProcess.Retransmitter createPageConsole(ILaunch launch, String title,
+      ITerminate terminate) {
+    ConsolePseudoProcess.Retransmitter retransmitter = new ConsolePseudoProcess.Retransmitter();
+    new ConsolePseudoProcess(launch, title, retransmitter, terminate);
+    retransmitter.startFlushing();
+    return retransmitter;
+  }
+
   private static SourceWrapSupport createSourceWrapSupportFromConfig(ILaunchConfiguration config)
       throws CoreException {
     List<IPredefinedSourceWrapProvider.Entry> entries =
@@ -8,14 +8,17 @@ package org.chromium.debug.ui.launcher;
 
 import org.chromium.debug.core.model.JavascriptVmEmbedder.ConnectionToRemote;
 import org.chromium.debug.core.model.BreakpointSynchronizer;
+import org.chromium.debug.core.model.ConsolePseudoProcess;
 import org.chromium.debug.core.model.JavascriptVmEmbedderFactory;
 import org.chromium.debug.core.model.LaunchParams;
 import org.chromium.debug.core.model.NamedConnectionLoggerFactory;
+import org.chromium.debug.core.model.PageConsoleFactory;
 import org.chromium.debug.ui.DialogBasedTabSelector;
 import org.chromium.sdk.ConnectionLogger;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.debug.core.model.ITerminate;
 
 import org.chromium.sdk.wip.WipBackend;
 import org.chromium.sdk.wip.eclipse.BackendRegistry;
@@ -55,8 +58,15 @@ public class WipLaunchType extends LaunchTypeBase {
       consoleFactory = NO_CONNECTION_LOGGER_FACTORY;
     }
 
+    PageConsoleFactory pageConsoleFactory = new PageConsoleFactory() {
+      public ConsolePseudoProcess.Retransmitter createPageConsole(String title,
+          ITerminate terminate) {
+        return LaunchTypeBase.createPageConsole(launch, title, terminate);
+      }
+    };
+
     return JavascriptVmEmbedderFactory.connectToWipBrowser(host, port, backend, consoleFactory,
-        consoleFactory, DialogBasedTabSelector.WIP_INSTANCE);
+        consoleFactory, DialogBasedTabSelector.WIP_INSTANCE, pageConsoleFactory);
   }
 
   @Override
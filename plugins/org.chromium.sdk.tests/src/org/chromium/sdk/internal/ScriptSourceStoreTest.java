@@ -0,0 +1,66 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class ScriptSourceStoreTest {
+  @Test
+  public void identicalSourcesShareInstance() {
+    ScriptSourceStore store = new ScriptSourceStore(1000, null);
+    String first = new String("var a = 1;");
+    String second = new String("var a = 1;");
+    assertTrue(first != second);
+
+    ScriptSourceStore.Entry firstEntry = store.put(first);
+    ScriptSourceStore.Entry secondEntry = store.put(second);
+    assertSame(first, secondEntry.getSource());
+    assertEquals(firstEntry.getHash(), secondEntry.getHash());
+    assertSame(first, store.get(firstEntry.getHash()));
+    assertNull(store.get(ScriptSourceStore.computeHash("var b = 2;")));
+  }
+
+  @Test
+  public void diskTier() throws Exception {
+    File directory = File.createTempFile("sources", "");
+    directory.delete();
+    directory.mkdir();
+    ScriptSourceStore store = new ScriptSourceStore(1000, directory);
+    ScriptSourceStore newStore = new ScriptSourceStore(1000, directory);
+    try {
+      String source = "function f() { return '\u043f\u0440\u0438\u0432\u0435\u0442'; }";
+      String hash = store.put(source).getHash();
+      store.flushDiskTier();
+      File file = new File(directory, hash + ".js");
+      assertTrue(file.isFile());
+
+      // A fresh store (as if in a new session) finds the source on disk.
+      assertEquals(source, newStore.get(hash));
+      assertSame(newStore.get(hash), newStore.get(hash));
+
+      // A source read from disk is not written back.
+      file.delete();
+      newStore.flushDiskTier();
+      assertFalse(file.exists());
+    } finally {
+      store.flushDiskTier();
+      newStore.flushDiskTier();
+      for (File file : directory.listFiles()) {
+        file.delete();
+      }
+      directory.delete();
+    }
+  }
+}
@@ -11,12 +11,15 @@ import static org.chromium.sdk.tests.internal.JsonBuilderUtil.jsonArray;
 import static org.chromium.sdk.tests.internal.JsonBuilderUtil.jsonObject;
 import static org.chromium.sdk.tests.internal.JsonBuilderUtil.jsonProperty;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.chromium.sdk.Breakpoint;
 import org.chromium.sdk.JavascriptVm.BreakpointCallback;
@@ -227,6 +230,14 @@ public class FixtureChromeStub implements ChromeStub {
   }
 
   private final Map<Long, BreakpointImpl> breakpoints = new HashMap<Long, BreakpointImpl>();
+  private final Map<DebuggerCommand, Integer> commandCounts =
+      new HashMap<DebuggerCommand, Integer>();
+  private final Set<DebuggerCommand> commandsToFail = new HashSet<DebuggerCommand>();
+  /** The "ids" argument of every "scripts" request, null for requests of all scripts. */
+  private final List<JSONArray> scriptsRequestIds =
+      Collections.synchronizedList(new ArrayList<JSONArray>());
+  /** The script of the frame sent in "backtrace" response. */
+  private volatile Long backtraceScriptId = getScriptId();
   private boolean isRunning = true;
   private NetListener listener;
   private static long breakpointCounter = 1;
@@ -282,6 +293,12 @@ public class FixtureChromeStub implements ChromeStub {
       String debuggerCommandString = JsonUtil.getAsString(data, V8Protocol.KEY_COMMAND);
       DebuggerCommand debuggerCommand = DebuggerCommand.forString(debuggerCommandString);
       JSONObject args = JsonUtil.getAsJSON(data, "arguments");
+      boolean failCommand;
+      synchronized (commandCounts) {
+        Integer count = commandCounts.get(debuggerCommand);
+        commandCounts.put(debuggerCommand, count == null ? 1 : count + 1);
+        failCommand = commandsToFail.remove(debuggerCommand);
+      }
       switch (debuggerCommand) {
         case LOOKUP:
           {
@@ -344,9 +361,14 @@ public class FixtureChromeStub implements ChromeStub {
           constructBacktrace(responseMessage, jsonBody);
           break;
         case SCRIPTS:
+          scriptsRequestIds.add(JsonUtil.getAsJSONArray(args, "ids"));
           nameToJsonValue.put("body", constructScripts(JsonUtil.getAsJSONArray(args, "ids")));
           nameToJsonValue.put("refs", constructScriptRefsJson());
           break;
+        case CHANGELIVE:
+          nameToJsonValue.put("body",
+              constructChangeLiveBody(!JsonUtil.getAsBoolean(args, "preview_only")));
+          break;
         case SOURCE:
           //constructSource();
           break;
@@ -356,6 +378,9 @@ public class FixtureChromeStub implements ChromeStub {
         default:
           success = false;
       }
+      if (failCommand) {
+        success = false;
+      }
       responseMessage.put("seq", nextSeq());
       responseMessage.put("request_seq", seq);
       responseMessage.put("command", debuggerCommandString);
@@ -411,6 +436,33 @@ public class FixtureChromeStub implements ChromeStub {
     }
   }
 
+  /**
+   * Builds a successful "changelive" body that reports a modified stack and recommends
+   * no step-in, so an applied change makes the debugger rebuild the current context.
+   */
+  private JSONObject constructChangeLiveBody(boolean updated) {
+    JSONObject positions = new JSONObject();
+    positions.put("start_position", 0L);
+    positions.put("end_position", 0L);
+    JSONObject changeTree = new JSONObject();
+    changeTree.put("name", "");
+    changeTree.put("status", "source changed");
+    changeTree.put("positions", positions);
+    changeTree.put("children", new JSONArray());
+    JSONObject textualDiff = new JSONObject();
+    textualDiff.put("chunks", new JSONArray());
+    JSONObject result = new JSONObject();
+    result.put("change_tree", changeTree);
+    result.put("textual_diff", textualDiff);
+    result.put("stack_modified", true);
+    result.put("updated", updated);
+    JSONObject body = new JSONObject();
+    body.put("change_log", new JSONArray());
+    body.put("result", result);
+    body.put("stepin_recommended", false);
+    return body;
+  }
+
   private JSONArray constructScripts(JSONArray ids) {
     JSONArray scripts = new JSONArray();
     for (Script script : scriptManager.allScripts()) {
@@ -423,7 +475,8 @@ public class FixtureChromeStub implements ChromeStub {
   }
 
   private void constructBacktrace(JSONObject response, JSONObject responseBody) {
-    response.put("refs", getRefs(getScriptRef(), getFunctionRef()));
+    response.put("refs",
+        getRefs(scriptIdToScriptRefMap.get(backtraceScriptId), getFunctionRef()));
     responseBody.put("fromFrame", 0);
     responseBody.put("toFrame", 1);
     responseBody.put("totalFrames", 1);
@@ -553,13 +606,17 @@ public class FixtureChromeStub implements ChromeStub {
         jsonObject(
             jsonProperty("type", 0),
             jsonProperty("index", 0)
+        ),
+        jsonObject(
+            jsonProperty("type", 1),
+            jsonProperty("index", 1)
         )
     );
   }
 
   private JSONObject getScript() {
     JSONObject script = new JSONObject();
-    script.put("ref", getScriptRef());
+    script.put("ref", scriptIdToScriptRefMap.get(backtraceScriptId));
     return script;
   }
 
@@ -580,6 +637,33 @@ public class FixtureChromeStub implements ChromeStub {
     return receiver;
   }
 
+  public int getCommandCount(DebuggerCommand command) {
+    synchronized (commandCounts) {
+      Integer count = commandCounts.get(command);
+      return count == null ? 0 : count;
+    }
+  }
+
+  /**
+   * Makes the next request of the command fail.
+   */
+  public void failNextCommand(DebuggerCommand command) {
+    synchronized (commandCounts) {
+      commandsToFail.add(command);
+    }
+  }
+
+  /**
+   * Sets the script of the frame that the following "backtrace" responses contain.
+   */
+  public void setBacktraceScriptId(Long scriptId) {
+    backtraceScriptId = scriptId;
+  }
+
+  public List<JSONArray> getScriptsRequestIds() {
+    return scriptsRequestIds;
+  }
+
   public void sendEvent(Message eventMessage) {
     listener.messageReceived(eventMessage);
   }
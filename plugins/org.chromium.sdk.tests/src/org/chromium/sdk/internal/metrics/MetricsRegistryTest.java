@@ -0,0 +1,76 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Map;
+
+import org.chromium.sdk.VmMetrics;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+  @Test
+  public void counterFromManyThreads() throws InterruptedException {
+    final StripedCounter counter = new StripedCounter();
+    Thread[] threads = new Thread[5];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 1000; j++) {
+            counter.increment();
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(5000, counter.get());
+  }
+
+  @Test
+  public void histogramPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 98; i++) {
+      histogram.recordMicros(5);
+    }
+    histogram.recordMicros(1000);
+    histogram.recordMicros(3000);
+
+    VmMetrics.Histogram snapshot = histogram.getSnapshot();
+    assertEquals(100, snapshot.getCount());
+    assertEquals(98 * 5 + 1000 + 3000, snapshot.getTotalMicros());
+    assertEquals(3000, snapshot.getMaxMicros());
+    // 5 falls into bucket [4, 8).
+    assertEquals(7, snapshot.getPercentileMicros(50));
+    // 1000 falls into bucket [512, 1024).
+    assertEquals(1023, snapshot.getPercentileMicros(99));
+    assertEquals(3000, snapshot.getPercentileMicros(100));
+  }
+
+  @Test
+  public void registrySnapshot() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.getCounter("a").add(3);
+    assertSame(registry.getCounter("a"), registry.getCounter("a"));
+    registry.registerGauge("b", new MetricsRegistry.Gauge() {
+      @Override public long getValue() {
+        return 42;
+      }
+    });
+    registry.getHistogram("h").recordNanos(2000000);
+
+    Map<String, Long> values = registry.getValues();
+    assertEquals(Long.valueOf(3), values.get("a"));
+    assertEquals(Long.valueOf(42), values.get("b"));
+    assertEquals(2000, registry.getHistograms().get("h").getMaxMicros());
+  }
+}
@@ -23,6 +23,7 @@ public class FakeConnection implements Connection {
   private boolean isRunning;
   private final ChromeStub responder;
   private NetListener netListener;
+  private final TrafficCounters trafficCounters = new TrafficCounters();
 
   public FakeConnection(ChromeStub responder) {
     this.responder = responder;
@@ -45,6 +46,10 @@ public class FakeConnection implements Connection {
     return isRunning;
   }
 
+  public TrafficCounters getTrafficCounters() {
+    return trafficCounters;
+  }
+
   public void close() {
     boolean sendEos = isRunning;
     isRunning = false;
@@ -0,0 +1,66 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class InboundQueueTest {
+  @Test
+  public void readerWaitsForFreeSlot() throws Exception {
+    TrafficCounters counters = new TrafficCounters();
+    final InboundQueue<String> queue = new InboundQueue<String>(2, counters);
+    queue.putWithBackPressure("a");
+    queue.putWithBackPressure("b");
+
+    final CountDownLatch putDone = new CountDownLatch(1);
+    Thread reader = new Thread() {
+      @Override
+      public void run() {
+        try {
+          queue.putWithBackPressure("c");
+          putDone.countDown();
+        } catch (InterruptedException e) {
+          // Test fails on timeout.
+        }
+      }
+    };
+    reader.start();
+    assertFalse(putDone.await(100, TimeUnit.MILLISECONDS));
+
+    assertEquals("a", queue.take());
+    assertTrue(putDone.await(5, TimeUnit.SECONDS));
+    assertEquals("b", queue.take());
+    assertEquals("c", queue.take());
+    reader.join();
+
+    assertEquals(1, counters.getInboundQueueStalls());
+    assertEquals(2, counters.getInboundQueueHighWater());
+    assertEquals(0, counters.getInboundQueueSize());
+  }
+
+  @Test
+  public void internalItemsIgnoreCapacity() throws Exception {
+    TrafficCounters counters = new TrafficCounters();
+    InboundQueue<String> queue = new InboundQueue<String>(1, counters);
+    queue.putWithBackPressure("message");
+    queue.add("task");
+    queue.add("eos");
+    assertEquals(3, queue.size());
+    assertEquals(3, counters.getInboundQueueHighWater());
+    assertEquals(0, counters.getInboundQueueStalls());
+    assertEquals("message", queue.take());
+    assertEquals("task", queue.take());
+    assertEquals("eos", queue.take());
+  }
+}
@@ -0,0 +1,201 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.v8native;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.chromium.sdk.JavascriptVm.ScriptsCallback;
+import org.chromium.sdk.LiveEditBatchExtension;
+import org.chromium.sdk.Script;
+import org.chromium.sdk.UpdatableScript;
+import org.chromium.sdk.internal.browserfixture.AbstractAttachedTest;
+import org.chromium.sdk.internal.browserfixture.FixtureChromeStub;
+import org.chromium.sdk.internal.transport.FakeConnection;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that {@link LiveEditBatchImpl} previews all changes before applying any of them
+ * and makes the post-change steps once per batch.
+ */
+public class LiveEditBatchTest extends AbstractAttachedTest<FakeConnection> {
+  private final List<Script> changedScripts =
+      Collections.synchronizedList(new ArrayList<Script>());
+  private Script script1;
+  private Script script2;
+
+  @Before
+  public void setUpScripts() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    scriptLoadedCallback = createCountDown(latch);
+    messageResponder.sendAfterCompile();
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    for (Script script : getScripts()) {
+      if (script.getId().equals(FixtureChromeStub.getScriptId())) {
+        script1 = script;
+      } else if (script.getId().equals(FixtureChromeStub.getCompiledScriptId())) {
+        script2 = script;
+      }
+    }
+    assertNotNull(script1);
+    assertNotNull(script2);
+    messageResponder.getScriptsRequestIds().clear();
+  }
+
+  @Test(timeout = 5000)
+  public void allPreviewsSucceedThenChangesApplied() {
+    RecordingChange change1 = new RecordingChange(script1);
+    RecordingChange change2 = new RecordingChange(script2);
+    RecordingBatchCallback batchCallback = new RecordingBatchCallback();
+
+    getBatchExtension().setSourcesOnRemote(Arrays.asList(change1, change2), batchCallback, null);
+
+    // Two previews, then two applies.
+    assertEquals(4, getChangeLiveCount());
+    assertEquals(Boolean.TRUE, batchCallback.applied);
+    assertEquals(Boolean.FALSE, batchCallback.resumed);
+    assertEquals(Boolean.TRUE, change1.succeeded);
+    assertEquals(Boolean.TRUE, change2.succeeded);
+  }
+
+  @Test(timeout = 5000)
+  public void failedPreviewCancelsBatch() {
+    messageResponder.failNextCommand(DebuggerCommand.CHANGELIVE);
+    RecordingChange change1 = new RecordingChange(script1);
+    RecordingChange change2 = new RecordingChange(script2);
+    RecordingBatchCallback batchCallback = new RecordingBatchCallback();
+
+    getBatchExtension().setSourcesOnRemote(Arrays.asList(change1, change2), batchCallback, null);
+
+    // Only the previews have been sent.
+    assertEquals(2, getChangeLiveCount());
+    assertEquals(Boolean.FALSE, batchCallback.applied);
+    assertEquals(Boolean.FALSE, change1.succeeded);
+    // A change whose preview succeeded is reported as not applied.
+    assertEquals(Boolean.FALSE, change2.succeeded);
+    assertEquals("not applied: preview of " + script1.getName() + " failed", //$NON-NLS-1$
+        change2.failureMessage);
+    assertTrue(messageResponder.getScriptsRequestIds().isEmpty());
+  }
+
+  @Test(timeout = 5000)
+  public void scriptsReloadedAndContextRebuiltOnce() throws Exception {
+    CountDownLatch suspendLatch = expectSuspend();
+    messageResponder.hitBreakpoints(Collections.<Long>emptyList());
+    suspendLatch.await();
+    int backtraceCount = messageResponder.getCommandCount(DebuggerCommand.BACKTRACE);
+
+    suspendLatch = expectSuspend();
+    RecordingBatchCallback batchCallback = new RecordingBatchCallback();
+    getBatchExtension().setSourcesOnRemote(
+        Arrays.asList(new RecordingChange(script1), new RecordingChange(script2)),
+        batchCallback, null);
+    suspendLatch.await();
+
+    assertEquals(Boolean.TRUE, batchCallback.applied);
+    assertEquals(1, messageResponder.getScriptsRequestIds().size());
+    assertEquals(Arrays.asList(script1.getId(), script2.getId()),
+        messageResponder.getScriptsRequestIds().get(0));
+    assertEquals(backtraceCount + 1,
+        messageResponder.getCommandCount(DebuggerCommand.BACKTRACE));
+    assertEquals(Arrays.asList(script1, script2), changedScripts);
+  }
+
+  @Override
+  public void scriptContentChanged(Script newScript) {
+    changedScripts.add(newScript);
+  }
+
+  @Override
+  protected FakeConnection createConnection() {
+    return new FakeConnection(messageResponder);
+  }
+
+  private LiveEditBatchExtension getBatchExtension() {
+    return javascriptVm.getLiveEditBatchExtension();
+  }
+
+  private int getChangeLiveCount() {
+    return messageResponder.getCommandCount(DebuggerCommand.CHANGELIVE);
+  }
+
+  private Collection<Script> getScripts() {
+    final AtomicReference<Collection<Script>> loadedScripts =
+        new AtomicReference<Collection<Script>>();
+    javascriptVm.getScripts(new ScriptsCallback() {
+      public void success(Collection<Script> scripts) {
+        loadedScripts.set(scripts);
+      }
+
+      public void failure(String errorMessage) {
+      }
+    });
+    return loadedScripts.get();
+  }
+
+  private static Runnable createCountDown(final CountDownLatch latch) {
+    return new Runnable() {
+      public void run() {
+        latch.countDown();
+      }
+    };
+  }
+
+  private static class RecordingChange
+      implements LiveEditBatchExtension.Change, UpdatableScript.UpdateCallback {
+    private final Script script;
+    Boolean succeeded = null;
+    String failureMessage = null;
+
+    RecordingChange(Script script) {
+      this.script = script;
+    }
+
+    public Script getScript() {
+      return script;
+    }
+
+    public String getNewSource() {
+      return "changed();"; //$NON-NLS-1$
+    }
+
+    public UpdatableScript.UpdateCallback getCallback() {
+      return this;
+    }
+
+    public void success(boolean resumed, Object report,
+        UpdatableScript.ChangeDescription changeDescription) {
+      succeeded = true;
+    }
+
+    public void failure(String message, UpdatableScript.Failure details) {
+      succeeded = false;
+      failureMessage = message;
+    }
+  }
+
+  private static class RecordingBatchCallback implements LiveEditBatchExtension.BatchCallback {
+    Boolean applied = null;
+    Boolean resumed = null;
+
+    public void done(boolean applied, boolean resumed) {
+      this.applied = applied;
+      this.resumed = resumed;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.v8native;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import org.chromium.sdk.JsScope;
+import org.chromium.sdk.JsVariable;
+import org.chromium.sdk.internal.browserfixture.AbstractAttachedTest;
+import org.chromium.sdk.internal.transport.FakeConnection;
+import org.junit.Test;
+
+/**
+ * Checks how scopes prefetched on suspend are used by {@link JsScope.Declarative#getVariables}.
+ */
+public class ScopePrefetchTest extends AbstractAttachedTest<FakeConnection> {
+
+  @Test(timeout = 5000)
+  public void prefetchedScopeIsUsed() throws Exception {
+    suspend();
+    assertEquals(1, getScopeRequestCount());
+
+    assertEquals(2, getLocalVariables().size());
+    assertEquals(1, getScopeRequestCount());
+  }
+
+  @Test(timeout = 5000)
+  public void staleCacheStateForcesReload() throws Exception {
+    suspend();
+    assertEquals(1, getScopeRequestCount());
+
+    getTopFrame().getInternalContext().getValueLoader().clearCaches();
+
+    assertEquals(2, getLocalVariables().size());
+    assertEquals(2, getScopeRequestCount());
+  }
+
+  @Test(timeout = 5000)
+  public void failedPrefetchFallsBack() throws Exception {
+    messageResponder.failNextCommand(DebuggerCommand.SCOPE);
+    suspend();
+    assertEquals(1, getScopeRequestCount());
+
+    assertEquals(2, getLocalVariables().size());
+    assertEquals(2, getScopeRequestCount());
+  }
+
+  private void suspend() throws InterruptedException {
+    CountDownLatch latch = expectSuspend();
+    messageResponder.hitBreakpoints(Collections.<Long>emptyList());
+    latch.await();
+  }
+
+  private CallFrameImpl getTopFrame() {
+    return (CallFrameImpl) suspendContext.getCallFrames().get(0);
+  }
+
+  private Collection<? extends JsVariable> getLocalVariables() {
+    // Scope 0 is global, scope 1 is local.
+    JsScope scope = getTopFrame().getVariableScopes().get(1);
+    return scope.asDeclarativeScope().getVariables();
+  }
+
+  private int getScopeRequestCount() {
+    return messageResponder.getCommandCount(DebuggerCommand.SCOPE);
+  }
+
+  @Override
+  protected FakeConnection createConnection() {
+    return new FakeConnection(messageResponder);
+  }
+}
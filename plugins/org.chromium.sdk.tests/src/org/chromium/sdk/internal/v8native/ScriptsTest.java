@@ -10,9 +10,16 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.chromium.sdk.DebugEventListener;
 import org.chromium.sdk.Script;
 import org.chromium.sdk.JavascriptVm.ScriptsCallback;
 import org.chromium.sdk.internal.browserfixture.AbstractAttachedTest;
@@ -24,7 +31,9 @@ import org.junit.Test;
 /**
  * A test for the scripts processing.
  */
-public class ScriptsTest extends AbstractAttachedTest<FakeConnection> {
+public class ScriptsTest extends AbstractAttachedTest<FakeConnection>
+    implements DebugEventListener.ScriptBatchListener {
+  private DebugEventListener.ScriptBatchListener batchListener = null;
 
   @Test
   public void checkAfterCompileScriptIsKnown() throws Exception {
@@ -49,18 +58,74 @@ public class ScriptsTest extends AbstractAttachedTest<FakeConnection> {
     assertTrue(source != null && source.contains("compiled()")); //$NON-NLS-1$
   }
 
-  @SuppressWarnings("unchecked")
+  @Test
+  public void afterCompileEventsAreBatched() throws Exception {
+    getScripts();
+    messageResponder.getScriptsRequestIds().clear();
+    final List<Collection<Script>> batches =
+        Collections.synchronizedList(new ArrayList<Collection<Script>>());
+    final CountDownLatch latch = new CountDownLatch(1);
+    batchListener = new DebugEventListener.ScriptBatchListener() {
+      public void scriptsLoaded(Collection<Script> newScripts) {
+        batches.add(newScripts);
+        latch.countDown();
+      }
+    };
+    for (int i = 0; i < 3; i++) {
+      messageResponder.sendAfterCompile();
+    }
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+    // All events fall into one window: one "scripts" request and one notification.
+    assertEquals(1, messageResponder.getScriptsRequestIds().size());
+    assertEquals(Arrays.asList(FixtureChromeStub.getCompiledScriptId()),
+        messageResponder.getScriptsRequestIds().get(0));
+    assertEquals(1, batches.size());
+    assertEquals(FixtureChromeStub.getCompiledScriptId(),
+        batches.get(0).iterator().next().getId());
+  }
+
+  @Test
+  public void breakRightAfterCompileSeesNewScript() throws Exception {
+    getScripts();
+    messageResponder.getScriptsRequestIds().clear();
+    messageResponder.setBacktraceScriptId(FixtureChromeStub.getCompiledScriptId());
+    CountDownLatch suspendLatch = expectSuspend();
+
+    // The break arrives well within the batch window of the afterCompile event.
+    messageResponder.sendAfterCompile();
+    messageResponder.hitBreakpoints(Collections.<Long>emptyList());
+    assertTrue(suspendLatch.await(10, TimeUnit.SECONDS));
+
+    assertEquals(Arrays.asList(FixtureChromeStub.getCompiledScriptId()),
+        messageResponder.getScriptsRequestIds().get(0));
+    Script frameScript = suspendContext.getCallFrames().get(0).getScript();
+    assertNotNull(frameScript);
+    assertEquals(FixtureChromeStub.getCompiledScriptId(), frameScript.getId());
+  }
+
   private Collection<Script> getScripts() throws MethodIsBlockingException {
-    final Collection<Script>[] loadedScripts = new Collection[1];
+    final AtomicReference<Collection<Script>> loadedScripts =
+        new AtomicReference<Collection<Script>>();
     javascriptVm.getScripts(new ScriptsCallback() {
       public void success(Collection<Script> scripts) {
-        loadedScripts[0] = scripts;
+        loadedScripts.set(scripts);
       }
 
       public void failure(String errorMessage) {
       }
     });
-    return loadedScripts[0];
+    return loadedScripts.get();
+  }
+
+  public void scriptsLoaded(Collection<Script> newScripts) {
+    if (batchListener == null) {
+      for (Script script : newScripts) {
+        scriptLoaded(script);
+      }
+    } else {
+      batchListener.scriptsLoaded(newScripts);
+    }
   }
 
   @Override
@@ -0,0 +1,94 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+public class CallbackFutureTest {
+  @Test
+  public void callbacksBeforeAndAfterCompletion() throws Exception {
+    CallbackFuture<String> future = new CallbackFuture<String>();
+    final List<String> log = new ArrayList<String>();
+    future.addCallback(new LoggingCallback(log, "early"));
+    assertFalse(future.isDone());
+
+    future.success("value");
+    // Second completion is ignored.
+    future.failure(new Exception());
+    future.addCallback(new LoggingCallback(log, "late"));
+
+    assertTrue(future.isDone());
+    assertEquals("value", future.get());
+    assertEquals("[early:value, late:value]", log.toString());
+  }
+
+  @Test
+  public void syncCallbackFailsIncompleteFuture() throws Exception {
+    CallbackFuture<String> future = new CallbackFuture<String>();
+    future.asSyncCallback().callbackDone(null);
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      // Expected.
+    }
+
+    CallbackFuture<String> completed = new CallbackFuture<String>();
+    completed.success("value");
+    completed.asSyncCallback().callbackDone(null);
+    assertEquals("value", completed.get());
+  }
+
+  @Test
+  public void failureAndTimeout() throws Exception {
+    CallbackFuture<String> future = new CallbackFuture<String>();
+    try {
+      future.get(1, TimeUnit.MILLISECONDS);
+      fail();
+    } catch (TimeoutException e) {
+      // Expected.
+    }
+    Exception cause = new Exception("problem");
+    future.failure(cause);
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertSame(cause, e.getCause());
+    }
+  }
+
+  private static class LoggingCallback implements GenericCallback<String> {
+    private final List<String> log;
+    private final String name;
+
+    LoggingCallback(List<String> log, String name) {
+      this.log = log;
+      this.name = name;
+    }
+
+    @Override public void success(String value) {
+      log.add(name + ":" + value);
+    }
+
+    @Override public void failure(Exception exception) {
+      log.add(name + ":failure");
+    }
+  }
+}
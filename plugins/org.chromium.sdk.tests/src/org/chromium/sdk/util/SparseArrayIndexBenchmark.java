@@ -0,0 +1,102 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Compares {@link SparseArrayIndex} with the synchronized unmodifiable {@link TreeMap}
+ * that used to back JsArray implementations. Not a unit test; run it manually as
+ * a Java application.
+ */
+public class SparseArrayIndexBenchmark {
+  private static final int SIZE = 1000000;
+  private static final int LOOKUPS = 5000000;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    Object element = new Object();
+    for (boolean dense : new boolean[] { true, false }) {
+      long[] keys = new long[SIZE];
+      for (int i = 0; i < SIZE; i++) {
+        keys[i] = dense ? i : i * 3L;
+      }
+      System.out.println(dense ? "Dense array:" : "Sparse array:");
+      for (int round = 0; round < ROUNDS; round++) {
+        boolean print = round == ROUNDS - 1;
+        runTreeMap(keys, element, print);
+        runIndex(keys, element, print);
+      }
+    }
+  }
+
+  private static void runTreeMap(long[] keys, Object element, boolean print) {
+    long heapBefore = usedHeap();
+    long start = System.nanoTime();
+    TreeMap<Long, Object> map = new TreeMap<Long, Object>();
+    for (long key : keys) {
+      map.put(key, element);
+    }
+    SortedMap<Long, Object> publicMap =
+        Collections.synchronizedSortedMap(Collections.unmodifiableSortedMap(map));
+    long buildNanos = System.nanoTime() - start;
+    long heap = usedHeap() - heapBefore;
+    long lookupNanos = lookup(publicMap, keys);
+    if (print) {
+      report("TreeMap", buildNanos, lookupNanos, heap);
+    }
+  }
+
+  private static void runIndex(long[] keys, Object element, boolean print) {
+    long heapBefore = usedHeap();
+    long start = System.nanoTime();
+    SparseArrayIndex.Builder<Object> builder = new SparseArrayIndex.Builder<Object>(keys.length);
+    for (long key : keys) {
+      builder.add(key, element);
+    }
+    SparseArrayIndex<Object> index = builder.build();
+    long buildNanos = System.nanoTime() - start;
+    long heap = usedHeap() - heapBefore;
+    long lookupNanos = lookup(index, keys);
+    if (print) {
+      report("SparseArrayIndex", buildNanos, lookupNanos, heap);
+    }
+  }
+
+  private static long lookup(Map<Long, Object> map, long[] keys) {
+    Random random = new Random(0);
+    int found = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < LOOKUPS; i++) {
+      if (map.get(keys[random.nextInt(keys.length)]) != null) {
+        found++;
+      }
+    }
+    long result = System.nanoTime() - start;
+    if (found != LOOKUPS) {
+      throw new RuntimeException();
+    }
+    return result;
+  }
+
+  private static void report(String name, long buildNanos, long lookupNanos, long heap) {
+    System.out.println("  " + name + ": build " + buildNanos / 1000000 + " ms, " +
+        LOOKUPS + " lookups " + lookupNanos / 1000000 + " ms, ~" + heap / 1024 + " KB");
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
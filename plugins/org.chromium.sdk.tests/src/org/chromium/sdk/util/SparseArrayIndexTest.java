@@ -0,0 +1,73 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class SparseArrayIndexTest {
+  @Test
+  public void denseArray() {
+    SparseArrayIndex.Builder<String> builder = new SparseArrayIndex.Builder<String>(2);
+    for (int i = 0; i < 5; i++) {
+      builder.add(i, "v" + i);
+    }
+    SparseArrayIndex<String> index = builder.build();
+    assertTrue(index.isDense());
+    assertEquals(5, index.size());
+    assertEquals("v3", index.get(3L));
+    assertNull(index.get(5L));
+    assertNull(index.get(-1L));
+    assertEquals(Long.valueOf(4), index.lastKey());
+    assertEquals("{1=v1, 2=v2}", index.subMap(1L, 3L).toString());
+    assertEquals("{3=v3, 4=v4}", index.tailMap(3L).toString());
+  }
+
+  @Test
+  public void unorderedInputWithDuplicates() {
+    SparseArrayIndex.Builder<String> builder = new SparseArrayIndex.Builder<String>();
+    builder.add(10, "a");
+    builder.add(2, "b");
+    builder.add(10, "c");
+    builder.add(7, "d");
+    SparseArrayIndex<String> index = builder.build();
+    assertFalse(index.isDense());
+    assertEquals("{2=b, 7=d, 10=c}", index.toString());
+    assertEquals("{7=d}", index.subMap(3L, 10L).toString());
+    assertEquals("{2=b}", index.headMap(7L).toString());
+  }
+
+  @Test
+  public void sameAsTreeMap() {
+    Random random = new Random(0);
+    for (int run = 0; run < 20; run++) {
+      TreeMap<Long, Integer> expected = new TreeMap<Long, Integer>();
+      SparseArrayIndex.Builder<Integer> builder = new SparseArrayIndex.Builder<Integer>();
+      int count = random.nextInt(200);
+      for (int i = 0; i < count; i++) {
+        long key = random.nextInt(300);
+        expected.put(key, i);
+        builder.add(key, i);
+      }
+      SortedMap<Long, Integer> index = builder.build();
+      assertEquals(expected, index);
+      assertEquals(expected.hashCode(), index.hashCode());
+      for (long key = -1; key < 301; key++) {
+        assertEquals(expected.get(key), index.get(key));
+      }
+      assertEquals(expected.subMap(50L, 150L), index.subMap(50L, 150L));
+    }
+  }
+}
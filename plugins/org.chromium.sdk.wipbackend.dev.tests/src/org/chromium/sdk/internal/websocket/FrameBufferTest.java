@@ -0,0 +1,90 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.websocket;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class FrameBufferTest {
+  @Test
+  public void maskingMatchesBytewise() {
+    Random random = new Random(0);
+    byte[] mask = new byte[4];
+    // Cover all tail lengths and offsets that are not 8-aligned.
+    for (int length = 0; length < 40; length++) {
+      for (int from = 0; from < 3; from++) {
+        byte[] array = new byte[from + length + 5];
+        random.nextBytes(array);
+        random.nextBytes(mask);
+        byte[] expected = array.clone();
+        for (int i = 0; i < length; i++) {
+          expected[from + i] ^= mask[i % 4];
+        }
+        FrameBuffer.maskBytes(array, from, from + length, mask);
+        assertArrayEquals(expected, array);
+      }
+    }
+  }
+
+  @Test
+  public void utf8MatchesStringEncoding() {
+    String text = "ascii é 中 𝄞 end";
+    FrameBuffer buffer = new FrameBuffer();
+    buffer.putUtf8(text);
+    byte[] expected = text.getBytes(ManualLoggingSocketWrapper.UTF_8_CHARSET);
+    assertEquals(expected.length, buffer.getPayloadLength());
+    byte[] actual = Arrays.copyOfRange(buffer.getArray(), FrameBuffer.HEADER_ROOM,
+        FrameBuffer.HEADER_ROOM + buffer.getPayloadLength());
+    assertArrayEquals(expected, actual);
+    assertEquals(text, buffer.getPayloadAsString());
+  }
+
+  @Test
+  public void largeBufferIsKeptUntilIdle() {
+    FrameBuffer buffer = new FrameBuffer();
+    buffer.putBytes(new byte[FrameBuffer.RETAINED_CAPACITY + 1]);
+    byte[] large = buffer.getArray();
+
+    // Another large frame reuses the array.
+    buffer.reset();
+    buffer.putBytes(new byte[FrameBuffer.RETAINED_CAPACITY + 1]);
+    assertSame(large, buffer.getArray());
+    buffer.reset();
+    buffer.putByte((byte) 1);
+
+    for (int i = 0; i < FrameBuffer.TRIM_AFTER_SMALL_FRAMES - 1; i++) {
+      buffer.reset();
+      buffer.putByte((byte) 1);
+    }
+    assertSame(large, buffer.getArray());
+
+    buffer.reset();
+    assertTrue(buffer.getArray().length <= FrameBuffer.RETAINED_CAPACITY);
+  }
+
+  @Test
+  public void maskTwiceRestoresPayload() {
+    FrameBuffer buffer = new FrameBuffer();
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 3000; i++) {
+      builder.append((char) ('a' + i % 26));
+    }
+    String text = builder.toString();
+    buffer.putUtf8(text);
+    byte[] mask = { 1, 2, 3, 4 };
+    buffer.maskPayload(mask);
+    buffer.maskPayload(mask);
+    assertEquals(text, buffer.getPayloadAsString());
+  }
+}
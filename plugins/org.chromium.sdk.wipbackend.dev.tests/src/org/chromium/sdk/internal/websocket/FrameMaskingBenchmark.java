@@ -0,0 +1,85 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.websocket;
+
+import java.util.Random;
+
+/**
+ * Compares the old way of preparing an outgoing HyBi frame payload (String.getBytes plus
+ * a per-byte mask loop with a fresh mask from a shared {@link Random}) with {@link FrameBuffer}
+ * (reused buffer, direct UTF-8 encoding and unrolled masking) on 1 KB and 5 MB messages.
+ * Not a unit test; run it manually as a Java application.
+ */
+public class FrameMaskingBenchmark {
+  private static final int[] SIZES = { 1024, 5 * 1024 * 1024 };
+  private static final long TOTAL_BYTES = 500L * 1024 * 1024;
+  private static final int ROUNDS = 5;
+
+  private static final Random SHARED_RANDOM = new Random();
+
+  public static void main(String[] args) {
+    for (int size : SIZES) {
+      String message = createMessage(size);
+      int iterations = (int) Math.max(1, TOTAL_BYTES / size);
+      System.out.println(size / 1024 + " KB frames, " + iterations + " iterations:");
+      for (int round = 0; round < ROUNDS; round++) {
+        boolean print = round == ROUNDS - 1;
+        runBytewise(message, iterations, print);
+        runFrameBuffer(message, iterations, print);
+      }
+    }
+  }
+
+  private static void runBytewise(String message, int iterations, boolean print) {
+    int checksum = 0;
+    long start = System.nanoTime();
+    for (int n = 0; n < iterations; n++) {
+      byte[] maskBytes = new byte[4];
+      SHARED_RANDOM.nextBytes(maskBytes);
+      byte[] bytes = message.getBytes(ManualLoggingSocketWrapper.UTF_8_CHARSET);
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = (byte) (bytes[i] ^ maskBytes[i % 4]);
+      }
+      checksum += bytes[bytes.length - 1];
+    }
+    report("bytewise", System.nanoTime() - start, iterations, message.length(), print, checksum);
+  }
+
+  private static void runFrameBuffer(String message, int iterations, boolean print) {
+    int checksum = 0;
+    long start = System.nanoTime();
+    for (int n = 0; n < iterations; n++) {
+      byte[] maskBytes = Hybi17WsConnection.MaskStrategy.NORMAL_MASK.generate();
+      FrameBuffer buffer = FrameBuffer.getForThread();
+      buffer.putUtf8(message);
+      buffer.maskPayload(maskBytes);
+      checksum += buffer.getArray()[FrameBuffer.HEADER_ROOM + buffer.getPayloadLength() - 1];
+    }
+    report("FrameBuffer", System.nanoTime() - start, iterations, message.length(), print,
+        checksum);
+  }
+
+  private static void report(String name, long nanos, int iterations, int size, boolean print,
+      int checksum) {
+    if (!print) {
+      return;
+    }
+    double megabytes = (double) iterations * size / (1024 * 1024);
+    System.out.println("  " + name + ": " + nanos / 1000000 + " ms, " +
+        Math.round(megabytes * 1e9 / nanos) + " MB/s (checksum " + checksum + ")");
+  }
+
+  private static String createMessage(int size) {
+    // Mostly ASCII like a typical JSON command.
+    StringBuilder builder = new StringBuilder(size);
+    Random random = new Random(0);
+    while (builder.length() < size) {
+      builder.append((char) (' ' + random.nextInt(95)));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,52 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.chromium.sdk.wip.WipConsoleStream.Level;
+import org.junit.Test;
+
+public class ConsoleMessageRingTest {
+  @Test
+  public void repeatCoalescing() {
+    ConsoleMessageRing ring = new ConsoleMessageRing(10);
+    ring.add(Level.LOG, "a", null, 1, 1);
+    ring.updateRepeatCount(3);
+    ring.add(Level.LOG, "a", null, 1, 1);
+    assertEquals("[a x4]", ring.drain().toString());
+
+    // Repeats of an already delivered message come as its copy.
+    ring.updateRepeatCount(5);
+    ring.add(Level.ERROR, "a", null, 1, 1);
+    ring.add(Level.ERROR, "b", "http://x", 2, 1);
+    assertEquals("[a x4, a, b]", ring.drain().toString());
+    assertEquals(0, ring.takeLostCount());
+  }
+
+  @Test
+  public void overflowAndClear() {
+    ConsoleMessageRing ring = new ConsoleMessageRing(3);
+    for (int i = 0; i < 5; i++) {
+      ring.add(Level.LOG, "m" + i, null, -1, 1);
+    }
+    assertEquals(2, ring.takeLostCount());
+    assertEquals(0, ring.takeLostCount());
+    assertEquals("[m2, m3, m4]", ring.drain().toString());
+
+    ring.add(Level.LOG, "n", null, -1, 1);
+    ring.clear();
+    assertTrue(ring.takeCleared());
+    assertFalse(ring.takeCleared());
+    assertTrue(ring.drain().isEmpty());
+    // Repeat count update after clear refers to nothing.
+    ring.updateRepeatCount(2);
+    assertTrue(ring.drain().isEmpty());
+  }
+}
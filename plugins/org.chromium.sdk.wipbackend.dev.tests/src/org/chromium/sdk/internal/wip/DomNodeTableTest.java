@@ -0,0 +1,191 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class DomNodeTableTest {
+  @Test
+  public void lazyChildrenAndMutations() {
+    DomNodeTable table = new DomNodeTable();
+    table.putNode(1, 9, "#document", null, null, 1);
+    table.putNode(2, 1, "HTML", null, null, 2);
+    table.setChildren(1, new int[] { 2 });
+    table.setRoot(1);
+
+    // Children of HTML are not loaded, only their count is known.
+    assertNull(table.getChildIds(2));
+    assertEquals(2, table.getChildCount(2));
+    table.insertChild(2, 0, 100);
+    assertEquals(3, table.getChildCount(2));
+
+    table.putNode(3, 1, "HEAD", null, null, 0);
+    table.putNode(4, 1, "BODY", null, Arrays.asList("class", "main"), 0);
+    table.putNode(5, 3, "#text", "x", null, 0);
+    table.setChildren(2, new int[] { 3, 4, 5 });
+    assertChildren(table, 2, 3, 4, 5);
+    assertEquals(2, table.getParent(4));
+
+    table.putNode(6, 1, "DIV", null, null, 0);
+    table.insertChild(2, 3, 6);
+    assertChildren(table, 2, 3, 6, 4, 5);
+    table.putNode(7, 1, "P", null, null, 0);
+    table.insertChild(2, 0, 7);
+    assertChildren(table, 2, 7, 3, 6, 4, 5);
+
+    table.removeChild(2, 4);
+    table.removeChild(2, 5);
+    assertChildren(table, 2, 7, 3, 6);
+    assertEquals(3, table.getChildCount(2));
+    assertFalse(table.isPresent(4));
+    table.putNode(8, 1, "SPAN", null, null, 0);
+    table.insertChild(2, 6, 8);
+    assertChildren(table, 2, 7, 3, 6, 8);
+
+    table.setValue(6, "text");
+    assertEquals("text", table.getValue(6));
+  }
+
+  @Test
+  public void removingSubtree() {
+    DomNodeTable table = new DomNodeTable();
+    table.putNode(1, 9, "#document", null, null, 0);
+    table.putNode(2, 1, "DIV", null, null, 0);
+    table.putNode(3, 1, "DIV", null, null, 0);
+    table.setChildren(2, new int[] { 3 });
+    table.setChildren(1, new int[] { 2 });
+    assertEquals(3, table.size());
+
+    table.removeChild(1, 2);
+    assertEquals(1, table.size());
+    assertFalse(table.isPresent(3));
+    assertChildren(table, 1);
+  }
+
+  @Test
+  public void unknownPreviousSiblingUnloadsChildren() {
+    DomNodeTable table = new DomNodeTable();
+    table.putNode(1, 1, "UL", null, null, 0);
+    table.putNode(2, 1, "LI", null, null, 0);
+    table.setChildren(1, new int[] { 2 });
+
+    table.putNode(3, 1, "LI", null, null, 0);
+    table.insertChild(1, 50, 3);
+    assertNull(table.getChildIds(1));
+    assertEquals(2, table.getChildCount(1));
+    assertEquals(1, table.size());
+  }
+
+  @Test
+  public void attributes() {
+    DomNodeTable table = new DomNodeTable();
+    table.putNode(1, 1, "A", null, Arrays.asList(new String("href"), "x.html"), 0);
+    table.putNode(2, 1, "A", null, Arrays.asList(new String("href"), "y.html"), 0);
+    // Names are interned.
+    assertSame(table.getAttributes(1).keySet().iterator().next(),
+        table.getAttributes(2).keySet().iterator().next());
+
+    table.setAttribute(1, "id", "first");
+    table.setAttribute(1, "href", "z.html");
+    assertEquals("{href=z.html, id=first}", table.getAttributes(1).toString());
+    table.removeAttribute(1, "href");
+    assertEquals(Collections.singletonMap("id", "first"), table.getAttributes(1));
+    assertNull(table.getAttribute(1, "href"));
+    assertEquals("first", table.getAttribute(1, "id"));
+  }
+
+  @Test
+  public void growAndClear() {
+    DomNodeTable table = new DomNodeTable();
+    table.putNode(1, 1, "DIV", null, null, 0);
+    table.putNode(1000, 1, "DIV", null, null, 0);
+    table.setRoot(1);
+    assertTrue(table.isPresent(1000));
+    table.clear();
+    assertFalse(table.isPresent(1000));
+    assertEquals(DomNodeTable.NO_NODE, table.getRoot());
+    assertEquals(0, table.size());
+  }
+
+  @Test
+  public void movingNodeKeepsCountsInSync() {
+    DomNodeTable table = new DomNodeTable();
+    table.putNode(1, 1, "BODY", null, null, 0);
+    table.putNode(2, 1, "UL", null, null, 0);
+    table.putNode(3, 1, "OL", null, null, 0);
+    table.putNode(4, 1, "LI", null, null, 0);
+    table.putNode(5, 1, "LI", null, null, 0);
+    table.setChildren(1, new int[] { 2, 3 });
+    table.setChildren(2, new int[] { 4, 5 });
+    table.setChildren(3, new int[0]);
+
+    // Moved by insertion into another parent.
+    table.insertChild(3, 0, 4);
+    assertChildren(table, 2, 5);
+    assertChildren(table, 3, 4);
+    assertEquals(1, table.getChildCount(2));
+    assertEquals(1, table.getChildCount(3));
+    assertEquals(3, table.getParent(4));
+
+    // Moved by pushing the node again: it gets detached from its old parent.
+    table.putNode(5, 1, "LI", null, null, 0);
+    assertChildren(table, 2);
+    assertEquals(0, table.getChildCount(2));
+    table.insertChild(3, 4, 5);
+    assertChildren(table, 3, 4, 5);
+    assertEquals(2, table.getChildCount(3));
+
+    table.removeChild(3, 4);
+    assertChildren(table, 3, 5);
+    assertEquals(1, table.getChildCount(3));
+    assertEquals(4, table.size());
+  }
+
+  @Test
+  public void slotsAreDenseAndReused() {
+    DomNodeTable table = new DomNodeTable();
+    table.putNode(1, 9, "#document", null, null, 0);
+    int[] ids = new int[100];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = 1000000 + i * 7919;
+      table.putNode(ids[i], 1, "DIV", null, null, 0);
+    }
+    table.setChildren(1, ids);
+    int capacity = table.getSlotCapacity();
+    assertTrue(capacity < 1000);
+
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < ids.length; i++) {
+        table.removeChild(1, ids[i]);
+        ids[i] += 10000000;
+        table.putNode(ids[i], 1, "SPAN", null, null, 0);
+        table.insertChild(1, i == 0 ? 0 : ids[i - 1], ids[i]);
+      }
+    }
+    assertEquals(capacity, table.getSlotCapacity());
+    assertEquals(101, table.size());
+    assertEquals(Arrays.toString(ids), Arrays.toString(table.getChildIds(1)));
+    assertEquals(ids.length, table.getChildCount(1));
+    for (int id : ids) {
+      assertEquals("SPAN", table.getName(id));
+      assertEquals(1, table.getParent(id));
+    }
+  }
+
+  private static void assertChildren(DomNodeTable table, int parentId, int... expected) {
+    assertEquals(Arrays.toString(expected), Arrays.toString(table.getChildIds(parentId)));
+  }
+}
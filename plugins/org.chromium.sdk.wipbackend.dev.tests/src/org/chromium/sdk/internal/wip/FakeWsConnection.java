@@ -0,0 +1,100 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.chromium.sdk.RelayOk;
+import org.chromium.sdk.SyncCallback;
+import org.chromium.sdk.internal.transport.TrafficCounters;
+import org.chromium.sdk.internal.websocket.FrameBuffer;
+import org.chromium.sdk.internal.websocket.WsConnection;
+import org.chromium.sdk.util.RelaySyncCallback;
+import org.chromium.sdk.util.SignalRelay;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * A fake WebSocket connection that records sent requests and lets a test deliver responses
+ * and events. Everything runs on the test thread, which plays Dispatch thread.
+ */
+class FakeWsConnection implements WsConnection {
+  private final SignalRelay<Void> closer = SignalRelay.create(null);
+  private final TrafficCounters trafficCounters = new TrafficCounters();
+  private final List<JSONObject> sentRequests = new ArrayList<JSONObject>();
+  private Listener listener;
+
+  @Override
+  public void startListening(Listener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public void sendTextualMessage(String message) throws IOException {
+    sentRequests.add((JSONObject) JSONValue.parse(message));
+  }
+
+  @Override
+  public void sendTextualMessage(TextualMessageWriter messageWriter) throws IOException {
+    FrameBuffer buffer = new FrameBuffer();
+    messageWriter.write(buffer);
+    sendTextualMessage(buffer.getPayloadAsString());
+  }
+
+  @Override
+  public RelayOk runInDispatchThread(Runnable runnable, SyncCallback syncCallback) {
+    runnable.run();
+    return RelaySyncCallback.finish(syncCallback);
+  }
+
+  @Override
+  public SignalRelay<?> getCloser() {
+    return closer;
+  }
+
+  @Override
+  public TrafficCounters getTrafficCounters() {
+    return trafficCounters;
+  }
+
+  /**
+   * Removes and returns the requests with the method that have been sent so far.
+   */
+  List<JSONObject> takeRequests(String method) {
+    List<JSONObject> result = new ArrayList<JSONObject>();
+    for (int i = 0; i < sentRequests.size(); ) {
+      if (method.equals(sentRequests.get(i).get("method"))) {
+        result.add(sentRequests.remove(i));
+      } else {
+        i++;
+      }
+    }
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  void respond(JSONObject request, JSONObject result) {
+    JSONObject response = new JSONObject();
+    response.put("id", request.get("id"));
+    response.put("result", result);
+    receive(response);
+  }
+
+  @SuppressWarnings("unchecked")
+  void sendEvent(String method, JSONObject params) {
+    JSONObject event = new JSONObject();
+    event.put("method", method);
+    event.put("params", params);
+    receive(event);
+  }
+
+  private void receive(JSONObject message) {
+    listener.textMessageRecieved(message.toJSONString());
+  }
+}
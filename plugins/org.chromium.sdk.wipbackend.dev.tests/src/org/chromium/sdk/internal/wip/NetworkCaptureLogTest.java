@@ -0,0 +1,79 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NetworkCaptureLogTest {
+  @Test
+  public void appendsAcrossSessions() throws Exception {
+    File file = File.createTempFile("capture", ".log");
+    try {
+      NetworkCaptureLog log = new NetworkCaptureLog(file, 1000);
+      log.append("{\"a\":1}");
+      log.close();
+      assertFalse(log.append("{\"late\":1}"));
+      log.waitClosed();
+      assertEquals(1, log.getWrittenCount());
+
+      log = new NetworkCaptureLog(file, 1000);
+      log.append("{\"b\":2}");
+      log.close();
+      log.waitClosed();
+
+      assertEquals("[{\"a\":1}, {\"b\":2}]", readLines(file).toString());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void oversizedLineIsDropped() throws Exception {
+    File file = File.createTempFile("capture", ".log");
+    try {
+      NetworkCaptureLog log = new NetworkCaptureLog(file, 10);
+      // Longer than the whole queue, even though the queue is empty.
+      assertFalse(log.append("{\"body\":\"0123456789\"}"));
+      assertTrue(log.append("{\"a\":1}"));
+      log.close();
+      log.waitClosed();
+      assertEquals(1, log.getWrittenCount());
+      assertEquals(1, log.getDroppedCount());
+      assertEquals("[{\"a\":1}]", readLines(file).toString());
+    } finally {
+      file.delete();
+    }
+  }
+
+  private static List<String> readLines(File file) throws Exception {
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+    try {
+      List<String> result = new ArrayList<String>();
+      while (true) {
+        String line = reader.readLine();
+        if (line == null) {
+          return result;
+        }
+        result.add(line);
+      }
+    } finally {
+      reader.close();
+    }
+  }
+}
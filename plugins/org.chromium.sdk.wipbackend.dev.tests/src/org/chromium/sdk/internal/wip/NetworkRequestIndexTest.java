@@ -0,0 +1,61 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.chromium.sdk.internal.wip.NetworkRequestIndex.Record;
+import org.chromium.sdk.internal.wip.NetworkRequestIndex.State;
+import org.junit.Test;
+
+public class NetworkRequestIndexTest {
+  @Test
+  public void correlation() {
+    NetworkRequestIndex index = new NetworkRequestIndex(10);
+    assertTrue(index.requestWillBeSent("1", "http://a/", "GET", 1.0, -1).isEmpty());
+    index.requestWillBeSent("2", "http://b/", "POST", 1.5, -1);
+    index.responseReceived("1", 200, "OK", "text/html", 2.0);
+    index.dataReceived("1", 100, 50);
+    index.dataReceived("1", 20, 10);
+    index.dataReceived("unknown", 1, 1);
+
+    Record record = index.loadingFinished("1", 3.0);
+    assertEquals(State.FINISHED, record.getState());
+    assertEquals(120, record.dataLength);
+    assertEquals(60, record.encodedDataLength);
+    assertEquals(200, record.status);
+    assertNull(index.loadingFinished("1", 3.0));
+
+    record = index.loadingFailed("2", 4.0, "net::ERR_ABORTED", true);
+    assertEquals(State.CANCELED, record.getState());
+    assertEquals(0, index.getPendingCount());
+  }
+
+  @Test
+  public void redirectAndEviction() {
+    NetworkRequestIndex index = new NetworkRequestIndex(2);
+    index.requestWillBeSent("1", "http://a/", "GET", 1.0, -1);
+    List<Record> completed = index.requestWillBeSent("1", "http://a/new", "GET", 2.0, 302);
+    assertEquals(1, completed.size());
+    assertEquals(State.REDIRECTED, completed.get(0).getState());
+    assertEquals("http://a/", completed.get(0).url);
+    assertEquals(302, completed.get(0).status);
+
+    index.requestWillBeSent("2", "http://b/", "GET", 3.0, -1);
+    completed = index.requestWillBeSent("3", "http://c/", "GET", 4.0, -1);
+    assertEquals(1, completed.size());
+    assertEquals("http://a/new", completed.get(0).url);
+    assertEquals(State.INCOMPLETE, completed.get(0).getState());
+
+    assertEquals(2, index.removeAll().size());
+    assertEquals(0, index.getPendingCount());
+  }
+}
@@ -0,0 +1,43 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ObjectGroupTrackerTest {
+  @Test
+  public void groupLifecycle() {
+    ObjectGroupTracker tracker = new ObjectGroupTracker();
+    String first = tracker.createSuspendGroup();
+    String second = tracker.createSuspendGroup();
+    assertFalse(first.equals(second));
+    tracker.register("permanent");
+
+    tracker.objectCreated(first);
+    tracker.objectCreated(first);
+    tracker.objectCreated("permanent");
+    tracker.objectCreated("unknown");
+    assertEquals(3, tracker.getGroupCount());
+    assertEquals(3, tracker.getObjectCount());
+    assertEquals(Integer.valueOf(2), tracker.getObjectCounts().get(first));
+    assertEquals(Integer.valueOf(0), tracker.getObjectCounts().get(second));
+
+    assertTrue(tracker.release(first));
+    // The second release must not send another command.
+    assertFalse(tracker.release(first));
+    tracker.objectCreated(first);
+    assertEquals(1, tracker.getObjectCount());
+    assertFalse(tracker.getObjectCounts().containsKey(first));
+
+    tracker.clear();
+    assertEquals(0, tracker.getGroupCount());
+  }
+}
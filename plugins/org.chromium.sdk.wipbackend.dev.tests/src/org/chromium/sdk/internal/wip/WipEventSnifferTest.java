@@ -0,0 +1,33 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class WipEventSnifferTest {
+  @Test
+  public void events() {
+    assertEquals("Page.loadEventFired", WipEventSniffer.sniffEventMethod(
+        "{\"method\":\"Page.loadEventFired\",\"params\":{\"timestamp\":1.5}}"));
+    // Params before method, with nested structures and tricky strings.
+    assertEquals("Debugger.scriptParsed", WipEventSniffer.sniffEventMethod(
+        " { \"params\" : {\"url\":\"a}\\\"]\",\"list\":[1,{\"x\":null}],\"ok\":true} ,\n" +
+        "\"method\" : \"Debugger.scriptParsed\" }"));
+  }
+
+  @Test
+  public void responsesAndMalformed() {
+    assertNull(WipEventSniffer.sniffEventMethod("{\"id\":5,\"result\":{}}"));
+    assertNull(WipEventSniffer.sniffEventMethod("{\"result\":{\"method\":\"x\"},\"id\":5}"));
+    assertNull(WipEventSniffer.sniffEventMethod("[\"method\"]"));
+    assertNull(WipEventSniffer.sniffEventMethod("{\"params\":{\"a\":\"b}"));
+    assertNull(WipEventSniffer.sniffEventMethod("{\"method\":\"a\\u0041\"}"));
+  }
+}
@@ -0,0 +1,124 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.chromium.sdk.internal.websocket.FrameBuffer;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.junit.Test;
+
+/**
+ * Checks that {@link WipJsonSerializer} produces the same bytes as json-simple.
+ */
+public class WipJsonSerializerTest {
+  @Test
+  public void escapes() {
+    StringBuilder builder = new StringBuilder("\"\\/ plain ");
+    for (char ch = 0; ch < 0x20; ch++) {
+      builder.append(ch);
+    }
+    builder.append("\u007F\u0080\u009F\u00A0\u00E9\u1FFF\u2000\u2028\u20FF\u2100\u4E2D");
+    checkValue(builder.toString());
+    checkValue("");
+  }
+
+  @Test
+  public void numbers() {
+    checkValue(Double.NaN);
+    checkValue(Double.POSITIVE_INFINITY);
+    checkValue(Double.NEGATIVE_INFINITY);
+    checkValue(Float.NaN);
+    checkValue(Float.NEGATIVE_INFINITY);
+    checkValue(1.5);
+    checkValue(-0.0);
+    checkValue(1e300);
+    checkValue(2.5f);
+    checkValue(Long.MIN_VALUE);
+    checkValue(42);
+    checkValue(true);
+  }
+
+  @Test
+  public void surrogates() {
+    // A valid pair, unpaired high and low surrogates and a high surrogate at the end.
+    checkValue("a\uD83D\uDE00b");
+    checkValue("a\uD83Db");
+    checkValue("a\uDE00b");
+    checkValue("\uDE00\uD83D");
+    checkValue("end\uD83D");
+  }
+
+  @Test
+  public void nulls() {
+    checkValue(null);
+    Map<String, Object> map = new LinkedHashMap<String, Object>();
+    map.put("a", null);
+    map.put("b", Arrays.asList(null, 1L));
+    checkValue(map);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void nested() {
+    JSONObject params = new JSONObject();
+    params.put("objectId", "{\"injectedScriptId\":1,\"id\":2}");
+    params.put("empty", new JSONObject());
+    params.put("emptyList", new JSONArray());
+    JSONArray arguments = new JSONArray();
+    JSONObject argument = new JSONObject();
+    argument.put("value", 3.25);
+    arguments.add(argument);
+    arguments.add(Arrays.asList("x", Arrays.asList(1L, 2L)));
+    params.put("arguments", arguments);
+    List<Object> list = new ArrayList<Object>();
+    Map<Object, Object> nonStringKeys = new LinkedHashMap<Object, Object>();
+    nonStringKeys.put(1L, "one");
+    nonStringKeys.put("k\n", "two");
+    list.add(nonStringKeys);
+    params.put("list", list);
+
+    Map<String, Object> message = new LinkedHashMap<String, Object>();
+    message.put("id", 17L);
+    message.put("method", "Runtime.callFunctionOn");
+    message.put("params", params);
+    checkMessage(message);
+  }
+
+  private static void checkValue(Object value) {
+    Map<String, Object> message = new LinkedHashMap<String, Object>();
+    message.put("value", value);
+    checkMessage(message);
+  }
+
+  private static void checkMessage(Map<?, ?> message) {
+    FrameBuffer buffer = new FrameBuffer();
+    new WipJsonSerializer(message).write(buffer);
+    String expected = JSONValue.toJSONString(message);
+    assertEquals(reencode(expected), buffer.getPayloadAsString());
+  }
+
+  /**
+   * Passes the string through UTF-8 the way json-simple output goes to socket.
+   */
+  private static String reencode(String string) {
+    try {
+      return new String(string.getBytes("UTF-8"), "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
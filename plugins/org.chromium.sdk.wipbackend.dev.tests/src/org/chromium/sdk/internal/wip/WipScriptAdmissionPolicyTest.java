@@ -0,0 +1,44 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class WipScriptAdmissionPolicyTest {
+  @Test
+  public void admitsAllByDefault() {
+    WipScriptAdmissionPolicy policy = new WipScriptAdmissionPolicy(false, false, null, -1);
+    assertTrue(policy.isAdmittingAll());
+    assertTrue(policy.admits("", true, 100000));
+  }
+
+  @Test
+  public void defersByUrlAndKind() {
+    WipScriptAdmissionPolicy policy = new WipScriptAdmissionPolicy(true, true,
+        Pattern.compile(".*/vendor/.*"), -1);
+    assertFalse(policy.isAdmittingAll());
+    assertFalse(policy.admits("", false, 1));
+    assertFalse(policy.admits(null, false, 1));
+    assertFalse(policy.admits("http://host/vendor/lib.js", false, 1));
+    assertFalse(policy.admits("chrome-extension://abc/content.js", true, 1));
+    assertTrue(policy.admits("http://host/app.js", false, 1));
+  }
+
+  @Test
+  public void defersBySize() {
+    WipScriptAdmissionPolicy policy = new WipScriptAdmissionPolicy(false, false, null, 1000);
+    assertTrue(policy.admits("http://host/app.js", false, 1000));
+    assertFalse(policy.admits("http://host/bundle.js", false, 1001));
+    // Anonymous scripts are still subject to the size hint.
+    assertTrue(policy.admits("", false, 10));
+  }
+}
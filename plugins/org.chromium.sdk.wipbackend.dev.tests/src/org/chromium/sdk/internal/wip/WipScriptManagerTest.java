@@ -0,0 +1,283 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.chromium.sdk.DebugContext;
+import org.chromium.sdk.DebugEventListener;
+import org.chromium.sdk.Script;
+import org.chromium.sdk.TabDebugEventListener;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WipScriptManagerTest {
+  private FakeWsConnection connection;
+  private RecordingListener listener;
+  private WipScriptManager scriptManager;
+
+  @Before
+  public void setUp() throws IOException {
+    connection = new FakeWsConnection();
+    listener = new RecordingListener();
+    WipTabImpl tab = new WipTabImpl(connection, null, listener, "http://host/");
+    // Pre-existing scripts are over once "Debugger.enable" is done.
+    connection.respond(connection.takeRequests("Debugger.enable").get(0), new JSONObject());
+    scriptManager = tab.getScriptManager();
+  }
+
+  @Test
+  public void resumeKeepsSameScript() {
+    reportScript("1", "http://host/a.js", 0, 10);
+    loadSources();
+    Script script = scriptManager.getScript("1");
+
+    scriptManager.beginResume();
+    reportScript("1", "http://host/a.js", 0, 10);
+    scriptManager.endResume();
+
+    assertEquals(0, connection.takeRequests("Debugger.getScriptSource").size());
+    assertSame(script, scriptManager.getScript("1"));
+    assertEquals("source 1", script.getSource());
+    assertEquals(Arrays.asList(script), listener.loaded);
+    assertTrue(listener.collected.isEmpty());
+  }
+
+  @Test
+  public void resumeReplacesChangedScript() {
+    reportScript("1", "http://host/a.js", 0, 10);
+    loadSources();
+    Script oldScript = scriptManager.getScript("1");
+
+    scriptManager.beginResume();
+    // Same id, but a different text range.
+    reportScript("1", "http://host/a.js", 0, 12);
+    scriptManager.endResume();
+
+    assertEquals(Arrays.asList(oldScript), listener.collected);
+    loadSources();
+    Script newScript = scriptManager.getScript("1");
+    assertNotNull(newScript);
+    assertNotSame(oldScript, newScript);
+    assertEquals(Arrays.asList(oldScript, newScript), listener.loaded);
+  }
+
+  @Test
+  public void resumeDropsScriptNotReportedAgain() {
+    reportScript("1", "http://host/a.js", 0, 10);
+    reportScript("2", "http://host/b.js", 0, 10);
+    loadSources();
+    Script gone = scriptManager.getScript("2");
+
+    scriptManager.beginResume();
+    reportScript("1", "http://host/a.js", 0, 10);
+    assertTrue(listener.collected.isEmpty());
+    scriptManager.endResume();
+
+    assertEquals(Arrays.asList(gone), listener.collected);
+    assertNull(scriptManager.getScript("2"));
+    assertEquals(1, scriptManager.getScriptCount());
+  }
+
+  @Test
+  public void anonymousScriptIsMatchedByStartPosition() {
+    reportScript("1", "", 5, 10);
+    reportScript("2", "", 20, 30);
+    loadSources();
+    Script kept = scriptManager.getScript("1");
+    Script replaced = scriptManager.getScript("2");
+
+    scriptManager.beginResume();
+    // The end of an anonymous script is not remembered, only its start is compared.
+    reportScript("1", "", 5, 11);
+    reportScript("2", "", 21, 30);
+    scriptManager.endResume();
+
+    assertSame(kept, scriptManager.getScript("1"));
+    assertEquals(Arrays.asList(replaced), listener.collected);
+  }
+
+  @Test
+  public void deferredScriptIsNotLoaded() {
+    deferAnonymousScripts();
+    reportScript("1", "", 0, 10);
+    reportScript("2", "http://host/a.js", 0, 10);
+
+    List<JSONObject> requests = connection.takeRequests("Debugger.getScriptSource");
+    assertEquals(1, requests.size());
+    assertEquals("2", ((JSONObject) requests.get(0).get("params")).get("scriptId"));
+    assertEquals(1, scriptManager.getDeferredScriptCount());
+    assertEquals(1, scriptManager.getScriptCount());
+    assertNull(scriptManager.getScript("1"));
+  }
+
+  @Test
+  public void loadScriptSourcesAsyncAdmitsDeferredScript() {
+    deferAnonymousScripts();
+    reportScript("1", "", 0, 10);
+    final List<Map<String, WipScriptImpl>> results = new ArrayList<Map<String, WipScriptImpl>>();
+
+    scriptManager.loadScriptSourcesAsync(Collections.singleton("1"),
+        new WipScriptManager.ScriptSourceLoadCallback() {
+          @Override
+          public void done(Map<String, WipScriptImpl> loadedScripts) {
+            results.add(loadedScripts);
+          }
+        }, null);
+    assertEquals(0, scriptManager.getDeferredScriptCount());
+    assertTrue(results.isEmpty());
+    loadSources();
+
+    assertEquals(1, results.size());
+    Script script = results.get(0).get("1");
+    assertNotNull(script);
+    assertEquals("source 1", script.getSource());
+    assertEquals(Arrays.asList(script), listener.loaded);
+  }
+
+  @Test
+  public void reloadClearsDeferredScripts() {
+    deferAnonymousScripts();
+    reportScript("1", "", 0, 10);
+    scriptManager.pageReloaded();
+    assertEquals(0, scriptManager.getDeferredScriptCount());
+  }
+
+  @Test
+  public void resumeClearsDeferredScripts() {
+    deferAnonymousScripts();
+    reportScript("1", "", 0, 10);
+    scriptManager.beginResume();
+    assertEquals(0, scriptManager.getDeferredScriptCount());
+
+    // A deferred script that is still alive is reported again and deferred again.
+    reportScript("1", "", 0, 10);
+    scriptManager.endResume();
+    assertEquals(1, scriptManager.getDeferredScriptCount());
+    assertTrue(connection.takeRequests("Debugger.getScriptSource").isEmpty());
+  }
+
+  @Test
+  public void deferredScriptIsLoadedWhenPausedFrameReferencesIt() {
+    deferAnonymousScripts();
+    reportScript("1", "", 0, 10);
+    reportScript("2", "", 20, 30);
+    assertTrue(connection.takeRequests("Debugger.getScriptSource").isEmpty());
+
+    sendPaused("1");
+
+    List<JSONObject> requests = connection.takeRequests("Debugger.getScriptSource");
+    assertEquals(1, requests.size());
+    assertEquals("1", ((JSONObject) requests.get(0).get("params")).get("scriptId"));
+    assertEquals(1, scriptManager.getDeferredScriptCount());
+  }
+
+  private void deferAnonymousScripts() {
+    scriptManager.setAdmissionPolicy(new WipScriptAdmissionPolicy(true, false, null, -1));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void sendPaused(String scriptId) {
+    JSONObject location = new JSONObject();
+    location.put("scriptId", scriptId);
+    location.put("lineNumber", Long.valueOf(1));
+    location.put("columnNumber", Long.valueOf(0));
+    JSONObject thisObject = new JSONObject();
+    thisObject.put("type", "object");
+    JSONObject frame = new JSONObject();
+    frame.put("callFrameId", "frame0");
+    frame.put("functionName", "f");
+    frame.put("location", location);
+    frame.put("scopeChain", new JSONArray());
+    frame.put("this", thisObject);
+    JSONArray callFrames = new JSONArray();
+    callFrames.add(frame);
+    JSONObject params = new JSONObject();
+    params.put("callFrames", callFrames);
+    params.put("reason", "other");
+    params.put("hitBreakpoints", new JSONArray());
+    connection.sendEvent("Debugger.paused", params);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void reportScript(String id, String url, int startLine, int endLine) {
+    JSONObject params = new JSONObject();
+    params.put("scriptId", id);
+    params.put("url", url);
+    params.put("startLine", Long.valueOf(startLine));
+    params.put("startColumn", Long.valueOf(0));
+    params.put("endLine", Long.valueOf(endLine));
+    params.put("endColumn", Long.valueOf(0));
+    connection.sendEvent("Debugger.scriptParsed", params);
+  }
+
+  /**
+   * Responds to all pending source requests.
+   */
+  @SuppressWarnings("unchecked")
+  private void loadSources() {
+    for (JSONObject request : connection.takeRequests("Debugger.getScriptSource")) {
+      JSONObject params = (JSONObject) request.get("params");
+      JSONObject result = new JSONObject();
+      result.put("scriptSource", "source " + params.get("scriptId"));
+      connection.respond(request, result);
+    }
+  }
+
+  private static class RecordingListener implements DebugEventListener, TabDebugEventListener {
+    final List<Script> loaded = new ArrayList<Script>();
+    final List<Script> collected = new ArrayList<Script>();
+
+    public void scriptLoaded(Script newScript) {
+      loaded.add(newScript);
+    }
+
+    public void scriptCollected(Script script) {
+      collected.add(script);
+    }
+
+    public DebugEventListener getDebugEventListener() {
+      return this;
+    }
+
+    public void navigated(String newUrl) {
+    }
+
+    public void closed() {
+    }
+
+    public void disconnected() {
+    }
+
+    public void suspended(DebugContext context) {
+    }
+
+    public void resumed() {
+    }
+
+    public void scriptContentChanged(Script newScript) {
+    }
+
+    public VmStatusListener getVmStatusListener() {
+      return null;
+    }
+  }
+}
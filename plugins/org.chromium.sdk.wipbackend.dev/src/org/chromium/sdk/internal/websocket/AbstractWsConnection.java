@@ -13,8 +13,6 @@ import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CoderResult;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,6 +20,8 @@ import org.chromium.sdk.ConnectionLogger;
 import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.SyncCallback;
 import org.chromium.sdk.internal.transport.AbstractSocketWrapper;
+import org.chromium.sdk.internal.transport.InboundQueue;
+import org.chromium.sdk.internal.transport.TrafficCounters;
 import org.chromium.sdk.util.SignalRelay;
 import org.chromium.sdk.util.SignalRelay.AlreadySignalledException;
 import org.chromium.sdk.util.SignalRelay.SignalConverter;
@@ -32,9 +32,11 @@ public abstract class AbstractWsConnection<INPUT, OUTPUT> implements WsConnectio
   private final AbstractSocketWrapper<INPUT, OUTPUT> socketWrapper;
   private final ConnectionLogger connectionLogger;
   private volatile boolean isClosingGracefully = false;
+  private final TrafficCounters trafficCounters = new TrafficCounters();
 
-  private final BlockingQueue<MessageDispatcher> dispatchQueue =
-      new LinkedBlockingQueue<MessageDispatcher>();
+  /** Messages are put here with back-pressure, see {@link InboundQueue}. */
+  private final InboundQueue<MessageDispatcher> dispatchQueue =
+      new InboundQueue<MessageDispatcher>(trafficCounters);
 
   // Access must be synchronized on dispatchQueue.
   private boolean isDispatchQueueClosed = false;
@@ -181,6 +183,17 @@ public abstract class AbstractWsConnection<INPUT, OUTPUT> implements WsConnectio
   @Override
   public abstract void sendTextualMessage(String message) throws IOException;
 
+  /**
+   * Serializes the message into a string and sends it. Subclasses may do it without
+   * the intermediate string.
+   */
+  @Override
+  public void sendTextualMessage(TextualMessageWriter messageWriter) throws IOException {
+    FrameBuffer buffer = FrameBuffer.getForThread();
+    messageWriter.write(buffer);
+    sendTextualMessage(buffer.getPayloadAsString());
+  }
+
   protected abstract CloseReason runListenLoop(INPUT loggableReader)
       throws IOException, InterruptedException;
 
@@ -188,6 +201,11 @@ public abstract class AbstractWsConnection<INPUT, OUTPUT> implements WsConnectio
     return linkedCloser;
   }
 
+  @Override
+  public TrafficCounters getTrafficCounters() {
+    return trafficCounters;
+  }
+
   protected AbstractSocketWrapper<INPUT, OUTPUT> getSocketWrapper() {
     return socketWrapper;
   }
@@ -210,7 +228,7 @@ public abstract class AbstractWsConnection<INPUT, OUTPUT> implements WsConnectio
     this.isOutputClosed = isOutputClosed;
   }
 
-  protected BlockingQueue<MessageDispatcher> getDispatchQueue() {
+  protected InboundQueue<MessageDispatcher> getDispatchQueue() {
     return dispatchQueue;
   }
 
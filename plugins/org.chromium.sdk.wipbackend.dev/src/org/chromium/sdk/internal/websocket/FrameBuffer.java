@@ -0,0 +1,199 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.websocket;
+
+import java.util.Arrays;
+
+/**
+ * A growable byte buffer that an outgoing frame is assembled in. The payload is written after
+ * a room reserved for the frame header; the header (that depends on the payload length) is
+ * put right before the payload afterwards, so the whole frame goes to socket with one write
+ * call and without copying.
+ * <p>Buffers are reused by the thread that sends the message (see {@link #getForThread()}).
+ * A buffer that has grown above "org.chromium.sdk.wip.frameBufferRetainedBytes" bytes is kept
+ * while large frames keep coming, so a series of them does not grow it from scratch each time;
+ * it is shrunk after {@link #TRIM_AFTER_SMALL_FRAMES} frames in a row that did not need it.
+ * The class is not thread-safe.
+ */
+public class FrameBuffer {
+  /** Maximal length of HyBi frame header: 2 bytes, 8-byte length and 4-byte mask. */
+  static final int HEADER_ROOM = 14;
+
+  private static final int INITIAL_CAPACITY = 1024;
+  static final int RETAINED_CAPACITY =
+      Integer.getInteger("org.chromium.sdk.wip.frameBufferRetainedBytes", 64 * 1024);
+  static final int TRIM_AFTER_SMALL_FRAMES = 32;
+
+  private static final ThreadLocal<FrameBuffer> THREAD_BUFFER = new ThreadLocal<FrameBuffer>() {
+    @Override
+    protected FrameBuffer initialValue() {
+      return new FrameBuffer();
+    }
+  };
+
+  /**
+   * @return an empty buffer owned by the current thread
+   */
+  static FrameBuffer getForThread() {
+    FrameBuffer buffer = THREAD_BUFFER.get();
+    buffer.reset();
+    return buffer;
+  }
+
+  private byte[] bytes = new byte[INITIAL_CAPACITY];
+  private int position = HEADER_ROOM;
+
+  /** Frames that fit in RETAINED_CAPACITY since the last larger one. */
+  private int smallFrameCount = 0;
+
+  public FrameBuffer() {
+  }
+
+  public void putByte(byte b) {
+    ensureCapacity(1);
+    bytes[position++] = b;
+  }
+
+  public void putBytes(byte[] array) {
+    putBytes(array, 0, array.length);
+  }
+
+  public void putBytes(byte[] array, int offset, int length) {
+    ensureCapacity(length);
+    System.arraycopy(array, offset, bytes, position, length);
+    position += length;
+  }
+
+  /**
+   * Puts a string that is known to contain only ASCII characters.
+   */
+  public void putAscii(String string) {
+    int length = string.length();
+    ensureCapacity(length);
+    for (int i = 0; i < length; i++) {
+      bytes[position++] = (byte) string.charAt(i);
+    }
+  }
+
+  /**
+   * Puts a string in UTF-8 encoding. Unpaired surrogates are replaced with '?' like
+   * {@link String#getBytes} does.
+   */
+  public void putUtf8(CharSequence string) {
+    putUtf8(string, 0, string.length());
+  }
+
+  /**
+   * Puts a range of characters in UTF-8 encoding.
+   */
+  public void putUtf8(CharSequence string, int from, int to) {
+    // Enough for an ASCII string.
+    ensureCapacity(to - from);
+    for (int i = from; i < to; i++) {
+      char ch = string.charAt(i);
+      if (ch < 0x80) {
+        bytes[position++] = (byte) ch;
+      } else {
+        // Enough for the rest of the string whatever it contains.
+        ensureCapacity(3 * (to - i));
+        if (ch < 0x800) {
+          bytes[position++] = (byte) (0xC0 | (ch >> 6));
+          bytes[position++] = (byte) (0x80 | (ch & 0x3F));
+        } else if (Character.isHighSurrogate(ch) && i + 1 < to &&
+            Character.isLowSurrogate(string.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(ch, string.charAt(++i));
+          bytes[position++] = (byte) (0xF0 | (codePoint >> 18));
+          bytes[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          bytes[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          bytes[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE) {
+          bytes[position++] = '?';
+        } else {
+          bytes[position++] = (byte) (0xE0 | (ch >> 12));
+          bytes[position++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+          bytes[position++] = (byte) (0x80 | (ch & 0x3F));
+        }
+      }
+    }
+  }
+
+  public int getPayloadLength() {
+    return position - HEADER_ROOM;
+  }
+
+  /**
+   * @return the payload decoded from UTF-8
+   */
+  public String getPayloadAsString() {
+    return new String(bytes, HEADER_ROOM, getPayloadLength(),
+        ManualLoggingSocketWrapper.UTF_8_CHARSET);
+  }
+
+  byte[] getArray() {
+    return bytes;
+  }
+
+  /**
+   * Masks (or unmasks) the payload in place.
+   * @param maskBytes 4-byte mask
+   */
+  void maskPayload(byte[] maskBytes) {
+    maskBytes(bytes, HEADER_ROOM, position, maskBytes);
+  }
+
+  /**
+   * XORs bytes of the range with the repeated mask, starting from the first mask byte.
+   * The loop is still byte by byte, but it is unrolled 8 times with the mask bytes held in
+   * locals, so there is no index arithmetic on the mask array per byte.
+   */
+  static void maskBytes(byte[] array, int from, int to, byte[] maskBytes) {
+    byte m0 = maskBytes[0];
+    byte m1 = maskBytes[1];
+    byte m2 = maskBytes[2];
+    byte m3 = maskBytes[3];
+    if ((m0 | m1 | m2 | m3) == 0) {
+      return;
+    }
+    int pos = from;
+    int unrolledEnd = to - 7;
+    while (pos < unrolledEnd) {
+      array[pos] ^= m0;
+      array[pos + 1] ^= m1;
+      array[pos + 2] ^= m2;
+      array[pos + 3] ^= m3;
+      array[pos + 4] ^= m0;
+      array[pos + 5] ^= m1;
+      array[pos + 6] ^= m2;
+      array[pos + 7] ^= m3;
+      pos += 8;
+    }
+    for (int i = 0; pos < to; pos++, i++) {
+      array[pos] = (byte) (array[pos] ^ maskBytes[i & 3]);
+    }
+  }
+
+  void reset() {
+    if (bytes.length > RETAINED_CAPACITY) {
+      if (position > RETAINED_CAPACITY) {
+        smallFrameCount = 0;
+      } else if (++smallFrameCount >= TRIM_AFTER_SMALL_FRAMES) {
+        bytes = new byte[INITIAL_CAPACITY];
+        smallFrameCount = 0;
+      }
+    }
+    position = HEADER_ROOM;
+  }
+
+  private void ensureCapacity(int extra) {
+    int required = position + extra;
+    if (required <= bytes.length) {
+      return;
+    }
+    int newCapacity = Math.max(bytes.length * 2, required);
+    bytes = Arrays.copyOf(bytes, newCapacity);
+  }
+}
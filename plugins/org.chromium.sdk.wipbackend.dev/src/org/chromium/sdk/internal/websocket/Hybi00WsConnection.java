@@ -66,6 +66,7 @@ public class Hybi00WsConnection
       output.write((byte) 255);
       output.flush();
     }
+    getTrafficCounters().messageSent(bytes.length + 2);
     loggableWriter.markSeparatorForLog();
   }
 
@@ -106,8 +107,9 @@ public class Hybi00WsConnection
           byteBuffer.write(b);
         }
         byte[] messageBytes = byteBuffer.toByteArray();
+        getTrafficCounters().messageReceived(messageBytes.length + 2);
         final String text = new String(messageBytes, UTF_8_CHARSET);
-        getDispatchQueue().put(new MessageDispatcher() {
+        getDispatchQueue().putWithBackPressure(new MessageDispatcher() {
           @Override
           public boolean dispatch(Listener userListener) {
             userListener.textMessageRecieved(text);
@@ -138,7 +140,7 @@ public class Hybi00WsConnection
           return CloseReason.REMOTE_CLOSE_REQUEST;
         } else {
           final long finalLen = len;
-          getDispatchQueue().put(new MessageDispatcher() {
+          getDispatchQueue().putWithBackPressure(new MessageDispatcher() {
             @Override
             public boolean dispatch(Listener userListener) {
               userListener.errorMessage(
@@ -8,6 +8,7 @@ package org.chromium.sdk.internal.websocket;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -67,11 +68,22 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
      * traffic hard to sniff.
      */
     NORMAL_MASK() {
+      /**
+       * Every sending thread has its own generator, so threads do not contend on
+       * a shared seed.
+       */
+      private final ThreadLocal<Random> threadRandom = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+          return new Random();
+        }
+      };
+
       @Override
       byte[] generate() {
-        byte[] result = new byte[4];
-        RANDOM.nextBytes(result);
-        return result;
+        int mask = threadRandom.get().nextInt();
+        return new byte[] { (byte) (mask >>> 24), (byte) (mask >>> 16), (byte) (mask >>> 8),
+            (byte) mask };
       }
 
       @Override
@@ -114,6 +126,18 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
 
   private final MaskStrategy maskStrategy;
 
+  /**
+   * Payload of the incoming frame. Reused between frames and accessed from the reader
+   * thread only.
+   */
+  private byte[] inputBuffer = new byte[INITIAL_INPUT_BUFFER_SIZE];
+
+  /**
+   * Frames that fit in {@link FrameBuffer#RETAINED_CAPACITY} since the last larger one.
+   * Accessed from the reader thread only.
+   */
+  private int smallInputFrameCount = 0;
+
   private Hybi17WsConnection(ManualLoggingSocketWrapper socketWrapper, MaskStrategy maskStrategy,
       ConnectionLogger connectionLogger) {
     super(socketWrapper, connectionLogger);
@@ -122,20 +146,22 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
 
   @Override
   public void sendTextualMessage(final String message) throws IOException {
-    final byte[] bytes = message.getBytes(UTF_8_CHARSET);
+    sendTextualMessage(new TextualMessageWriter() {
+      @Override
+      public void write(FrameBuffer buffer) {
+        buffer.putUtf8(message);
+      }
+    });
+  }
 
+  @Override
+  public void sendTextualMessage(final TextualMessageWriter messageWriter) throws IOException {
     LoggablePayload payload = new LoggablePayload() {
-      @Override void send(LoggableOutput output, byte[] maskBytes) throws IOException {
-        output.writeToLog(message, "utf-8 demasked");
-        if (maskBytes != null) {
-          for (int i = 0; i < bytes.length; i++) {
-            bytes[i] = (byte) (bytes[i] ^ maskBytes[i % 4]);
-          }
-        }
-        output.writeBytesNoLogging(bytes);
+      @Override void write(FrameBuffer buffer) {
+        messageWriter.write(buffer);
       }
-      @Override int getLength() {
-        return bytes.length;
+      @Override void writeToLog(LoggableOutput output, FrameBuffer buffer) throws IOException {
+        output.writeToLog(buffer.getPayloadAsString(), "utf-8 demasked");
       }
     };
 
@@ -232,12 +258,15 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
 
       int payloadLenByte = secondByte & FrameBits.LENGTH_MASK;
       int payloadLen;
+      int headerLen = 2;
       if (payloadLenByte == FrameBits.LENGTH_2_BYTE_CODE) {
+        headerLen += 2;
         int lengthTemp = readByteOfFail(loggableReader);
         lengthTemp <<= 8;
         lengthTemp += readByteOfFail(loggableReader);
         payloadLen = lengthTemp;
       } else if (payloadLenByte == FrameBits.LENGTH_8_BYTE_CODE) {
+        headerLen += 8;
         for (int i = 0; i < 4; i++) {
           int b = readByteOfFail(loggableReader);
           if (b != 0) {
@@ -259,8 +288,29 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
         payloadLen = payloadLenByte;
       }
 
-      byte [] bytes = loggableReader.readBytes(payloadLen);
-      frameHandler.process(bytes, this);
+      if (inputBuffer.length < payloadLen) {
+        inputBuffer = new byte[Math.max(payloadLen, inputBuffer.length * 2)];
+      }
+      loggableReader.readBytes(inputBuffer, payloadLen);
+      getTrafficCounters().messageReceived(headerLen + payloadLen);
+      frameHandler.process(inputBuffer, payloadLen, this);
+      trimInputBuffer(payloadLen);
+    }
+  }
+
+  /**
+   * Drops a buffer left from huge frames once only small frames have been coming for a
+   * while; the same rule as in {@link FrameBuffer}.
+   */
+  private void trimInputBuffer(int payloadLen) {
+    if (inputBuffer.length <= FrameBuffer.RETAINED_CAPACITY) {
+      return;
+    }
+    if (payloadLen > FrameBuffer.RETAINED_CAPACITY) {
+      smallInputFrameCount = 0;
+    } else if (++smallInputFrameCount >= FrameBuffer.TRIM_AFTER_SMALL_FRAMES) {
+      inputBuffer = new byte[INITIAL_INPUT_BUFFER_SIZE];
+      smallInputFrameCount = 0;
     }
   }
 
@@ -278,13 +328,19 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
   }
 
   private static abstract class IncomingFrameHandler {
-    abstract void process(byte[] bytes, Hybi17WsConnection hybiWsConnection);
+    /**
+     * @param bytes reused buffer that holds the payload in the first 'length' bytes; it must
+     *     not be accessed after the method returns
+     */
+    abstract void process(byte[] bytes, int length, Hybi17WsConnection hybiWsConnection)
+        throws InterruptedException;
 
     static final IncomingFrameHandler TEXT_MESSAGE = new IncomingFrameHandler() {
       @Override
-      void process(byte[] bytes, Hybi17WsConnection hybiWsConnection) {
-        final String text = new String(bytes, UTF_8_CHARSET);
-        hybiWsConnection.getDispatchQueue().add(new MessageDispatcher() {
+      void process(byte[] bytes, int length, Hybi17WsConnection hybiWsConnection)
+          throws InterruptedException {
+        final String text = new String(bytes, 0, length, UTF_8_CHARSET);
+        hybiWsConnection.getDispatchQueue().putWithBackPressure(new MessageDispatcher() {
           @Override
           boolean dispatch(Listener userListener) {
             userListener.textMessageRecieved(text);
@@ -296,21 +352,16 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
 
     static final IncomingFrameHandler PING = new IncomingFrameHandler() {
       @Override
-      void process(final byte[] bytes, Hybi17WsConnection hybiWsConnection) {
+      void process(final byte[] bytes, final int length, Hybi17WsConnection hybiWsConnection) {
+        // The pong is sent synchronously, so the reused buffer is still valid.
         LoggablePayload payload = new LoggablePayload() {
           @Override
-          void send(LoggableOutput output, byte[] maskBytes) throws IOException {
-            output.writeBytesToLog(bytes);
-            if (maskBytes != null) {
-              for (int i = 0; i < bytes.length; i++) {
-                bytes[i] = (byte) (bytes[i] ^ maskBytes[i % 4]);
-              }
-            }
-            output.writeBytes(bytes);
-            output.markSeparatorForLog();
+          void write(FrameBuffer buffer) {
+            buffer.putBytes(bytes, 0, length);
           }
-          @Override int getLength() {
-            return bytes.length;
+          @Override
+          void writeToLog(LoggableOutput output, FrameBuffer buffer) {
+            output.writeBytesToLog(Arrays.copyOf(bytes, length));
           }
         };
         try {
@@ -324,70 +375,104 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
 
     static final IncomingFrameHandler PONG = new IncomingFrameHandler() {
       @Override
-      void process(byte[] bytes, Hybi17WsConnection hybiWsConnection) {
+      void process(byte[] bytes, int length, Hybi17WsConnection hybiWsConnection) {
         // Ignore
       }
     };
   }
 
   /**
-   * Payload that can send and properly log itself. Good logging requires that the body
+   * Payload that can write and properly log itself. Good logging requires that the body
    * is not masked.
    */
   private static abstract class LoggablePayload {
-    abstract void send(LoggableOutput output, byte[] maskBytes) throws IOException;
-    abstract int getLength();
+    /** Writes payload in clear text. */
+    abstract void write(FrameBuffer buffer) throws IOException;
+
+    /**
+     * Logs payload in clear text after the frame has been sent. Called only if
+     * {@link LoggableOutput#isClearPayloadLogged()}.
+     * @param buffer holds the written payload (already demasked back)
+     */
+    abstract void writeToLog(LoggableOutput output, FrameBuffer buffer) throws IOException;
   }
 
   private void sendClosingMessage(final int statusCode, final String message) throws IOException {
-    final byte[] bytes;
-    if (message == null) {
-      bytes = new byte[0];
-    } else {
-      bytes = message.getBytes(UTF_8_CHARSET);
-    }
-
     LoggablePayload payload = new LoggablePayload() {
       @Override
-      void send(LoggableOutput output, byte[] maskBytes) throws IOException {
-        byte codeByte1 = (byte) ((statusCode >> 8) & 0xFF);
-        byte codeByte2 = (byte) (statusCode & 0xFF);
-
-        byte codeByteMasked1 = codeByte1;
-        byte codeByteMasked2 = codeByte2;
-        if (maskBytes != null) {
-          codeByteMasked1 ^= maskBytes[0];
-          codeByteMasked2 ^= maskBytes[1];
-
-          for (int i = 0; i < bytes.length; i++) {
-            bytes[i] = (byte) (bytes[i] ^ maskBytes[(i + STATUS_CODE_LENTGH) % 4]);
-          }
+      void write(FrameBuffer buffer) {
+        buffer.putByte((byte) ((statusCode >> 8) & 0xFF));
+        buffer.putByte((byte) (statusCode & 0xFF));
+        if (message != null) {
+          buffer.putUtf8(message);
         }
-        output.writeByteNoLogging(codeByteMasked1);
-        output.writeByteNoLogging(codeByteMasked2);
-
-        output.writeByteToLog(codeByte1);
-        output.writeByteToLog(codeByte2);
-
-        output.writeBytesNoLogging(bytes);
-        output.writeToLog(message, "utf-8 demasked");
       }
 
-      @Override int getLength() {
-        return STATUS_CODE_LENTGH + bytes.length;
+      @Override
+      void writeToLog(LoggableOutput output, FrameBuffer buffer) throws IOException {
+        output.writeByteToLog((byte) ((statusCode >> 8) & 0xFF));
+        output.writeByteToLog((byte) (statusCode & 0xFF));
+        output.writeToLog(message, "utf-8 demasked");
       }
     };
 
     sendMessage(OpCode.CLOSE, payload, true);
   }
 
+  /**
+   * Assembles the whole frame in a thread-local {@link FrameBuffer}: the payload is written
+   * first (outside the lock), then the header is put right before it and the frame is sent
+   * with one write call.
+   */
   private void sendMessage(int opCode, LoggablePayload loggablePayload, boolean isClosingMessage)
       throws IOException {
-    int length = loggablePayload.getLength();
     LoggableOutput output = getSocketWrapper().getLoggableOutput();
 
+    FrameBuffer buffer = FrameBuffer.getForThread();
+    loggablePayload.write(buffer);
+    int length = buffer.getPayloadLength();
+
     byte[] maskBytes = maskStrategy.generate();
 
+    int maskFlag = maskBytes == null ? 0 : FrameBits.MASK_BIT;
+    int headerLen = maskBytes == null ? 2 : 2 + maskBytes.length;
+    if (length <= 125) {
+      // No extra length bytes.
+    } else if (length <= FrameBits.MAX_TWO_BYTE_INT) {
+      headerLen += 2;
+    } else {
+      headerLen += 8;
+    }
+
+    byte[] frame = buffer.getArray();
+    int headerStart = FrameBuffer.HEADER_ROOM - headerLen;
+    int pos = headerStart;
+
+    frame[pos++] = (byte) (FrameBits.FIN_BIT | OpCode.TEXT);
+
+    if (length <= 125) {
+      frame[pos++] = (byte) (length | maskFlag);
+    } else if (length <= FrameBits.MAX_TWO_BYTE_INT) {
+      frame[pos++] = (byte) (FrameBits.LENGTH_2_BYTE_CODE | maskFlag);
+      frame[pos++] = (byte) ((length >> 8) & 0xFF);
+      frame[pos++] = (byte) (length & 0xFF);
+    } else {
+      frame[pos++] = (byte) (FrameBits.LENGTH_8_BYTE_CODE | maskFlag);
+      frame[pos++] = (byte) 0;
+      frame[pos++] = (byte) 0;
+      frame[pos++] = (byte) 0;
+      frame[pos++] = (byte) 0;
+      frame[pos++] = (byte) (length >>> 24);
+      frame[pos++] = (byte) ((length >> 16) & 0xFF);
+      frame[pos++] = (byte) ((length >> 8) & 0xFF);
+      frame[pos++] = (byte) (length & 0xFF);
+    }
+
+    if (maskBytes != null) {
+      System.arraycopy(maskBytes, 0, frame, pos, maskBytes.length);
+      buffer.maskPayload(maskBytes);
+    }
+
     synchronized (this) {
       if (isOutputClosed()) {
         throw new IOException("WebSocket is already closed for output");
@@ -398,34 +483,14 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
         setOutputClosed(true);
       }
 
-      byte firstByte = (byte) (FrameBits.FIN_BIT | OpCode.TEXT);
-
-      output.writeByte(firstByte);
-
-      int maskFlag = maskBytes == null ? 0 : FrameBits.MASK_BIT;
-
-      if (length <= 125) {
-        output.writeByte((byte) (length | maskFlag));
-      } else if (length <= FrameBits.MAX_TWO_BYTE_INT) {
-        output.writeByte((byte) (FrameBits.LENGTH_2_BYTE_CODE | maskFlag));
-        output.writeByte((byte) ((length >> 8) & 0xFF));
-        output.writeByte((byte) (length & 0xFF));
-      } else {
-        output.writeByte((byte) (FrameBits.LENGTH_8_BYTE_CODE | maskFlag));
-        output.writeByte((byte) 0);
-        output.writeByte((byte) 0);
-        output.writeByte((byte) 0);
-        output.writeByte((byte) 0);
-        output.writeByte((byte) (length >>> 24));
-        output.writeByte((byte) ((length >> 16) & 0xFF));
-        output.writeByte((byte) ((length >> 8) & 0xFF));
-        output.writeByte((byte) (length & 0xFF));
-      }
-
-      if (maskBytes != null) {
-        output.writeBytes(maskBytes);
+      output.writeFrame(frame, headerStart, headerLen, length);
+      if (output.isClearPayloadLogged()) {
+        if (maskBytes != null) {
+          buffer.maskPayload(maskBytes);
+        }
+        loggablePayload.writeToLog(output, buffer);
       }
-      loggablePayload.send(output, maskBytes);
+      getTrafficCounters().messageSent(headerLen + length);
     }
 
     output.markSeparatorForLog();
@@ -521,4 +586,6 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
   }
 
   private static final int STATUS_CODE_LENTGH = 2;
+
+  private static final int INITIAL_INPUT_BUFFER_SIZE = 1024;
 }
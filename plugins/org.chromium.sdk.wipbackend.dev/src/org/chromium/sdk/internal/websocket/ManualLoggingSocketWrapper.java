@@ -42,6 +42,13 @@ public class ManualLoggingSocketWrapper extends
   public static abstract class LoggableInput {
     public abstract int readByteOrEos() throws IOException;
     public abstract byte[] readBytes(int length) throws IOException;
+
+    /**
+     * Reads exactly length bytes into the beginning of the provided array, which lets
+     * the caller reuse one buffer for many frames.
+     */
+    public abstract void readBytes(byte[] buffer, int length) throws IOException;
+
     public abstract ByteBuffer readUpTo0x0D0A() throws IOException;
 
     public abstract void markSeparatorForLog();
@@ -68,6 +75,19 @@ public class ManualLoggingSocketWrapper extends
      */
     public abstract void writeToLog(String string, String annotation) throws IOException;
 
+    /**
+     * Writes a complete frame with one call to socket. The header is logged as bytes,
+     * the payload is logged as is if it goes in clear text.
+     */
+    public abstract void writeFrame(byte[] frame, int offset, int headerLength,
+        int payloadLength) throws IOException;
+
+    /**
+     * @return whether masked payload should be additionally put into log as a clear
+     *     text via {@link #writeToLog} and similar methods
+     */
+    public abstract boolean isClearPayloadLogged();
+
     public abstract void markSeparatorForLog();
   }
 
@@ -120,16 +140,21 @@ public class ManualLoggingSocketWrapper extends
         @Override
         public byte[] readBytes(int length) throws IOException {
           byte[] result = new byte[length];
+          readBytes(result, length);
+          return result;
+        }
+
+        @Override
+        public void readBytes(byte[] buffer, int length) throws IOException {
           int offset = 0;
           while (length > 0) {
-            int r = bufferedInputStream.read(result, offset, length);
+            int r = bufferedInputStream.read(buffer, offset, length);
             if (r == -1) {
               throw new IOException("Unexpected EOS");
             }
             length -= r;
             offset += r;
           }
-          return result;
         }
 
         @Override
@@ -155,6 +180,13 @@ public class ManualLoggingSocketWrapper extends
         @Override public void writeBytesNoLogging(byte[] bytes) throws IOException {
           outputStream.write(bytes);
         }
+        @Override public void writeFrame(byte[] frame, int offset, int headerLength,
+            int payloadLength) throws IOException {
+          outputStream.write(frame, offset, headerLength + payloadLength);
+        }
+        @Override public boolean isClearPayloadLogged() {
+          return false;
+        }
         @Override public void writeToLog(String string, String annotation) throws IOException {
         }
         @Override public void writeByteNoLogging(byte b) throws IOException {
@@ -188,6 +220,13 @@ public class ManualLoggingSocketWrapper extends
           return bytes;
         }
 
+        @Override
+        public void readBytes(byte[] buffer, int length) throws IOException {
+          originalInputWrapper.readBytes(buffer, length);
+          String logString = new String(buffer, 0, length, CHARSET);
+          streamListener.addContent(logString);
+        }
+
         @Override
         public int readByteOrEos() throws IOException {
           int res = originalInputWrapper.readByteOrEos();
@@ -238,6 +277,23 @@ public class ManualLoggingSocketWrapper extends
         streamListener.addContent(builder);
       }
 
+      @Override
+      public void writeFrame(byte[] frame, int offset, int headerLength, int payloadLength)
+          throws IOException {
+        originalOutputWrapper.writeFrame(frame, offset, headerLength, payloadLength);
+        StringBuilder builder = new StringBuilder(headerLength * 4);
+        for (int i = offset; i < offset + headerLength; i++) {
+          dumpByte(frame[i], builder);
+        }
+        streamListener.addContent(builder);
+        logFramePayload(frame, offset + headerLength, payloadLength);
+      }
+
+      /**
+       * Logs payload of a frame written by {@link #writeFrame} if it is a clear text.
+       */
+      protected abstract void logFramePayload(byte[] frame, int offset, int length);
+
       @Override
       public void markSeparatorForLog() {
         streamListener.addSeparator();
@@ -288,6 +344,16 @@ public class ManualLoggingSocketWrapper extends
           String str = new String(bytes, CHARSET);
           getStreamListener().addContent(str);
         }
+
+        @Override
+        protected void logFramePayload(byte[] frame, int offset, int length) {
+          getStreamListener().addContent(new String(frame, offset, length, CHARSET));
+        }
+
+        @Override
+        public boolean isClearPayloadLogged() {
+          return false;
+        }
       };
     }
   };
@@ -331,6 +397,16 @@ public class ManualLoggingSocketWrapper extends
         public void writeBytesNoLogging(byte[] bytes) throws IOException {
           getOriginalOutputWrapper().writeBytesNoLogging(bytes);
         }
+
+        @Override
+        protected void logFramePayload(byte[] frame, int offset, int length) {
+          // Payload is masked; it gets logged as a demasked text separately.
+        }
+
+        @Override
+        public boolean isClearPayloadLogged() {
+          return true;
+        }
       };
     }
   };
@@ -10,6 +10,7 @@ import java.io.IOException;
 
 import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.SyncCallback;
+import org.chromium.sdk.internal.transport.TrafficCounters;
 import org.chromium.sdk.util.SignalRelay;
 
 /**
@@ -22,10 +23,27 @@ public interface WsConnection {
 
   void sendTextualMessage(String message) throws IOException;
 
+  /**
+   * Sends a textual message that is serialized right into the frame buffer.
+   */
+  void sendTextualMessage(TextualMessageWriter messageWriter) throws IOException;
+
   RelayOk runInDispatchThread(Runnable runnable, SyncCallback syncCallback);
 
   SignalRelay<?> getCloser();
 
+  /**
+   * @return counters of the traffic that went through the connection
+   */
+  TrafficCounters getTrafficCounters();
+
+  /**
+   * Writes a textual message as UTF-8 bytes.
+   */
+  interface TextualMessageWriter {
+    void write(FrameBuffer buffer);
+  }
+
   interface Listener {
     void textMessageRecieved(String text);
 
@@ -0,0 +1,191 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.chromium.sdk.wip.WipConsoleStream;
+import org.chromium.sdk.wip.WipConsoleStream.Level;
+
+/**
+ * A fixed-size ring buffer of console messages that coalesces repeated messages.
+ * When the buffer is full, the oldest message is overwritten and counted as lost.
+ * <p>The class is not thread-safe; {@link WipConsoleStreamImpl} guards it.
+ */
+class ConsoleMessageRing {
+  private final MessageImpl[] ring;
+  private int head = 0;
+  private int size = 0;
+  private long lostCount = 0;
+  private boolean cleared = false;
+
+  /** The last message added; it may have already been drained. */
+  private MessageImpl lastMessage = null;
+  /** Total repeat count of the last message as reported by the remote side. */
+  private long lastRemoteCount = 0;
+
+  ConsoleMessageRing(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException();
+    }
+    ring = new MessageImpl[capacity];
+  }
+
+  void add(Level level, String text, String url, long line, long repeatCount) {
+    long count = Math.max(repeatCount, 1);
+    MessageImpl message = new MessageImpl(level, text, url, line, count);
+    if (lastMessage != null && lastMessage.hasSameContent(message)) {
+      addRepeats(count);
+      lastRemoteCount = count;
+      return;
+    }
+    append(message);
+    lastMessage = message;
+    lastRemoteCount = count;
+  }
+
+  /**
+   * Handles a report that the last message has been repeated.
+   * @param totalCount the new total repeat count of the last message
+   */
+  void updateRepeatCount(long totalCount) {
+    if (lastMessage == null || totalCount <= lastRemoteCount) {
+      return;
+    }
+    addRepeats(totalCount - lastRemoteCount);
+    lastRemoteCount = totalCount;
+  }
+
+  void clear() {
+    for (int i = 0; i < size; i++) {
+      ring[(head + i) % ring.length] = null;
+    }
+    size = 0;
+    lostCount = 0;
+    lastMessage = null;
+    lastRemoteCount = 0;
+    cleared = true;
+  }
+
+  /**
+   * @return whether console has been cleared since the last call; resets the flag
+   */
+  boolean takeCleared() {
+    boolean result = cleared;
+    cleared = false;
+    return result;
+  }
+
+  /**
+   * @return number of messages lost since the last call; resets the counter
+   */
+  long takeLostCount() {
+    long result = lostCount;
+    lostCount = 0;
+    return result;
+  }
+
+  /**
+   * Removes all buffered messages.
+   * @return messages in the order they were added
+   */
+  List<WipConsoleStream.Message> drain() {
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    List<WipConsoleStream.Message> result = new ArrayList<WipConsoleStream.Message>(size);
+    for (int i = 0; i < size; i++) {
+      int pos = (head + i) % ring.length;
+      result.add(ring[pos]);
+      ring[pos] = null;
+    }
+    head = 0;
+    size = 0;
+    return result;
+  }
+
+  /**
+   * Adds repeats to the last message: in place if it is still buffered, or as its copy
+   * otherwise.
+   */
+  private void addRepeats(long count) {
+    if (size > 0 && ring[lastPosition()] == lastMessage) {
+      lastMessage = lastMessage.withRepeatCount(lastMessage.repeatCount + count);
+      ring[lastPosition()] = lastMessage;
+    } else {
+      lastMessage = lastMessage.withRepeatCount(count);
+      append(lastMessage);
+    }
+  }
+
+  private void append(MessageImpl message) {
+    if (size == ring.length) {
+      ring[head] = message;
+      head = (head + 1) % ring.length;
+      lostCount++;
+    } else {
+      ring[(head + size) % ring.length] = message;
+      size++;
+    }
+  }
+
+  private int lastPosition() {
+    return (head + size - 1) % ring.length;
+  }
+
+  private static class MessageImpl implements WipConsoleStream.Message {
+    private final Level level;
+    private final String text;
+    private final String url;
+    private final long line;
+    private final long repeatCount;
+
+    MessageImpl(Level level, String text, String url, long line, long repeatCount) {
+      this.level = level;
+      this.text = text;
+      this.url = url;
+      this.line = line;
+      this.repeatCount = repeatCount;
+    }
+
+    MessageImpl withRepeatCount(long newRepeatCount) {
+      return new MessageImpl(level, text, url, line, newRepeatCount);
+    }
+
+    boolean hasSameContent(MessageImpl other) {
+      return level == other.level && line == other.line && text.equals(other.text) &&
+          (url == null ? other.url == null : url.equals(other.url));
+    }
+
+    @Override public Level getLevel() {
+      return level;
+    }
+
+    @Override public String getText() {
+      return text;
+    }
+
+    @Override public String getUrl() {
+      return url;
+    }
+
+    @Override public long getLine() {
+      return line;
+    }
+
+    @Override public long getRepeatCount() {
+      return repeatCount;
+    }
+
+    @Override
+    public String toString() {
+      return text + (repeatCount == 1 ? "" : " x" + repeatCount);
+    }
+  }
+}
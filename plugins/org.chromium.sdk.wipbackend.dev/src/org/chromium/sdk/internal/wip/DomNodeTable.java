@@ -0,0 +1,559 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact mirror of the remote DOM tree. All node data is kept in parallel arrays indexed
+ * by a dense slot number; an int-keyed hash maps protocol node ids to slots and released
+ * slots are reused, so memory is proportional to the number of live nodes rather than to
+ * the largest id. Children form a doubly-linked list, so mutation events are applied in
+ * constant time. Node and attribute names are interned.
+ * <p>
+ * Children of a node are either known (loaded) or not; in the latter case only
+ * their count is known.
+ * <p>The class is not thread-safe.
+ */
+class DomNodeTable {
+  static final int NO_NODE = 0;
+
+  private static final int NO_SLOT = 0;
+  private static final int INITIAL_CAPACITY = 64;
+  private static final byte PRESENT = 1;
+  private static final byte CHILDREN_LOADED = 2;
+  private static final String[] NO_ATTRIBUTES = new String[0];
+
+  // Parallel arrays indexed by slot. Links hold slots, not node ids.
+  private int[] nodeIds;
+  private byte[] flags;
+  private int[] parent;
+  private int[] firstChild;
+  private int[] lastChild;
+  private int[] nextSibling;
+  private int[] prevSibling;
+  private int[] childCount;
+  private int[] nodeType;
+  private String[] names;
+  private String[] values;
+  /** Flat arrays [name1, value1, name2, value2...]. */
+  private String[][] attributes;
+
+  private final IdToSlotMap idToSlot = new IdToSlotMap();
+  /** Head of released slots chained through {@link #nextSibling}. */
+  private int freeSlot = NO_SLOT;
+  /** Slots below this have been used at least once; slot 0 is reserved. */
+  private int slotLimit = 1;
+
+  private final Map<String, String> internedNames = new HashMap<String, String>();
+  private int rootSlot = NO_SLOT;
+
+  DomNodeTable() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  void clear() {
+    allocate(INITIAL_CAPACITY);
+    idToSlot.clear();
+    freeSlot = NO_SLOT;
+    slotLimit = 1;
+    internedNames.clear();
+    rootSlot = NO_SLOT;
+  }
+
+  /**
+   * Creates or overwrites a detached node. Its children are not loaded.
+   * @param attributeList flat list of names and values or null
+   * @param remoteChildCount number of children as reported by remote
+   */
+  void putNode(int nodeId, int type, String name, String value, List<String> attributeList,
+      int remoteChildCount) {
+    if (nodeId <= 0) {
+      throw new IllegalArgumentException("Bad node id " + nodeId);
+    }
+    int slot = idToSlot.get(nodeId);
+    if (slot != NO_SLOT) {
+      // A node is pushed again: drop its old subtree.
+      removeChildren(slot);
+      unlink(slot);
+    } else {
+      slot = allocateSlot(nodeId);
+    }
+    flags[slot] = PRESENT;
+    childCount[slot] = remoteChildCount;
+    nodeType[slot] = type;
+    names[slot] = intern(name);
+    values[slot] = value;
+    if (attributeList == null || attributeList.isEmpty()) {
+      attributes[slot] = NO_ATTRIBUTES;
+    } else {
+      String[] array = new String[attributeList.size() & ~1];
+      for (int i = 0; i < array.length; i += 2) {
+        array[i] = intern(attributeList.get(i));
+        array[i + 1] = attributeList.get(i + 1);
+      }
+      attributes[slot] = array;
+    }
+  }
+
+  void setRoot(int nodeId) {
+    rootSlot = getSlotChecked(nodeId);
+  }
+
+  int getRoot() {
+    return nodeIds[rootSlot];
+  }
+
+  /**
+   * Sets the complete list of children (which must have been put already); the previous
+   * children are removed together with their subtrees.
+   */
+  void setChildren(int parentId, int[] childIds) {
+    int parentSlot = getSlotChecked(parentId);
+    removeChildren(parentSlot);
+    int previous = NO_SLOT;
+    for (int childId : childIds) {
+      int childSlot = getSlotChecked(childId);
+      linkAfter(parentSlot, previous, childSlot);
+      previous = childSlot;
+    }
+    childCount[parentSlot] = childIds.length;
+    flags[parentSlot] |= CHILDREN_LOADED;
+  }
+
+  /**
+   * Inserts a node (which must have been put already) after the given sibling.
+   * If children of the parent are not loaded, only the count is updated. If the previous
+   * sibling is unknown, the mirror is out of sync and children are marked as not loaded.
+   * A node that is already linked elsewhere is moved.
+   * @param previousId previous sibling or {@link #NO_NODE} to insert first
+   */
+  void insertChild(int parentId, int previousId, int nodeId) {
+    int parentSlot = getSlotChecked(parentId);
+    int previousSlot = previousId == NO_NODE ? NO_SLOT : idToSlot.get(previousId);
+    if ((flags[parentSlot] & CHILDREN_LOADED) != 0 && previousId != NO_NODE &&
+        (previousSlot == NO_SLOT || parent[previousSlot] != parentSlot)) {
+      int count = childCount[parentSlot];
+      removeChildren(parentSlot);
+      childCount[parentSlot] = count;
+    }
+    if ((flags[parentSlot] & CHILDREN_LOADED) == 0) {
+      int slot = idToSlot.get(nodeId);
+      if (slot != NO_SLOT) {
+        removeNode(slot);
+      }
+      childCount[parentSlot]++;
+      return;
+    }
+    int slot = getSlotChecked(nodeId);
+    linkAfter(parentSlot, previousSlot, slot);
+    childCount[parentSlot]++;
+  }
+
+  void removeChild(int parentId, int nodeId) {
+    int parentSlot = getSlotChecked(parentId);
+    int slot = idToSlot.get(nodeId);
+    if (slot == NO_SLOT || parent[slot] != parentSlot) {
+      // The node is not in the loaded list (if any); only the count changes.
+      if (childCount[parentSlot] > 0) {
+        childCount[parentSlot]--;
+      }
+    }
+    if (slot != NO_SLOT) {
+      removeNode(slot);
+    }
+  }
+
+  void setChildCount(int nodeId, int count) {
+    int slot = getSlotChecked(nodeId);
+    childCount[slot] = count;
+    if (count == 0) {
+      flags[slot] |= CHILDREN_LOADED;
+    }
+  }
+
+  void setValue(int nodeId, String value) {
+    values[getSlotChecked(nodeId)] = value;
+  }
+
+  void setAttribute(int nodeId, String name, String value) {
+    int slot = getSlotChecked(nodeId);
+    String[] array = attributes[slot];
+    for (int i = 0; i < array.length; i += 2) {
+      if (array[i].equals(name)) {
+        array[i + 1] = value;
+        return;
+      }
+    }
+    String[] newArray = Arrays.copyOf(array, array.length + 2);
+    newArray[array.length] = intern(name);
+    newArray[array.length + 1] = value;
+    attributes[slot] = newArray;
+  }
+
+  void removeAttribute(int nodeId, String name) {
+    int slot = getSlotChecked(nodeId);
+    String[] array = attributes[slot];
+    for (int i = 0; i < array.length; i += 2) {
+      if (array[i].equals(name)) {
+        String[] newArray = new String[array.length - 2];
+        System.arraycopy(array, 0, newArray, 0, i);
+        System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+        attributes[slot] = newArray;
+        return;
+      }
+    }
+  }
+
+  boolean isPresent(int nodeId) {
+    return nodeId > 0 && idToSlot.get(nodeId) != NO_SLOT;
+  }
+
+  boolean areChildrenLoaded(int nodeId) {
+    int slot = nodeId > 0 ? idToSlot.get(nodeId) : NO_SLOT;
+    return slot != NO_SLOT && (flags[slot] & CHILDREN_LOADED) != 0;
+  }
+
+  /**
+   * @return ids of children or null if they are not loaded
+   */
+  int[] getChildIds(int nodeId) {
+    if (!areChildrenLoaded(nodeId)) {
+      return null;
+    }
+    int slot = idToSlot.get(nodeId);
+    int count = 0;
+    for (int child = firstChild[slot]; child != NO_SLOT; child = nextSibling[child]) {
+      count++;
+    }
+    int[] result = new int[count];
+    int pos = 0;
+    for (int child = firstChild[slot]; child != NO_SLOT; child = nextSibling[child]) {
+      result[pos++] = nodeIds[child];
+    }
+    return result;
+  }
+
+  int getParent(int nodeId) {
+    return nodeIds[parent[getSlotChecked(nodeId)]];
+  }
+
+  int getChildCount(int nodeId) {
+    return childCount[getSlotChecked(nodeId)];
+  }
+
+  int getType(int nodeId) {
+    return nodeType[getSlotChecked(nodeId)];
+  }
+
+  String getName(int nodeId) {
+    return names[getSlotChecked(nodeId)];
+  }
+
+  String getValue(int nodeId) {
+    return values[getSlotChecked(nodeId)];
+  }
+
+  String getAttribute(int nodeId, String name) {
+    String[] array = attributes[getSlotChecked(nodeId)];
+    for (int i = 0; i < array.length; i += 2) {
+      if (array[i].equals(name)) {
+        return array[i + 1];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return a new map of attributes in the order of declaration
+   */
+  Map<String, String> getAttributes(int nodeId) {
+    String[] array = attributes[getSlotChecked(nodeId)];
+    Map<String, String> result = new LinkedHashMap<String, String>(array.length);
+    for (int i = 0; i < array.length; i += 2) {
+      result.put(array[i], array[i + 1]);
+    }
+    return result;
+  }
+
+  /**
+   * @return number of nodes in the table
+   */
+  int size() {
+    return idToSlot.size();
+  }
+
+  /**
+   * @return number of slots the arrays can hold; used in tests
+   */
+  int getSlotCapacity() {
+    return flags.length;
+  }
+
+  private void linkAfter(int parentSlot, int previousSlot, int slot) {
+    unlink(slot);
+    int next;
+    if (previousSlot == NO_SLOT) {
+      next = firstChild[parentSlot];
+      firstChild[parentSlot] = slot;
+    } else {
+      next = nextSibling[previousSlot];
+      nextSibling[previousSlot] = slot;
+    }
+    if (next == NO_SLOT) {
+      lastChild[parentSlot] = slot;
+    } else {
+      prevSibling[next] = slot;
+    }
+    parent[slot] = parentSlot;
+    prevSibling[slot] = previousSlot;
+    nextSibling[slot] = next;
+  }
+
+  /**
+   * Takes the node out of its parent's child list; the parent's child count goes down
+   * accordingly.
+   */
+  private void unlink(int slot) {
+    int parentSlot = parent[slot];
+    if (parentSlot == NO_SLOT) {
+      return;
+    }
+    int previous = prevSibling[slot];
+    int next = nextSibling[slot];
+    if (previous == NO_SLOT) {
+      firstChild[parentSlot] = next;
+    } else {
+      nextSibling[previous] = next;
+    }
+    if (next == NO_SLOT) {
+      lastChild[parentSlot] = previous;
+    } else {
+      prevSibling[next] = previous;
+    }
+    if (childCount[parentSlot] > 0) {
+      childCount[parentSlot]--;
+    }
+    parent[slot] = NO_SLOT;
+    prevSibling[slot] = NO_SLOT;
+    nextSibling[slot] = NO_SLOT;
+  }
+
+  private void removeNode(int slot) {
+    unlink(slot);
+    removeChildren(slot);
+    if (rootSlot == slot) {
+      rootSlot = NO_SLOT;
+    }
+    releaseSlot(slot);
+  }
+
+  private void removeChildren(int slot) {
+    int child = firstChild[slot];
+    while (child != NO_SLOT) {
+      int next = nextSibling[child];
+      // Detach without touching the count: it stays as the remote count.
+      parent[child] = NO_SLOT;
+      prevSibling[child] = NO_SLOT;
+      nextSibling[child] = NO_SLOT;
+      removeNode(child);
+      child = next;
+    }
+    firstChild[slot] = NO_SLOT;
+    lastChild[slot] = NO_SLOT;
+    flags[slot] &= ~CHILDREN_LOADED;
+  }
+
+  private int allocateSlot(int nodeId) {
+    int slot;
+    if (freeSlot != NO_SLOT) {
+      slot = freeSlot;
+      freeSlot = nextSibling[slot];
+    } else {
+      ensureCapacity(slotLimit + 1);
+      slot = slotLimit++;
+    }
+    nodeIds[slot] = nodeId;
+    parent[slot] = NO_SLOT;
+    firstChild[slot] = NO_SLOT;
+    lastChild[slot] = NO_SLOT;
+    nextSibling[slot] = NO_SLOT;
+    prevSibling[slot] = NO_SLOT;
+    idToSlot.put(nodeId, slot);
+    return slot;
+  }
+
+  private void releaseSlot(int slot) {
+    idToSlot.remove(nodeIds[slot]);
+    nodeIds[slot] = NO_NODE;
+    flags[slot] = 0;
+    names[slot] = null;
+    values[slot] = null;
+    attributes[slot] = null;
+    nextSibling[slot] = freeSlot;
+    freeSlot = slot;
+  }
+
+  private String intern(String name) {
+    if (name == null) {
+      return null;
+    }
+    String result = internedNames.get(name);
+    if (result == null) {
+      internedNames.put(name, name);
+      result = name;
+    }
+    return result;
+  }
+
+  private int getSlotChecked(int nodeId) {
+    int slot = nodeId > 0 ? idToSlot.get(nodeId) : NO_SLOT;
+    if (slot == NO_SLOT) {
+      throw new IllegalArgumentException("Unknown node " + nodeId);
+    }
+    return slot;
+  }
+
+  private void allocate(int capacity) {
+    nodeIds = new int[capacity];
+    flags = new byte[capacity];
+    parent = new int[capacity];
+    firstChild = new int[capacity];
+    lastChild = new int[capacity];
+    nextSibling = new int[capacity];
+    prevSibling = new int[capacity];
+    childCount = new int[capacity];
+    nodeType = new int[capacity];
+    names = new String[capacity];
+    values = new String[capacity];
+    attributes = new String[capacity][];
+  }
+
+  private void ensureCapacity(int required) {
+    if (required <= flags.length) {
+      return;
+    }
+    int capacity = Math.max(flags.length * 2, required);
+    nodeIds = Arrays.copyOf(nodeIds, capacity);
+    flags = Arrays.copyOf(flags, capacity);
+    parent = Arrays.copyOf(parent, capacity);
+    firstChild = Arrays.copyOf(firstChild, capacity);
+    lastChild = Arrays.copyOf(lastChild, capacity);
+    nextSibling = Arrays.copyOf(nextSibling, capacity);
+    prevSibling = Arrays.copyOf(prevSibling, capacity);
+    childCount = Arrays.copyOf(childCount, capacity);
+    nodeType = Arrays.copyOf(nodeType, capacity);
+    names = Arrays.copyOf(names, capacity);
+    values = Arrays.copyOf(values, capacity);
+    attributes = Arrays.copyOf(attributes, capacity);
+  }
+
+  /**
+   * Open-addressing hash from positive node ids to slots with linear probing. Key 0 marks
+   * an empty cell; removal shifts the following cells back, so there are no tombstones.
+   */
+  private static class IdToSlotMap {
+    private int[] keys;
+    private int[] slots;
+    private int mask;
+    private int size;
+
+    IdToSlotMap() {
+      clear();
+    }
+
+    void clear() {
+      keys = new int[INITIAL_CAPACITY];
+      slots = new int[INITIAL_CAPACITY];
+      mask = INITIAL_CAPACITY - 1;
+      size = 0;
+    }
+
+    int size() {
+      return size;
+    }
+
+    /**
+     * @return slot or {@link DomNodeTable#NO_SLOT}
+     */
+    int get(int id) {
+      for (int i = hash(id) & mask; keys[i] != 0; i = (i + 1) & mask) {
+        if (keys[i] == id) {
+          return slots[i];
+        }
+      }
+      return NO_SLOT;
+    }
+
+    void put(int id, int slot) {
+      if ((size + 1) * 2 > keys.length) {
+        rehash(keys.length * 2);
+      }
+      int i = hash(id) & mask;
+      while (keys[i] != 0) {
+        if (keys[i] == id) {
+          slots[i] = slot;
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      keys[i] = id;
+      slots[i] = slot;
+      size++;
+    }
+
+    void remove(int id) {
+      int i = hash(id) & mask;
+      while (keys[i] != id) {
+        if (keys[i] == 0) {
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      // Move back the following entries that cannot be found past the new gap.
+      int gap = i;
+      for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+        int home = hash(keys[j]) & mask;
+        if (((j - home) & mask) >= ((j - gap) & mask)) {
+          keys[gap] = keys[j];
+          slots[gap] = slots[j];
+          gap = j;
+        }
+      }
+      keys[gap] = 0;
+      slots[gap] = NO_SLOT;
+      size--;
+    }
+
+    private void rehash(int capacity) {
+      int[] oldKeys = keys;
+      int[] oldSlots = slots;
+      keys = new int[capacity];
+      slots = new int[capacity];
+      mask = capacity - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != 0) {
+          int j = hash(oldKeys[i]) & mask;
+          while (keys[j] != 0) {
+            j = (j + 1) & mask;
+          }
+          keys[j] = oldKeys[i];
+          slots[j] = oldSlots[i];
+        }
+      }
+    }
+
+    private static int hash(int id) {
+      int h = id * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+  }
+}
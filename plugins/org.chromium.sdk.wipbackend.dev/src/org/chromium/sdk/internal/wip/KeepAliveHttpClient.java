@@ -0,0 +1,232 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.chromium.sdk.ConnectionLogger;
+import org.chromium.sdk.internal.transport.SocketWrapper;
+import org.chromium.sdk.internal.websocket.HandshakeUtil;
+import org.chromium.sdk.wip.WipBrowserFactory.LoggerFactory;
+
+/**
+ * A minimal HTTP/1.1 client for the browser DevTools discovery endpoint that keeps its
+ * connection open between requests. A connection that has been idle for too long or that
+ * the server has closed is transparently replaced with a new one.
+ * <p>
+ * Supports conditional requests: if the server returned an ETag, it is sent back as
+ * If-None-Match and a '304 Not Modified' response is reported as {@link Response#NOT_MODIFIED}.
+ * This class is thread-safe; requests are serialized.
+ */
+class KeepAliveHttpClient {
+  private static final Logger LOGGER = Logger.getLogger(KeepAliveHttpClient.class.getName());
+
+  private static final long MAX_IDLE_MS = 10000;
+
+  private final InetSocketAddress socketAddress;
+  private final LoggerFactory loggerFactory;
+  private final int connectionTimeoutMs;
+
+  // Guarded by 'this'.
+  private Channel channel = null;
+
+  KeepAliveHttpClient(InetSocketAddress socketAddress, LoggerFactory loggerFactory,
+      int connectionTimeoutMs) {
+    this.socketAddress = socketAddress;
+    this.loggerFactory = loggerFactory;
+    this.connectionTimeoutMs = connectionTimeoutMs;
+  }
+
+  static class Response {
+    /** A response to a conditional request when the resource hasn't changed. */
+    static final Response NOT_MODIFIED = new Response(null, null);
+
+    private final byte[] content;
+    private final String etag;
+
+    Response(byte[] content, String etag) {
+      this.content = content;
+      this.etag = etag;
+    }
+
+    byte[] getContent() {
+      return content;
+    }
+
+    /**
+     * @return entity tag of the resource or null
+     */
+    String getEtag() {
+      return etag;
+    }
+  }
+
+  /**
+   * Performs a GET request.
+   * @param etag an entity tag of a previously received content or null
+   */
+  synchronized Response get(String resource, String etag) throws IOException {
+    if (channel != null && channel.isStale()) {
+      closeChannel();
+    }
+    boolean reused = channel != null;
+    try {
+      return getImpl(resource, etag);
+    } catch (IOException e) {
+      closeChannel();
+      if (!reused) {
+        throw e;
+      }
+      // Server may have closed the idle connection; retry on a fresh one.
+      LOGGER.log(Level.FINE, "Keep-alive connection failed, reconnecting", e);
+      return getImpl(resource, etag);
+    }
+  }
+
+  synchronized void close() {
+    closeChannel();
+  }
+
+  private Response getImpl(String resource, String etag) throws IOException {
+    if (channel == null) {
+      channel = new Channel();
+    }
+    Channel currentChannel = channel;
+    currentChannel.sendRequest(resource, etag);
+
+    HandshakeUtil.HttpResponse httpResponse = HandshakeUtil.readHttpResponse(
+        HandshakeUtil.createLineReader(currentChannel.input));
+
+    byte[] content = currentChannel.readContent(httpResponse);
+    currentChannel.lastUsedMs = System.currentTimeMillis();
+
+    String connectionField = httpResponse.getFields().get("connection");
+    if (connectionField != null && connectionField.trim().equalsIgnoreCase("close")) {
+      closeChannel();
+    }
+
+    if (httpResponse.getCode() == 304) {
+      return Response.NOT_MODIFIED;
+    }
+    if (httpResponse.getCode() != 200) {
+      throw new IOException("Unrecognized respose: " + httpResponse.getCode() + " " +
+          httpResponse.getReasonPhrase());
+    }
+    String responseEtag = httpResponse.getFields().get("etag");
+    if (responseEtag != null) {
+      responseEtag = responseEtag.trim();
+    }
+    return new Response(content, responseEtag);
+  }
+
+  private void closeChannel() {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  /**
+   * An open socket with its streams.
+   */
+  private class Channel {
+    private final SocketWrapper socketWrapper;
+    private final ConnectionLogger connectionLogger;
+    private final InputStream input;
+    private final OutputStream output;
+    private long lastUsedMs;
+
+    Channel() throws IOException {
+      if (loggerFactory == null) {
+        connectionLogger = null;
+      } else {
+        connectionLogger = loggerFactory.newBrowserConnectionLogger();
+      }
+      socketWrapper = new SocketWrapper(socketAddress, connectionTimeoutMs, connectionLogger,
+          HandshakeUtil.ASCII_CHARSET);
+      if (connectionLogger != null) {
+        connectionLogger.start();
+        connectionLogger.setConnectionCloser(new ConnectionLogger.ConnectionCloser() {
+          @Override
+          public void closeConnection() {
+            socketWrapper.getShutdownRelay().sendSignal(null, new Exception("UI close request"));
+          }
+        });
+      }
+      // The buffer lives as long as the connection, so no bytes of the next response are lost.
+      input = new BufferedInputStream(socketWrapper.getLoggableInput().getInputStream());
+      output = socketWrapper.getLoggableOutput().getOutputStream();
+      lastUsedMs = System.currentTimeMillis();
+    }
+
+    boolean isStale() {
+      return System.currentTimeMillis() - lastUsedMs > MAX_IDLE_MS;
+    }
+
+    void sendRequest(String resource, String etag) throws IOException {
+      // Request is sent as a single write.
+      StringBuilder request = new StringBuilder();
+      appendHttpLine(request, "GET " + resource + " HTTP/1.1");
+      appendHttpLine(request, "User-Agent: ChromeDevTools for Java SDK");
+      appendHttpLine(request, "Host: " + socketAddress.getHostName() + ":" +
+          socketAddress.getPort());
+      appendHttpLine(request, "Connection: keep-alive");
+      if (etag != null) {
+        appendHttpLine(request, "If-None-Match: " + etag);
+      }
+      appendHttpLine(request, "");
+      output.write(request.toString().getBytes(HandshakeUtil.ASCII_CHARSET));
+      output.flush();
+      socketWrapper.getLoggableOutput().markSeparatorForLog();
+    }
+
+    byte[] readContent(HandshakeUtil.HttpResponse httpResponse) throws IOException {
+      if (httpResponse.getCode() == 304) {
+        // Never has a body.
+        return new byte[0];
+      }
+      String lengthStr = httpResponse.getFields().get("content-length");
+      if (lengthStr == null) {
+        throw new IOException("Unrecognizable respose: no content-length");
+      }
+      int length;
+      try {
+        length = Integer.parseInt(lengthStr.trim());
+      } catch (NumberFormatException e) {
+        throw new IOException("Unrecognizable respose: incorrect content-length");
+      }
+      byte[] responseBytes = new byte[length];
+      int readSoFar = 0;
+      while (readSoFar < length) {
+        int res = input.read(responseBytes, readSoFar, length - readSoFar);
+        if (res == -1) {
+          throw new IOException("Unexpected EOS");
+        }
+        readSoFar += res;
+      }
+      socketWrapper.getLoggableInput().markSeparatorForLog();
+      return responseBytes;
+    }
+
+    void close() {
+      if (connectionLogger != null) {
+        connectionLogger.handleEos();
+      }
+      socketWrapper.getShutdownRelay().sendSignal(null, null);
+    }
+
+    private void appendHttpLine(StringBuilder request, String line) {
+      request.append(line).append("\r\n");
+    }
+  }
+}
@@ -0,0 +1,130 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An append-only log file written by a background thread. Lines waiting to be written are
+ * limited by their total length; a line that does not fit (including a line that is longer
+ * than the limit by itself) is dropped and counted, so a slow disk never makes the caller
+ * wait or the heap grow.
+ * <p>The class is thread-safe.
+ */
+class NetworkCaptureLog {
+  private static final Logger LOGGER = Logger.getLogger(NetworkCaptureLog.class.getName());
+
+  /** Queue element that makes the writer thread finish. */
+  private static final String END_OF_LOG = new String("");
+
+  private final long maxQueuedChars;
+  private final Writer writer;
+  private final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+  private final AtomicLong queuedChars = new AtomicLong(0);
+  private final AtomicLong writtenCount = new AtomicLong(0);
+  private final AtomicLong droppedCount = new AtomicLong(0);
+  private final Thread writerThread;
+  private volatile boolean closed = false;
+
+  NetworkCaptureLog(File file, long maxQueuedChars) throws IOException {
+    this.maxQueuedChars = maxQueuedChars;
+    this.writer = new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+    this.writerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        writeLoop();
+      }
+    }, "Network capture writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  /**
+   * Queues a line for writing.
+   * @return false if the line has been dropped or the log is closed
+   */
+  boolean append(String line) {
+    if (closed) {
+      return false;
+    }
+    long length = line.length();
+    while (true) {
+      long current = queuedChars.get();
+      if (current + length > maxQueuedChars) {
+        droppedCount.incrementAndGet();
+        return false;
+      }
+      if (queuedChars.compareAndSet(current, current + length)) {
+        break;
+      }
+    }
+    queue.add(line);
+    return true;
+  }
+
+  /**
+   * Writes all queued lines and closes the file in background.
+   */
+  void close() {
+    closed = true;
+    queue.add(END_OF_LOG);
+  }
+
+  /**
+   * Waits until the log is closed. Used in tests.
+   */
+  void waitClosed() throws InterruptedException {
+    writerThread.join();
+  }
+
+  long getWrittenCount() {
+    return writtenCount.get();
+  }
+
+  long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  private void writeLoop() {
+    try {
+      try {
+        while (true) {
+          String line = queue.poll();
+          if (line == null) {
+            // Flush when there is nothing more to write right now.
+            writer.flush();
+            line = queue.take();
+          }
+          if (line == END_OF_LOG) {
+            break;
+          }
+          queuedChars.addAndGet(-line.length());
+          writer.write(line);
+          writer.write('\n');
+          writtenCount.incrementAndGet();
+        }
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      LOGGER.log(Level.SEVERE, "Failed to write network capture log", e);
+    } catch (InterruptedException e) {
+      // Exit.
+    }
+  }
+}
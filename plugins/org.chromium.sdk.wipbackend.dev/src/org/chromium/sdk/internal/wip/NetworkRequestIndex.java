@@ -0,0 +1,187 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Correlates Network domain events by request id. Only a compact record with
+ * a few scalar fields is kept per in-flight request; headers and other event data are
+ * not retained. The number of in-flight records is bounded: when it is exceeded,
+ * the oldest record is completed as incomplete.
+ * <p>The class is not thread-safe.
+ */
+class NetworkRequestIndex {
+  private final int maxPendingRequests;
+  private final LinkedHashMap<String, Record> pending = new LinkedHashMap<String, Record>();
+
+  NetworkRequestIndex(int maxPendingRequests) {
+    this.maxPendingRequests = maxPendingRequests;
+  }
+
+  /**
+   * @param redirectStatus status of the redirect response if this request replaces
+   *     a redirected one with the same id, or -1
+   * @return records completed by this event (a redirected request or evicted ones)
+   */
+  List<Record> requestWillBeSent(String requestId, String url, String method,
+      double timestamp, long redirectStatus) {
+    List<Record> completed = Collections.emptyList();
+    Record previous = pending.remove(requestId);
+    if (previous != null) {
+      completed = new ArrayList<Record>(2);
+      previous.status = redirectStatus;
+      previous.endTime = timestamp;
+      previous.state = State.REDIRECTED;
+      completed.add(previous);
+    }
+    pending.put(requestId, new Record(requestId, url, method, timestamp));
+    if (pending.size() > maxPendingRequests) {
+      if (completed.isEmpty()) {
+        completed = new ArrayList<Record>(1);
+      }
+      Iterator<Record> it = pending.values().iterator();
+      while (pending.size() > maxPendingRequests) {
+        Record eldest = it.next();
+        it.remove();
+        eldest.state = State.INCOMPLETE;
+        completed.add(eldest);
+      }
+    }
+    return completed;
+  }
+
+  void responseReceived(String requestId, long status, String statusText, String mimeType,
+      double timestamp) {
+    Record record = pending.get(requestId);
+    if (record == null) {
+      return;
+    }
+    record.status = status;
+    record.statusText = statusText;
+    record.mimeType = mimeType;
+    record.responseTime = timestamp;
+  }
+
+  void dataReceived(String requestId, long dataLength, long encodedDataLength) {
+    Record record = pending.get(requestId);
+    if (record == null) {
+      return;
+    }
+    record.dataLength += dataLength;
+    record.encodedDataLength += encodedDataLength;
+  }
+
+  /**
+   * @return the completed record or null if the request is unknown
+   */
+  Record loadingFinished(String requestId, double timestamp) {
+    Record record = pending.remove(requestId);
+    if (record == null) {
+      return null;
+    }
+    record.endTime = timestamp;
+    record.state = State.FINISHED;
+    return record;
+  }
+
+  /**
+   * @return the completed record or null if the request is unknown
+   */
+  Record loadingFailed(String requestId, double timestamp, String errorText, boolean canceled) {
+    Record record = pending.remove(requestId);
+    if (record == null) {
+      return null;
+    }
+    record.endTime = timestamp;
+    record.errorText = errorText;
+    record.state = canceled ? State.CANCELED : State.FAILED;
+    return record;
+  }
+
+  /**
+   * Completes all in-flight records as incomplete.
+   */
+  List<Record> removeAll() {
+    List<Record> result = new ArrayList<Record>(pending.values());
+    pending.clear();
+    for (Record record : result) {
+      record.state = State.INCOMPLETE;
+    }
+    return result;
+  }
+
+  int getPendingCount() {
+    return pending.size();
+  }
+
+  enum State {
+    FINISHED, FAILED, CANCELED, REDIRECTED, INCOMPLETE
+  }
+
+  static class Record {
+    final String requestId;
+    final String url;
+    final String method;
+    final double startTime;
+    State state = null;
+    long status = -1;
+    String statusText = null;
+    String mimeType = null;
+    double responseTime = -1;
+    double endTime = -1;
+    long dataLength = 0;
+    long encodedDataLength = 0;
+    String errorText = null;
+
+    Record(String requestId, String url, String method, double startTime) {
+      this.requestId = requestId;
+      this.url = url;
+      this.method = method;
+      this.startTime = startTime;
+    }
+
+    State getState() {
+      return state;
+    }
+
+    @SuppressWarnings("unchecked")
+    String toJson() {
+      JSONObject json = new JSONObject();
+      json.put("requestId", requestId);
+      json.put("url", url);
+      json.put("method", method);
+      json.put("state", state.name());
+      json.put("startTime", startTime);
+      if (status != -1) {
+        json.put("status", status);
+        json.put("statusText", statusText);
+      }
+      if (mimeType != null) {
+        json.put("mimeType", mimeType);
+      }
+      if (responseTime != -1) {
+        json.put("responseTime", responseTime);
+      }
+      if (endTime != -1) {
+        json.put("endTime", endTime);
+      }
+      json.put("dataLength", dataLength);
+      json.put("encodedDataLength", encodedDataLength);
+      if (errorText != null) {
+        json.put("errorText", errorText);
+      }
+      return json.toJSONString();
+    }
+  }
+}
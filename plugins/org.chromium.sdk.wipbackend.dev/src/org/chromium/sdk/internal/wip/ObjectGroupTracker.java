@@ -0,0 +1,85 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of remote object groups that the tab has allocated and not released yet,
+ * together with the number of remote objects wrapped in each group. A group is live
+ * from {@link #register} until {@link #release}; objects reported for unknown groups
+ * are ignored.
+ * <p>The class is thread-safe.
+ */
+class ObjectGroupTracker {
+  private static final String SUSPEND_GROUP_PREFIX = "suspend-";
+
+  private final ConcurrentHashMap<String, AtomicInteger> groups =
+      new ConcurrentHashMap<String, AtomicInteger>();
+  private final AtomicInteger suspendGroupCounter = new AtomicInteger(0);
+
+  /**
+   * Allocates and registers a new unique group for a debug context.
+   */
+  String createSuspendGroup() {
+    String groupId = SUSPEND_GROUP_PREFIX + suspendGroupCounter.incrementAndGet();
+    register(groupId);
+    return groupId;
+  }
+
+  void register(String groupId) {
+    groups.putIfAbsent(groupId, new AtomicInteger(0));
+  }
+
+  void objectCreated(String groupId) {
+    AtomicInteger counter = groups.get(groupId);
+    if (counter != null) {
+      counter.incrementAndGet();
+    }
+  }
+
+  /**
+   * Forgets the group.
+   * @return whether the group was live
+   */
+  boolean release(String groupId) {
+    return groups.remove(groupId) != null;
+  }
+
+  /**
+   * Forgets all groups; used when the connection is closed.
+   */
+  void clear() {
+    groups.clear();
+  }
+
+  /**
+   * @return a snapshot of object counts by live group ids
+   */
+  Map<String, Integer> getObjectCounts() {
+    Map<String, Integer> result = new TreeMap<String, Integer>();
+    for (Map.Entry<String, AtomicInteger> en : groups.entrySet()) {
+      result.put(en.getKey(), en.getValue().get());
+    }
+    return result;
+  }
+
+  int getGroupCount() {
+    return groups.size();
+  }
+
+  long getObjectCount() {
+    long result = 0;
+    for (AtomicInteger counter : groups.values()) {
+      result += counter.get();
+    }
+    return result;
+  }
+}
@@ -21,6 +21,7 @@ class PermanentRemoteValueMappingImpl extends WipValueLoader
   PermanentRemoteValueMappingImpl(WipTabImpl tabImpl, String id) {
     super(tabImpl);
     this.id = id;
+    tabImpl.getObjectGroupTracker().register(id);
   }
 
   @Override
@@ -30,6 +31,7 @@ class PermanentRemoteValueMappingImpl extends WipValueLoader
 
   @Override
   public RelayOk delete(final GenericCallback<Void> callback, SyncCallback syncCallback) {
+    getTabImpl().getObjectGroupTracker().release(id);
     ReleaseObjectGroupParams params = new ReleaseObjectGroupParams(id);
     WipCommandCallback callbackWrapper;
     if (callback == null) {
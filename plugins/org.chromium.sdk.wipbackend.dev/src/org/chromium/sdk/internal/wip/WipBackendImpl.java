@@ -7,18 +7,17 @@
 package org.chromium.sdk.internal.wip;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.InetSocketAddress;
 import java.net.URI;
-import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.chromium.sdk.ConnectionLogger;
 import org.chromium.sdk.TabDebugEventListener;
 import org.chromium.sdk.internal.protocolparser.JsonProtocolParseException;
-import org.chromium.sdk.internal.transport.SocketWrapper;
-import org.chromium.sdk.internal.transport.SocketWrapper.LoggableInputStream;
-import org.chromium.sdk.internal.transport.SocketWrapper.LoggableOutputStream;
 import org.chromium.sdk.internal.websocket.HandshakeUtil;
 import org.chromium.sdk.internal.websocket.Hybi00WsConnection;
 import org.chromium.sdk.internal.websocket.Hybi17WsConnection;
@@ -37,6 +36,13 @@ public class WipBackendImpl extends WipBackendBase {
 
   private static final boolean USE_OLD_WEBSOCKET = false;
 
+  /**
+   * Whether a tab session should survive a lost connection: the backend reconnects
+   * automatically and restores scripts and breakpoints instead of closing the tab.
+   */
+  private static final boolean RESUMABLE_SESSION =
+      Boolean.getBoolean("org.chromium.sdk.wip.resumableSession");
+
   private static final String ID = "current development";
   private static final String DESCRIPTION =
       "Google Chrome/Chromium: \n" +
@@ -50,24 +56,88 @@ public class WipBackendImpl extends WipBackendBase {
   @Override
   public List<? extends WipTabConnector> getTabs(final WipBrowserImpl browserImpl)
       throws IOException {
-    InetSocketAddress socketAddress = browserImpl.getSocketAddress();
+    TabListCache cache =
+        (TabListCache) browserImpl.getBackendState(this, tabListCacheFactory);
+    return cache.getTabs();
+  }
 
-    String content = readHttpResponseContent(socketAddress, "/json",
-        browserImpl.getConnectionLoggerFactory());
+  private final WipBrowserImpl.BackendStateFactory tabListCacheFactory =
+      new WipBrowserImpl.BackendStateFactory() {
+        @Override
+        public WipBrowserImpl.BackendState create(WipBrowserImpl browserImpl) {
+          return new TabListCache(browserImpl);
+        }
+      };
+
+  /**
+   * Keeps a discovery connection to a browser and the last tab list read from it. Polling
+   * returns the same list instance while the response doesn't change; tab connectors of
+   * unchanged tabs are reused across lists.
+   */
+  private class TabListCache implements WipBrowserImpl.BackendState {
+    private final WipBrowserImpl browserImpl;
+    private final KeepAliveHttpClient httpClient;
 
-    final List<WipTabList.TabDescription> list = parseJsonReponse(content);
+    // Guarded by 'this'.
+    private final JSONParser jsonParser = new JSONParser();
+    private String etag = null;
+    private byte[] lastContent = null;
+    private List<TabConnectorImpl> lastTabs = null;
+    private Map<String, TabConnectorImpl> lastConnectors =
+        Collections.<String, TabConnectorImpl>emptyMap();
+
+    TabListCache(WipBrowserImpl browserImpl) {
+      this.browserImpl = browserImpl;
+      this.httpClient = new KeepAliveHttpClient(browserImpl.getSocketAddress(),
+          browserImpl.getConnectionLoggerFactory(), DEFAULT_CONNECTION_TIMEOUT_MS);
+    }
 
-    return new AbstractList<WipTabConnector>() {
-      @Override
-      public WipTabConnector get(int index) {
-        return new TabConnectorImpl(list.get(index), browserImpl);
+    synchronized List<? extends WipTabConnector> getTabs() throws IOException {
+      KeepAliveHttpClient.Response response = httpClient.get("/json",
+          lastTabs == null ? null : etag);
+      if (response == KeepAliveHttpClient.Response.NOT_MODIFIED) {
+        return lastTabs;
+      }
+      byte[] content = response.getContent();
+      if (lastTabs != null && Arrays.equals(content, lastContent)) {
+        return lastTabs;
       }
 
-      @Override
-      public int size() {
-        return list.size();
+      List<TabDescription> descriptions =
+          parseJsonReponse(new String(content, HandshakeUtil.UTF_8_CHARSET), jsonParser);
+
+      List<TabConnectorImpl> tabs = new ArrayList<TabConnectorImpl>(descriptions.size());
+      Map<String, TabConnectorImpl> connectors =
+          new HashMap<String, TabConnectorImpl>(descriptions.size());
+      for (TabDescription description : descriptions) {
+        String key = getTabKey(description);
+        TabConnectorImpl connector = lastConnectors.get(key);
+        if (connector == null) {
+          connector = new TabConnectorImpl(description, browserImpl);
+        }
+        tabs.add(connector);
+        connectors.put(key, connector);
       }
-    };
+
+      etag = response.getEtag();
+      lastContent = content;
+      lastTabs = Collections.unmodifiableList(tabs);
+      lastConnectors = connectors;
+      return lastTabs;
+    }
+
+    @Override
+    public void dispose() {
+      httpClient.close();
+    }
+
+    /**
+     * @return a string that is equal for descriptions that produce equivalent connectors
+     */
+    private String getTabKey(TabDescription description) {
+      return description.id() + '\n' + description.webSocketDebuggerUrl() + '\n' +
+          description.url() + '\n' + description.title();
+    }
   }
 
   private class TabConnectorImpl implements WipTabConnector {
@@ -96,116 +166,54 @@ public class WipBackendImpl extends WipBackendBase {
 
     @Override
     public WipBrowserTab attach(TabDebugEventListener listener) throws IOException {
-      LoggerFactory connectionLoggerFactory = browserImpl.getConnectionLoggerFactory();
-      ConnectionLogger connectionLogger;
-      if (connectionLoggerFactory == null) {
-        connectionLogger = null;
-      } else {
-        connectionLogger = connectionLoggerFactory.newTabConnectionLogger();
-      }
       String webSocketDebuggerUrl = description.webSocketDebuggerUrl();
 
       if (webSocketDebuggerUrl == null) {
         throw new IOException("Tab is already attached");
       }
 
-      URI uri = URI.create(webSocketDebuggerUrl);
-      WsConnection socket;
-      if (USE_OLD_WEBSOCKET) {
-        socket = Hybi00WsConnection.connect(browserImpl.getSocketAddress(),
-            DEFAULT_CONNECTION_TIMEOUT_MS, uri.getPath(), "empty origin", connectionLogger);
-      } else {
-        socket = Hybi17WsConnection.connect(browserImpl.getSocketAddress(),
-            DEFAULT_CONNECTION_TIMEOUT_MS, uri.getPath(),
-            Hybi17WsConnection.MaskStrategy.TRANSPARENT_MASK, connectionLogger);
-      }
+      final String path = URI.create(webSocketDebuggerUrl).getPath();
+      WsConnection socket = connectSocket(path);
 
-
-      return new WipTabImpl(socket, browserImpl, listener, description.url());
-    }
-  }
-
-  private String readHttpResponseContent(InetSocketAddress socketAddress, String resource,
-      LoggerFactory loggerFactory) throws IOException {
-    ConnectionLogger browserConnectionLogger;
-    if (loggerFactory == null) {
-      browserConnectionLogger = null;
-    } else {
-      browserConnectionLogger = loggerFactory.newBrowserConnectionLogger();
-    }
-    final SocketWrapper socketWrapper = new SocketWrapper(
-        socketAddress, DEFAULT_CONNECTION_TIMEOUT_MS, browserConnectionLogger,
-        HandshakeUtil.ASCII_CHARSET);
-    try {
-      if (browserConnectionLogger != null) {
-        browserConnectionLogger.start();
-        browserConnectionLogger.setConnectionCloser(new ConnectionLogger.ConnectionCloser() {
+      WipTabImpl.SocketFactory socketFactory;
+      if (RESUMABLE_SESSION) {
+        socketFactory = new WipTabImpl.SocketFactory() {
           @Override
-          public void closeConnection() {
-            socketWrapper.getShutdownRelay().sendSignal(null, new Exception("UI close request"));
+          public WsConnection connect() throws IOException {
+            return connectSocket(path);
           }
-        });
-      }
-      LoggableOutputStream output = socketWrapper.getLoggableOutput();
-      writeHttpLine(output, "GET " + resource + " HTTP/1.1");
-      writeHttpLine(output, "User-Agent: ChromeDevTools for Java SDK");
-      writeHttpLine(output, "Host: " + socketAddress.getHostName() + ":" +
-          socketAddress.getPort());
-      writeHttpLine(output, "");
-      output.getOutputStream().flush();
-
-      LoggableInputStream input = socketWrapper.getLoggableInput();
-
-      HandshakeUtil.HttpResponse httpResponse =
-          HandshakeUtil.readHttpResponse(HandshakeUtil.createLineReader(input.getInputStream()));
-
-      if (httpResponse.getCode() != 200) {
-        throw new IOException("Unrecognized respose: " + httpResponse.getCode() + " " +
-            httpResponse.getReasonPhrase());
+        };
+      } else {
+        socketFactory = null;
       }
 
-      String lengthStr = httpResponse.getFields().get("content-length");
-      if (lengthStr == null) {
-        throw new IOException("Unrecognizable respose: no content-length");
-      }
-      int length;
-      try {
-        length = Integer.parseInt(lengthStr.trim());
-      } catch (NumberFormatException e) {
-        throw new IOException("Unrecognizable respose: incorrect content-length");
-      }
-      byte[] responseBytes = new byte[length];
-      {
-        int readSoFar = 0;
-        while (readSoFar < length) {
-          int res = input.getInputStream().read(responseBytes, readSoFar, length - readSoFar);
-          if (res == -1) {
-            throw new IOException("Unexpected EOS");
-          }
-          readSoFar += res;
-        }
+      return new WipTabImpl(socket, socketFactory, browserImpl, listener, description.url());
+    }
+
+    private WsConnection connectSocket(String path) throws IOException {
+      LoggerFactory connectionLoggerFactory = browserImpl.getConnectionLoggerFactory();
+      ConnectionLogger connectionLogger;
+      if (connectionLoggerFactory == null) {
+        connectionLogger = null;
+      } else {
+        connectionLogger = connectionLoggerFactory.newTabConnectionLogger();
       }
-      return new String(responseBytes, HandshakeUtil.UTF_8_CHARSET);
-    } finally {
-      if (browserConnectionLogger != null) {
-        browserConnectionLogger.handleEos();
+      if (USE_OLD_WEBSOCKET) {
+        return Hybi00WsConnection.connect(browserImpl.getSocketAddress(),
+            DEFAULT_CONNECTION_TIMEOUT_MS, path, "empty origin", connectionLogger);
+      } else {
+        return Hybi17WsConnection.connect(browserImpl.getSocketAddress(),
+            DEFAULT_CONNECTION_TIMEOUT_MS, path,
+            Hybi17WsConnection.MaskStrategy.TRANSPARENT_MASK, connectionLogger);
       }
-      socketWrapper.getShutdownRelay().sendSignal(null, null);
     }
   }
 
-  private static void writeHttpLine(LoggableOutputStream output, String line) throws IOException {
-    OutputStream stream = output.getOutputStream();
-    stream.write(line.getBytes(HandshakeUtil.ASCII_CHARSET));
-    stream.write(0xD);
-    stream.write(0xA);
-  }
-
-  private static List<WipTabList.TabDescription> parseJsonReponse(String content)
-      throws IOException {
+  private static List<WipTabList.TabDescription> parseJsonReponse(String content,
+      JSONParser jsonParser) throws IOException {
     Object jsonValue;
     try {
-      jsonValue = new JSONParser().parse(content);
+      jsonValue = jsonParser.parse(content);
     } catch (ParseException e) {
       throw new IOException("Failed to parse a JSON tab list response", e);
     }
@@ -12,6 +12,8 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.chromium.sdk.Breakpoint;
 import org.chromium.sdk.BreakpointTypeExtension;
@@ -38,6 +40,8 @@ import org.chromium.sdk.util.RelaySyncCallback;
  * synchronization (serialize calls to setters, {@link #flush} and {@link #clear}).
  */
 public class WipBreakpointImpl implements Breakpoint {
+  private static final Logger LOGGER = Logger.getLogger(WipBreakpointImpl.class.getName());
+
   private final WipBreakpointManager breakpointManager;
 
   private final Target target;
@@ -167,6 +171,33 @@ public class WipBreakpointImpl implements Breakpoint {
     breakpointManager.getDb().removeBreakpoint(this);
   }
 
+  /**
+   * Sets the breakpoint on remote anew after the session has been resumed over a new
+   * connection (the remote has no breakpoints then). A breakpoint that cannot be set
+   * (e.g. its script no longer exists) stays registered but unresolved: it has no remote id
+   * and no actual locations, and the client can still see, change or clear it.
+   */
+  RelayOk reapply(SyncCallback syncCallback) {
+    setRemoteData(null, Collections.<ActualLocation>emptyList());
+    if (!enabled) {
+      return RelaySyncCallback.finish(syncCallback);
+    }
+    SetBreakpointCallback setCommandCallback = new SetBreakpointCallback() {
+      @Override
+      public void onSuccess(String protocolId, Collection<ActualLocation> actualLocations) {
+        setRemoteData(protocolId, actualLocations);
+      }
+
+      @Override
+      public void onFailure(Exception exception) {
+        LOGGER.log(Level.WARNING, "Failed to restore breakpoint " + sdkId, exception);
+      }
+    };
+    String conditionParam = condition == null ? "" : condition;
+    return sendSetBreakpointRequest(target, lineNumber, columnNumber, conditionParam,
+        setCommandCallback, syncCallback, breakpointManager.getCommandProcessor());
+  }
+
   @Override
   public RelayOk clear(final BreakpointCallback callback, SyncCallback syncCallback) {
     // TODO: make sure this is thread-safe.
@@ -103,7 +103,17 @@ public class WipBreakpointManager {
     });
   }
 
-  private static final Breakpoint.Target.Visitor<Boolean> IS_SCRIPT_ID_VISITOR =
+  /**
+   * Re-creates all enabled breakpoints after the session has been resumed over a new
+   * connection. All requests are sent at once, without waiting for responses.
+   */
+  void reapplyBreakpoints() {
+    for (WipBreakpointImpl breakpoint : getAllBreakpoints()) {
+      breakpoint.reapply(null);
+    }
+  }
+
+  static final Breakpoint.Target.Visitor<Boolean> IS_SCRIPT_ID_VISITOR =
       new Breakpoint.Target.Visitor<Boolean>() {
     @Override
     public Boolean visitScriptName(String scriptName) {
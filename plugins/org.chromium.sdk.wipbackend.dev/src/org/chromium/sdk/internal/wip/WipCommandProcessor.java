@@ -9,6 +9,8 @@ package org.chromium.sdk.internal.wip;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -18,6 +20,9 @@ import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.SyncCallback;
 import org.chromium.sdk.TabDebugEventListener;
 import org.chromium.sdk.internal.BaseCommandProcessor;
+import org.chromium.sdk.internal.metrics.LatencyHistogram;
+import org.chromium.sdk.internal.metrics.MetricsRegistry;
+import org.chromium.sdk.internal.metrics.StripedCounter;
 import org.chromium.sdk.internal.protocolparser.JsonProtocolParseException;
 import org.chromium.sdk.internal.websocket.WsConnection;
 import org.chromium.sdk.internal.wip.protocol.BasicConstants;
@@ -26,10 +31,26 @@ import org.chromium.sdk.internal.wip.protocol.input.WipCommandResponse;
 import org.chromium.sdk.internal.wip.protocol.input.WipCommandResponse.Success;
 import org.chromium.sdk.internal.wip.protocol.input.WipEvent;
 import org.chromium.sdk.internal.wip.protocol.input.WipEventType;
+import org.chromium.sdk.internal.wip.protocol.input.console.MessageAddedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.console.MessageRepeatCountUpdatedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.console.MessagesClearedEventData;
 import org.chromium.sdk.internal.wip.protocol.input.debugger.BreakpointResolvedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.AttributeModifiedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.AttributeRemovedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.CharacterDataModifiedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.ChildNodeCountUpdatedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.ChildNodeInsertedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.ChildNodeRemovedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.DocumentUpdatedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.SetChildNodesEventData;
 import org.chromium.sdk.internal.wip.protocol.input.debugger.PausedEventData;
 import org.chromium.sdk.internal.wip.protocol.input.debugger.ResumedEventData;
 import org.chromium.sdk.internal.wip.protocol.input.debugger.ScriptParsedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.network.DataReceivedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.network.LoadingFailedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.network.LoadingFinishedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.network.RequestWillBeSentEventData;
+import org.chromium.sdk.internal.wip.protocol.input.network.ResponseReceivedEventData;
 import org.chromium.sdk.internal.wip.protocol.input.page.FrameDetachedEventData;
 import org.chromium.sdk.internal.wip.protocol.input.page.FrameNavigatedEventData;
 import org.chromium.sdk.internal.wip.protocol.output.WipParams;
@@ -48,14 +69,25 @@ class WipCommandProcessor {
   private final BaseCommandProcessor<Integer, JSONObject, JSONObject, WipCommandResponse>
       baseProcessor;
   private final AtomicInteger currentSeq = new AtomicInteger(0);
-
-  WipCommandProcessor(WipTabImpl tabImpl, WsConnection wsSocket) {
+  private final LatencyHistogram responseParseHistogram;
+  private final LatencyHistogram eventParseHistogram;
+  private final MetricsRegistry metrics;
+  private final StripedCounter droppedEventCounter;
+  private final ConcurrentMap<String, StripedCounter> droppedEventCounters =
+      new ConcurrentHashMap<String, StripedCounter>();
+
+  WipCommandProcessor(WipTabImpl tabImpl, WsConnection wsSocket, MetricsRegistry metrics) {
     this.tabImpl = tabImpl;
+    this.metrics = metrics;
+    this.droppedEventCounter = metrics.getCounter("events.dropped");
+    this.responseParseHistogram = metrics.getHistogram("parse.response");
+    this.eventParseHistogram = metrics.getHistogram("parse.event");
 
     WipMessageTypeHandler handler = new WipMessageTypeHandler();
 
     baseProcessor =
-        new BaseCommandProcessor<Integer, JSONObject, JSONObject, WipCommandResponse>(handler);
+        new BaseCommandProcessor<Integer, JSONObject, JSONObject, WipCommandResponse>(handler,
+            metrics);
   }
 
   RelayOk sendRaw(JSONObject message, WipCommandCallback callback, SyncCallback syncCallback) {
@@ -103,6 +135,30 @@ class WipCommandProcessor {
     return sendRaw(request, commandCallback, syncCallback);
   }
 
+  /**
+   * Checks the raw message before it is parsed and drops it if it is an event that
+   * has no handler. Dropped events are counted per method in metrics.
+   * @return true if the message has been dropped and should not be parsed
+   */
+  boolean dropUnhandledEvent(String rawMessage) {
+    String method = WipEventSniffer.sniffEventMethod(rawMessage);
+    if (method == null || EVENT_MAP.hasHandler(method)) {
+      return false;
+    }
+    countDroppedEvent(method);
+    return true;
+  }
+
+  private void countDroppedEvent(String method) {
+    droppedEventCounter.increment();
+    StripedCounter counter = droppedEventCounters.get(method);
+    if (counter == null) {
+      counter = metrics.getCounter("events.dropped." + method);
+      droppedEventCounters.put(method, counter);
+    }
+    counter.increment();
+  }
+
   void acceptResponse(JSONObject message) {
     baseProcessor.processIncoming(message);
   }
@@ -113,13 +169,17 @@ class WipCommandProcessor {
 
   private void processEvent(JSONObject jsonObject) {
     WipEvent event;
+    long parseStart = System.nanoTime();
     try {
       event = WipParserAccess.get().parseWipEvent(jsonObject);
     } catch (JsonProtocolParseException e) {
       LOGGER.log(Level.SEVERE, "Failed to parse event", e);
       return;
     }
-    EVENT_MAP.handleEvent(event, this);
+    eventParseHistogram.recordNanos(System.nanoTime() - parseStart);
+    if (!EVENT_MAP.handleEvent(event, this)) {
+      countDroppedEvent(event.method());
+    }
   }
 
   /**
@@ -143,7 +203,7 @@ class WipCommandProcessor {
     public void send(JSONObject message, boolean isImmediate) {
       try {
         WipCommandProcessor.this.tabImpl.getWsSocket().sendTextualMessage(
-            message.toJSONString());
+            new WipJsonSerializer(message));
       } catch (IOException e) {
         LOGGER.log(Level.SEVERE, "Failed to send", e);
       }
@@ -154,11 +214,15 @@ class WipCommandProcessor {
       if (!incoming.containsKey(BasicConstants.Property.ID)) {
         return null;
       }
+      long parseStart = System.nanoTime();
+      WipCommandResponse response;
       try {
-        return WipParserAccess.get().parseWipCommandResponse(incoming);
+        response = WipParserAccess.get().parseWipCommandResponse(incoming);
       } catch (JsonProtocolParseException e) {
         throw new RuntimeException("Failed to parse response", e);
       }
+      responseParseHistogram.recordNanos(System.nanoTime() - parseStart);
+      return response;
     }
 
     @Override
@@ -232,6 +296,118 @@ class WipCommandProcessor {
     });
 
     EVENT_MAP.add(FrameDetachedEventData.TYPE, null);
+
+    EVENT_MAP.add(MessageAddedEventData.TYPE, new EventHandler<MessageAddedEventData> () {
+      @Override
+      void accept(MessageAddedEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getConsoleStreamImpl().messageAdded(eventData.message());
+      }
+    });
+    EVENT_MAP.add(MessageRepeatCountUpdatedEventData.TYPE,
+        new EventHandler<MessageRepeatCountUpdatedEventData> () {
+      @Override
+      void accept(MessageRepeatCountUpdatedEventData eventData,
+          WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getConsoleStreamImpl().messageRepeatCountUpdated(eventData);
+      }
+    });
+    EVENT_MAP.add(MessagesClearedEventData.TYPE, new EventHandler<MessagesClearedEventData> () {
+      @Override
+      void accept(MessagesClearedEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getConsoleStreamImpl().messagesCleared();
+      }
+    });
+
+    EVENT_MAP.add(RequestWillBeSentEventData.TYPE,
+        new EventHandler<RequestWillBeSentEventData> () {
+      @Override
+      void accept(RequestWillBeSentEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getNetworkCaptureImpl().requestWillBeSent(eventData);
+      }
+    });
+    EVENT_MAP.add(ResponseReceivedEventData.TYPE,
+        new EventHandler<ResponseReceivedEventData> () {
+      @Override
+      void accept(ResponseReceivedEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getNetworkCaptureImpl().responseReceived(eventData);
+      }
+    });
+    EVENT_MAP.add(DataReceivedEventData.TYPE, new EventHandler<DataReceivedEventData> () {
+      @Override
+      void accept(DataReceivedEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getNetworkCaptureImpl().dataReceived(eventData);
+      }
+    });
+    EVENT_MAP.add(LoadingFinishedEventData.TYPE, new EventHandler<LoadingFinishedEventData> () {
+      @Override
+      void accept(LoadingFinishedEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getNetworkCaptureImpl().loadingFinished(eventData);
+      }
+    });
+    EVENT_MAP.add(LoadingFailedEventData.TYPE, new EventHandler<LoadingFailedEventData> () {
+      @Override
+      void accept(LoadingFailedEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getNetworkCaptureImpl().loadingFailed(eventData);
+      }
+    });
+
+    EVENT_MAP.add(SetChildNodesEventData.TYPE, new EventHandler<SetChildNodesEventData> () {
+      @Override
+      void accept(SetChildNodesEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getDomMirrorImpl().setChildNodes(eventData);
+      }
+    });
+    EVENT_MAP.add(ChildNodeInsertedEventData.TYPE,
+        new EventHandler<ChildNodeInsertedEventData> () {
+      @Override
+      void accept(ChildNodeInsertedEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getDomMirrorImpl().childNodeInserted(eventData);
+      }
+    });
+    EVENT_MAP.add(ChildNodeRemovedEventData.TYPE,
+        new EventHandler<ChildNodeRemovedEventData> () {
+      @Override
+      void accept(ChildNodeRemovedEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getDomMirrorImpl().childNodeRemoved(eventData);
+      }
+    });
+    EVENT_MAP.add(ChildNodeCountUpdatedEventData.TYPE,
+        new EventHandler<ChildNodeCountUpdatedEventData> () {
+      @Override
+      void accept(ChildNodeCountUpdatedEventData eventData,
+          WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getDomMirrorImpl().childNodeCountUpdated(eventData);
+      }
+    });
+    EVENT_MAP.add(AttributeModifiedEventData.TYPE,
+        new EventHandler<AttributeModifiedEventData> () {
+      @Override
+      void accept(AttributeModifiedEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getDomMirrorImpl().attributeModified(eventData);
+      }
+    });
+    EVENT_MAP.add(AttributeRemovedEventData.TYPE,
+        new EventHandler<AttributeRemovedEventData> () {
+      @Override
+      void accept(AttributeRemovedEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getDomMirrorImpl().attributeRemoved(eventData);
+      }
+    });
+    EVENT_MAP.add(CharacterDataModifiedEventData.TYPE,
+        new EventHandler<CharacterDataModifiedEventData> () {
+      @Override
+      void accept(CharacterDataModifiedEventData eventData,
+          WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getDomMirrorImpl().characterDataModified(eventData);
+      }
+    });
+    EVENT_MAP.add(DocumentUpdatedEventData.TYPE,
+        new EventHandler<DocumentUpdatedEventData> () {
+      @Override
+      void accept(DocumentUpdatedEventData eventData, WipCommandProcessor commandProcessor) {
+        commandProcessor.tabImpl.getDomMirrorImpl().documentUpdated();
+      }
+    });
   }
 
   public RelayOk runInDispatchThread(Runnable runnable, SyncCallback syncCallback) {
@@ -246,14 +422,28 @@ class WipCommandProcessor {
       map.put(type.getMethodName(), internalHandler);
     }
 
-    public void handleEvent(WipEvent event, WipCommandProcessor commandProcessor) {
+    /**
+     * @return whether an event with this method is handled (rather than ignored)
+     */
+    public boolean hasHandler(String method) {
+      InternalHandler<?> internalHandler = map.get(method);
+      return internalHandler != null && internalHandler.handler != null;
+    }
+
+    /**
+     * @return false if the event is not supported
+     */
+    public boolean handleEvent(WipEvent event, WipCommandProcessor commandProcessor) {
       String method = event.method();
       InternalHandler<?> parser = map.get(method);
       if (parser == null) {
-        LOGGER.log(Level.INFO, "Unsupported event: " + method);
-        return;
+        if (LOGGER.isLoggable(Level.INFO)) {
+          LOGGER.log(Level.INFO, "Unsupported event: " + method);
+        }
+        return false;
       }
       parser.handle(event, commandProcessor);
+      return true;
     }
 
     private static class InternalHandler<T> {
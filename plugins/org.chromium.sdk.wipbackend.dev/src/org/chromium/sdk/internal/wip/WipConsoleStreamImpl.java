@@ -0,0 +1,185 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.chromium.sdk.internal.wip.protocol.input.console.ConsoleMessageValue;
+import org.chromium.sdk.internal.wip.protocol.input.console.MessageRepeatCountUpdatedEventData;
+import org.chromium.sdk.internal.wip.protocol.output.console.DisableParams;
+import org.chromium.sdk.internal.wip.protocol.output.console.EnableParams;
+import org.chromium.sdk.wip.WipConsoleStream;
+
+/**
+ * Implements {@link WipConsoleStream}. Console events are put into {@link ConsoleMessageRing}
+ * on the dispatch thread (which never waits for the listener) and a delivery thread
+ * passes them to the listener in batches.
+ */
+class WipConsoleStreamImpl implements WipConsoleStream {
+  private static final Logger LOGGER = Logger.getLogger(WipConsoleStreamImpl.class.getName());
+
+  private final WipTabImpl tabImpl;
+
+  // All fields below are guarded by 'this'.
+  private ConsoleMessageRing ring = null;
+  private DeliveryThread deliveryThread = null;
+
+  WipConsoleStreamImpl(WipTabImpl tabImpl) {
+    this.tabImpl = tabImpl;
+  }
+
+  @Override
+  public void start(Listener listener, int bufferCapacity, long deliveryIntervalMs) {
+    synchronized (this) {
+      if (deliveryThread != null) {
+        throw new IllegalStateException("Console stream is already started");
+      }
+      ring = new ConsoleMessageRing(bufferCapacity);
+      deliveryThread = new DeliveryThread(listener, ring, deliveryIntervalMs);
+      deliveryThread.start();
+    }
+    tabImpl.getCommandProcessor().send(new EnableParams(), null, null);
+  }
+
+  @Override
+  public void stop() {
+    if (stopDelivery()) {
+      tabImpl.getCommandProcessor().send(new DisableParams(), null, null);
+    }
+  }
+
+  /**
+   * Called when the tab connection is closed.
+   */
+  void tabClosed() {
+    stopDelivery();
+  }
+
+  /**
+   * Called when the session has been resumed over a new connection.
+   */
+  void reconnected() {
+    synchronized (this) {
+      if (deliveryThread == null) {
+        return;
+      }
+    }
+    tabImpl.getCommandProcessor().send(new EnableParams(), null, null);
+  }
+
+  /**
+   * @return whether the stream was started
+   */
+  private boolean stopDelivery() {
+    synchronized (this) {
+      if (deliveryThread == null) {
+        return false;
+      }
+      deliveryThread.stopped = true;
+      deliveryThread = null;
+      // The thread drains the messages left in its ring.
+      ring = null;
+      this.notifyAll();
+      return true;
+    }
+  }
+
+  void messageAdded(ConsoleMessageValue message) {
+    Long line = message.line();
+    Long repeatCount = message.repeatCount();
+    synchronized (this) {
+      if (ring == null) {
+        return;
+      }
+      ring.add(convertLevel(message.level()), message.text(), message.url(),
+          line == null ? -1 : line.longValue(),
+          repeatCount == null ? 1 : repeatCount.longValue());
+    }
+  }
+
+  void messageRepeatCountUpdated(MessageRepeatCountUpdatedEventData eventData) {
+    synchronized (this) {
+      if (ring == null) {
+        return;
+      }
+      ring.updateRepeatCount(eventData.count());
+    }
+  }
+
+  void messagesCleared() {
+    synchronized (this) {
+      if (ring == null) {
+        return;
+      }
+      ring.clear();
+    }
+  }
+
+  private static Level convertLevel(ConsoleMessageValue.Level level) {
+    switch (level) {
+      case WARNING: return Level.WARNING;
+      case ERROR: return Level.ERROR;
+      case DEBUG: return Level.DEBUG;
+      default: return Level.LOG;
+    }
+  }
+
+  /**
+   * Wakes up at most once per interval and passes everything buffered to the listener.
+   */
+  private class DeliveryThread extends Thread {
+    private final Listener listener;
+    private final ConsoleMessageRing threadRing;
+    private final long intervalMs;
+    // Guarded by WipConsoleStreamImpl.this.
+    boolean stopped = false;
+
+    DeliveryThread(Listener listener, ConsoleMessageRing threadRing, long intervalMs) {
+      super("WIP console delivery");
+      setDaemon(true);
+      this.listener = listener;
+      this.threadRing = threadRing;
+      this.intervalMs = Math.max(intervalMs, 1);
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          boolean cleared;
+          long lostCount;
+          List<WipConsoleStream.Message> messages;
+          boolean isLast;
+          synchronized (WipConsoleStreamImpl.this) {
+            if (!stopped) {
+              WipConsoleStreamImpl.this.wait(intervalMs);
+            }
+            isLast = stopped;
+            cleared = threadRing.takeCleared();
+            lostCount = threadRing.takeLostCount();
+            messages = threadRing.drain();
+          }
+          if (cleared) {
+            listener.messagesCleared();
+          }
+          if (!messages.isEmpty() || lostCount > 0) {
+            listener.messagesAdded(messages, lostCount);
+          }
+          if (isLast) {
+            break;
+          }
+        }
+      } catch (InterruptedException e) {
+        // Exit.
+      } catch (RuntimeException e) {
+        LOGGER.log(java.util.logging.Level.SEVERE, "Console listener failed", e);
+      }
+      listener.streamClosed();
+    }
+  }
+}
@@ -75,6 +75,10 @@ class WipContextBuilder {
 
   private final WipTabImpl tabImpl;
   private final EvaluateHack evaluateHack;
+  /**
+   * Changed on Dispatch thread and, when the connection is lost, on the reconnect thread.
+   * Guarded by 'this'.
+   */
   private WipDebugContextImpl currentContext = null;
 
   WipContextBuilder(WipTabImpl tabImpl) {
@@ -85,25 +89,25 @@ class WipContextBuilder {
   // Called from Dispatch Thread.
   RelayOk updateStackTrace(List<CallFrameValue> callFrames,
       GenericCallback<Void> callback, final SyncCallback syncCallback) {
-    if (currentContext == null) {
+    WipDebugContextImpl context = getCurrentContext();
+    if (context == null) {
       if (callback != null) {
         callback.success(null);
       }
       return RelaySyncCallback.finish(syncCallback);
     } else {
-      return currentContext.setFrames(callFrames, callback, syncCallback);
+      return context.setFrames(callFrames, callback, syncCallback);
     }
   }
 
   void createContext(PausedEventData data) {
-    if (currentContext != null) {
+    final WipDebugContextImpl context = new WipDebugContextImpl(data);
+    WipDebugContextImpl oldContext = swapCurrentContext(context);
+    if (oldContext != null) {
       LOGGER.severe("Context is already created");
-      currentContext = null;
+      oldContext.releaseObjectGroup();
     }
 
-    final WipDebugContextImpl context = new WipDebugContextImpl(data);
-    currentContext = context;
-
     GenericCallback<Void> callback = new GenericCallback<Void>() {
       @Override
       public void success(Void value) {
@@ -124,15 +128,43 @@ class WipContextBuilder {
   }
 
   void onResumeReportedFromRemote(ResumedEventData event) {
-    if (currentContext == null) {
+    WipDebugContextImpl context = swapCurrentContext(null);
+    if (context == null) {
       throw new IllegalStateException();
     }
-    WipDebugContextImpl context = currentContext;
-    currentContext = null;
+    this.tabImpl.getDebugListener().getDebugEventListener().resumed();
+    context.reportClosed();
+    context.releaseObjectGroup();
+  }
+
+  /**
+   * Drops the current debug context (if any) after the connection has been lost: the VM
+   * is not going to stay suspended without a debugger.
+   */
+  void connectionLost() {
+    WipDebugContextImpl context = swapCurrentContext(null);
+    if (context == null) {
+      return;
+    }
+    // The group cannot be released over the lost connection.
+    tabImpl.getObjectGroupTracker().release(context.objectGroupId);
     this.tabImpl.getDebugListener().getDebugEventListener().resumed();
     context.reportClosed();
   }
 
+  private synchronized WipDebugContextImpl getCurrentContext() {
+    return currentContext;
+  }
+
+  /**
+   * @return the previous context
+   */
+  private synchronized WipDebugContextImpl swapCurrentContext(WipDebugContextImpl context) {
+    WipDebugContextImpl result = currentContext;
+    currentContext = context;
+    return result;
+  }
+
   class WipDebugContextImpl implements DebugContext {
     private volatile List<CallFrameImpl> frames = null;
     private final ExceptionData exceptionData;
@@ -195,6 +227,13 @@ class WipContextBuilder {
       return valueLoader;
     }
 
+    /**
+     * Releases remote objects of this context asynchronously.
+     */
+    void releaseObjectGroup() {
+      tabImpl.releaseObjectGroup(objectGroupId);
+    }
+
     void reportClosed() {
       CloseRequest request = this.closeRequest.get();
       if (request != null && request.callback != null) {
@@ -466,7 +505,7 @@ class WipContextBuilder {
       private RelayOk handleRestartFrameData(RestartFrameData data,
           final GenericCallback<Boolean> callback, RelaySyncCallback relay) {
         // We are in Dispatch thread.
-        if (currentContext != WipDebugContextImpl.this) {
+        if (getCurrentContext() != WipDebugContextImpl.this) {
           return finishSuccessfulRestart(false, callback, relay);
         }
         if (data.result().getUnderlyingObject().get("stack_update_needs_step_in") ==
@@ -486,7 +525,7 @@ class WipContextBuilder {
               }
             }
           };
-          return currentContext.continueVm(StepAction.IN, 1,
+          return WipDebugContextImpl.this.continueVm(StepAction.IN, 1,
               continueCallback, guard.asSyncCallback());
         } else {
           resetFrames(data.callFrames());
@@ -539,10 +578,13 @@ class WipContextBuilder {
       return tabImpl;
     }
 
+    private final String objectGroupId =
+        tabImpl.getObjectGroupTracker().createSuspendGroup();
+
     private final WipValueLoader valueLoader = new WipValueLoader(tabImpl) {
       @Override
       String getObjectGroupId() {
-        return null;
+        return objectGroupId;
       }
     };
   }
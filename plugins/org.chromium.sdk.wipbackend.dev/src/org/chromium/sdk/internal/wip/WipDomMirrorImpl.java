@@ -0,0 +1,321 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.chromium.sdk.RelayOk;
+import org.chromium.sdk.SyncCallback;
+import org.chromium.sdk.internal.wip.protocol.input.WipCommandResponse.Success;
+import org.chromium.sdk.internal.wip.protocol.input.dom.AttributeModifiedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.AttributeRemovedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.CharacterDataModifiedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.ChildNodeCountUpdatedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.ChildNodeInsertedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.ChildNodeRemovedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.GetDocumentData;
+import org.chromium.sdk.internal.wip.protocol.input.dom.NodeValue;
+import org.chromium.sdk.internal.wip.protocol.input.dom.SetChildNodesEventData;
+import org.chromium.sdk.internal.wip.protocol.output.dom.GetDocumentParams;
+import org.chromium.sdk.internal.wip.protocol.output.dom.RequestChildNodesParams;
+import org.chromium.sdk.util.GenericCallback;
+import org.chromium.sdk.wip.WipDomMirror;
+
+/**
+ * Implements {@link WipDomMirror} on top of {@link DomNodeTable}. DOM events are applied
+ * to the table on the dispatch thread; children requested with "DOM.requestChildNodes"
+ * arrive as "setChildNodes" event before the command response.
+ */
+class WipDomMirrorImpl implements WipDomMirror {
+  private final WipTabImpl tabImpl;
+
+  // Guarded by 'this'.
+  private final DomNodeTable table = new DomNodeTable();
+
+  private volatile Listener listener = null;
+
+  WipDomMirrorImpl(WipTabImpl tabImpl) {
+    this.tabImpl = tabImpl;
+  }
+
+  @Override
+  public RelayOk loadDocument(final GenericCallback<Node> callback,
+      SyncCallback syncCallback) {
+    GenericCallback<GetDocumentData> commandCallback = new GenericCallback<GetDocumentData>() {
+      @Override
+      public void success(GetDocumentData value) {
+        Node document;
+        synchronized (WipDomMirrorImpl.this) {
+          table.clear();
+          NodeValue root = value.root();
+          putSubtree(root);
+          table.setRoot(toId(root.nodeId()));
+          document = createSnapshot(table.getRoot());
+        }
+        notifyDocumentReset();
+        if (callback != null) {
+          callback.success(document);
+        }
+      }
+
+      @Override
+      public void failure(Exception exception) {
+        if (callback != null) {
+          callback.failure(exception);
+        }
+      }
+    };
+    return tabImpl.getCommandProcessor().send(new GetDocumentParams(), commandCallback,
+        syncCallback);
+  }
+
+  @Override
+  public RelayOk requestChildren(final int nodeId, int depth,
+      final GenericCallback<Node> callback, SyncCallback syncCallback) {
+    WipCommandCallback commandCallback;
+    if (callback == null) {
+      commandCallback = null;
+    } else {
+      commandCallback = new WipCommandCallback.Default() {
+        @Override protected void onSuccess(Success success) {
+          callback.success(getNode(nodeId));
+        }
+        @Override protected void onError(String message) {
+          callback.failure(new Exception(message));
+        }
+      };
+    }
+    RequestChildNodesParams params =
+        new RequestChildNodesParams(nodeId, depth == 1 ? null : Long.valueOf(depth));
+    return tabImpl.getCommandProcessor().send(params, commandCallback, syncCallback);
+  }
+
+  @Override
+  public synchronized Node getDocument() {
+    int rootId = table.getRoot();
+    if (rootId == DomNodeTable.NO_NODE) {
+      return null;
+    }
+    return createSnapshot(rootId);
+  }
+
+  @Override
+  public synchronized Node getNode(int nodeId) {
+    if (!table.isPresent(nodeId)) {
+      return null;
+    }
+    return createSnapshot(nodeId);
+  }
+
+  @Override
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Called when the tab connection is closed.
+   */
+  synchronized void tabClosed() {
+    table.clear();
+  }
+
+  void setChildNodes(SetChildNodesEventData eventData) {
+    int parentId = toId(eventData.parentId());
+    synchronized (this) {
+      if (!table.isPresent(parentId)) {
+        return;
+      }
+      List<NodeValue> nodes = eventData.nodes();
+      int[] childIds = new int[nodes.size()];
+      for (int i = 0; i < childIds.length; i++) {
+        childIds[i] = putSubtree(nodes.get(i));
+      }
+      table.setChildren(parentId, childIds);
+    }
+    notifyChildrenChanged(parentId);
+  }
+
+  void childNodeInserted(ChildNodeInsertedEventData eventData) {
+    int parentId = toId(eventData.parentNodeId());
+    synchronized (this) {
+      if (!table.isPresent(parentId)) {
+        return;
+      }
+      int nodeId = putSubtree(eventData.node());
+      table.insertChild(parentId, toId(eventData.previousNodeId()), nodeId);
+    }
+    notifyChildrenChanged(parentId);
+  }
+
+  void childNodeRemoved(ChildNodeRemovedEventData eventData) {
+    int parentId = toId(eventData.parentNodeId());
+    synchronized (this) {
+      if (!table.isPresent(parentId)) {
+        return;
+      }
+      table.removeChild(parentId, toId(eventData.nodeId()));
+    }
+    notifyChildrenChanged(parentId);
+  }
+
+  void childNodeCountUpdated(ChildNodeCountUpdatedEventData eventData) {
+    int nodeId = toId(eventData.nodeId());
+    synchronized (this) {
+      if (!table.isPresent(nodeId)) {
+        return;
+      }
+      table.setChildCount(nodeId, (int) eventData.childNodeCount());
+    }
+    notifyChildrenChanged(nodeId);
+  }
+
+  void attributeModified(AttributeModifiedEventData eventData) {
+    int nodeId = toId(eventData.nodeId());
+    synchronized (this) {
+      if (!table.isPresent(nodeId)) {
+        return;
+      }
+      table.setAttribute(nodeId, eventData.name(), eventData.value());
+    }
+    notifyNodeChanged(nodeId);
+  }
+
+  void attributeRemoved(AttributeRemovedEventData eventData) {
+    int nodeId = toId(eventData.nodeId());
+    synchronized (this) {
+      if (!table.isPresent(nodeId)) {
+        return;
+      }
+      table.removeAttribute(nodeId, eventData.name());
+    }
+    notifyNodeChanged(nodeId);
+  }
+
+  void characterDataModified(CharacterDataModifiedEventData eventData) {
+    int nodeId = toId(eventData.nodeId());
+    synchronized (this) {
+      if (!table.isPresent(nodeId)) {
+        return;
+      }
+      table.setValue(nodeId, eventData.characterData());
+    }
+    notifyNodeChanged(nodeId);
+  }
+
+  void documentUpdated() {
+    synchronized (this) {
+      table.clear();
+    }
+    notifyDocumentReset();
+  }
+
+  /**
+   * Puts the node and all its children that came with it into the table.
+   * @return id of the node
+   */
+  private int putSubtree(NodeValue nodeValue) {
+    int nodeId = toId(nodeValue.nodeId());
+    List<NodeValue> children = nodeValue.children();
+    Long childNodeCount = nodeValue.childNodeCount();
+    int childCount;
+    if (children != null) {
+      childCount = children.size();
+    } else if (childNodeCount != null) {
+      childCount = childNodeCount.intValue();
+    } else {
+      childCount = 0;
+    }
+    table.putNode(nodeId, (int) nodeValue.nodeType(), nodeValue.nodeName(),
+        nodeValue.nodeValue(), nodeValue.attributes(), childCount);
+    if (children != null) {
+      int[] childIds = new int[children.size()];
+      for (int i = 0; i < childIds.length; i++) {
+        childIds[i] = putSubtree(children.get(i));
+      }
+      table.setChildren(nodeId, childIds);
+    } else if (childCount == 0) {
+      table.setChildren(nodeId, new int[0]);
+    }
+    return nodeId;
+  }
+
+  private Node createSnapshot(final int nodeId) {
+    final int type = table.getType(nodeId);
+    final String name = table.getName(nodeId);
+    final String value = table.getValue(nodeId);
+    final int parentId = table.getParent(nodeId);
+    final int childCount = table.getChildCount(nodeId);
+    int[] childIdArray = table.getChildIds(nodeId);
+    final List<Integer> childIds;
+    if (childIdArray == null) {
+      childIds = null;
+    } else {
+      List<Integer> list = new ArrayList<Integer>(childIdArray.length);
+      for (int id : childIdArray) {
+        list.add(id);
+      }
+      childIds = Collections.unmodifiableList(list);
+    }
+    final Map<String, String> attributes =
+        Collections.unmodifiableMap(table.getAttributes(nodeId));
+
+    return new Node() {
+      @Override public int getId() {
+        return nodeId;
+      }
+      @Override public int getType() {
+        return type;
+      }
+      @Override public String getName() {
+        return name;
+      }
+      @Override public String getValue() {
+        return value;
+      }
+      @Override public int getParentId() {
+        return parentId;
+      }
+      @Override public int getChildCount() {
+        return childCount;
+      }
+      @Override public List<Integer> getChildIds() {
+        return childIds;
+      }
+      @Override public Map<String, String> getAttributes() {
+        return attributes;
+      }
+    };
+  }
+
+  private void notifyDocumentReset() {
+    Listener listenerCopy = listener;
+    if (listenerCopy != null) {
+      listenerCopy.documentReset();
+    }
+  }
+
+  private void notifyChildrenChanged(int parentId) {
+    Listener listenerCopy = listener;
+    if (listenerCopy != null) {
+      listenerCopy.childrenChanged(parentId);
+    }
+  }
+
+  private void notifyNodeChanged(int nodeId) {
+    Listener listenerCopy = listener;
+    if (listenerCopy != null) {
+      listenerCopy.nodeChanged(nodeId);
+    }
+  }
+
+  private static int toId(long protocolId) {
+    return (int) protocolId;
+  }
+}
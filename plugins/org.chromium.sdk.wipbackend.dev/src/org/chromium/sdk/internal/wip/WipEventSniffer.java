@@ -0,0 +1,190 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+/**
+ * Reads the "method" property of a raw incoming message without building a JSON tree.
+ * It lets the processor drop events nobody handles before they are parsed. Only top-level
+ * properties are looked at; nested values are skipped character-wise without allocations.
+ * <p>
+ * Any unexpected input makes the sniffer give up and return null, so the message
+ * goes through the regular parsing (and its error reporting).
+ */
+class WipEventSniffer {
+  /**
+   * @return the method name if the message is an event (has "method" and no "id" before it)
+   *     or null if the message is a response or the sniffer failed to read it
+   */
+  static String sniffEventMethod(String text) {
+    return new Scanner(text).readEventMethod();
+  }
+
+  private static class Scanner {
+    private final String text;
+    private final int length;
+    private int pos = 0;
+
+    Scanner(String text) {
+      this.text = text;
+      this.length = text.length();
+    }
+
+    String readEventMethod() {
+      skipWhitespace();
+      if (!consume('{')) {
+        return null;
+      }
+      while (true) {
+        skipWhitespace();
+        if (!isAt('"')) {
+          return null;
+        }
+        int keyStart = pos + 1;
+        if (!skipString()) {
+          return null;
+        }
+        int keyEnd = pos - 1;
+        skipWhitespace();
+        if (!consume(':')) {
+          return null;
+        }
+        skipWhitespace();
+        if (isKey(keyStart, keyEnd, "method")) {
+          return readSimpleString();
+        }
+        if (isKey(keyStart, keyEnd, "id")) {
+          return null;
+        }
+        if (!skipValue()) {
+          return null;
+        }
+        skipWhitespace();
+        if (!consume(',')) {
+          return null;
+        }
+      }
+    }
+
+    private boolean isKey(int start, int end, String key) {
+      return end - start == key.length() && text.regionMatches(start, key, 0, key.length());
+    }
+
+    /**
+     * Reads a string value that has no escapes (method names never have them).
+     */
+    private String readSimpleString() {
+      if (!isAt('"')) {
+        return null;
+      }
+      int start = pos + 1;
+      int end = start;
+      while (end < length) {
+        char ch = text.charAt(end);
+        if (ch == '"') {
+          pos = end + 1;
+          return text.substring(start, end);
+        }
+        if (ch == '\\') {
+          return null;
+        }
+        end++;
+      }
+      return null;
+    }
+
+    private boolean skipValue() {
+      if (pos >= length) {
+        return false;
+      }
+      char ch = text.charAt(pos);
+      if (ch == '"') {
+        return skipString();
+      }
+      if (ch == '{' || ch == '[') {
+        return skipStructure();
+      }
+      // A number, true, false or null.
+      while (pos < length) {
+        ch = text.charAt(pos);
+        if (ch == ',' || ch == '}' || ch == ']' || isWhitespace(ch)) {
+          break;
+        }
+        pos++;
+      }
+      return true;
+    }
+
+    /**
+     * Skips an object or an array by counting brackets outside strings.
+     */
+    private boolean skipStructure() {
+      int depth = 0;
+      while (pos < length) {
+        char ch = text.charAt(pos);
+        if (ch == '"') {
+          if (!skipString()) {
+            return false;
+          }
+          continue;
+        }
+        if (ch == '{' || ch == '[') {
+          depth++;
+        } else if (ch == '}' || ch == ']') {
+          depth--;
+          if (depth == 0) {
+            pos++;
+            return true;
+          }
+        }
+        pos++;
+      }
+      return false;
+    }
+
+    /**
+     * Skips a string literal starting at the current position (on the opening quote).
+     */
+    private boolean skipString() {
+      int i = pos + 1;
+      while (i < length) {
+        char ch = text.charAt(i);
+        if (ch == '\\') {
+          i += 2;
+          continue;
+        }
+        if (ch == '"') {
+          pos = i + 1;
+          return true;
+        }
+        i++;
+      }
+      return false;
+    }
+
+    private void skipWhitespace() {
+      while (pos < length && isWhitespace(text.charAt(pos))) {
+        pos++;
+      }
+    }
+
+    private boolean isAt(char ch) {
+      return pos < length && text.charAt(pos) == ch;
+    }
+
+    private boolean consume(char ch) {
+      if (!isAt(ch)) {
+        return false;
+      }
+      pos++;
+      return true;
+    }
+
+    private static boolean isWhitespace(char ch) {
+      return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r';
+    }
+  }
+}
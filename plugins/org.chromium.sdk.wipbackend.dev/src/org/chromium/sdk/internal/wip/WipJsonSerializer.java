@@ -0,0 +1,143 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import java.util.List;
+import java.util.Map;
+
+import org.chromium.sdk.internal.websocket.FrameBuffer;
+import org.chromium.sdk.internal.websocket.WsConnection;
+import org.json.simple.JSONAware;
+
+/**
+ * Serializes an outgoing WIP request (a tree of {@link Map}s and {@link List}s as generated
+ * params classes build it) right into a WebSocket frame buffer as UTF-8 bytes. Unlike
+ * {@link JSONAware#toJSONString()} it creates no intermediate strings. The output is the same
+ * as json-simple produces.
+ */
+class WipJsonSerializer implements WsConnection.TextualMessageWriter {
+  private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes();
+
+  private final Map<?, ?> message;
+
+  WipJsonSerializer(Map<?, ?> message) {
+    this.message = message;
+  }
+
+  @Override
+  public void write(FrameBuffer buffer) {
+    writeValue(message, buffer);
+  }
+
+  private static void writeValue(Object value, FrameBuffer buffer) {
+    if (value == null) {
+      buffer.putAscii("null");
+    } else if (value instanceof String) {
+      writeString((String) value, buffer);
+    } else if (value instanceof Double) {
+      Double d = (Double) value;
+      if (d.isInfinite() || d.isNaN()) {
+        buffer.putAscii("null");
+      } else {
+        buffer.putAscii(d.toString());
+      }
+    } else if (value instanceof Float) {
+      Float f = (Float) value;
+      if (f.isInfinite() || f.isNaN()) {
+        buffer.putAscii("null");
+      } else {
+        buffer.putAscii(f.toString());
+      }
+    } else if (value instanceof Number || value instanceof Boolean) {
+      buffer.putAscii(value.toString());
+    } else if (value instanceof JSONAware && !(value instanceof Map) &&
+        !(value instanceof List)) {
+      buffer.putUtf8(((JSONAware) value).toJSONString());
+    } else if (value instanceof Map) {
+      writeMap((Map<?, ?>) value, buffer);
+    } else if (value instanceof List) {
+      writeList((List<?>) value, buffer);
+    } else {
+      buffer.putUtf8(value.toString());
+    }
+  }
+
+  private static void writeMap(Map<?, ?> map, FrameBuffer buffer) {
+    buffer.putByte((byte) '{');
+    boolean first = true;
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      if (first) {
+        first = false;
+      } else {
+        buffer.putByte((byte) ',');
+      }
+      writeString(String.valueOf(entry.getKey()), buffer);
+      buffer.putByte((byte) ':');
+      writeValue(entry.getValue(), buffer);
+    }
+    buffer.putByte((byte) '}');
+  }
+
+  private static void writeList(List<?> list, FrameBuffer buffer) {
+    buffer.putByte((byte) '[');
+    boolean first = true;
+    for (Object element : list) {
+      if (first) {
+        first = false;
+      } else {
+        buffer.putByte((byte) ',');
+      }
+      writeValue(element, buffer);
+    }
+    buffer.putByte((byte) ']');
+  }
+
+  /**
+   * Writes a quoted string escaping the same characters as json-simple does.
+   */
+  private static void writeString(String string, FrameBuffer buffer) {
+    buffer.putByte((byte) '"');
+    int length = string.length();
+    int chunkStart = 0;
+    for (int i = 0; i < length; i++) {
+      char ch = string.charAt(i);
+      byte escape;
+      switch (ch) {
+        case '"': escape = '"'; break;
+        case '\\': escape = '\\'; break;
+        case '/': escape = '/'; break;
+        case '\b': escape = 'b'; break;
+        case '\f': escape = 'f'; break;
+        case '\n': escape = 'n'; break;
+        case '\r': escape = 'r'; break;
+        case '\t': escape = 't'; break;
+        default:
+          if (ch < 0x20 || (ch >= 0x7F && ch <= 0x9F) || (ch >= 0x2000 && ch <= 0x20FF)) {
+            escape = 'u';
+          } else {
+            continue;
+          }
+      }
+      if (chunkStart < i) {
+        buffer.putUtf8(string, chunkStart, i);
+      }
+      chunkStart = i + 1;
+      buffer.putByte((byte) '\\');
+      buffer.putByte(escape);
+      if (escape == 'u') {
+        buffer.putByte(HEX_DIGITS[(ch >> 12) & 0xF]);
+        buffer.putByte(HEX_DIGITS[(ch >> 8) & 0xF]);
+        buffer.putByte(HEX_DIGITS[(ch >> 4) & 0xF]);
+        buffer.putByte(HEX_DIGITS[ch & 0xF]);
+      }
+    }
+    if (chunkStart < length) {
+      buffer.putUtf8(string, chunkStart, length);
+    }
+    buffer.putByte((byte) '"');
+  }
+}
@@ -0,0 +1,260 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+import org.chromium.sdk.internal.wip.protocol.input.network.DataReceivedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.network.GetResponseBodyData;
+import org.chromium.sdk.internal.wip.protocol.input.network.LoadingFailedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.network.LoadingFinishedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.network.RequestWillBeSentEventData;
+import org.chromium.sdk.internal.wip.protocol.input.network.ResponseReceivedEventData;
+import org.chromium.sdk.internal.wip.protocol.input.network.ResponseValue;
+import org.chromium.sdk.internal.wip.protocol.output.network.DisableParams;
+import org.chromium.sdk.internal.wip.protocol.output.network.EnableParams;
+import org.chromium.sdk.internal.wip.protocol.output.network.GetResponseBodyParams;
+import org.chromium.sdk.util.GenericCallback;
+import org.chromium.sdk.wip.WipNetworkCapture;
+import org.json.simple.JSONObject;
+
+/**
+ * Implements {@link WipNetworkCapture}. Network events are correlated in
+ * {@link NetworkRequestIndex} on the dispatch thread and completed entries are handed
+ * to {@link NetworkCaptureLog}. Response bodies are requested only after a request has
+ * finished, and only a few at a time; the rest wait in a bounded queue.
+ */
+class WipNetworkCaptureImpl implements WipNetworkCapture {
+  private static final int MAX_PENDING_REQUESTS = 1000;
+  private static final long MAX_QUEUED_CHARS = 4L * 1024 * 1024;
+  /** Bodies above this length are not logged, so that one body cannot fill the queue. */
+  private static final int MAX_BODY_CHARS = (int) (MAX_QUEUED_CHARS / 4);
+  private static final int MAX_BODY_REQUESTS_IN_FLIGHT = 4;
+  private static final int MAX_QUEUED_BODY_REQUESTS = 200;
+
+  private final WipTabImpl tabImpl;
+
+  // All fields below are guarded by 'this'.
+  private NetworkRequestIndex index = null;
+  private NetworkCaptureLog log = null;
+  private boolean captureBodies = false;
+  private int bodyRequestsInFlight = 0;
+  /** Ids of finished requests whose bodies wait for a free slot. */
+  private final Queue<String> queuedBodyRequests = new ArrayDeque<String>();
+  /** The last closed log; its writer thread may still be draining. */
+  private NetworkCaptureLog lastLog = null;
+
+  WipNetworkCaptureImpl(WipTabImpl tabImpl) {
+    this.tabImpl = tabImpl;
+  }
+
+  @Override
+  public void start(File logFile, boolean captureBodies) throws IOException {
+    synchronized (this) {
+      if (log != null) {
+        throw new IllegalStateException("Network capture is already active");
+      }
+      log = new NetworkCaptureLog(logFile, MAX_QUEUED_CHARS);
+      index = new NetworkRequestIndex(MAX_PENDING_REQUESTS);
+      this.captureBodies = captureBodies;
+      bodyRequestsInFlight = 0;
+      queuedBodyRequests.clear();
+    }
+    tabImpl.getCommandProcessor().send(new EnableParams(), null, null);
+  }
+
+  @Override
+  public void stop() {
+    if (finish()) {
+      tabImpl.getCommandProcessor().send(new DisableParams(), null, null);
+    }
+  }
+
+  /**
+   * Called when the tab connection is closed.
+   */
+  void tabClosed() {
+    finish();
+  }
+
+  /**
+   * Called when the session has been resumed over a new connection. Requests that were
+   * in flight are never going to complete, so they are written as incomplete.
+   */
+  void reconnected() {
+    synchronized (this) {
+      if (log == null) {
+        return;
+      }
+      writeRecords(index.removeAll());
+    }
+    tabImpl.getCommandProcessor().send(new EnableParams(), null, null);
+  }
+
+  @Override
+  public synchronized boolean isActive() {
+    return log != null;
+  }
+
+  @Override
+  public synchronized long getWrittenCount() {
+    NetworkCaptureLog currentLog = log == null ? lastLog : log;
+    return currentLog == null ? 0 : currentLog.getWrittenCount();
+  }
+
+  @Override
+  public synchronized long getDroppedCount() {
+    NetworkCaptureLog currentLog = log == null ? lastLog : log;
+    return currentLog == null ? 0 : currentLog.getDroppedCount();
+  }
+
+  /**
+   * @return whether the capture was active
+   */
+  private synchronized boolean finish() {
+    if (log == null) {
+      return false;
+    }
+    writeRecords(index.removeAll());
+    while (!queuedBodyRequests.isEmpty()) {
+      log.append(createBodyJson(queuedBodyRequests.remove(), null, false, "capture stopped"));
+    }
+    log.close();
+    lastLog = log;
+    log = null;
+    index = null;
+    return true;
+  }
+
+  synchronized void requestWillBeSent(RequestWillBeSentEventData eventData) {
+    if (index == null) {
+      return;
+    }
+    ResponseValue redirectResponse = eventData.redirectResponse();
+    long redirectStatus = redirectResponse == null ? -1 : redirectResponse.status().longValue();
+    writeRecords(index.requestWillBeSent(eventData.requestId(), eventData.request().url(),
+        eventData.request().method(), eventData.timestamp().doubleValue(), redirectStatus));
+  }
+
+  synchronized void responseReceived(ResponseReceivedEventData eventData) {
+    if (index == null) {
+      return;
+    }
+    ResponseValue response = eventData.response();
+    index.responseReceived(eventData.requestId(), response.status().longValue(),
+        response.statusText(), response.mimeType(), eventData.timestamp().doubleValue());
+  }
+
+  synchronized void dataReceived(DataReceivedEventData eventData) {
+    if (index == null) {
+      return;
+    }
+    index.dataReceived(eventData.requestId(), eventData.dataLength(),
+        eventData.encodedDataLength());
+  }
+
+  synchronized void loadingFinished(LoadingFinishedEventData eventData) {
+    if (index == null) {
+      return;
+    }
+    NetworkRequestIndex.Record record =
+        index.loadingFinished(eventData.requestId(), eventData.timestamp().doubleValue());
+    if (record == null) {
+      return;
+    }
+    log.append(record.toJson());
+    if (captureBodies) {
+      requestBody(record.requestId);
+    }
+  }
+
+  synchronized void loadingFailed(LoadingFailedEventData eventData) {
+    if (index == null) {
+      return;
+    }
+    Boolean canceled = eventData.canceled();
+    NetworkRequestIndex.Record record = index.loadingFailed(eventData.requestId(),
+        eventData.timestamp().doubleValue(), eventData.errorText(),
+        canceled != null && canceled.booleanValue());
+    if (record != null) {
+      log.append(record.toJson());
+    }
+  }
+
+  private void writeRecords(List<NetworkRequestIndex.Record> records) {
+    for (NetworkRequestIndex.Record record : records) {
+      log.append(record.toJson());
+    }
+  }
+
+  /**
+   * Requests a response body or queues the request if too many are being fetched already.
+   * The body is recorded as skipped only if the queue is full too.
+   */
+  private void requestBody(String requestId) {
+    if (bodyRequestsInFlight < MAX_BODY_REQUESTS_IN_FLIGHT) {
+      sendBodyRequest(requestId);
+    } else if (queuedBodyRequests.size() < MAX_QUEUED_BODY_REQUESTS) {
+      queuedBodyRequests.add(requestId);
+    } else {
+      log.append(createBodyJson(requestId, null, false, "skipped"));
+    }
+  }
+
+  private void sendBodyRequest(final String requestId) {
+    bodyRequestsInFlight++;
+    final NetworkCaptureLog requestLog = log;
+    GenericCallback<GetResponseBodyData> callback = new GenericCallback<GetResponseBodyData>() {
+      @Override
+      public void success(GetResponseBodyData value) {
+        bodyReceived(requestLog, createBodyJson(requestId, value.body(),
+            value.base64Encoded(), null));
+      }
+
+      @Override
+      public void failure(Exception exception) {
+        bodyReceived(requestLog, createBodyJson(requestId, null, false,
+            exception.getMessage()));
+      }
+    };
+    tabImpl.getCommandProcessor().send(new GetResponseBodyParams(requestId), callback, null);
+  }
+
+  private synchronized void bodyReceived(NetworkCaptureLog requestLog, String json) {
+    if (requestLog == log) {
+      bodyRequestsInFlight--;
+      String nextRequestId = queuedBodyRequests.poll();
+      if (nextRequestId != null) {
+        sendBodyRequest(nextRequestId);
+      }
+    }
+    // The log may have been closed already; then the line is just not written.
+    requestLog.append(json);
+  }
+
+  @SuppressWarnings("unchecked")
+  static String createBodyJson(String requestId, String body, boolean base64Encoded,
+      String error) {
+    JSONObject json = new JSONObject();
+    json.put("requestId", requestId);
+    if (body != null && body.length() > MAX_BODY_CHARS) {
+      json.put("bodyLength", body.length());
+      error = "too large";
+    } else if (body != null) {
+      json.put("body", body);
+      json.put("base64Encoded", base64Encoded);
+    }
+    if (error != null) {
+      json.put("bodyError", error);
+    }
+    return json.toJSONString();
+  }
+}
@@ -0,0 +1,103 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.wip;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.chromium.sdk.internal.wip.protocol.input.debugger.ScriptParsedEventData;
+
+/**
+ * Decides from a 'scriptParsed' event alone whether a script is admitted right away (with
+ * its source loaded and the listener notified) or deferred until a stack frame references
+ * it. The decision is made before anything is allocated or requested for the script.
+ * <p>
+ * The default policy admits every script. It is configured with system properties:
+ * <ul>
+ * <li>"org.chromium.sdk.wip.scripts.deferAnonymous" &mdash; defer scripts with empty URL
+ *     (eval and injected scripts);
+ * <li>"org.chromium.sdk.wip.scripts.deferContentScripts" &mdash; defer extension content
+ *     scripts;
+ * <li>"org.chromium.sdk.wip.scripts.deferUrlPattern" &mdash; defer scripts whose URL matches
+ *     the regular expression;
+ * <li>"org.chromium.sdk.wip.scripts.deferLongerThanLines" &mdash; defer scripts that span more
+ *     lines than this (the only size hint the event provides).
+ * </ul>
+ */
+class WipScriptAdmissionPolicy {
+  private static final Logger LOGGER = Logger.getLogger(WipScriptAdmissionPolicy.class.getName());
+
+  private static final String URL_PATTERN_PROPERTY = "org.chromium.sdk.wip.scripts.deferUrlPattern";
+
+  static final WipScriptAdmissionPolicy DEFAULT = new WipScriptAdmissionPolicy(
+      Boolean.getBoolean("org.chromium.sdk.wip.scripts.deferAnonymous"),
+      Boolean.getBoolean("org.chromium.sdk.wip.scripts.deferContentScripts"),
+      readUrlPattern(),
+      Long.getLong("org.chromium.sdk.wip.scripts.deferLongerThanLines", -1));
+
+  private final boolean deferAnonymous;
+  private final boolean deferContentScripts;
+  private final Pattern deferUrlPattern;
+  private final long maxLineCount;
+
+  /**
+   * @param deferUrlPattern pattern or null
+   * @param maxLineCount maximal line count of an admitted script or -1
+   */
+  WipScriptAdmissionPolicy(boolean deferAnonymous, boolean deferContentScripts,
+      Pattern deferUrlPattern, long maxLineCount) {
+    this.deferAnonymous = deferAnonymous;
+    this.deferContentScripts = deferContentScripts;
+    this.deferUrlPattern = deferUrlPattern;
+    this.maxLineCount = maxLineCount;
+  }
+
+  boolean isAdmittingAll() {
+    return !deferAnonymous && !deferContentScripts && deferUrlPattern == null &&
+        maxLineCount < 0;
+  }
+
+  boolean admits(ScriptParsedEventData data) {
+    if (isAdmittingAll()) {
+      return true;
+    }
+    return admits(data.url(), data.isContentScript() == Boolean.TRUE,
+        data.endLine() - data.startLine() + 1);
+  }
+
+  boolean admits(String url, boolean isContentScript, long lineCount) {
+    if (url == null || url.isEmpty()) {
+      if (deferAnonymous) {
+        return false;
+      }
+    } else if (deferUrlPattern != null && deferUrlPattern.matcher(url).matches()) {
+      return false;
+    }
+    if (deferContentScripts && isContentScript) {
+      return false;
+    }
+    if (maxLineCount >= 0 && lineCount > maxLineCount) {
+      return false;
+    }
+    return true;
+  }
+
+  private static Pattern readUrlPattern() {
+    String value = System.getProperty(URL_PATTERN_PROPERTY);
+    if (value == null || value.isEmpty()) {
+      return null;
+    }
+    try {
+      return Pattern.compile(value);
+    } catch (PatternSyntaxException e) {
+      LOGGER.log(Level.WARNING, "Incorrect value of " + URL_PATTERN_PROPERTY, e);
+      return null;
+    }
+  }
+}
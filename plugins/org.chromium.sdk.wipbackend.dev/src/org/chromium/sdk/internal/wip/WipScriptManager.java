@@ -12,6 +12,7 @@ import static org.chromium.sdk.util.BasicUtil.getSafe;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +25,7 @@ import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.Script;
 import org.chromium.sdk.SyncCallback;
 import org.chromium.sdk.internal.ScriptBase;
+import org.chromium.sdk.internal.ScriptSourceStore;
 import org.chromium.sdk.internal.wip.protocol.input.debugger.GetScriptSourceData;
 import org.chromium.sdk.internal.wip.protocol.input.debugger.ScriptParsedEventData;
 import org.chromium.sdk.internal.wip.protocol.output.debugger.GetScriptSourceParams;
@@ -38,10 +40,40 @@ import org.chromium.sdk.util.RelaySyncCallback;
  * Keeps all current scripts for the debug session and handles script source loading.
  */
 class WipScriptManager {
+  /**
+   * Whether a script reported after page reload may take the source of a script from the
+   * previous page load that had the same URL and text range. The protocol provides no content
+   * hash, so a modified script of the same shape would be shown with a stale source; that is
+   * why it is off by default.
+   */
+  private static final boolean REUSE_SOURCES_ON_RELOAD =
+      Boolean.getBoolean("org.chromium.sdk.wip.reuseScriptSourcesOnReload");
+
   private final WipTabImpl tabImpl;
+  private volatile WipScriptAdmissionPolicy admissionPolicy = WipScriptAdmissionPolicy.DEFAULT;
   // Access must be synchronized.
   private final Map<String, ScriptData> scriptIdToData = new HashMap<String, ScriptData>();
 
+  /**
+   * Scripts not admitted by {@link #admissionPolicy}. They are admitted once a stack frame
+   * references them. Access must be synchronized on {@link #scriptIdToData}.
+   */
+  private final Map<String, ScriptParsedEventData> deferredScripts =
+      new HashMap<String, ScriptParsedEventData>();
+
+  /**
+   * Source hashes of the scripts from the previous page load.
+   * Access must be synchronized on {@link #scriptIdToData}.
+   */
+  private Map<ScriptFingerprint, String> previousPageSourceHashes = Collections.emptyMap();
+
+  /**
+   * Scripts retained from the lost connection that have not been reported again yet,
+   * or null if the session is not being resumed.
+   * Access must be synchronized on {@link #scriptIdToData}.
+   */
+  private Map<String, ScriptData> unconfirmedScripts = null;
+
   /**
    * A future for script pre-load operation. User may call {@link #getScripts} at any time,
    * but we return result only once we have loaded all pre-existing scripts.
@@ -112,6 +144,25 @@ class WipScriptManager {
   }
 
 
+  int getScriptCount() {
+    synchronized (scriptIdToData) {
+      return scriptIdToData.size();
+    }
+  }
+
+  /**
+   * Replaces the admission policy. Only scripts reported after the call are affected.
+   */
+  void setAdmissionPolicy(WipScriptAdmissionPolicy admissionPolicy) {
+    this.admissionPolicy = admissionPolicy;
+  }
+
+  int getDeferredScriptCount() {
+    synchronized (scriptIdToData) {
+      return deferredScripts.size();
+    }
+  }
+
   private Collection<Script> getCurrentScripts() {
     synchronized (scriptIdToData) {
       List<Script> list = new ArrayList<Script>(scriptIdToData.size());
@@ -125,6 +176,19 @@ class WipScriptManager {
   }
 
   public void scriptIsReportedParsed(ScriptParsedEventData data) {
+    if (!admissionPolicy.admits(data)) {
+      synchronized (scriptIdToData) {
+        // A script retained from the lost connection is already admitted.
+        if (unconfirmedScripts == null || !containsKeySafe(unconfirmedScripts, data.scriptId())) {
+          deferredScripts.put(data.scriptId(), data);
+          return;
+        }
+      }
+    }
+    admitScript(data);
+  }
+
+  private void admitScript(ScriptParsedEventData data) {
     final String sourceID = data.scriptId();
 
     String url = data.url();
@@ -135,16 +199,45 @@ class WipScriptManager {
     ScriptBase.Descriptor<String> descriptor = new ScriptBase.Descriptor<String>(Script.Type.NORMAL,
         sourceID, url, (int) data.startLine(), (int) data.startColumn(), -1);
     final WipScriptImpl script = new WipScriptImpl(this, descriptor);
-    final ScriptData scriptData = new ScriptData(script);
+    ScriptFingerprint fingerprint;
+    if (url == null) {
+      fingerprint = null;
+    } else {
+      fingerprint = new ScriptFingerprint(url, data.startLine(), data.startColumn(),
+          data.endLine(), data.endColumn());
+    }
+    final ScriptData scriptData = new ScriptData(script, fingerprint);
 
+    ScriptData replacedScript = null;
     synchronized (scriptIdToData) {
+      if (unconfirmedScripts != null) {
+        ScriptData retained = unconfirmedScripts.remove(sourceID);
+        if (retained != null) {
+          if (isSameScript(retained, fingerprint, data)) {
+            // Keep the retained script together with its source; nothing to report.
+            return;
+          }
+          scriptIdToData.remove(sourceID);
+          replacedScript = retained;
+        }
+      }
       if (containsKeySafe(scriptIdToData, sourceID)) {
         throw new IllegalStateException("Already has script with id " + sourceID);
       }
       scriptIdToData.put(sourceID, scriptData);
     }
+    if (replacedScript != null) {
+      tabImpl.getTabListener().getDebugEventListener().scriptCollected(
+          replacedScript.scriptImpl);
+    }
 
-    scriptData.sourceLoadedFuture.initializeRunning(new SourceLoadOperation(script, sourceID));
+    String previousSource = findPreviousPageSource(fingerprint);
+    if (previousSource == null) {
+      scriptData.sourceLoadedFuture.initializeRunning(new SourceLoadOperation(script, sourceID));
+    } else {
+      script.setSource(previousSource);
+      scriptData.sourceLoadedFuture.initializeTrivial(true);
+    }
 
     final ScriptPopulateMode populateModeSaved = populateMode;
 
@@ -211,12 +304,66 @@ class WipScriptManager {
     }
   }
 
+  private String findPreviousPageSource(ScriptFingerprint fingerprint) {
+    if (fingerprint == null) {
+      return null;
+    }
+    String hash;
+    synchronized (scriptIdToData) {
+      hash = getSafe(previousPageSourceHashes, fingerprint);
+    }
+    if (hash == null) {
+      return null;
+    }
+    return ScriptSourceStore.getInstance().get(hash);
+  }
+
   private class ScriptData {
     final WipScriptImpl scriptImpl;
+    final ScriptFingerprint fingerprint;
     final AsyncFutureRef<Boolean> sourceLoadedFuture = new AsyncFutureRef<Boolean>();
 
-    ScriptData(WipScriptImpl scriptImpl) {
+    ScriptData(WipScriptImpl scriptImpl, ScriptFingerprint fingerprint) {
       this.scriptImpl = scriptImpl;
+      this.fingerprint = fingerprint;
+    }
+  }
+
+  /**
+   * Script properties as reported in 'scriptParsed' event, that are expected to stay the same
+   * when a page is reloaded and the script is unchanged.
+   */
+  private static class ScriptFingerprint {
+    private final String url;
+    private final long startLine;
+    private final long startColumn;
+    private final long endLine;
+    private final long endColumn;
+
+    ScriptFingerprint(String url, long startLine, long startColumn, long endLine,
+        long endColumn) {
+      this.url = url;
+      this.startLine = startLine;
+      this.startColumn = startColumn;
+      this.endLine = endLine;
+      this.endColumn = endColumn;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof ScriptFingerprint == false) {
+        return false;
+      }
+      ScriptFingerprint other = (ScriptFingerprint) obj;
+      return url.equals(other.url) && startLine == other.startLine &&
+          startColumn == other.startColumn && endLine == other.endLine &&
+          endColumn == other.endColumn;
+    }
+
+    @Override
+    public int hashCode() {
+      return url.hashCode() + (int) (31 * startLine + 37 * startColumn + 41 * endLine +
+          43 * endColumn);
     }
   }
 
@@ -227,6 +374,26 @@ class WipScriptManager {
    */
   RelayOk loadScriptSourcesAsync(Set<String> ids, ScriptSourceLoadCallback callback,
       SyncCallback syncCallback) {
+    List<ScriptParsedEventData> referencedDeferredScripts = null;
+    synchronized (scriptIdToData) {
+      if (!deferredScripts.isEmpty()) {
+        for (String id : ids) {
+          ScriptParsedEventData data = deferredScripts.remove(id);
+          if (data != null) {
+            if (referencedDeferredScripts == null) {
+              referencedDeferredScripts = new ArrayList<ScriptParsedEventData>(1);
+            }
+            referencedDeferredScripts.add(data);
+          }
+        }
+      }
+    }
+    if (referencedDeferredScripts != null) {
+      for (ScriptParsedEventData data : referencedDeferredScripts) {
+        admitScript(data);
+      }
+    }
+
     Queue<ScriptData> scripts = new ArrayDeque<ScriptData>(ids.size());
     Map<String, WipScriptImpl> result = new HashMap<String, WipScriptImpl>(ids.size());
     synchronized (scriptIdToData) {
@@ -296,8 +463,64 @@ class WipScriptManager {
 
   public void pageReloaded() {
     synchronized (scriptIdToData) {
+      if (REUSE_SOURCES_ON_RELOAD) {
+        Map<ScriptFingerprint, String> hashes =
+            new HashMap<ScriptFingerprint, String>(scriptIdToData.size());
+        for (ScriptData data : scriptIdToData.values()) {
+          String hash = data.scriptImpl.getSourceHash();
+          if (data.fingerprint != null && hash != null) {
+            hashes.put(data.fingerprint, hash);
+          }
+        }
+        previousPageSourceHashes = hashes;
+      }
       scriptIdToData.clear();
+      deferredScripts.clear();
+      unconfirmedScripts = null;
+    }
+  }
+
+  /**
+   * Starts reconciliation of the retained scripts with the scripts that the backend reports
+   * over a new connection. A reported script that has the same id, URL and text range as
+   * a retained one is taken as the same script and keeps its loaded source.
+   */
+  void beginResume() {
+    synchronized (scriptIdToData) {
+      unconfirmedScripts = new HashMap<String, ScriptData>(scriptIdToData);
+      // Deferred scripts that are still alive get reported again.
+      deferredScripts.clear();
+    }
+  }
+
+  /**
+   * Finishes reconciliation: retained scripts that have not been reported again are gone.
+   */
+  void endResume() {
+    List<ScriptData> goneScripts;
+    synchronized (scriptIdToData) {
+      if (unconfirmedScripts == null) {
+        return;
+      }
+      goneScripts = new ArrayList<ScriptData>(unconfirmedScripts.values());
+      for (String id : unconfirmedScripts.keySet()) {
+        scriptIdToData.remove(id);
+      }
+      unconfirmedScripts = null;
+    }
+    for (ScriptData data : goneScripts) {
+      tabImpl.getTabListener().getDebugEventListener().scriptCollected(data.scriptImpl);
+    }
+  }
+
+  private static boolean isSameScript(ScriptData retained, ScriptFingerprint fingerprint,
+      ScriptParsedEventData data) {
+    if (fingerprint != null || retained.fingerprint != null) {
+      return fingerprint != null && fingerprint.equals(retained.fingerprint);
     }
+    // Scripts without URL: only the start position is known from the old event.
+    return retained.scriptImpl.getStartLine() == data.startLine() &&
+        retained.scriptImpl.getStartColumn() == data.startColumn();
   }
 
   void endPopulateScriptMode() {
@@ -14,25 +14,32 @@ import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.chromium.sdk.AsyncPropertiesExtension;
 import org.chromium.sdk.Breakpoint;
 import org.chromium.sdk.BreakpointTypeExtension;
 import org.chromium.sdk.BrowserTab;
 import org.chromium.sdk.CallbackSemaphore;
 import org.chromium.sdk.FunctionScopeExtension;
 import org.chromium.sdk.IgnoreCountBreakpointExtension;
+import org.chromium.sdk.LiveEditBatchExtension;
 import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.RestartFrameExtension;
 import org.chromium.sdk.Script;
 import org.chromium.sdk.SyncCallback;
 import org.chromium.sdk.TabDebugEventListener;
 import org.chromium.sdk.Version;
+import org.chromium.sdk.VmMetrics;
 import org.chromium.sdk.internal.JsonUtil;
+import org.chromium.sdk.internal.metrics.LatencyHistogram;
+import org.chromium.sdk.internal.metrics.MetricsMBean;
+import org.chromium.sdk.internal.metrics.MetricsRegistry;
 import org.chromium.sdk.internal.websocket.WsConnection;
 import org.chromium.sdk.internal.wip.protocol.input.WipCommandResponse.Success;
 import org.chromium.sdk.internal.wip.protocol.output.WipParams;
 import org.chromium.sdk.internal.wip.protocol.output.debugger.PauseParams;
 import org.chromium.sdk.internal.wip.protocol.output.debugger.SetBreakpointsActiveParams;
 import org.chromium.sdk.internal.wip.protocol.output.debugger.SetPauseOnExceptionsParams;
+import org.chromium.sdk.internal.wip.protocol.output.runtime.ReleaseObjectGroupParams;
 import org.chromium.sdk.util.GenericCallback;
 import org.chromium.sdk.util.MethodIsBlockingException;
 import org.chromium.sdk.util.RelaySyncCallback;
@@ -42,7 +49,10 @@ import org.chromium.sdk.wip.EvaluateToMappingExtension;
 import org.chromium.sdk.wip.PermanentRemoteValueMapping;
 import org.chromium.sdk.wip.WipBrowser;
 import org.chromium.sdk.wip.WipBrowserTab;
+import org.chromium.sdk.wip.WipConsoleStream;
+import org.chromium.sdk.wip.WipDomMirror;
 import org.chromium.sdk.wip.WipJavascriptVm;
+import org.chromium.sdk.wip.WipNetworkCapture;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.ParseException;
 
@@ -53,53 +63,144 @@ import org.json.simple.parser.ParseException;
 public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
   private static final Logger LOGGER = Logger.getLogger(WipTabImpl.class.getName());
 
-  private final WsConnection socket;
+  private static final int RECONNECT_ATTEMPTS =
+      Integer.getInteger("org.chromium.sdk.wip.reconnectAttempts", 5);
+  private static final long RECONNECT_INITIAL_DELAY_MS = 500;
+  private static final long RECONNECT_MAX_DELAY_MS = 8000;
+
+  /**
+   * Opens a new connection to the same tab. It is used to resume the session when
+   * the connection has been lost.
+   */
+  interface SocketFactory {
+    WsConnection connect() throws IOException;
+  }
+
+  private volatile WsConnection socket;
   private final WipBrowserImpl browserImpl;
   private final TabDebugEventListener tabListener;
-  private final WipCommandProcessor commandProcessor;
+  private volatile WipCommandProcessor commandProcessor;
+  /** Null unless the session should be resumed after the connection is lost. */
+  private final SocketFactory socketFactory;
   private final WipScriptManager scriptManager = new WipScriptManager(this);
   private final WipBreakpointManager breakpointManager = new WipBreakpointManager(this);
   private final WipContextBuilder contextBuilder = new WipContextBuilder(this);
   private final WipFrameManager frameManager = new WipFrameManager(this);
+  private final WipConsoleStreamImpl consoleStream = new WipConsoleStreamImpl(this);
+  private final WipNetworkCaptureImpl networkCapture = new WipNetworkCaptureImpl(this);
+  private final WipDomMirrorImpl domMirror = new WipDomMirrorImpl(this);
+  private final ObjectGroupTracker objectGroupTracker = new ObjectGroupTracker();
 
   private final VmState vmState = new VmState();
   private final SignalRelay<Void> closeSignalRelay;
+  private final MetricsRegistry metrics = new MetricsRegistry();
+  private final MetricsMBean.Registration metricsRegistration;
 
   private volatile String url;
 
   public WipTabImpl(WsConnection socket, WipBrowserImpl browserImpl,
       TabDebugEventListener tabListener, String preliminaryUrl) throws IOException {
-    this.socket = socket;
+    this(socket, null, browserImpl, tabListener, preliminaryUrl);
+  }
+
+  /**
+   * @param socketFactory a factory of new connections if the session should be resumed
+   *     after the connection is lost, or null
+   */
+  WipTabImpl(WsConnection socket, SocketFactory socketFactory, WipBrowserImpl browserImpl,
+      TabDebugEventListener tabListener, String preliminaryUrl) throws IOException {
+    this.socketFactory = socketFactory;
     this.browserImpl = browserImpl;
     this.tabListener = tabListener;
     this.url = preliminaryUrl;
 
+    metrics.registerGauge("scripts.count", new MetricsRegistry.Gauge() {
+      @Override public long getValue() {
+        return scriptManager.getScriptCount();
+      }
+    });
+    metrics.registerGauge("scripts.deferred", new MetricsRegistry.Gauge() {
+      @Override public long getValue() {
+        return scriptManager.getDeferredScriptCount();
+      }
+    });
+    metrics.registerGauge("remoteObjects.groups", new MetricsRegistry.Gauge() {
+      @Override public long getValue() {
+        return objectGroupTracker.getGroupCount();
+      }
+    });
+    metrics.registerGauge("remoteObjects.live", new MetricsRegistry.Gauge() {
+      @Override public long getValue() {
+        return objectGroupTracker.getObjectCount();
+      }
+    });
+    metricsRegistration = MetricsMBean.register(metrics, "WipTab " + preliminaryUrl);
+
     this.closeSignalRelay = SignalRelay.create(new SignalRelay.Callback<Void>() {
       @Override
       public void onSignal(Void signal, Exception cause) {
+        metricsRegistration.unregister();
+        if (WipTabImpl.this.socketFactory != null) {
+          // The relay is not bound to a particular connection in this mode.
+          WipTabImpl.this.socket.getCloser().sendSignal(null, cause);
+        }
+        consoleStream.tabClosed();
+        networkCapture.tabClosed();
+        domMirror.tabClosed();
+        objectGroupTracker.clear();
         WipTabImpl.this.tabListener.closed();
         WipTabImpl.this.tabListener.getDebugEventListener().disconnected();
       }
     });
 
     try {
-      closeSignalRelay.bind(socket.getCloser(), null, null);
+      if (socketFactory == null) {
+        closeSignalRelay.bind(socket.getCloser(), null, null);
+      }
+      attachSocket(socket);
     } catch (AlreadySignalledException e) {
+      metricsRegistration.unregister();
       throw new IOException("Connection is closed", e);
     }
 
-    commandProcessor = new WipCommandProcessor(this, socket);
+    init();
+  }
+
+  /**
+   * Makes the connection current: creates a command processor for it and starts listening.
+   */
+  private void attachSocket(final WsConnection newSocket) throws AlreadySignalledException {
+    if (socketFactory != null) {
+      SignalRelay<Void> socketRelay = SignalRelay.create(new SignalRelay.Callback<Void>() {
+        @Override
+        public void onSignal(Void signal, Exception cause) {
+          connectionLost(newSocket, cause);
+        }
+      });
+      socketRelay.bind(newSocket.getCloser(), null, null);
+    }
+
+    final WipCommandProcessor newCommandProcessor =
+        new WipCommandProcessor(this, newSocket, metrics);
+    metrics.registerTraffic(newSocket.getTrafficCounters());
+
+    final LatencyHistogram jsonParseHistogram = metrics.getHistogram("parse.json");
 
     WsConnection.Listener socketListener = new WsConnection.Listener() {
       @Override
       public void textMessageRecieved(String text) {
+        if (newCommandProcessor.dropUnhandledEvent(text)) {
+          return;
+        }
         JSONObject json;
+        long parseStart = System.nanoTime();
         try {
           json = JsonUtil.jsonObjectFromJson(text);
         } catch (ParseException e) {
           throw new RuntimeException(e);
         }
-        commandProcessor.acceptResponse(json);
+        jsonParseHistogram.recordNanos(System.nanoTime() - parseStart);
+        newCommandProcessor.acceptResponse(json);
       }
 
       @Override
@@ -109,13 +210,91 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
 
       @Override
       public void eofMessage() {
-        commandProcessor.processEos();
+        newCommandProcessor.processEos();
       }
     };
 
-    socket.startListening(socketListener);
+    socket = newSocket;
+    commandProcessor = newCommandProcessor;
+    newSocket.startListening(socketListener);
+  }
 
-    init();
+  private void connectionLost(WsConnection lostSocket, final Exception cause) {
+    if (closeSignalRelay.isSignalled() || lostSocket != socket) {
+      return;
+    }
+    LOGGER.log(Level.INFO, "Connection to tab is lost, trying to resume the session", cause);
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        reconnect(cause);
+      }
+    }, "WIP session reconnect");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void reconnect(Exception cause) {
+    contextBuilder.connectionLost();
+    Exception lastCause = cause;
+    long delayMs = RECONNECT_INITIAL_DELAY_MS;
+    for (int attempt = 0; attempt < RECONNECT_ATTEMPTS; attempt++) {
+      try {
+        Thread.sleep(delayMs);
+      } catch (InterruptedException e) {
+        break;
+      }
+      delayMs = Math.min(delayMs * 2, RECONNECT_MAX_DELAY_MS);
+      if (closeSignalRelay.isSignalled()) {
+        return;
+      }
+      try {
+        attachSocket(socketFactory.connect());
+      } catch (IOException e) {
+        lastCause = e;
+        continue;
+      } catch (AlreadySignalledException e) {
+        lastCause = e;
+        continue;
+      }
+      metrics.getCounter("session.resumed").increment();
+      resumeSession();
+      return;
+    }
+    closeSignalRelay.sendSignal(null, lastCause);
+  }
+
+  /**
+   * Restores the session state over a new connection. Nothing is waited for: all requests
+   * go out in one batch. Retained scripts are reconciled with the ones the backend reports
+   * in response to "Debugger.enable".
+   */
+  private void resumeSession() {
+    scriptManager.beginResume();
+    SyncCallback syncCallback = new SyncCallback() {
+      @Override
+      public void callbackDone(RuntimeException e) {
+        scriptManager.endResume();
+      }
+    };
+    commandProcessor.send(
+        new org.chromium.sdk.internal.wip.protocol.output.debugger.EnableParams(),
+        null, syncCallback);
+    commandProcessor.send(
+        new org.chromium.sdk.internal.wip.protocol.output.page.EnableParams(),
+        null, null);
+
+    synchronized (vmState) {
+      commandProcessor.send(VmState.BREAKPOINTS_ACTIVE.createRequestParams(vmState), null, null);
+      commandProcessor.send(VmState.BREAK_ON_EXCEPTION.createRequestParams(vmState), null, null);
+    }
+    breakpointManager.reapplyBreakpoints();
+
+    frameManager.readFrames();
+    consoleStream.reconnected();
+    networkCapture.reconnected();
+    // Node ids are only valid within a connection.
+    domMirror.documentUpdated();
   }
 
   private void init() {
@@ -174,6 +353,11 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
     return new PermanentRemoteValueMappingImpl(this, id);
   }
 
+  @Override
+  public Map<String, Integer> getLiveRemoteObjectCounts() {
+    return objectGroupTracker.getObjectCounts();
+  }
+
   @Override
   public RelayOk enableBreakpoints(Boolean enabled,
       GenericCallback<Boolean> callback, SyncCallback syncCallback) {
@@ -253,11 +437,30 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
   }
 
   @Override
-  public void getScripts(final ScriptsCallback callback)
-      throws MethodIsBlockingException {
+  public AsyncPropertiesExtension getAsyncPropertiesExtension() {
+    return WipValueBuilder.ASYNC_PROPERTIES_EXTENSION;
+  }
 
-    final CallbackSemaphore callbackSemaphore = new CallbackSemaphore();
+  @Override
+  public LiveEditBatchExtension getLiveEditBatchExtension() {
+    // Call frames come with each LiveEdit response, so scripts are updated one by one.
+    return null;
+  }
 
+  @Override
+  public VmMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void getScripts(ScriptsCallback callback) throws MethodIsBlockingException {
+    CallbackSemaphore callbackSemaphore = new CallbackSemaphore();
+    RelayOk relayOk = getScripts(callback, callbackSemaphore);
+    callbackSemaphore.acquireDefault(relayOk);
+  }
+
+  @Override
+  public RelayOk getScripts(final ScriptsCallback callback, SyncCallback syncCallback) {
     GenericCallback<Collection<Script>> innerCallback;
     if (callback == null) {
       innerCallback = null;
@@ -271,10 +474,7 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
         }
       };
     }
-
-    RelayOk relayOk = scriptManager.getScripts(innerCallback, callbackSemaphore);
-
-    callbackSemaphore.acquireDefault(relayOk);
+    return scriptManager.getScripts(innerCallback, syncCallback);
   }
 
   @Override
@@ -328,6 +528,21 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
     return url;
   }
 
+  @Override
+  public WipConsoleStream getConsoleStream() {
+    return consoleStream;
+  }
+
+  @Override
+  public WipNetworkCapture getNetworkCapture() {
+    return networkCapture;
+  }
+
+  @Override
+  public WipDomMirror getDomMirror() {
+    return domMirror;
+  }
+
   public TabDebugEventListener getDebugListener() {
     return this.tabListener;
   }
@@ -344,6 +559,31 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
     return commandProcessor;
   }
 
+  WipConsoleStreamImpl getConsoleStreamImpl() {
+    return consoleStream;
+  }
+
+  WipNetworkCaptureImpl getNetworkCaptureImpl() {
+    return networkCapture;
+  }
+
+  WipDomMirrorImpl getDomMirrorImpl() {
+    return domMirror;
+  }
+
+  ObjectGroupTracker getObjectGroupTracker() {
+    return objectGroupTracker;
+  }
+
+  /**
+   * Asynchronously releases the remote object group unless it has already been released.
+   */
+  void releaseObjectGroup(String groupId) {
+    if (objectGroupTracker.release(groupId)) {
+      commandProcessor.send(new ReleaseObjectGroupParams(groupId), null, null);
+    }
+  }
+
   WipFrameManager getFrameManager() {
     return frameManager;
   }
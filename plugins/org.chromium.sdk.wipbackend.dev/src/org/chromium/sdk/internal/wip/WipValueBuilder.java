@@ -15,10 +15,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
+import org.chromium.sdk.AsyncPropertiesExtension;
 import org.chromium.sdk.FunctionScopeExtension;
 import org.chromium.sdk.JsArray;
 import org.chromium.sdk.JsDeclarativeVariable;
@@ -44,10 +44,12 @@ import org.chromium.sdk.internal.wip.protocol.input.runtime.PropertyDescriptorVa
 import org.chromium.sdk.internal.wip.protocol.input.runtime.RemoteObjectValue;
 import org.chromium.sdk.internal.wip.protocol.output.debugger.SetVariableValueParams;
 import org.chromium.sdk.internal.wip.protocol.output.runtime.CallArgumentParam;
+import org.chromium.sdk.util.AsyncFuture;
 import org.chromium.sdk.util.AsyncFutureRef;
 import org.chromium.sdk.util.GenericCallback;
 import org.chromium.sdk.util.JavaScriptExpressionBuilder;
 import org.chromium.sdk.util.MethodIsBlockingException;
+import org.chromium.sdk.util.SparseArrayIndex;
 
 /**
  * A builder for implementations of {@link JsValue} and {@link JsVariable}.
@@ -302,12 +304,15 @@ class WipValueBuilder {
     @Override
     JsValue build(RemoteObjectValue valueData, WipValueLoader valueLoader) {
       // TODO: Implement caching here.
+      if (valueData.objectId() != null) {
+        valueLoader.remoteObjectCreated();
+      }
       return buildNewInstance(valueData, valueLoader);
     }
 
     abstract JsValue buildNewInstance(RemoteObjectValue valueData, WipValueLoader valueLoader);
 
-    abstract class JsObjectBase extends JsValueBase implements JsObject {
+    abstract class JsObjectBase extends JsValueBase implements JsObject, AsyncPropertiesAccess {
       private final RemoteObjectValue valueData;
       private final WipValueLoader valueLoader;
       private final AsyncFutureRef<Getter<ObjectProperties>> loadedPropertiesRef =
@@ -404,6 +409,49 @@ class WipValueBuilder {
         valueLoader.loadJsObjectPropertiesInFuture(valueData.objectId(),
             reload, currentCacheState, loadedPropertiesRef);
       }
+
+      @Override
+      public RelayOk loadPropertiesAsync(final GenericCallback<JsObject> callback,
+          SyncCallback syncCallback) {
+        int currentCacheState = getRemoteValueMapping().getCacheState();
+        boolean reload = false;
+        if (loadedPropertiesRef.isInitialized() && loadedPropertiesRef.isDone()) {
+          // Does not block, the value is ready.
+          Getter<ObjectProperties> loaded = loadedPropertiesRef.getSync();
+          reload = !isUpToDate(loaded, currentCacheState);
+        }
+        valueLoader.loadJsObjectPropertiesAsync(valueData.objectId(), reload, currentCacheState,
+            loadedPropertiesRef);
+
+        AsyncFuture.Callback<Getter<ObjectProperties>> futureCallback =
+            new AsyncFuture.Callback<Getter<ObjectProperties>>() {
+          @Override
+          public void done(Getter<ObjectProperties> res) {
+            if (callback == null) {
+              return;
+            }
+            try {
+              res.get();
+            } catch (RuntimeException e) {
+              callback.failure(e);
+              return;
+            }
+            callback.success(JsObjectBase.this);
+          }
+        };
+        return loadedPropertiesRef.getAsync(futureCallback, syncCallback);
+      }
+
+      private boolean isUpToDate(Getter<ObjectProperties> loaded, int currentCacheState) {
+        ObjectProperties properties;
+        try {
+          properties = loaded.get();
+        } catch (RuntimeException e) {
+          // Failed load is never up to date.
+          return false;
+        }
+        return properties.getCacheState() == currentCacheState;
+      }
     }
   }
 
@@ -461,13 +509,13 @@ class WipValueBuilder {
 
       @Override
       public JsVariable get(long index) throws MethodIsBlockingException {
-        return getSafe(getArrayProperties().getSparseArrayMap(), index);
+        return getArrayProperties().getSparseArrayMap().get(index);
       }
 
       @Override
       public SortedMap<Long, ? extends JsVariable> toSparseArray()
           throws MethodIsBlockingException {
-        return getArrayProperties().getPublicSparseArrayMap();
+        return getArrayProperties().getSparseArrayMap();
       }
 
       private ArrayProperties getArrayProperties() throws MethodIsBlockingException {
@@ -484,13 +532,15 @@ class WipValueBuilder {
 
       private ArrayProperties buildArrayProperties() throws MethodIsBlockingException {
         ObjectProperties loadedProperties = getLoadedProperties();
-        final TreeMap<Long, JsVariable> map = new TreeMap<Long, JsVariable>();
+        Collection<? extends JsVariable> properties = loadedProperties.properties();
+        SparseArrayIndex.Builder<JsVariable> builder =
+            new SparseArrayIndex.Builder<JsVariable>(properties.size());
         JsValue lengthValue = null;
-        for (JsVariable variable : loadedProperties.properties()) {
+        for (JsVariable variable : properties) {
           String name = variable.getName();
           Long index = JavaScriptExpressionBuilder.parsePropertyNameAsArrayIndex(name);
           if (index != null) {
-            map.put(index, variable);
+            builder.add(index, variable);
           } else if ("length".equals(name)) {
             lengthValue = variable.getValue();
           }
@@ -501,34 +551,26 @@ class WipValueBuilder {
         } catch (NumberFormatException e) {
           length = -1;
         }
-        return new ArrayProperties(length, map);
+        return new ArrayProperties(length, builder.build());
       }
     }
 
     private static class ArrayProperties {
       final long length;
-      final SortedMap<Long, ? extends JsVariable> sparseArrayMap;
-      final SortedMap<Long, ? extends JsVariable> publicSparseArrayMap;
+      // Immutable, so it is safe to give it to user.
+      final SparseArrayIndex<JsVariable> sparseArrayMap;
 
-      ArrayProperties(long length,
-          SortedMap<Long, ? extends JsVariable> sparseArrayMap) {
+      ArrayProperties(long length, SparseArrayIndex<JsVariable> sparseArrayMap) {
         this.length = length;
         this.sparseArrayMap = sparseArrayMap;
-        // We make public map synchronized, because unmodifiable map has its internal state.
-        this.publicSparseArrayMap = Collections.synchronizedSortedMap(
-            Collections.unmodifiableSortedMap(sparseArrayMap));
       }
       long getLength() {
         return length;
       }
 
-      SortedMap<Long, ? extends JsVariable> getSparseArrayMap() {
+      SparseArrayIndex<JsVariable> getSparseArrayMap() {
         return sparseArrayMap;
       }
-
-      SortedMap<Long, ? extends JsVariable> getPublicSparseArrayMap() {
-        return publicSparseArrayMap;
-      }
     }
   }
 
@@ -630,6 +672,20 @@ class WipValueBuilder {
     }
   };
 
+  private interface AsyncPropertiesAccess {
+    RelayOk loadPropertiesAsync(GenericCallback<JsObject> callback, SyncCallback syncCallback);
+  }
+
+  static final AsyncPropertiesExtension ASYNC_PROPERTIES_EXTENSION =
+      new AsyncPropertiesExtension() {
+    @Override
+    public RelayOk loadProperties(JsObject jsObject, GenericCallback<JsObject> callback,
+        SyncCallback syncCallback) {
+      AsyncPropertiesAccess propertiesAccess = (AsyncPropertiesAccess) jsObject;
+      return propertiesAccess.loadPropertiesAsync(callback, syncCallback);
+    }
+  };
+
   private static abstract class VariableBase implements JsVariable {
     private final String name;
 
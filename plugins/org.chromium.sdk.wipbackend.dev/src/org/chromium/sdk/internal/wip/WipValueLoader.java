@@ -78,12 +78,33 @@ public abstract class WipValueLoader implements RemoteValueMapping {
     loadPropertiesInFuture(objectId, propertyProcessor, reload, currentCacheState, futureRef);
   }
 
+  /**
+   * Non-blocking version of {@link #loadJsObjectPropertiesInFuture}. Does nothing
+   * if the reference is already initialized and reload is not requested.
+   */
+  void loadJsObjectPropertiesAsync(String objectId, boolean reload, int currentCacheState,
+      AsyncFutureRef<Getter<ObjectProperties>> futureRef) {
+    ObjectPropertyProcessor propertyProcessor =
+        new ObjectPropertyProcessor(objectId);
+    loadPropertiesAsync(objectId, propertyProcessor, reload, currentCacheState, futureRef);
+  }
+
   int getCacheState() {
     return cacheStateRef.get();
   }
 
   abstract String getObjectGroupId();
 
+  /**
+   * Called each time a remote object (one with an object id) is wrapped by this loader.
+   */
+  void remoteObjectCreated() {
+    String groupId = getObjectGroupId();
+    if (groupId != null) {
+      tabImpl.getObjectGroupTracker().objectCreated(groupId);
+    }
+  }
+
   /**
    * A utility method that initializes {@link AsyncFuture} of an object without properties.
    */
@@ -283,6 +304,46 @@ public abstract class WipValueLoader implements RemoteValueMapping {
     syncOperation.execute();
   }
 
+  /**
+   * Asynchronous version of {@link #loadPropertiesInFuture}. The postprocessing is done
+   * in Dispatch thread.
+   */
+  <RES> void loadPropertiesAsync(final String objectId,
+      final LoadPostprocessor<RES> propertyPostprocessor, boolean reload,
+      final int currentCacheState, AsyncFutureRef<RES> futureRef) {
+    if (objectId == null) {
+      futureRef.initializeTrivial(propertyPostprocessor.getEmptyResult());
+      return;
+    }
+
+    AsyncFuture.Operation<RES> operation = new AsyncFuture.Operation<RES>() {
+      @Override
+      public RelayOk start(final Callback<RES> callback, SyncCallback syncCallback) {
+        boolean ownProperties = true;
+        GetPropertiesParams request = new GetPropertiesParams(objectId, ownProperties);
+        GenericCallback<GetPropertiesData> wrappedCallback =
+            new GenericCallback<GetPropertiesData>() {
+          @Override public void success(GetPropertiesData data) {
+            callback.done(propertyPostprocessor.process(data.result(),
+                data.internalProperties(), currentCacheState));
+          }
+
+          @Override public void failure(Exception exception) {
+            callback.done(propertyPostprocessor.forException(new RuntimeException(
+                "Failed to read properties from remote", exception)));
+          }
+        };
+        return tabImpl.getCommandProcessor().send(request, wrappedCallback, syncCallback);
+      }
+    };
+
+    if (reload) {
+      futureRef.reinitializeRunning(operation);
+    } else {
+      futureRef.initializeRunning(operation);
+    }
+  }
+
   void loadFunctionLocationInFuture(final String objectId,
       AsyncFutureRef<Getter<FunctionDetailsValue>> loadedPositionRef)
       throws MethodIsBlockingException {
@@ -22,6 +22,7 @@ import org.chromium.sdk.ConnectionLogger;
 import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.SyncCallback;
 import org.chromium.sdk.internal.transport.AbstractSocketWrapper;
+import org.chromium.sdk.internal.transport.TrafficCounters;
 import org.chromium.sdk.util.SignalRelay;
 import org.chromium.sdk.util.SignalRelay.AlreadySignalledException;
 import org.chromium.sdk.util.SignalRelay.SignalConverter;
@@ -32,6 +33,7 @@ public abstract class AbstractWsConnection<INPUT, OUTPUT> implements WsConnectio
   private final AbstractSocketWrapper<INPUT, OUTPUT> socketWrapper;
   private final ConnectionLogger connectionLogger;
   private volatile boolean isClosingGracefully = false;
+  private final TrafficCounters trafficCounters = new TrafficCounters();
 
   private final BlockingQueue<MessageDispatcher> dispatchQueue =
       new LinkedBlockingQueue<MessageDispatcher>();
@@ -179,6 +181,11 @@ public abstract class AbstractWsConnection<INPUT, OUTPUT> implements WsConnectio
     return linkedCloser;
   }
 
+  @Override
+  public TrafficCounters getTrafficCounters() {
+    return trafficCounters;
+  }
+
   protected AbstractSocketWrapper<INPUT, OUTPUT> getSocketWrapper() {
     return socketWrapper;
   }
@@ -228,12 +228,15 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
 
       int payloadLenByte = secondByte & FrameBits.LENGTH_MASK;
       int payloadLen;
+      int headerLen = 2;
       if (payloadLenByte == FrameBits.LENGTH_2_BYTE_CODE) {
+        headerLen += 2;
         int lengthTemp = readByteOfFail(loggableReader);
         lengthTemp <<= 8;
         lengthTemp += readByteOfFail(loggableReader);
         payloadLen = lengthTemp;
       } else if (payloadLenByte == FrameBits.LENGTH_8_BYTE_CODE) {
+        headerLen += 8;
         for (int i = 0; i < 4; i++) {
           int b = readByteOfFail(loggableReader);
           if (b != 0) {
@@ -256,6 +259,7 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
       }
 
       byte [] bytes = loggableReader.readBytes(payloadLen);
+      getTrafficCounters().messageReceived(headerLen + payloadLen);
       frameHandler.process(bytes, this);
     }
   }
@@ -394,15 +398,18 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
       output.writeByte(firstByte);
 
       int maskFlag = maskBytes == null ? 0 : FrameBits.MASK_BIT;
+      int headerLen = maskBytes == null ? 2 : 2 + maskBytes.length;
 
       if (length <= 125) {
         output.writeByte((byte) (length | maskFlag));
       } else if (length <= FrameBits.MAX_TWO_BYTE_INT) {
         output.writeByte((byte) (FrameBits.LENGTH_2_BYTE_CODE | maskFlag));
+        headerLen += 2;
         output.writeByte((byte) ((length >> 8) & 0xFF));
         output.writeByte((byte) (length & 0xFF));
       } else {
         output.writeByte((byte) (FrameBits.LENGTH_8_BYTE_CODE | maskFlag));
+        headerLen += 8;
         output.writeByte((byte) 0);
         output.writeByte((byte) 0);
         output.writeByte((byte) 0);
@@ -417,6 +424,7 @@ public class Hybi17WsConnection extends AbstractWsConnection<LoggableInput, Logg
         output.writeBytes(maskBytes);
       }
       loggablePayload.send(output, maskBytes);
+      getTrafficCounters().messageSent(headerLen + length);
 
       if (isClosingMessage) {
         setOutputClosed(true);
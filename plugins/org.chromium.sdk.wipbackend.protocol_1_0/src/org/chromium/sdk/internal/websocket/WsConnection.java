@@ -10,6 +10,7 @@ import java.io.IOException;
 
 import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.SyncCallback;
+import org.chromium.sdk.internal.transport.TrafficCounters;
 import org.chromium.sdk.util.SignalRelay;
 
 /**
@@ -26,6 +27,11 @@ public interface WsConnection {
 
   SignalRelay<?> getCloser();
 
+  /**
+   * @return counters of the traffic that went through the connection
+   */
+  TrafficCounters getTrafficCounters();
+
   interface Listener {
     void textMessageRecieved(String text);
 
@@ -9,6 +9,8 @@ package org.chromium.sdk.internal.wip;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -18,6 +20,9 @@ import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.SyncCallback;
 import org.chromium.sdk.TabDebugEventListener;
 import org.chromium.sdk.internal.BaseCommandProcessor;
+import org.chromium.sdk.internal.metrics.LatencyHistogram;
+import org.chromium.sdk.internal.metrics.MetricsRegistry;
+import org.chromium.sdk.internal.metrics.StripedCounter;
 import org.chromium.sdk.internal.protocolparser.JsonProtocolParseException;
 import org.chromium.sdk.internal.websocket.WsConnection;
 import org.chromium.sdk.internal.wip.protocol.BasicConstants;
@@ -48,14 +53,25 @@ class WipCommandProcessor {
   private final BaseCommandProcessor<Integer, JSONObject, JSONObject, WipCommandResponse>
       baseProcessor;
   private final AtomicInteger currentSeq = new AtomicInteger(0);
-
-  WipCommandProcessor(WipTabImpl tabImpl, WsConnection wsSocket) {
+  private final LatencyHistogram responseParseHistogram;
+  private final LatencyHistogram eventParseHistogram;
+  private final MetricsRegistry metrics;
+  private final StripedCounter droppedEventCounter;
+  private final ConcurrentMap<String, StripedCounter> droppedEventCounters =
+      new ConcurrentHashMap<String, StripedCounter>();
+
+  WipCommandProcessor(WipTabImpl tabImpl, WsConnection wsSocket, MetricsRegistry metrics) {
     this.tabImpl = tabImpl;
+    this.metrics = metrics;
+    this.droppedEventCounter = metrics.getCounter("events.dropped");
+    this.responseParseHistogram = metrics.getHistogram("parse.response");
+    this.eventParseHistogram = metrics.getHistogram("parse.event");
 
     WipMessageTypeHandler handler = new WipMessageTypeHandler();
 
     baseProcessor =
-        new BaseCommandProcessor<Integer, JSONObject, JSONObject, WipCommandResponse>(handler);
+        new BaseCommandProcessor<Integer, JSONObject, JSONObject, WipCommandResponse>(handler,
+            metrics);
   }
 
   RelayOk sendRaw(JSONObject message, WipCommandCallback callback, SyncCallback syncCallback) {
@@ -103,6 +119,30 @@ class WipCommandProcessor {
     return sendRaw(request, commandCallback, syncCallback);
   }
 
+  /**
+   * Checks the raw message before it is parsed and drops it if it is an event that
+   * has no handler. Dropped events are counted per method in metrics.
+   * @return true if the message has been dropped and should not be parsed
+   */
+  boolean dropUnhandledEvent(String rawMessage) {
+    String method = WipEventSniffer.sniffEventMethod(rawMessage);
+    if (method == null || EVENT_MAP.hasHandler(method)) {
+      return false;
+    }
+    countDroppedEvent(method);
+    return true;
+  }
+
+  private void countDroppedEvent(String method) {
+    droppedEventCounter.increment();
+    StripedCounter counter = droppedEventCounters.get(method);
+    if (counter == null) {
+      counter = metrics.getCounter("events.dropped." + method);
+      droppedEventCounters.put(method, counter);
+    }
+    counter.increment();
+  }
+
   void acceptResponse(JSONObject message) {
     baseProcessor.processIncoming(message);
   }
@@ -113,13 +153,17 @@ class WipCommandProcessor {
 
   private void processEvent(JSONObject jsonObject) {
     WipEvent event;
+    long parseStart = System.nanoTime();
     try {
       event = WipParserAccess.get().parseWipEvent(jsonObject);
     } catch (JsonProtocolParseException e) {
       LOGGER.log(Level.SEVERE, "Failed to parse event", e);
       return;
     }
-    EVENT_MAP.handleEvent(event, this);
+    eventParseHistogram.recordNanos(System.nanoTime() - parseStart);
+    if (!EVENT_MAP.handleEvent(event, this)) {
+      countDroppedEvent(event.method());
+    }
   }
 
   /**
@@ -154,11 +198,15 @@ class WipCommandProcessor {
       if (!incoming.containsKey(BasicConstants.Property.ID)) {
         return null;
       }
+      long parseStart = System.nanoTime();
+      WipCommandResponse response;
       try {
-        return WipParserAccess.get().parseWipCommandResponse(incoming);
+        response = WipParserAccess.get().parseWipCommandResponse(incoming);
       } catch (JsonProtocolParseException e) {
         throw new RuntimeException("Failed to parse response", e);
       }
+      responseParseHistogram.recordNanos(System.nanoTime() - parseStart);
+      return response;
     }
 
     @Override
@@ -246,14 +294,28 @@ class WipCommandProcessor {
       map.put(type.getMethodName(), internalHandler);
     }
 
-    public void handleEvent(WipEvent event, WipCommandProcessor commandProcessor) {
+    /**
+     * @return whether an event with this method is handled (rather than ignored)
+     */
+    public boolean hasHandler(String method) {
+      InternalHandler<?> internalHandler = map.get(method);
+      return internalHandler != null && internalHandler.handler != null;
+    }
+
+    /**
+     * @return false if the event is not supported
+     */
+    public boolean handleEvent(WipEvent event, WipCommandProcessor commandProcessor) {
       String method = event.method();
       InternalHandler<?> parser = map.get(method);
       if (parser == null) {
-        LOGGER.log(Level.INFO, "Unsupported event: " + method);
-        return;
+        if (LOGGER.isLoggable(Level.INFO)) {
+          LOGGER.log(Level.INFO, "Unsupported event: " + method);
+        }
+        return false;
       }
       parser.handle(event, commandProcessor);
+      return true;
     }
 
     private static class InternalHandler<T> {
@@ -112,6 +112,12 @@ class WipScriptManager {
   }
 
 
+  int getScriptCount() {
+    synchronized (scriptIdToData) {
+      return scriptIdToData.size();
+    }
+  }
+
   private Collection<Script> getCurrentScripts() {
     synchronized (scriptIdToData) {
       List<Script> list = new ArrayList<Script>(scriptIdToData.size());
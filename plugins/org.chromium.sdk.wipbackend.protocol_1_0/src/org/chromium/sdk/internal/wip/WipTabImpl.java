@@ -9,24 +9,31 @@ package org.chromium.sdk.internal.wip;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.chromium.sdk.AsyncPropertiesExtension;
 import org.chromium.sdk.Breakpoint;
 import org.chromium.sdk.BreakpointTypeExtension;
 import org.chromium.sdk.BrowserTab;
 import org.chromium.sdk.CallbackSemaphore;
 import org.chromium.sdk.FunctionScopeExtension;
 import org.chromium.sdk.IgnoreCountBreakpointExtension;
+import org.chromium.sdk.LiveEditBatchExtension;
 import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.RestartFrameExtension;
 import org.chromium.sdk.Script;
 import org.chromium.sdk.SyncCallback;
 import org.chromium.sdk.TabDebugEventListener;
 import org.chromium.sdk.Version;
+import org.chromium.sdk.VmMetrics;
 import org.chromium.sdk.internal.JsonUtil;
+import org.chromium.sdk.internal.metrics.LatencyHistogram;
+import org.chromium.sdk.internal.metrics.MetricsMBean;
+import org.chromium.sdk.internal.metrics.MetricsRegistry;
 import org.chromium.sdk.internal.websocket.WsConnection;
 import org.chromium.sdk.internal.wip.protocol.input.WipCommandResponse.Success;
 import org.chromium.sdk.internal.wip.protocol.output.WipParams;
@@ -42,7 +49,10 @@ import org.chromium.sdk.wip.EvaluateToMappingExtension;
 import org.chromium.sdk.wip.PermanentRemoteValueMapping;
 import org.chromium.sdk.wip.WipBrowser;
 import org.chromium.sdk.wip.WipBrowserTab;
+import org.chromium.sdk.wip.WipConsoleStream;
+import org.chromium.sdk.wip.WipDomMirror;
 import org.chromium.sdk.wip.WipJavascriptVm;
+import org.chromium.sdk.wip.WipNetworkCapture;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.ParseException;
 
@@ -64,6 +74,8 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
 
   private final VmState vmState = new VmState();
   private final SignalRelay<Void> closeSignalRelay;
+  private final MetricsRegistry metrics = new MetricsRegistry();
+  private final MetricsMBean.Registration metricsRegistration;
 
   private volatile String url;
 
@@ -74,9 +86,18 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
     this.tabListener = tabListener;
     this.url = preliminaryUrl;
 
+    metrics.registerTraffic(socket.getTrafficCounters());
+    metrics.registerGauge("scripts.count", new MetricsRegistry.Gauge() {
+      @Override public long getValue() {
+        return scriptManager.getScriptCount();
+      }
+    });
+    metricsRegistration = MetricsMBean.register(metrics, "WipTab " + preliminaryUrl);
+
     this.closeSignalRelay = SignalRelay.create(new SignalRelay.Callback<Void>() {
       @Override
       public void onSignal(Void signal, Exception cause) {
+        metricsRegistration.unregister();
         WipTabImpl.this.tabListener.closed();
       }
     });
@@ -84,20 +105,28 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
     try {
       closeSignalRelay.bind(socket.getCloser(), null, null);
     } catch (AlreadySignalledException e) {
+      metricsRegistration.unregister();
       throw new IOException("Connection is closed", e);
     }
 
-    commandProcessor = new WipCommandProcessor(this, socket);
+    commandProcessor = new WipCommandProcessor(this, socket, metrics);
+
+    final LatencyHistogram jsonParseHistogram = metrics.getHistogram("parse.json");
 
     WsConnection.Listener socketListener = new WsConnection.Listener() {
       @Override
       public void textMessageRecieved(String text) {
+        if (commandProcessor.dropUnhandledEvent(text)) {
+          return;
+        }
         JSONObject json;
+        long parseStart = System.nanoTime();
         try {
           json = JsonUtil.jsonObjectFromJson(text);
         } catch (ParseException e) {
           throw new RuntimeException(e);
         }
+        jsonParseHistogram.recordNanos(System.nanoTime() - parseStart);
         commandProcessor.acceptResponse(json);
       }
 
@@ -173,6 +202,11 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
     return new PermanentRemoteValueMappingImpl(this, id);
   }
 
+  @Override
+  public Map<String, Integer> getLiveRemoteObjectCounts() {
+    return Collections.emptyMap();
+  }
+
   @Override
   public RelayOk enableBreakpoints(Boolean enabled,
       GenericCallback<Boolean> callback, SyncCallback syncCallback) {
@@ -251,11 +285,29 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
   }
 
   @Override
-  public void getScripts(final ScriptsCallback callback)
-      throws MethodIsBlockingException {
+  public AsyncPropertiesExtension getAsyncPropertiesExtension() {
+    return null;
+  }
+
+  @Override
+  public LiveEditBatchExtension getLiveEditBatchExtension() {
+    return null;
+  }
 
-    final CallbackSemaphore callbackSemaphore = new CallbackSemaphore();
+  @Override
+  public VmMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void getScripts(ScriptsCallback callback) throws MethodIsBlockingException {
+    CallbackSemaphore callbackSemaphore = new CallbackSemaphore();
+    RelayOk relayOk = getScripts(callback, callbackSemaphore);
+    callbackSemaphore.acquireDefault(relayOk);
+  }
 
+  @Override
+  public RelayOk getScripts(final ScriptsCallback callback, SyncCallback syncCallback) {
     GenericCallback<Collection<Script>> innerCallback;
     if (callback == null) {
       innerCallback = null;
@@ -269,10 +321,7 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
         }
       };
     }
-
-    RelayOk relayOk = scriptManager.getScripts(innerCallback, callbackSemaphore);
-
-    callbackSemaphore.acquireDefault(relayOk);
+    return scriptManager.getScripts(innerCallback, syncCallback);
   }
 
   @Override
@@ -326,6 +375,21 @@ public class WipTabImpl implements WipBrowserTab, WipJavascriptVm {
     return url;
   }
 
+  @Override
+  public WipConsoleStream getConsoleStream() {
+    return null;
+  }
+
+  @Override
+  public WipNetworkCapture getNetworkCapture() {
+    return null;
+  }
+
+  @Override
+  public WipDomMirror getDomMirror() {
+    return null;
+  }
+
   public TabDebugEventListener getDebugListener() {
     return this.tabListener;
   }
@@ -9,11 +9,9 @@ package org.chromium.sdk.internal.wip;
 import static org.chromium.sdk.util.BasicUtil.getSafe;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
@@ -43,6 +41,7 @@ import org.chromium.sdk.internal.wip.protocol.output.runtime.CallArgumentParam;
 import org.chromium.sdk.util.AsyncFutureRef;
 import org.chromium.sdk.util.JavaScriptExpressionBuilder;
 import org.chromium.sdk.util.MethodIsBlockingException;
+import org.chromium.sdk.util.SparseArrayIndex;
 
 /**
  * A builder for implementations of {@link JsValue} and {@link JsVariable}.
@@ -515,13 +514,13 @@ class WipValueBuilder {
 
       @Override
       public JsVariable get(long index) throws MethodIsBlockingException {
-        return getSafe(getArrayProperties().getSparseArrayMap(), index);
+        return getArrayProperties().getSparseArrayMap().get(index);
       }
 
       @Override
       public SortedMap<Long, ? extends JsVariable> toSparseArray()
           throws MethodIsBlockingException {
-        return getArrayProperties().getPublicSparseArrayMap();
+        return getArrayProperties().getSparseArrayMap();
       }
 
       private ArrayProperties getArrayProperties() throws MethodIsBlockingException {
@@ -538,13 +537,15 @@ class WipValueBuilder {
 
       private ArrayProperties buildArrayProperties() throws MethodIsBlockingException {
         ObjectProperties loadedProperties = getLoadedProperties();
-        final TreeMap<Long, JsVariable> map = new TreeMap<Long, JsVariable>();
+        Collection<? extends JsVariable> properties = loadedProperties.properties();
+        SparseArrayIndex.Builder<JsVariable> builder =
+            new SparseArrayIndex.Builder<JsVariable>(properties.size());
         JsValue lengthValue = null;
-        for (JsVariable variable : loadedProperties.properties()) {
+        for (JsVariable variable : properties) {
           String name = variable.getName();
           Long index = JavaScriptExpressionBuilder.parsePropertyNameAsArrayIndex(name);
           if (index != null) {
-            map.put(index, variable);
+            builder.add(index, variable);
           } else if ("length".equals(name)) {
             lengthValue = variable.getValue();
           }
@@ -555,34 +556,26 @@ class WipValueBuilder {
         } catch (NumberFormatException e) {
           length = -1;
         }
-        return new ArrayProperties(length, map);
+        return new ArrayProperties(length, builder.build());
       }
     }
 
     private static class ArrayProperties {
       final long length;
-      final SortedMap<Long, ? extends JsVariable> sparseArrayMap;
-      final SortedMap<Long, ? extends JsVariable> publicSparseArrayMap;
+      // Immutable, so it is safe to give it to user.
+      final SparseArrayIndex<JsVariable> sparseArrayMap;
 
-      ArrayProperties(long length,
-          SortedMap<Long, ? extends JsVariable> sparseArrayMap) {
+      ArrayProperties(long length, SparseArrayIndex<JsVariable> sparseArrayMap) {
         this.length = length;
         this.sparseArrayMap = sparseArrayMap;
-        // We make public map synchronized, because unmodifiable map has its internal state.
-        this.publicSparseArrayMap = Collections.synchronizedSortedMap(
-            Collections.unmodifiableSortedMap(sparseArrayMap));
       }
       long getLength() {
         return length;
       }
 
-      SortedMap<Long, ? extends JsVariable> getSparseArrayMap() {
+      SparseArrayIndex<JsVariable> getSparseArrayMap() {
         return sparseArrayMap;
       }
-
-      SortedMap<Long, ? extends JsVariable> getPublicSparseArrayMap() {
-        return publicSparseArrayMap;
-      }
     }
   }
 
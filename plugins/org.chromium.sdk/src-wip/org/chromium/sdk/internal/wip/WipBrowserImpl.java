@@ -9,6 +9,8 @@ package org.chromium.sdk.internal.wip;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.chromium.sdk.Browser;
 import org.chromium.sdk.wip.WipBackend;
@@ -22,6 +24,8 @@ import org.chromium.sdk.wip.WipBrowserFactory;
 public class WipBrowserImpl implements WipBrowser {
   private final InetSocketAddress socketAddress;
   private final WipBrowserFactory.LoggerFactory connectionLoggerFactory;
+  private final ConcurrentMap<WipBackendBase, BackendState> backendStates =
+      new ConcurrentHashMap<WipBackendBase, BackendState>();
 
   public WipBrowserImpl(InetSocketAddress socketAddress,
       WipBrowserFactory.LoggerFactory connectionLoggerFactory) {
@@ -43,6 +47,43 @@ public class WipBrowserImpl implements WipBrowser {
     return connectionLoggerFactory;
   }
 
+  @Override
+  public void dispose() {
+    for (WipBackendBase backend : backendStates.keySet()) {
+      BackendState state = backendStates.remove(backend);
+      if (state != null) {
+        state.dispose();
+      }
+    }
+  }
+
+  /**
+   * Returns a backend-specific object that the backend keeps for this browser between calls
+   * (e.g. an open discovery connection). The object is created with the factory on the first
+   * call and lives until {@link #dispose()}.
+   */
+  public BackendState getBackendState(WipBackendBase backend, BackendStateFactory factory) {
+    BackendState state = backendStates.get(backend);
+    if (state == null) {
+      BackendState newState = factory.create(this);
+      state = backendStates.putIfAbsent(backend, newState);
+      if (state == null) {
+        state = newState;
+      } else {
+        newState.dispose();
+      }
+    }
+    return state;
+  }
+
+  public interface BackendState {
+    void dispose();
+  }
+
+  public interface BackendStateFactory {
+    BackendState create(WipBrowserImpl browserImpl);
+  }
+
   /**
    * A convenience method for any currently unsupported operation. It nicely co-works with
    * a return statements.
@@ -22,6 +22,13 @@ public interface WipBrowser {
    */
   List<? extends WipTabConnector> getTabs(WipBackend backend) throws IOException;
 
+  /**
+   * Releases resources that the browser object keeps between {@link #getTabs} calls
+   * (e.g. an open discovery connection). Already attached tabs are not affected.
+   * The object may still be used afterwards; the resources get re-created on demand.
+   */
+  void dispose();
+
   interface WipTabConnector {
     String getTitle();
 
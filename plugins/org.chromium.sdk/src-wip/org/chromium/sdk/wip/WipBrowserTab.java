@@ -25,4 +25,19 @@ public interface WipBrowserTab {
    * @return a URL of the corresponding browser tab
    */
   String getUrl();
+
+  /**
+   * @return the page console message stream or null if the backend does not support it
+   */
+  WipConsoleStream getConsoleStream();
+
+  /**
+   * @return the network capture or null if the backend does not support it
+   */
+  WipNetworkCapture getNetworkCapture();
+
+  /**
+   * @return the DOM tree mirror or null if the backend does not support it
+   */
+  WipDomMirror getDomMirror();
 }
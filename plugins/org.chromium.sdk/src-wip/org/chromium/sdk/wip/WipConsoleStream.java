@@ -0,0 +1,85 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.wip;
+
+import java.util.List;
+
+/**
+ * A stream of the page console messages (e.g. console.log output) of a browser tab.
+ * Messages are collected into a bounded ring buffer on the dispatch thread and delivered
+ * to the listener in batches from a separate thread not more often than the configured
+ * interval. If the listener cannot keep up, the oldest messages are lost and counted.
+ * Consecutive equal messages are coalesced into one message with a repeat count.
+ */
+public interface WipConsoleStream {
+  /**
+   * Starts receiving console messages. Only one listener may be active at a time.
+   * @param bufferCapacity how many messages are kept while waiting for delivery
+   * @param deliveryIntervalMs minimal interval between listener calls
+   * @throws IllegalStateException if the stream has already been started
+   */
+  void start(Listener listener, int bufferCapacity, long deliveryIntervalMs);
+
+  /**
+   * Stops receiving console messages. Messages that are already buffered are delivered.
+   * The stream may be started again afterwards.
+   */
+  void stop();
+
+  /**
+   * Receives console messages. All methods are called from a delivery thread,
+   * never from the dispatch thread.
+   */
+  interface Listener {
+    /**
+     * @param messages messages in the order they were issued; not empty unless lostCount
+     *     is positive
+     * @param lostCount how many messages have been dropped because of the buffer overflow
+     *     since the previous call
+     */
+    void messagesAdded(List<? extends Message> messages, long lostCount);
+
+    /**
+     * The console has been cleared on the page.
+     */
+    void messagesCleared();
+
+    /**
+     * The stream has been stopped or the tab has been closed. No more calls will follow
+     * until the stream is started again.
+     */
+    void streamClosed();
+  }
+
+  /**
+   * A console message.
+   */
+  interface Message {
+    Level getLevel();
+
+    String getText();
+
+    /**
+     * @return URL of the message origin or null
+     */
+    String getUrl();
+
+    /**
+     * @return line number in the resource that generated this message or -1
+     */
+    long getLine();
+
+    /**
+     * @return how many times in a row the message was issued; at least 1
+     */
+    long getRepeatCount();
+  }
+
+  enum Level {
+    LOG, WARNING, ERROR, DEBUG
+  }
+}
@@ -0,0 +1,113 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.wip;
+
+import java.util.List;
+import java.util.Map;
+
+import org.chromium.sdk.RelayOk;
+import org.chromium.sdk.SyncCallback;
+import org.chromium.sdk.util.GenericCallback;
+
+/**
+ * A local mirror of the DOM tree of a browser tab. The tree is expanded lazily: initially
+ * only the document and its immediate children are loaded, and children of other nodes
+ * are requested on demand. Once loaded, the mirror is kept up-to-date by DOM mutation
+ * events, which are applied incrementally.
+ * <p>
+ * Nodes are returned as immutable snapshots; use {@link #getNode} to get the current state
+ * of a node by its id.
+ */
+public interface WipDomMirror {
+  /**
+   * Requests the document from remote, discarding everything mirrored before.
+   * @param callback receives the document node; may be null
+   * @param syncCallback may be null
+   */
+  RelayOk loadDocument(GenericCallback<Node> callback, SyncCallback syncCallback);
+
+  /**
+   * Loads children of the node.
+   * @param depth how many levels of the subtree to load; -1 means the entire subtree
+   * @param callback receives the updated node; may be null
+   * @param syncCallback may be null
+   */
+  RelayOk requestChildren(int nodeId, int depth, GenericCallback<Node> callback,
+      SyncCallback syncCallback);
+
+  /**
+   * @return the document node or null if the document is not loaded
+   */
+  Node getDocument();
+
+  /**
+   * @return the node or null if it is not in the mirror (not loaded yet or removed)
+   */
+  Node getNode(int nodeId);
+
+  /**
+   * @param listener the new listener or null
+   */
+  void setListener(Listener listener);
+
+  /**
+   * Gets notified about changes in the mirror. All methods are called from
+   * the dispatch thread and should return quickly.
+   */
+  interface Listener {
+    /**
+     * The document has been reloaded or replaced; all previously mirrored nodes are gone.
+     */
+    void documentReset();
+
+    /**
+     * Children of the node have been loaded, inserted or removed.
+     */
+    void childrenChanged(int parentId);
+
+    /**
+     * Attributes or the value of the node have changed.
+     */
+    void nodeChanged(int nodeId);
+  }
+
+  /**
+   * An immutable snapshot of a node.
+   */
+  interface Node {
+    int getId();
+
+    /**
+     * @return DOM node type (e.g. 1 for an element, 3 for a text node)
+     */
+    int getType();
+
+    String getName();
+
+    String getValue();
+
+    /**
+     * @return id of the parent or 0 for the document node
+     */
+    int getParentId();
+
+    /**
+     * @return number of children; it is known even if the children are not loaded
+     */
+    int getChildCount();
+
+    /**
+     * @return ids of children in document order or null if they are not loaded
+     */
+    List<Integer> getChildIds();
+
+    /**
+     * @return attributes in the order of declaration
+     */
+    Map<String, String> getAttributes();
+  }
+}
@@ -6,6 +6,8 @@
 
 package org.chromium.sdk.wip;
 
+import java.util.Map;
+
 import org.chromium.sdk.JavascriptVm;
 import org.chromium.sdk.RemoteValueMapping;
 
@@ -21,6 +23,14 @@ public interface WipJavascriptVm extends JavascriptVm {
    */
   PermanentRemoteValueMapping createPermanentValueMapping(String id);
 
+  /**
+   * Returns how many remote objects have been received into each remote object group that
+   * is not released yet. Each suspended state has its own group, which is released when
+   * the VM resumes; permanent mappings have groups named by their ids.
+   * @return a snapshot map from group id to object count; may be empty if not supported
+   */
+  Map<String, Integer> getLiveRemoteObjectCounts();
+
   /**
    * @return extension to evaluate operations that supports {@link RemoteValueMapping}; not null
    */
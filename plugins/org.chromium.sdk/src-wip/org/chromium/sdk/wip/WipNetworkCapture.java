@@ -0,0 +1,49 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.wip;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Captures network activity of a browser tab into an append-only log file. Each completed
+ * request is written as a single JSON object on its own line; response bodies, if
+ * requested, are fetched after the request has finished and written as separate lines
+ * with the same "requestId".
+ * <p>
+ * Memory use is bounded: only a compact record per in-flight request is kept (the oldest
+ * ones are written as incomplete when there are too many), and entries waiting to be
+ * written are limited in total size (entries above the limit are dropped and counted).
+ */
+public interface WipNetworkCapture {
+  /**
+   * Starts capturing. Only one capture may be active at a time.
+   * @param logFile file to append the log to; it is created if needed
+   * @param captureBodies whether response bodies should be fetched and written
+   * @throws IOException if the file cannot be opened
+   * @throws IllegalStateException if capture is already active
+   */
+  void start(File logFile, boolean captureBodies) throws IOException;
+
+  /**
+   * Stops capturing. Requests that are still in flight are written as incomplete;
+   * the file is closed after all pending entries are written.
+   */
+  void stop();
+
+  boolean isActive();
+
+  /**
+   * @return how many log entries have been written since the capture was started
+   */
+  long getWrittenCount();
+
+  /**
+   * @return how many log entries have been dropped because of memory limits
+   */
+  long getDroppedCount();
+}
@@ -0,0 +1,28 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk;
+
+import org.chromium.sdk.util.GenericCallback;
+
+/**
+ * An extension to {@link JsObject} API that loads object properties without blocking
+ * the calling thread. Some backends may not support it.
+ * @see JavascriptVm#getAsyncPropertiesExtension()
+ */
+public interface AsyncPropertiesExtension {
+  /**
+   * Starts loading properties of the object. Once callback has received success,
+   * {@link JsObject#getProperties()}, {@link JsObject#getInternalProperties()} and
+   * {@link JsObject#getProperty(String)} of this object return without blocking
+   * until the VM gets resumed.
+   * <p>The callback is called from Dispatch thread and must not call blocking methods.
+   * @param jsObject an object that belongs to this VM
+   * @param callback receives the same object on success, may be null
+   */
+  RelayOk loadProperties(JsObject jsObject, GenericCallback<JsObject> callback,
+      SyncCallback syncCallback);
+}
@@ -6,6 +6,8 @@
 
 package org.chromium.sdk;
 
+import java.util.Collection;
+
 /**
  * This interface is used by the SDK to report debug events for a certain {@link JavascriptVm} to
  * the clients.
@@ -43,6 +45,21 @@ public interface DebugEventListener {
    */
   void scriptLoaded(Script newScript);
 
+  /**
+   * An optional interface that a {@link DebugEventListener} may also implement to receive
+   * scripts that were loaded at about the same time in one call. VMs that compile many small
+   * scripts (e.g. with eval) can report them much more cheaply this way. A listener that
+   * does not implement it gets new scripts one by one via {@link #scriptLoaded}.
+   */
+  interface ScriptBatchListener {
+    /**
+     * Reports that new scripts have been loaded. It is called instead of
+     * {@link DebugEventListener#scriptLoaded} for each of them.
+     * @param newScripts not empty collection of the new scripts
+     */
+    void scriptsLoaded(Collection<Script> newScripts);
+  }
+
   /**
    * Reports that the script has been collected and is no longer used in VM.
    */
@@ -81,6 +81,13 @@ public interface JavascriptVm {
   // TODO: support notification about collected scripts in all backends.
   void getScripts(ScriptsCallback callback) throws MethodIsBlockingException;
 
+  /**
+   * Asynchronously returns user scripts loaded into the tab. This is a non-blocking version
+   * of {@link #getScripts(ScriptsCallback)}; the callback is called from Dispatch thread.
+   * @param callback that receives result, may be {@code null}
+   */
+  RelayOk getScripts(ScriptsCallback callback, SyncCallback syncCallback);
+
   /**
    * Sets a breakpoint with the specified parameters.
    * @param target of the breakpoint
@@ -181,4 +188,21 @@ public interface JavascriptVm {
    * @return extension that restarts frame or null if unsupported by VM
    */
   RestartFrameExtension getRestartFrameExtension();
+
+  /**
+   * @return extension that loads object properties without blocking or null
+   *     if unsupported by VM
+   */
+  AsyncPropertiesExtension getAsyncPropertiesExtension();
+
+  /**
+   * @return extension that updates several scripts in one LiveEdit operation or null
+   *     if unsupported by VM
+   */
+  LiveEditBatchExtension getLiveEditBatchExtension();
+
+  /**
+   * @return runtime statistics of the connection, not null
+   */
+  VmMetrics getMetrics();
 }
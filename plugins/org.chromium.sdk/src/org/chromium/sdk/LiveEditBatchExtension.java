@@ -0,0 +1,58 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk;
+
+import java.util.List;
+
+/**
+ * An extension to {@link UpdatableScript} API that updates several scripts in one operation.
+ * All requests are sent without waiting for previous responses and the post-change
+ * technical step (a step in or a rebuild of the current debug context) is made only once
+ * for the whole batch. Some backends may not support it.
+ * @see JavascriptVm#getLiveEditBatchExtension()
+ */
+public interface LiveEditBatchExtension {
+  /**
+   * Previews all changes concurrently. Nothing is changed in VM.
+   * @param callback is called once all change callbacks have been called; may be null
+   */
+  RelayOk previewSetSources(List<? extends Change> changes, BatchCallback callback,
+      SyncCallback syncCallback);
+
+  /**
+   * Previews all changes concurrently and, if all of them succeed, applies them in the list
+   * order. If some preview fails, no script is changed: the other changes get their callbacks
+   * called with a "not applied" failure and the batch callback receives 'applied' false.
+   * <p>Change callbacks are called after all responses have been received, so the 'resumed'
+   * parameter describes the whole batch.
+   * @param callback is called once all change callbacks have been called; may be null
+   */
+  RelayOk setSourcesOnRemote(List<? extends Change> changes, BatchCallback callback,
+      SyncCallback syncCallback);
+
+  /**
+   * A new source for one script.
+   */
+  interface Change {
+    Script getScript();
+
+    String getNewSource();
+
+    /**
+     * @return callback that receives result of this particular change or null
+     */
+    UpdatableScript.UpdateCallback getCallback();
+  }
+
+  interface BatchCallback {
+    /**
+     * @param applied whether scripts have been actually changed
+     * @param resumed whether VM has been resumed to make post-change technical step
+     */
+    void done(boolean applied, boolean resumed);
+  }
+}
@@ -0,0 +1,51 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk;
+
+import java.util.Map;
+
+/**
+ * Runtime statistics of a {@link JavascriptVm} connection: command latencies, traffic volume,
+ * cache sizes etc. Metrics are collected all the time and are cheap to read; every call
+ * returns a fresh snapshot.
+ * <p>
+ * The same values are published as a JMX MBean named
+ * {@code org.chromium.sdk:type=JavascriptVm,name=<vm name>} unless
+ * system property {@code org.chromium.sdk.metrics.jmx} is set to {@code false}.
+ * @see JavascriptVm#getMetrics()
+ */
+public interface VmMetrics {
+  /**
+   * @return snapshot of all counters and gauges sorted by name (e.g. "transport.bytesIn",
+   *     "command.inFlight")
+   */
+  Map<String, Long> getValues();
+
+  /**
+   * @return snapshot of all latency histograms sorted by name (e.g.
+   *     "command.Debugger.resume", "parse.event")
+   */
+  Map<String, Histogram> getHistograms();
+
+  /**
+   * An immutable snapshot of a latency distribution. Values are kept in power-of-two
+   * buckets, so percentiles are only accurate up to the factor of 2.
+   */
+  interface Histogram {
+    long getCount();
+
+    long getTotalMicros();
+
+    long getMaxMicros();
+
+    /**
+     * @param percentile a value between 0 and 100
+     * @return upper bound of the latency that the percentile of samples do not exceed
+     */
+    long getPercentileMicros(double percentile);
+  }
+}
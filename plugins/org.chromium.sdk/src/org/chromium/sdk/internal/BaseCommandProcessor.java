@@ -7,16 +7,23 @@
 package org.chromium.sdk.internal;
 
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.SyncCallback;
+import org.chromium.sdk.internal.metrics.LatencyHistogram;
+import org.chromium.sdk.internal.metrics.MetricsRegistry;
+import org.chromium.sdk.internal.metrics.StripedCounter;
 
 /**
  * Provides basic command processor functionality: sends/receives commands/events and
  * supports callbacks for commands. It also supports status reporting for UI.
  * All operations such as sending/receiving/parsing are implemented by a {@link Handler}.
+ * Command latencies are recorded in {@link MetricsRegistry} as "command.&lt;name&gt;" histograms.
  *
  * @param <SEQ_KEY> type of command sequence number key
  * @param <OUTGOING> type of outgoing message
@@ -47,10 +54,25 @@ public class BaseCommandProcessor<SEQ_KEY, OUTGOING, INCOMING, INCOMING_WITH_SEQ
   private final CloseableMap<SEQ_KEY, CallbackEntry<INCOMING_WITH_SEQ>> callbackMap =
       CloseableMap.newLinkedMap();
   private final Handler<SEQ_KEY, OUTGOING, INCOMING, INCOMING_WITH_SEQ> handler;
+  private final MetricsRegistry metrics;
+  private final StripedCounter commandsSent;
+  private final StripedCounter commandsFailed;
+
+  /** Command name -> its latency histogram, saves building the metric name per command. */
+  private final ConcurrentMap<String, LatencyHistogram> commandHistograms =
+      new ConcurrentHashMap<String, LatencyHistogram>();
 
   public BaseCommandProcessor(
-      Handler<SEQ_KEY, OUTGOING, INCOMING, INCOMING_WITH_SEQ> handler) {
+      Handler<SEQ_KEY, OUTGOING, INCOMING, INCOMING_WITH_SEQ> handler, MetricsRegistry metrics) {
     this.handler = handler;
+    this.metrics = metrics;
+    this.commandsSent = metrics.getCounter("command.sent");
+    this.commandsFailed = metrics.getCounter("command.failed");
+    metrics.registerGauge("command.inFlight", new MetricsRegistry.Gauge() {
+      @Override public long getValue() {
+        return callbackMap.size();
+      }
+    });
   }
 
   public RelayOk send(OUTGOING message, boolean isImmediate,
@@ -62,7 +84,8 @@ public class BaseCommandProcessor<SEQ_KEY, OUTGOING, INCOMING, INCOMING_WITH_SEQ
 
       try {
         callbackMap.put(seq,
-            new CallbackEntry<INCOMING_WITH_SEQ>(callback, syncCallback, commandName));
+            new CallbackEntry<INCOMING_WITH_SEQ>(callback, syncCallback, commandName,
+                getCommandHistogram(commandName)));
       } catch (IllegalStateException e) {
         throw new IllegalStateException("Connection is closed", e);
       }
@@ -79,6 +102,7 @@ public class BaseCommandProcessor<SEQ_KEY, OUTGOING, INCOMING, INCOMING_WITH_SEQ
       }
       throw e;
     }
+    commandsSent.increment();
     return WE_SENT_IT_RELAY_OK;
   }
 
@@ -89,10 +113,14 @@ public class BaseCommandProcessor<SEQ_KEY, OUTGOING, INCOMING, INCOMING_WITH_SEQ
       SEQ_KEY key = handler.getSeq(commandResponse);
       CallbackEntry<INCOMING_WITH_SEQ> callbackEntry = callbackMap.removeIfContains(key);
       if (callbackEntry != null) {
+        long roundtripNanos = getCurrentNanos() - callbackEntry.commitNanos;
+        if (callbackEntry.histogram != null) {
+          callbackEntry.histogram.recordNanos(roundtripNanos);
+        }
         LOGGER.log(
             Level.FINE,
             "Request-response roundtrip: {0}ms",
-            getCurrentMillis() - callbackEntry.commitMillis);
+            TimeUnit.NANOSECONDS.toMillis(roundtripNanos));
         reportVmStatus();
 
         CallbackCaller<Callback<? super INCOMING_WITH_SEQ>> caller =
@@ -117,6 +145,7 @@ public class BaseCommandProcessor<SEQ_KEY, OUTGOING, INCOMING, INCOMING_WITH_SEQ
     // We should call them in the order they have been submitted.
     Collection<CallbackEntry<INCOMING_WITH_SEQ>> entries = callbackMap.close().values();
     for (CallbackEntry<INCOMING_WITH_SEQ> entry : entries) {
+      commandsFailed.increment();
       try {
         callThemBack(entry, failureCaller, null);
       } catch (RuntimeException e) {
@@ -125,6 +154,18 @@ public class BaseCommandProcessor<SEQ_KEY, OUTGOING, INCOMING, INCOMING_WITH_SEQ
     }
   }
 
+  private LatencyHistogram getCommandHistogram(String commandName) {
+    if (commandName == null) {
+      return null;
+    }
+    LatencyHistogram histogram = commandHistograms.get(commandName);
+    if (histogram == null) {
+      histogram = metrics.getHistogram("command." + commandName);
+      commandHistograms.putIfAbsent(commandName, histogram);
+    }
+    return histogram;
+  }
+
   private void callThemBack(CallbackEntry<INCOMING_WITH_SEQ> callbackEntry,
       CallbackCaller<? super Callback<? super INCOMING_WITH_SEQ>> callbackCaller,
       SEQ_KEY requestSeq) {
@@ -161,24 +202,28 @@ public class BaseCommandProcessor<SEQ_KEY, OUTGOING, INCOMING, INCOMING_WITH_SEQ
 
     final SyncCallback syncCallback;
 
-    final long commitMillis;
+    final long commitNanos;
 
     final String requestName;
 
+    /** Latency histogram of the command or null. */
+    final LatencyHistogram histogram;
+
     CallbackEntry(Callback<? super INCOMING_WITH_SEQ> callback, SyncCallback syncCallback,
-        String requestName) {
+        String requestName, LatencyHistogram histogram) {
       this.callback = callback;
-      this.commitMillis = getCurrentMillis();
+      this.commitNanos = getCurrentNanos();
       this.syncCallback = syncCallback;
       this.requestName = requestName;
+      this.histogram = histogram;
     }
   }
 
   /**
-   * @return milliseconds since the epoch
+   * @return monotonic time in nanoseconds
    */
-  private static long getCurrentMillis() {
-    return System.currentTimeMillis();
+  private static long getCurrentNanos() {
+    return System.nanoTime();
   }
 
   private final Object vmStatusReportMonitor = new Object();
@@ -76,6 +76,8 @@ public abstract class ScriptBase<ID> implements Script {
 
   private volatile String source = null;
 
+  private volatile String sourceHash = null;
+
   private volatile boolean isCollected = false;
 
   /**
@@ -131,8 +133,27 @@ public abstract class ScriptBase<ID> implements Script {
     return source != null;
   }
 
+  /**
+   * Sets the script source. The source is interned in {@link ScriptSourceStore}, so that
+   * identical sources of different scripts share memory.
+   */
   public void setSource(String source) {
-    this.source = source;
+    if (source == null) {
+      this.sourceHash = null;
+      this.source = null;
+      return;
+    }
+    ScriptSourceStore.Entry entry = ScriptSourceStore.getInstance().put(source);
+    this.sourceHash = entry.getHash();
+    this.source = entry.getSource();
+  }
+
+  /**
+   * @return content hash of the source as computed by {@link ScriptSourceStore}
+   *     or null if the source is not set
+   */
+  public String getSourceHash() {
+    return sourceHash;
   }
 
   public void setCollected() {
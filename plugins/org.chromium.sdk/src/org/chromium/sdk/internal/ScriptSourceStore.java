@@ -0,0 +1,336 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.chromium.sdk.util.BasicUtil;
+
+/**
+ * A process-wide store of script sources keyed by content hash. Identical sources
+ * (e.g. the same library loaded in several tabs or reloaded with a page) share one
+ * string instance.
+ * <p>
+ * Sources are held weakly, so a source stays in memory while some script refers to it;
+ * additionally the most recently used sources are held strongly up to a limit in characters.
+ * An optional on-disk tier keeps sources between sessions; it is enabled by setting
+ * a directory in "org.chromium.sdk.scriptSourceStore.dir" system property.
+ * <p>This class is thread-safe.
+ */
+public class ScriptSourceStore {
+  private static final Logger LOGGER = Logger.getLogger(ScriptSourceStore.class.getName());
+
+  private static final String MEMORY_LIMIT_PROPERTY =
+      "org.chromium.sdk.scriptSourceStore.memoryChars";
+  private static final String DIR_PROPERTY = "org.chromium.sdk.scriptSourceStore.dir";
+  private static final long DEFAULT_MEMORY_LIMIT_CHARS = 16L * 1024 * 1024;
+
+  private static volatile ScriptSourceStore instance = null;
+
+  public static ScriptSourceStore getInstance() {
+    ScriptSourceStore result = instance;
+    if (result == null) {
+      synchronized (ScriptSourceStore.class) {
+        result = instance;
+        if (result == null) {
+          result = createFromSystemProperties();
+          instance = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * A source together with its content hash.
+   */
+  public static class Entry {
+    private final String source;
+    private final String hash;
+
+    Entry(String source, String hash) {
+      this.source = source;
+      this.hash = hash;
+    }
+
+    /**
+     * @return the shared instance of the source
+     */
+    public String getSource() {
+      return source;
+    }
+
+    public String getHash() {
+      return hash;
+    }
+  }
+
+  private final long memoryLimitChars;
+  private final DiskTier diskTier;
+
+  private final ReferenceQueue<String> referenceQueue = new ReferenceQueue<String>();
+
+  // All fields below are guarded by 'this'.
+  private final Map<String, SourceRef> hashToSource = new HashMap<String, SourceRef>();
+  private final LinkedHashMap<String, String> recentlyUsed =
+      new LinkedHashMap<String, String>(16, 0.75f, true);
+  private long recentlyUsedChars = 0;
+
+  /**
+   * @param memoryLimitChars how many characters of sources are kept strongly reachable
+   * @param diskDirectory directory for the persistent tier or null
+   */
+  ScriptSourceStore(long memoryLimitChars, File diskDirectory) {
+    this.memoryLimitChars = memoryLimitChars;
+    this.diskTier = diskDirectory == null ? null : new DiskTier(diskDirectory);
+  }
+
+  /**
+   * Puts the source into the store.
+   * @return the entry with a shared instance of the source
+   */
+  public Entry put(String source) {
+    String hash = computeHash(source);
+    String shared = putInMemory(hash, source);
+    if (diskTier != null && shared == source) {
+      diskTier.save(hash, source);
+    }
+    return new Entry(shared, hash);
+  }
+
+  /**
+   * Looks up a source by hash in memory and then in the disk tier.
+   * @return the source or null if it is not in the store
+   */
+  public String get(String hash) {
+    synchronized (this) {
+      String source = getFromMemory(hash);
+      if (source != null) {
+        markUsed(hash, source);
+        return source;
+      }
+    }
+    if (diskTier == null) {
+      return null;
+    }
+    String loaded = diskTier.load(hash);
+    if (loaded == null) {
+      return null;
+    }
+    if (!hash.equals(computeHash(loaded))) {
+      LOGGER.log(Level.WARNING, "Corrupted script source file for " + hash);
+      return null;
+    }
+    // The source is already on disk, so it only goes into the memory tiers.
+    return putInMemory(hash, loaded);
+  }
+
+  /**
+   * Waits until all pending disk writes are finished. Used in tests.
+   */
+  void flushDiskTier() {
+    if (diskTier != null) {
+      diskTier.flush();
+    }
+  }
+
+  /**
+   * @return the instance already in memory or the source itself if there was none
+   */
+  private synchronized String putInMemory(String hash, String source) {
+    String shared = getFromMemory(hash);
+    if (shared == null) {
+      hashToSource.put(hash, new SourceRef(source, hash, referenceQueue));
+      shared = source;
+    }
+    markUsed(hash, shared);
+    return shared;
+  }
+
+  private String getFromMemory(String hash) {
+    expungeStaleEntries();
+    SourceRef ref = hashToSource.get(hash);
+    if (ref == null) {
+      return null;
+    }
+    return ref.get();
+  }
+
+  private void markUsed(String hash, String source) {
+    String previous = recentlyUsed.put(hash, source);
+    if (previous == null) {
+      recentlyUsedChars += source.length();
+    }
+    // Always keep the latest one, even if it alone is above the limit.
+    Iterator<String> it = recentlyUsed.values().iterator();
+    while (recentlyUsedChars > memoryLimitChars && recentlyUsed.size() > 1) {
+      String eldest = it.next();
+      recentlyUsedChars -= eldest.length();
+      it.remove();
+    }
+  }
+
+  private void expungeStaleEntries() {
+    while (true) {
+      SourceRef ref = (SourceRef) referenceQueue.poll();
+      if (ref == null) {
+        break;
+      }
+      if (hashToSource.get(ref.hash) == ref) {
+        hashToSource.remove(ref.hash);
+      }
+    }
+  }
+
+  static String computeHash(String source) {
+    return BasicUtil.computeContentHash(source);
+  }
+
+  private static ScriptSourceStore createFromSystemProperties() {
+    long memoryLimit = DEFAULT_MEMORY_LIMIT_CHARS;
+    String memoryLimitStr = System.getProperty(MEMORY_LIMIT_PROPERTY);
+    if (memoryLimitStr != null) {
+      try {
+        memoryLimit = Long.parseLong(memoryLimitStr.trim());
+      } catch (NumberFormatException e) {
+        LOGGER.log(Level.WARNING, "Incorrect value of " + MEMORY_LIMIT_PROPERTY, e);
+      }
+    }
+    File directory = null;
+    String dirStr = System.getProperty(DIR_PROPERTY);
+    if (dirStr != null && dirStr.length() != 0) {
+      directory = new File(dirStr);
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        LOGGER.log(Level.WARNING, "Cannot create script source directory " + directory);
+        directory = null;
+      }
+    }
+    return new ScriptSourceStore(memoryLimit, directory);
+  }
+
+  private static class SourceRef extends WeakReference<String> {
+    final String hash;
+
+    SourceRef(String source, String hash, ReferenceQueue<String> queue) {
+      super(source, queue);
+      this.hash = hash;
+    }
+  }
+
+  /**
+   * Persistent tier: one UTF-8 file per source named by its hash. Files are written
+   * in a background thread.
+   */
+  private static class DiskTier {
+    private static final String CHARSET = "UTF-8";
+
+    private final File directory;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Script source store writer");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+
+    DiskTier(File directory) {
+      this.directory = directory;
+    }
+
+    void save(final String hash, final String source) {
+      writer.execute(new Runnable() {
+        @Override
+        public void run() {
+          File file = getFile(hash);
+          if (file.exists()) {
+            return;
+          }
+          File tempFile = new File(directory, hash + ".tmp");
+          try {
+            Writer fileWriter = new OutputStreamWriter(new FileOutputStream(tempFile), CHARSET);
+            try {
+              fileWriter.write(source);
+            } finally {
+              fileWriter.close();
+            }
+            if (!tempFile.renameTo(file)) {
+              tempFile.delete();
+            }
+          } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save script source", e);
+            tempFile.delete();
+          }
+        }
+      });
+    }
+
+    String load(String hash) {
+      File file = getFile(hash);
+      if (!file.isFile()) {
+        return null;
+      }
+      try {
+        Reader reader = new InputStreamReader(new FileInputStream(file), CHARSET);
+        try {
+          StringBuilder builder = new StringBuilder((int) file.length());
+          char[] buffer = new char[8192];
+          while (true) {
+            int res = reader.read(buffer);
+            if (res == -1) {
+              break;
+            }
+            builder.append(buffer, 0, res);
+          }
+          return builder.toString();
+        } finally {
+          reader.close();
+        }
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Failed to read script source", e);
+        return null;
+      }
+    }
+
+    void flush() {
+      try {
+        writer.submit(new Runnable() {
+          @Override public void run() {
+          }
+        }).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    private File getFile(String hash) {
+      return new File(directory, hash + ".js");
+    }
+  }
+}
@@ -0,0 +1,109 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.chromium.sdk.VmMetrics;
+
+/**
+ * A lock-free latency histogram with power-of-two microsecond buckets: bucket k holds
+ * samples in range [2^(k-1), 2^k) microseconds, bucket 0 holds samples under 1 microsecond.
+ */
+public class LatencyHistogram {
+  /** 2^39 microseconds is about 6 days, enough for any latency. */
+  static final int BUCKET_COUNT = 40;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final StripedCounter totalMicros = new StripedCounter();
+  private final AtomicLong maxMicros = new AtomicLong(0);
+
+  public void recordNanos(long nanos) {
+    recordMicros(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  public void recordMicros(long micros) {
+    if (micros < 0) {
+      micros = 0;
+    }
+    buckets.getAndIncrement(getBucket(micros));
+    totalMicros.add(micros);
+    while (true) {
+      long max = maxMicros.get();
+      if (micros <= max || maxMicros.compareAndSet(max, micros)) {
+        break;
+      }
+    }
+  }
+
+  public VmMetrics.Histogram getSnapshot() {
+    long[] counts = new long[BUCKET_COUNT];
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+      count += counts[i];
+    }
+    return new Snapshot(counts, count, totalMicros.get(), maxMicros.get());
+  }
+
+  static int getBucket(long micros) {
+    int bucket = 64 - Long.numberOfLeadingZeros(micros);
+    return Math.min(bucket, BUCKET_COUNT - 1);
+  }
+
+  private static class Snapshot implements VmMetrics.Histogram {
+    private final long[] counts;
+    private final long count;
+    private final long totalMicros;
+    private final long maxMicros;
+
+    Snapshot(long[] counts, long count, long totalMicros, long maxMicros) {
+      this.counts = counts;
+      this.count = count;
+      this.totalMicros = totalMicros;
+      this.maxMicros = maxMicros;
+    }
+
+    @Override public long getCount() {
+      return count;
+    }
+
+    @Override public long getTotalMicros() {
+      return totalMicros;
+    }
+
+    @Override public long getMaxMicros() {
+      return maxMicros;
+    }
+
+    @Override
+    public long getPercentileMicros(double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      long threshold = (long) Math.ceil(count * percentile / 100);
+      long accumulated = 0;
+      for (int i = 0; i < counts.length; i++) {
+        accumulated += counts[i];
+        if (accumulated >= threshold && accumulated > 0) {
+          // Upper bound of the bucket, but never above the observed maximum.
+          return Math.min((1L << i) - 1, maxMicros);
+        }
+      }
+      return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+      return "count=" + count + " total=" + totalMicros + "us p50=" +
+          getPercentileMicros(50) + "us p99=" + getPercentileMicros(99) + "us max=" +
+          maxMicros + "us";
+    }
+  }
+}
@@ -0,0 +1,210 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.chromium.sdk.VmMetrics;
+
+/**
+ * Publishes {@link VmMetrics} as a read-only dynamic MBean. Every counter or gauge becomes
+ * a Long attribute, every histogram becomes several attributes with a name suffix
+ * (".count", ".p50Micros" etc). The attribute set is recomputed on each request,
+ * as metrics appear lazily.
+ */
+public class MetricsMBean implements DynamicMBean {
+  private static final Logger LOGGER = Logger.getLogger(MetricsMBean.class.getName());
+
+  private static final String DOMAIN = "org.chromium.sdk";
+  private static final String ENABLE_PROPERTY = "org.chromium.sdk.metrics.jmx";
+  private static final AtomicInteger UNIQUE_ID = new AtomicInteger(0);
+
+  /**
+   * A handle to a registered MBean.
+   */
+  public interface Registration {
+    void unregister();
+  }
+
+  /**
+   * Registers metrics in the platform MBean server. Failure to register is logged but
+   * otherwise ignored: metrics are optional.
+   * @param vmName human-readable name of the VM; a unique suffix is always added
+   * @return registration handle, never null
+   */
+  public static Registration register(VmMetrics metrics, String vmName) {
+    if ("false".equalsIgnoreCase(System.getProperty(ENABLE_PROPERTY))) {
+      return NULL_REGISTRATION;
+    }
+    final MBeanServer server;
+    final ObjectName objectName;
+    try {
+      server = ManagementFactory.getPlatformMBeanServer();
+      objectName = new ObjectName(DOMAIN + ":type=JavascriptVm,name=" +
+          ObjectName.quote(vmName + " #" + UNIQUE_ID.incrementAndGet()));
+      server.registerMBean(new MetricsMBean(metrics), objectName);
+    } catch (JMException e) {
+      LOGGER.log(Level.WARNING, "Failed to register metrics MBean", e);
+      return NULL_REGISTRATION;
+    } catch (SecurityException e) {
+      LOGGER.log(Level.WARNING, "Failed to register metrics MBean", e);
+      return NULL_REGISTRATION;
+    }
+    return new Registration() {
+      @Override
+      public void unregister() {
+        try {
+          server.unregisterMBean(objectName);
+        } catch (JMException e) {
+          LOGGER.log(Level.FINE, "Failed to unregister metrics MBean", e);
+        }
+      }
+    };
+  }
+
+  private final VmMetrics metrics;
+
+  MetricsMBean(VmMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    Long value = metrics.getValues().get(attribute);
+    if (value != null) {
+      return value;
+    }
+    int dotPos = attribute.lastIndexOf('.');
+    if (dotPos != -1) {
+      VmMetrics.Histogram histogram =
+          metrics.getHistograms().get(attribute.substring(0, dotPos));
+      if (histogram != null) {
+        HistogramAttribute histogramAttribute =
+            HistogramAttribute.forSuffix(attribute.substring(dotPos));
+        if (histogramAttribute != null) {
+          return histogramAttribute.getValue(histogram);
+        }
+      }
+    }
+    throw new AttributeNotFoundException(attribute);
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    AttributeList result = new AttributeList();
+    for (String name : attributes) {
+      try {
+        result.add(new Attribute(name, getAttribute(name)));
+      } catch (AttributeNotFoundException e) {
+        // Skip it, as specified.
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metrics are read-only");
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature)
+      throws ReflectionException {
+    throw new ReflectionException(new NoSuchMethodException(actionName));
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+    for (String name : metrics.getValues().keySet()) {
+      attributes.add(createAttributeInfo(name));
+    }
+    for (Map.Entry<String, VmMetrics.Histogram> entry : metrics.getHistograms().entrySet()) {
+      for (HistogramAttribute histogramAttribute : HistogramAttribute.values()) {
+        attributes.add(createAttributeInfo(entry.getKey() + histogramAttribute.suffix));
+      }
+    }
+    return new MBeanInfo(getClass().getName(), "JavaScript VM connection metrics",
+        attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+  }
+
+  private static MBeanAttributeInfo createAttributeInfo(String name) {
+    return new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false);
+  }
+
+  private enum HistogramAttribute {
+    COUNT(".count") {
+      @Override long getValue(VmMetrics.Histogram histogram) {
+        return histogram.getCount();
+      }
+    },
+    TOTAL(".totalMicros") {
+      @Override long getValue(VmMetrics.Histogram histogram) {
+        return histogram.getTotalMicros();
+      }
+    },
+    P50(".p50Micros") {
+      @Override long getValue(VmMetrics.Histogram histogram) {
+        return histogram.getPercentileMicros(50);
+      }
+    },
+    P99(".p99Micros") {
+      @Override long getValue(VmMetrics.Histogram histogram) {
+        return histogram.getPercentileMicros(99);
+      }
+    },
+    MAX(".maxMicros") {
+      @Override long getValue(VmMetrics.Histogram histogram) {
+        return histogram.getMaxMicros();
+      }
+    };
+
+    final String suffix;
+
+    HistogramAttribute(String suffix) {
+      this.suffix = suffix;
+    }
+
+    abstract long getValue(VmMetrics.Histogram histogram);
+
+    static HistogramAttribute forSuffix(String suffix) {
+      for (HistogramAttribute attribute : values()) {
+        if (attribute.suffix.equals(suffix)) {
+          return attribute;
+        }
+      }
+      return null;
+    }
+  }
+
+  private static final Registration NULL_REGISTRATION = new Registration() {
+    @Override public void unregister() {
+    }
+  };
+}
@@ -0,0 +1,140 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.chromium.sdk.VmMetrics;
+import org.chromium.sdk.internal.transport.TrafficCounters;
+
+/**
+ * Holds all metrics of a single VM connection. Metrics are created on first access by name;
+ * callers are expected to look up a metric once and keep the reference, so the hot path
+ * never touches the maps.
+ */
+public class MetricsRegistry implements VmMetrics {
+  private static final Logger LOGGER = Logger.getLogger(MetricsRegistry.class.getName());
+
+  /**
+   * A value that is computed on demand.
+   */
+  public interface Gauge {
+    long getValue();
+  }
+
+  private final ConcurrentMap<String, StripedCounter> counters =
+      new ConcurrentHashMap<String, StripedCounter>();
+  private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+  private final ConcurrentMap<String, LatencyHistogram> histograms =
+      new ConcurrentHashMap<String, LatencyHistogram>();
+
+  public StripedCounter getCounter(String name) {
+    StripedCounter counter = counters.get(name);
+    if (counter == null) {
+      StripedCounter newCounter = new StripedCounter();
+      counter = counters.putIfAbsent(name, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+    return counter;
+  }
+
+  public LatencyHistogram getHistogram(String name) {
+    LatencyHistogram histogram = histograms.get(name);
+    if (histogram == null) {
+      LatencyHistogram newHistogram = new LatencyHistogram();
+      histogram = histograms.putIfAbsent(name, newHistogram);
+      if (histogram == null) {
+        histogram = newHistogram;
+      }
+    }
+    return histogram;
+  }
+
+  /**
+   * Registers a gauge; a gauge registered earlier under the same name gets replaced.
+   */
+  public void registerGauge(String name, Gauge gauge) {
+    gauges.put(name, gauge);
+  }
+
+  /**
+   * Registers gauges that read transport traffic counters.
+   */
+  public void registerTraffic(final TrafficCounters trafficCounters) {
+    registerGauge("transport.bytesIn", new Gauge() {
+      @Override public long getValue() {
+        return trafficCounters.getBytesReceived();
+      }
+    });
+    registerGauge("transport.bytesOut", new Gauge() {
+      @Override public long getValue() {
+        return trafficCounters.getBytesSent();
+      }
+    });
+    registerGauge("transport.messagesIn", new Gauge() {
+      @Override public long getValue() {
+        return trafficCounters.getMessagesReceived();
+      }
+    });
+    registerGauge("transport.messagesOut", new Gauge() {
+      @Override public long getValue() {
+        return trafficCounters.getMessagesSent();
+      }
+    });
+    registerGauge("transport.inboundQueue.size", new Gauge() {
+      @Override public long getValue() {
+        return trafficCounters.getInboundQueueSize();
+      }
+    });
+    registerGauge("transport.inboundQueue.highWater", new Gauge() {
+      @Override public long getValue() {
+        return trafficCounters.getInboundQueueHighWater();
+      }
+    });
+    registerGauge("transport.inboundQueue.stalls", new Gauge() {
+      @Override public long getValue() {
+        return trafficCounters.getInboundQueueStalls();
+      }
+    });
+  }
+
+  @Override
+  public Map<String, Long> getValues() {
+    SortedMap<String, Long> result = new TreeMap<String, Long>();
+    for (Map.Entry<String, StripedCounter> entry : counters.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().get());
+    }
+    for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+      long value;
+      try {
+        value = entry.getValue().getValue();
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Failed to read gauge " + entry.getKey(), e);
+        continue;
+      }
+      result.put(entry.getKey(), value);
+    }
+    return result;
+  }
+
+  @Override
+  public Map<String, Histogram> getHistograms() {
+    SortedMap<String, Histogram> result = new TreeMap<String, Histogram>();
+    for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().getSnapshot());
+    }
+    return result;
+  }
+}
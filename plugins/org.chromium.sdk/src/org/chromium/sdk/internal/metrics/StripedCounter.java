@@ -0,0 +1,43 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free counter that is cheap to update from many threads. Every thread adds to
+ * its own cell (chosen by thread id), cells are padded apart to avoid false sharing.
+ * Reading sums all cells and is not atomic with respect to concurrent updates.
+ */
+public class StripedCounter {
+  private static final int STRIPES = 8;
+
+  /** Number of longs between cells: 64 bytes, a typical cache line. */
+  private static final int PADDING = 8;
+
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+  public void increment() {
+    add(1);
+  }
+
+  public void add(long delta) {
+    cells.getAndAdd(getCellIndex(), delta);
+  }
+
+  public long get() {
+    long result = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      result += cells.get(i * PADDING);
+    }
+    return result;
+  }
+
+  private static int getCellIndex() {
+    return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * PADDING;
+  }
+}
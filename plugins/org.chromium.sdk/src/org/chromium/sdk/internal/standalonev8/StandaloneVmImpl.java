@@ -18,6 +18,8 @@ import org.chromium.sdk.DebugEventListener;
 import org.chromium.sdk.StandaloneVm;
 import org.chromium.sdk.UnsupportedVersionException;
 import org.chromium.sdk.internal.JsonUtil;
+import org.chromium.sdk.internal.metrics.LatencyHistogram;
+import org.chromium.sdk.internal.metrics.MetricsMBean;
 import org.chromium.sdk.internal.transport.Connection;
 import org.chromium.sdk.internal.transport.Connection.NetListener;
 import org.chromium.sdk.internal.transport.Handshaker;
@@ -65,11 +67,16 @@ public class StandaloneVmImpl extends JavascriptVmImpl implements StandaloneVm {
 
   private final Object disconnectMonitor = new Object();
 
+  private final LatencyHistogram jsonParseHistogram;
+  private volatile MetricsMBean.Registration metricsRegistration = null;
+
   public StandaloneVmImpl(Connection connection, Handshaker.StandaloneV8 handshaker) {
     this.connection = connection;
     this.handshaker = handshaker;
     V8CommandOutputImpl v8CommandOutput = new V8CommandOutputImpl(connection);
     this.debugSession = new DebugSession(sessionManager, CONTEXT_FILTER, v8CommandOutput, this);
+    debugSession.getMetrics().registerTraffic(connection.getTrafficCounters());
+    this.jsonParseHistogram = debugSession.getMetrics().getHistogram("parse.json");
   }
 
   public void attach(DebugEventListener listener)
@@ -107,12 +114,14 @@ public class StandaloneVmImpl extends JavascriptVmImpl implements StandaloneVm {
 
       public void messageReceived(Message message) {
         JSONObject json;
+        long parseStart = System.nanoTime();
         try {
           json = JsonUtil.jsonObjectFromJson(message.getContent());
         } catch (ParseException e) {
           LOGGER.log(Level.SEVERE, "Invalid JSON received: {0}", message.getContent());
           return;
         }
+        jsonParseHistogram.recordNanos(System.nanoTime() - parseStart);
         debugSession.getV8CommandProcessor().processIncomingJson(json);
       }
     };
@@ -146,6 +155,8 @@ public class StandaloneVmImpl extends JavascriptVmImpl implements StandaloneVm {
 
     debugSession.startCommunication();
 
+    metricsRegistration = MetricsMBean.register(getMetrics(), "StandaloneVm");
+
     connectionState = ConnectionState.CONNECTED;
   }
 
@@ -171,6 +182,10 @@ public class StandaloneVmImpl extends JavascriptVmImpl implements StandaloneVm {
       connectionState = ConnectionState.DETACHED;
       disconnectReason = cause;
     }
+    if (metricsRegistration != null) {
+      metricsRegistration.unregister();
+      metricsRegistration = null;
+    }
     if (debugEventListener != null) {
       debugEventListener.disconnected();
     }
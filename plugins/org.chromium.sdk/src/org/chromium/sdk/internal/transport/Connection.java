@@ -84,4 +84,9 @@ public interface Connection {
    *         been invoked yet
    */
   boolean isConnected();
+
+  /**
+   * @return counters of the traffic that went through the connection
+   */
+  TrafficCounters getTrafficCounters();
 }
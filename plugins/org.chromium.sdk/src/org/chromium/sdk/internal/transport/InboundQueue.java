@@ -0,0 +1,103 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.transport;
+
+import java.util.ArrayDeque;
+
+/**
+ * A queue between a connection reader thread and its dispatch thread. Messages read from
+ * the socket are put with {@link #putWithBackPressure}, which blocks the reader while
+ * the queue is full: a slow listener then slows down reading instead of letting the queue
+ * grow without limit (the remote side gets throttled by the socket flow control).
+ * <p>
+ * Internal items (tasks that the dispatch thread may post to itself, end-of-stream marker)
+ * are put with {@link #add} that never blocks and ignores the capacity, so the dispatch thread
+ * cannot deadlock on its own queue.
+ * <p>
+ * The capacity is set in "org.chromium.sdk.transport.inboundQueueCapacity" system property.
+ * Queue size, high-water mark and number of reader stalls go to {@link TrafficCounters}.
+ */
+public class InboundQueue<T> {
+  private static final int DEFAULT_CAPACITY =
+      Integer.getInteger("org.chromium.sdk.transport.inboundQueueCapacity", 1000);
+
+  private final int capacity;
+  private final TrafficCounters trafficCounters;
+  private final Object lock = new Object();
+
+  /** Guarded by lock. */
+  private final ArrayDeque<T> items = new ArrayDeque<T>();
+
+  public InboundQueue(TrafficCounters trafficCounters) {
+    this(DEFAULT_CAPACITY, trafficCounters);
+  }
+
+  public InboundQueue(int capacity, TrafficCounters trafficCounters) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.trafficCounters = trafficCounters;
+  }
+
+  /**
+   * Puts a message, waiting while the queue is full.
+   */
+  public void putWithBackPressure(T item) throws InterruptedException {
+    synchronized (lock) {
+      if (items.size() >= capacity) {
+        trafficCounters.inboundQueueStalled();
+        do {
+          lock.wait();
+        } while (items.size() >= capacity);
+      }
+      addImpl(item);
+    }
+  }
+
+  /**
+   * Puts an item without waiting, even if the queue is full.
+   */
+  public void add(T item) {
+    synchronized (lock) {
+      addImpl(item);
+    }
+  }
+
+  public T take() throws InterruptedException {
+    synchronized (lock) {
+      while (items.isEmpty()) {
+        lock.wait();
+      }
+      T result = items.poll();
+      trafficCounters.inboundQueueSizeChanged(items.size());
+      if (items.size() == capacity - 1) {
+        // Reader may be waiting for a free slot.
+        lock.notifyAll();
+      }
+      return result;
+    }
+  }
+
+  public int size() {
+    synchronized (lock) {
+      return items.size();
+    }
+  }
+
+  private void addImpl(T item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    items.add(item);
+    trafficCounters.inboundQueueSizeChanged(items.size());
+    if (items.size() == 1) {
+      // Dispatch thread may be waiting for an item.
+      lock.notifyAll();
+    }
+  }
+}
@@ -7,6 +7,7 @@
 package org.chromium.sdk.internal.transport;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.SocketAddress;
 import java.nio.charset.Charset;
 import java.util.concurrent.BlockingQueue;
@@ -66,11 +67,13 @@ public class SocketConnection implements Connection {
   private class WriterThread extends InterruptibleThread {
 
     private final SocketWrapper.LoggableOutputStream writer;
+    private final OutputStream countingOutput;
 
     public WriterThread(SocketWrapper.LoggableOutputStream writer) {
       super("WriterThread");
       // Wrap writer into a buffered writer.
       this.writer = writer;
+      this.countingOutput = trafficCounters.wrapOutput(writer.getOutputStream());
     }
 
     @Override
@@ -87,8 +90,9 @@ public class SocketConnection implements Connection {
     private void handleOutboundMessage(Message message) {
       try {
         LOGGER.log(Level.FINER, "-->{0}", message);
-        message.sendThrough(writer.getOutputStream(), SOCKET_CHARSET);
-        writer.getOutputStream().flush();
+        message.sendThrough(countingOutput, SOCKET_CHARSET);
+        countingOutput.flush();
+        trafficCounters.messageSent();
         writer.markSeparatorForLog();
       } catch (IOException e) {
         shutdownRelay.sendSignal(false, e);
@@ -153,7 +157,7 @@ public class SocketConnection implements Connection {
           connectionLogger.start();
         }
 
-        LineReader lineReader = new LineReader(reader.getInputStream());
+        LineReader lineReader = new LineReader(trafficCounters.wrapInput(reader.getInputStream()));
 
         handshaker.perform(lineReader, handshakeWriter.getOutputStream());
 
@@ -174,12 +178,17 @@ public class SocketConnection implements Connection {
             LOGGER.fine("End of stream");
             break;
           }
-          inboundQueue.add(new RegularMessageItem(message));
+          trafficCounters.messageReceived();
+          inboundQueue.putWithBackPressure(new RegularMessageItem(message));
           reader.markSeparatorForLog();
         }
         breakException = null;
       } catch (IOException e) {
         breakException = e;
+      } catch (InterruptedException e) {
+        // Interrupted while waiting for the slow dispatcher; terminate thread.
+        breakException = null;
+        interrupt();
       } finally {
         synchronized (inboundQueue) {
           inboundQueue.add(EOS);
@@ -256,8 +265,11 @@ public class SocketConnection implements Connection {
   /** The listener to report network events to. */
   private volatile NetListener listener;
 
+  private final TrafficCounters trafficCounters = new TrafficCounters();
+
   /** The inbound message queue. */
-  private final BlockingQueue<MessageItem> inboundQueue = new LinkedBlockingQueue<MessageItem>();
+  private final InboundQueue<MessageItem> inboundQueue =
+      new InboundQueue<MessageItem>(trafficCounters);
 
   /** Field must be accessed synchronized on inboundQueue */
   private boolean isInboundQueueClosed = false;
@@ -324,15 +336,12 @@ public class SocketConnection implements Connection {
         return false;
       }
     };
-    try {
-      synchronized (inboundQueue) {
-        if (isInboundQueueClosed) {
-          throw new IllegalStateException("Connection is closed");
-        }
-        inboundQueue.put(messageItem);
+    synchronized (inboundQueue) {
+      if (isInboundQueueClosed) {
+        throw new IllegalStateException("Connection is closed");
       }
-    } catch (InterruptedException e) {
-      throw new RuntimeException(e);
+      // Never blocks: the dispatch thread itself may post tasks.
+      inboundQueue.add(messageItem);
     }
   }
 
@@ -411,6 +420,11 @@ public class SocketConnection implements Connection {
     return isAttached();
   }
 
+  @Override
+  public TrafficCounters getTrafficCounters() {
+    return trafficCounters;
+  }
+
   @Override
   public void send(Message message) {
     checkAttached();
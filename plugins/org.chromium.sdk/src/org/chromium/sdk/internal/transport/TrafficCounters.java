@@ -0,0 +1,143 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.transport;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.chromium.sdk.internal.metrics.StripedCounter;
+
+/**
+ * Counts bytes and messages that a transport sends and receives. Bytes are counted
+ * as they go through the socket, including protocol framing. Also tracks the state of
+ * the {@link InboundQueue} of the transport.
+ */
+public class TrafficCounters {
+  private final StripedCounter bytesSent = new StripedCounter();
+  private final StripedCounter bytesReceived = new StripedCounter();
+  private final StripedCounter messagesSent = new StripedCounter();
+  private final StripedCounter messagesReceived = new StripedCounter();
+  private final StripedCounter inboundQueueStalls = new StripedCounter();
+  private volatile int inboundQueueSize = 0;
+  private volatile int inboundQueueHighWater = 0;
+
+  public void messageSent(long bytes) {
+    messagesSent.increment();
+    bytesSent.add(bytes);
+  }
+
+  public void messageReceived(long bytes) {
+    messagesReceived.increment();
+    bytesReceived.add(bytes);
+  }
+
+  public long getBytesSent() {
+    return bytesSent.get();
+  }
+
+  public long getBytesReceived() {
+    return bytesReceived.get();
+  }
+
+  public long getMessagesSent() {
+    return messagesSent.get();
+  }
+
+  public long getMessagesReceived() {
+    return messagesReceived.get();
+  }
+
+  public int getInboundQueueSize() {
+    return inboundQueueSize;
+  }
+
+  /**
+   * @return the biggest number of items the inbound queue has ever held
+   */
+  public int getInboundQueueHighWater() {
+    return inboundQueueHighWater;
+  }
+
+  /**
+   * @return how many times the reader thread had to wait for the inbound queue
+   */
+  public long getInboundQueueStalls() {
+    return inboundQueueStalls.get();
+  }
+
+  /**
+   * @return a stream that counts all bytes read as received
+   */
+  public InputStream wrapInput(InputStream input) {
+    return new FilterInputStream(input) {
+      @Override
+      public int read() throws IOException {
+        int res = super.read();
+        if (res != -1) {
+          bytesReceived.increment();
+        }
+        return res;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int res = super.read(b, off, len);
+        if (res > 0) {
+          bytesReceived.add(res);
+        }
+        return res;
+      }
+    };
+  }
+
+  /**
+   * @return a stream that counts all bytes written as sent
+   */
+  public OutputStream wrapOutput(OutputStream output) {
+    return new FilterOutputStream(output) {
+      @Override
+      public void write(int b) throws IOException {
+        out.write(b);
+        bytesSent.increment();
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        bytesSent.add(len);
+      }
+    };
+  }
+
+  /**
+   * Counts a message whose bytes have already been counted by a wrapped stream.
+   */
+  void messageSent() {
+    messagesSent.increment();
+  }
+
+  void messageReceived() {
+    messagesReceived.increment();
+  }
+
+  /**
+   * Caller must be synchronized on the queue lock.
+   */
+  void inboundQueueSizeChanged(int size) {
+    inboundQueueSize = size;
+    if (size > inboundQueueHighWater) {
+      inboundQueueHighWater = size;
+    }
+  }
+
+  void inboundQueueStalled() {
+    inboundQueueStalls.increment();
+  }
+}
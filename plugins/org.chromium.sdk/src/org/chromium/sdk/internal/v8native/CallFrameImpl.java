@@ -6,9 +6,13 @@
 
 package org.chromium.sdk.internal.v8native;
 
+import static org.chromium.sdk.util.BasicUtil.removeSafe;
+
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.chromium.sdk.CallFrame;
@@ -34,10 +38,12 @@ import org.chromium.sdk.internal.v8native.protocol.input.SuccessCommandResponse;
 import org.chromium.sdk.internal.v8native.protocol.output.DebuggerMessage;
 import org.chromium.sdk.internal.v8native.protocol.output.DebuggerMessageFactory;
 import org.chromium.sdk.internal.v8native.protocol.output.RestartFrameMessage;
+import org.chromium.sdk.internal.v8native.protocol.output.ScopeMessage;
 import org.chromium.sdk.internal.v8native.value.JsScopeImpl;
 import org.chromium.sdk.internal.v8native.value.JsVariableBase;
 import org.chromium.sdk.internal.v8native.value.PropertyReference;
 import org.chromium.sdk.internal.v8native.value.ValueLoader;
+import org.chromium.sdk.internal.v8native.value.ValueLoaderImpl;
 import org.chromium.sdk.internal.v8native.value.ValueMirror;
 import org.chromium.sdk.util.GenericCallback;
 import org.chromium.sdk.util.MethodIsBlockingException;
@@ -81,6 +87,10 @@ public class CallFrameImpl implements CallFrame {
   private final AtomicReference<JsVariable> receiverVariableRef =
       new AtomicReference<JsVariable>(null);
 
+  /** Scope data requested by {@link #prefetchVariables()}, by scope index. */
+  private final Map<Integer, ValueLoaderImpl.PrefetchedScope> prefetchedScopes =
+      new HashMap<Integer, ValueLoaderImpl.PrefetchedScope>(4);
+
   /**
    * A script associated with the frame.
    */
@@ -177,6 +187,39 @@ public class CallFrameImpl implements CallFrame {
     }
   }
 
+  /**
+   * Sends requests for scopes and receiver of this frame without waiting for responses,
+   * so that {@link #getVariableScopes()} and {@link #getReceiverVariable()} find the data
+   * already loaded. The global scope is skipped as it is typically huge.
+   */
+  void prefetchVariables() {
+    ValueLoaderImpl valueLoader = context.getValueLoader();
+    for (ScopeRef scopeRef : frameObject.scopes()) {
+      if (JsScopeImpl.convertType((int) scopeRef.type()) == JsScope.Type.GLOBAL) {
+        continue;
+      }
+      int scopeIndex = (int) scopeRef.index();
+      ValueLoaderImpl.PrefetchedScope prefetchedScope = valueLoader.prefetchScopeFields(
+          new ScopeMessage.Ref(scopeIndex, ScopeMessage.Host.createFrame(frameId)));
+      synchronized (prefetchedScopes) {
+        prefetchedScopes.put(scopeIndex, prefetchedScope);
+      }
+    }
+    PropertyReference receiverRef = V8Helper.computeReceiverRef(frameObject);
+    if (receiverRef != null) {
+      valueLoader.prefetchValuesFromRefs(Collections.singletonList(receiverRef));
+    }
+  }
+
+  /**
+   * @return scope data requested by {@link #prefetchVariables()} or null
+   */
+  public ValueLoaderImpl.PrefetchedScope takePrefetchedScope(int scopeIndex) {
+    synchronized (prefetchedScopes) {
+      return removeSafe(prefetchedScopes, scopeIndex);
+    }
+  }
+
   @Override
   public TextStreamPosition getStatementStartPosition() {
     return textStreamPosition;
@@ -29,6 +29,14 @@ import org.chromium.sdk.internal.v8native.protocol.output.DebuggerMessageFactory
 import org.chromium.sdk.internal.v8native.value.ValueLoaderImpl;
 
 public class ContextBuilder {
+  /**
+   * How many top frames get their scopes and receiver requested right after the backtrace,
+   * before a client asks for them. It is set in "org.chromium.sdk.prefetchFrames"
+   * system property; 0 disables prefetching.
+   */
+  private static final int PREFETCH_FRAME_COUNT =
+      Integer.getInteger("org.chromium.sdk.prefetchFrames", 1);
+
   private final DebugSession debugSession;
 
   /**
@@ -439,6 +447,11 @@ public class ContextBuilder {
 
       this.scriptsLinkedToFrames = false;
       this.unmodifableFrames = Collections.unmodifiableList(Arrays.asList(callFrames));
+
+      int prefetchCount = Math.min(PREFETCH_FRAME_COUNT, callFrames.length);
+      for (int i = 0; i < prefetchCount; i++) {
+        callFrames[i].prefetchVariables();
+      }
     }
 
     synchronized List<CallFrameImpl> getCallFrames() {
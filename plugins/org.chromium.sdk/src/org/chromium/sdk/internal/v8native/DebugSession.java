@@ -20,6 +20,7 @@ import org.chromium.sdk.JavascriptVm.SuspendCallback;
 import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.SyncCallback;
 import org.chromium.sdk.Version;
+import org.chromium.sdk.internal.metrics.MetricsRegistry;
 import org.chromium.sdk.internal.v8native.InternalContext.ContextDismissedCheckedException;
 import org.chromium.sdk.internal.v8native.protocol.V8ProtocolUtil;
 import org.chromium.sdk.internal.v8native.protocol.input.CommandResponse;
@@ -60,6 +61,8 @@ public class DebugSession {
 
   private volatile Version vmVersion = null;
 
+  private final MetricsRegistry metrics = new MetricsRegistry();
+
   public DebugSession(DebugSessionManager sessionManager, V8ContextFilter contextFilter,
       V8CommandOutput v8CommandOutput, JavascriptVm javascriptVm) {
     this.scriptManager = new ScriptManager(contextFilter, this);
@@ -69,7 +72,12 @@ public class DebugSession {
 
     this.defaultResponseHandler = new DefaultResponseHandler(this);
     this.v8CommandProcessor = new V8CommandProcessor(v8CommandOutput, defaultResponseHandler,
-        this);
+        this, metrics);
+    metrics.registerGauge("scripts.count", new MetricsRegistry.Gauge() {
+      @Override public long getValue() {
+        return scriptManager.getScriptCount();
+      }
+    });
     this.contextBuilder = new ContextBuilder(this);
   }
 
@@ -77,6 +85,10 @@ public class DebugSession {
     return scriptManager;
   }
 
+  public MetricsRegistry getMetrics() {
+    return metrics;
+  }
+
   public V8CommandProcessor getV8CommandProcessor() {
     return v8CommandProcessor;
   }
@@ -36,6 +36,13 @@ public class DefaultResponseHandler {
     return bpp;
   }
 
+  /**
+   * Stops the event processors that work in background. Called when the connection is closed.
+   */
+  public void connectionClosed() {
+    afterCompileProcessor.close();
+  }
+
   /**
    * @param type response type ("response" or "event")
    * @param response from the V8 VM debugger
@@ -57,6 +64,10 @@ public class DefaultResponseHandler {
     if (handlerGetter == null) {
       return;
     }
+    if (command == DebuggerCommand.BREAK || command == DebuggerCommand.EXCEPTION) {
+      // Scripts compiled just before the break must be known when frames are linked to them.
+      afterCompileProcessor.flush();
+    }
     handlerGetter.get(this).messageReceived(eventResponse);
   }
 
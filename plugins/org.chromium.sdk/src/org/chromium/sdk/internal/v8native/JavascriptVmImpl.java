@@ -8,16 +8,19 @@ package org.chromium.sdk.internal.v8native;
 
 import java.io.IOException;
 
+import org.chromium.sdk.AsyncPropertiesExtension;
 import org.chromium.sdk.Breakpoint;
 import org.chromium.sdk.BreakpointTypeExtension;
 import org.chromium.sdk.CallbackSemaphore;
 import org.chromium.sdk.FunctionScopeExtension;
 import org.chromium.sdk.IgnoreCountBreakpointExtension;
 import org.chromium.sdk.JavascriptVm;
+import org.chromium.sdk.LiveEditBatchExtension;
 import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.RestartFrameExtension;
 import org.chromium.sdk.SyncCallback;
 import org.chromium.sdk.Version;
+import org.chromium.sdk.VmMetrics;
 import org.chromium.sdk.internal.v8native.value.JsFunctionImpl;
 import org.chromium.sdk.util.GenericCallback;
 import org.chromium.sdk.util.MethodIsBlockingException;
@@ -48,6 +51,11 @@ public abstract class JavascriptVmImpl implements JavascriptVm {
     }
   }
 
+  @Override
+  public RelayOk getScripts(ScriptsCallback callback, SyncCallback syncCallback) {
+    return getDebugSession().getScriptManagerProxy().getAllScripts(callback, syncCallback);
+  }
+
   @Override
   public RelayOk setBreakpoint(Breakpoint.Target target, int line,
       int column, boolean enabled, String condition,
@@ -107,6 +115,22 @@ public abstract class JavascriptVmImpl implements JavascriptVm {
     return CallFrameImpl.RESTART_FRAME_EXTENSION;
   }
 
+  @Override
+  public AsyncPropertiesExtension getAsyncPropertiesExtension() {
+    // Properties are loaded synchronously in this backend.
+    return null;
+  }
+
+  @Override
+  public LiveEditBatchExtension getLiveEditBatchExtension() {
+    return new LiveEditBatchImpl(getDebugSession());
+  }
+
+  @Override
+  public VmMetrics getMetrics() {
+    return getDebugSession().getMetrics();
+  }
+
   public abstract DebugSession getDebugSession();
 
   // TODO(peter.rybin): This message will be obsolete in JavaSE-1.6.
@@ -0,0 +1,289 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.internal.v8native;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.chromium.sdk.DebugContext;
+import org.chromium.sdk.DebugEventListener;
+import org.chromium.sdk.LiveEditBatchExtension;
+import org.chromium.sdk.RelayOk;
+import org.chromium.sdk.SyncCallback;
+import org.chromium.sdk.UpdatableScript;
+import org.chromium.sdk.internal.v8native.V8Helper.ScriptLoadCallback;
+import org.chromium.sdk.internal.v8native.protocol.input.ChangeLiveBody;
+import org.chromium.sdk.util.RelaySyncCallback;
+
+/**
+ * Implements {@link LiveEditBatchExtension} for V8 native protocol. All "changelive" commands
+ * of a phase are sent at once; V8 handles them in order. After the last response the changed
+ * scripts are reloaded with one "scripts" command and the current context is rebuilt at most
+ * once.
+ */
+class LiveEditBatchImpl implements LiveEditBatchExtension {
+  private static final Logger LOGGER = Logger.getLogger(LiveEditBatchImpl.class.getName());
+
+  private final DebugSession debugSession;
+
+  LiveEditBatchImpl(DebugSession debugSession) {
+    this.debugSession = debugSession;
+  }
+
+  @Override
+  public RelayOk previewSetSources(List<? extends Change> changes,
+      final BatchCallback callback, SyncCallback syncCallback) {
+    final RelaySyncCallback relay = new RelaySyncCallback(syncCallback);
+    final List<Result> results = new ArrayList<Result>(changes.size());
+    PhaseCallback phaseCallback = new PhaseCallback() {
+      @Override
+      RelayOk allDone() {
+        try {
+          for (Result result : results) {
+            result.report(false);
+          }
+          if (callback != null) {
+            callback.done(false, false);
+          }
+        } catch (RuntimeException e) {
+          relay.finish();
+          throw e;
+        }
+        return relay.finish();
+      }
+    };
+    return sendPhase(changes, true, results, phaseCallback);
+  }
+
+  @Override
+  public RelayOk setSourcesOnRemote(final List<? extends Change> changes,
+      final BatchCallback callback, SyncCallback syncCallback) {
+    final RelaySyncCallback relay = new RelaySyncCallback(syncCallback);
+    final List<Result> previewResults = new ArrayList<Result>(changes.size());
+    PhaseCallback previewCallback = new PhaseCallback() {
+      @Override
+      RelayOk allDone() {
+        Result failedPreview = null;
+        for (Result result : previewResults) {
+          if (result.body == null) {
+            failedPreview = result;
+            break;
+          }
+        }
+        if (failedPreview == null) {
+          return applyChanges(changes, callback, relay);
+        }
+        try {
+          reportCancelled(previewResults, failedPreview);
+          if (callback != null) {
+            callback.done(false, false);
+          }
+        } catch (RuntimeException e) {
+          relay.finish();
+          throw e;
+        }
+        return relay.finish();
+      }
+    };
+    return sendPhase(changes, true, previewResults, previewCallback);
+  }
+
+  private RelayOk applyChanges(final List<? extends Change> changes,
+      final BatchCallback callback, final RelaySyncCallback relay) {
+    final List<Result> results = new ArrayList<Result>(changes.size());
+    PhaseCallback phaseCallback = new PhaseCallback() {
+      @Override
+      RelayOk allDone() {
+        try {
+          boolean resumed = finishUpdate(results);
+          for (Result result : results) {
+            result.report(resumed);
+          }
+          if (callback != null) {
+            callback.done(true, resumed);
+          }
+        } catch (RuntimeException e) {
+          relay.finish();
+          throw e;
+        }
+        return relay.finish();
+      }
+    };
+    return sendPhase(changes, false, results, phaseCallback);
+  }
+
+  /**
+   * Makes the post-change steps once for all updated scripts.
+   * @return whether VM has been resumed
+   */
+  private boolean finishUpdate(List<Result> results) {
+    final List<ScriptImpl> updatedScripts = new ArrayList<ScriptImpl>(results.size());
+    List<Long> ids = new ArrayList<Long>(results.size());
+    boolean stepInRecommended = false;
+    boolean stackModified = false;
+    for (Result result : results) {
+      if (result.body == null) {
+        continue;
+      }
+      updatedScripts.add(result.script);
+      ids.add(result.script.getId());
+      if (result.body.stepin_recommended() == Boolean.TRUE) {
+        stepInRecommended = true;
+      }
+      if (result.changeDescription != null && result.changeDescription.isStackModified()) {
+        stackModified = true;
+      }
+    }
+    if (updatedScripts.isEmpty()) {
+      return false;
+    }
+
+    ScriptLoadCallback scriptCallback = new ScriptLoadCallback() {
+      @Override
+      public void failure(String message) {
+        LOGGER.log(Level.SEVERE,
+            "Failed to reload scripts after LiveEdit script update; " + message);
+      }
+
+      @Override
+      public void success() {
+        DebugEventListener listener = debugSession.getDebugEventListener();
+        if (listener != null) {
+          for (ScriptImpl script : updatedScripts) {
+            listener.scriptContentChanged(script);
+          }
+        }
+      }
+    };
+    V8Helper.reloadScriptAsync(debugSession, ids, scriptCallback, null);
+
+    if (stepInRecommended) {
+      DebugContext debugContext = debugSession.getContextBuilder().getCurrentDebugContext();
+      if (debugContext != null) {
+        debugContext.continueVm(DebugContext.StepAction.IN, 0, null, null);
+        return true;
+      }
+    } else if (stackModified) {
+      debugSession.recreateCurrentContext();
+    }
+    return false;
+  }
+
+  /**
+   * Sends "changelive" command for every change without waiting for responses. Calls
+   * {@link PhaseCallback#allDone} once all commands have been processed, whether
+   * successfully or not.
+   * @return the relay of the last command or, if all commands have already been processed,
+   *     the relay returned from {@link PhaseCallback#allDone}
+   */
+  private RelayOk sendPhase(List<? extends Change> changes, boolean previewOnly,
+      List<Result> results, final PhaseCallback phaseCallback) {
+    phaseCallback.pending = changes.size() + 1;
+    RelayOk lastRelayOk = null;
+    for (Change change : changes) {
+      final Result result = new Result((ScriptImpl) change.getScript(), change.getCallback());
+      results.add(result);
+      SyncCallback commandSyncCallback = new SyncCallback() {
+        @Override
+        public void callbackDone(RuntimeException e) {
+          if (result.body == null && result.failureMessage == null) {
+            // The command has not been sent or its callback has failed.
+            result.failure(e == null ? "No response" : e.getMessage(),
+                UpdatableScript.Failure.UNSPECIFIED);
+          }
+          phaseCallback.commandDone();
+        }
+      };
+      lastRelayOk = result.script.sendChangeLive(change.getNewSource(), previewOnly, result,
+          commandSyncCallback);
+    }
+    RelayOk doneRelayOk = phaseCallback.commandDone();
+    return doneRelayOk == null ? lastRelayOk : doneRelayOk;
+  }
+
+  /**
+   * Reports the failed previews as they are and every other change as not applied.
+   */
+  private static void reportCancelled(List<Result> previewResults, Result failedPreview) {
+    String scriptName = failedPreview.script.getName();
+    if (scriptName == null) {
+      scriptName = String.valueOf(failedPreview.script.getId());
+    }
+    for (Result result : previewResults) {
+      if (result.body != null) {
+        result.failure("not applied: preview of " + scriptName + " failed",
+            UpdatableScript.Failure.UNSPECIFIED);
+      }
+      result.report(false);
+    }
+  }
+
+  private static abstract class PhaseCallback {
+    /** Number of unfinished commands plus one for the sending loop. Guarded by 'this'. */
+    int pending;
+
+    /**
+     * @return the relay from {@link #allDone} if this was the last command or null
+     */
+    RelayOk commandDone() {
+      synchronized (this) {
+        pending--;
+        if (pending != 0) {
+          return null;
+        }
+      }
+      return allDone();
+    }
+
+    abstract RelayOk allDone();
+  }
+
+  /**
+   * Holds the response for one change until the whole phase has finished.
+   */
+  private static class Result implements ScriptImpl.ChangeLiveCallback {
+    final ScriptImpl script;
+    final UpdatableScript.UpdateCallback callback;
+
+    ChangeLiveBody body = null;
+    UpdatableScript.ChangeDescription changeDescription = null;
+    String failureMessage = null;
+    UpdatableScript.Failure failure = null;
+
+    Result(ScriptImpl script, UpdatableScript.UpdateCallback callback) {
+      this.script = script;
+      this.callback = callback;
+    }
+
+    @Override
+    public void success(ChangeLiveBody body,
+        UpdatableScript.ChangeDescription changeDescription) {
+      this.body = body;
+      this.changeDescription = changeDescription;
+    }
+
+    @Override
+    public void failure(String message, UpdatableScript.Failure failure) {
+      this.body = null;
+      this.failureMessage = message == null ? "" : message;
+      this.failure = failure;
+    }
+
+    void report(boolean resumed) {
+      if (callback == null) {
+        return;
+      }
+      if (body != null) {
+        callback.success(resumed, body.getChangeLog(), changeDescription);
+      } else {
+        callback.failure(failureMessage, failure);
+      }
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package org.chromium.sdk.internal.v8native;
 
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,11 +29,21 @@ public class ScriptImpl extends ScriptBase<Long> {
 
   private final DebugSession debugSession;
 
+  /** Whether the source has been requested after the script was reported without it. */
+  private final AtomicBoolean sourceRequested = new AtomicBoolean(false);
+
   public ScriptImpl(Descriptor<Long> descriptor, DebugSession debugSession) {
     super(descriptor);
     this.debugSession = debugSession;
   }
 
+  /**
+   * @return true if the source has not been requested before
+   */
+  boolean markSourceRequested() {
+    return sourceRequested.compareAndSet(false, true);
+  }
+
   @Override
   public RelayOk setSourceOnRemote(String newSource, UpdateCallback callback,
       SyncCallback syncCallback) {
@@ -49,19 +60,31 @@ public class ScriptImpl extends ScriptBase<Long> {
         true, v8Callback, syncCallback);
   }
 
+  /**
+   * Sends "changelive" command without any follow-up actions (script reload, step in or
+   * context rebuild); the caller is responsible for them.
+   */
+  RelayOk sendChangeLive(String newSource, boolean previewOnly,
+      ChangeLiveCallback callback, SyncCallback syncCallback) {
+    return debugSession.sendMessageAsync(
+        new ChangeLiveMessage(getId(), newSource, Boolean.valueOf(previewOnly)),
+        true, createChangeLiveCallback(callback), syncCallback);
+  }
+
+  /**
+   * Receives a parsed response to "changelive" command.
+   */
+  interface ChangeLiveCallback {
+    void success(ChangeLiveBody body, UpdatableScript.ChangeDescription changeDescription);
+    void failure(String message, UpdatableScript.Failure failure);
+  }
+
   private V8CommandProcessor.V8HandlerCallback createScriptUpdateCallback(
       final UpdateCallback callback, final boolean previewOnly) {
-    return new V8CommandCallbackBase() {
+    return createChangeLiveCallback(new ChangeLiveCallback() {
       @Override
-      public void success(SuccessCommandResponse successResponse) {
-        ChangeLiveBody body;
-        try {
-          body = successResponse.body().asChangeLiveBody();
-        } catch (JsonProtocolParseException e) {
-          throw new RuntimeException(e);
-        }
-
-        LiveEditResult resultDescription = body.getResultDescription();
+      public void success(ChangeLiveBody body,
+          UpdatableScript.ChangeDescription changeDescription) {
         boolean resumed = false;
         if (!previewOnly) {
           ScriptLoadCallback scriptCallback = new ScriptLoadCallback() {
@@ -92,18 +115,41 @@ public class ScriptImpl extends ScriptBase<Long> {
               resumed = true;
             }
           } else {
-            if (resultDescription != null && resultDescription.stack_modified()) {
+            if (changeDescription != null && changeDescription.isStackModified()) {
               debugSession.recreateCurrentContext();
             }
           }
         }
 
         if (callback != null) {
-          callback.success(resumed, body.getChangeLog(),
-              UpdateResultParser.wrapChangeDescription(resultDescription));
+          callback.success(resumed, body.getChangeLog(), changeDescription);
         }
       }
 
+      @Override
+      public void failure(String message, UpdatableScript.Failure failure) {
+        if (callback != null) {
+          callback.failure(message, failure);
+        }
+      }
+    });
+  }
+
+  private static V8CommandProcessor.V8HandlerCallback createChangeLiveCallback(
+      final ChangeLiveCallback callback) {
+    return new V8CommandCallbackBase() {
+      @Override
+      public void success(SuccessCommandResponse successResponse) {
+        ChangeLiveBody body;
+        try {
+          body = successResponse.body().asChangeLiveBody();
+        } catch (JsonProtocolParseException e) {
+          throw new RuntimeException(e);
+        }
+        LiveEditResult resultDescription = body.getResultDescription();
+        callback.success(body, UpdateResultParser.wrapChangeDescription(resultDescription));
+      }
+
       @Override
       public void failure(String message, ErrorDetails errorDetails) {
         UpdatableScript.Failure failure;
@@ -9,6 +9,7 @@ package org.chromium.sdk.internal.v8native;
 import static org.chromium.sdk.util.BasicUtil.getSafe;
 import static org.chromium.sdk.util.BasicUtil.removeSafe;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -16,12 +17,16 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
+import org.chromium.sdk.DebugEventListener;
+import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.Script;
+import org.chromium.sdk.SyncCallback;
 import org.chromium.sdk.Script.Type;
 import org.chromium.sdk.internal.ScriptBase.Descriptor;
 import org.chromium.sdk.internal.v8native.protocol.V8ProtocolUtil;
 import org.chromium.sdk.internal.v8native.protocol.input.data.ScriptHandle;
 import org.chromium.sdk.internal.v8native.protocol.input.data.SomeHandle;
+import org.chromium.sdk.util.RelaySyncCallback;
 
 /**
  * Manages scripts known in the corresponding browser tab.
@@ -69,6 +74,37 @@ public class ScriptManager {
     return theScript;
   }
 
+  /**
+   * Adds several scripts using a "scripts" V8 response and reports them in one
+   * batch if the listener supports it.
+   *
+   * @param scriptBodies to add the scripts from
+   * @param refs that contain the associated script debug contexts
+   * @return the scripts that have been added
+   */
+  public List<Script> addScripts(List<ScriptHandle> scriptBodies, List<SomeHandle> refs) {
+    List<Script> result = new ArrayList<Script>(scriptBodies.size());
+    for (ScriptHandle scriptBody : scriptBodies) {
+      ScriptImpl theScript = addScriptImpl(scriptBody, refs);
+      if (theScript != null) {
+        result.add(theScript);
+      }
+    }
+    if (result.isEmpty()) {
+      return result;
+    }
+    DebugEventListener listener = debugSession.getSessionManager().getDebugEventListener();
+    if (listener instanceof DebugEventListener.ScriptBatchListener) {
+      ((DebugEventListener.ScriptBatchListener) listener).scriptsLoaded(
+          Collections.unmodifiableList(result));
+    } else {
+      for (Script script : result) {
+        listener.scriptLoaded(script);
+      }
+    }
+    return result;
+  }
+
   ScriptImpl addScriptImpl(ScriptHandle scriptBody, List<SomeHandle> refs) {
     ScriptImpl theScript = findById(V8ProtocolUtil.getScriptIdFromResponse(scriptBody));
     synchronized (this) {
@@ -87,6 +123,62 @@ public class ScriptManager {
     return theScript;
   }
 
+  /**
+   * Requests sources of the scripts that were reported without them (see
+   * {@link org.chromium.sdk.internal.v8native.processor.AfterCompileProcessor.EvalScriptPolicy#LAZY})
+   * in one "scripts" command. Each source is requested only once; the listener gets
+   * {@link DebugEventListener#scriptContentChanged} for every script whose source has arrived.
+   * @param callback invoked once the sources are loaded or immediately if there is nothing
+   *     to load; may be null
+   */
+  public RelayOk loadMissingSources(Collection<? extends Script> scripts,
+      final V8Helper.ScriptLoadCallback callback, SyncCallback syncCallback) {
+    final List<ScriptImpl> scriptsToLoad = new ArrayList<ScriptImpl>(0);
+    for (Script script : scripts) {
+      if (script instanceof ScriptImpl == false) {
+        continue;
+      }
+      ScriptImpl scriptImpl = (ScriptImpl) script;
+      if (!scriptImpl.hasSource() && !scriptImpl.isCollected() &&
+          scriptImpl.markSourceRequested()) {
+        scriptsToLoad.add(scriptImpl);
+      }
+    }
+    if (scriptsToLoad.isEmpty()) {
+      if (callback != null) {
+        callback.success();
+      }
+      return RelaySyncCallback.finish(syncCallback);
+    }
+    List<Long> ids = new ArrayList<Long>(scriptsToLoad.size());
+    for (ScriptImpl script : scriptsToLoad) {
+      ids.add(script.getId());
+    }
+    debugSession.getMetrics().getCounter("scripts.sourcesOnDemand").add(ids.size());
+    V8Helper.ScriptLoadCallback loadCallback = new V8Helper.ScriptLoadCallback() {
+      @Override
+      public void success() {
+        DebugEventListener listener = debugSession.getDebugEventListener();
+        for (ScriptImpl script : scriptsToLoad) {
+          if (script.hasSource()) {
+            listener.scriptContentChanged(script);
+          }
+        }
+        if (callback != null) {
+          callback.success();
+        }
+      }
+
+      @Override
+      public void failure(String message) {
+        if (callback != null) {
+          callback.failure(message);
+        }
+      }
+    };
+    return V8Helper.reloadScriptAsync(debugSession, ids, loadCallback, syncCallback);
+  }
+
   public void scriptCollected(long scriptId) {
     ScriptImpl script;
     synchronized (this) {
@@ -145,6 +237,10 @@ public class ScriptManager {
     return result[0];
   }
 
+  public int getScriptCount() {
+    return idToScript.size();
+  }
+
   public Collection<Script> allScripts() {
     final Collection<Script> result = new HashSet<Script>();
     forEach(new Callback() {
@@ -13,6 +13,7 @@ import org.chromium.sdk.DebugEventListener;
 import org.chromium.sdk.RelayOk;
 import org.chromium.sdk.SyncCallback;
 import org.chromium.sdk.internal.BaseCommandProcessor;
+import org.chromium.sdk.internal.metrics.MetricsRegistry;
 import org.chromium.sdk.internal.protocolparser.JsonProtocolParseException;
 import org.chromium.sdk.internal.v8native.protocol.input.CommandResponse;
 import org.chromium.sdk.internal.v8native.protocol.input.IncomingMessage;
@@ -67,15 +68,18 @@ public class V8CommandProcessor implements V8CommandSender<DebuggerMessage, Runt
   private final BaseCommandProcessor<Integer, DebuggerMessage, IncomingMessage, CommandResponse>
       baseCommandProcessor;
 
+  private final MetricsRegistry metrics;
 
   public V8CommandProcessor(V8CommandOutput messageOutput,
-      DefaultResponseHandler defaultResponseHandler, DebugSession debugSession) {
+      DefaultResponseHandler defaultResponseHandler, DebugSession debugSession,
+      MetricsRegistry metrics) {
     this.messageOutput = messageOutput;
     this.defaultResponseHandler = defaultResponseHandler;
     this.debugSession = debugSession;
+    this.metrics = metrics;
     this.baseCommandProcessor =
         new BaseCommandProcessor<Integer, DebuggerMessage, IncomingMessage, CommandResponse>(
-            new HandlerImpl());
+            new HandlerImpl(), metrics);
   }
 
   @Override
@@ -106,16 +110,19 @@ public class V8CommandProcessor implements V8CommandSender<DebuggerMessage, Runt
 
   public void processIncomingJson(final JSONObject v8Json) {
     IncomingMessage response;
+    long parseStart = System.nanoTime();
     try {
       response = V8ProtocolParserAccess.get().parseIncomingMessage(v8Json);
     } catch (JsonProtocolParseException e) {
       LOGGER.log(Level.SEVERE, "JSON message does not conform to the protocol", e);
       return;
     }
+    metrics.getHistogram("parse." + response.type()).recordNanos(System.nanoTime() - parseStart);
     baseCommandProcessor.processIncoming(response);
   }
 
   public void processEos() {
+    defaultResponseHandler.connectionClosed();
     baseCommandProcessor.processEos();
   }
 
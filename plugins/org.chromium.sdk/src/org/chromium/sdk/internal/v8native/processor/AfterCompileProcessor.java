@@ -6,8 +6,18 @@
 
 package org.chromium.sdk.internal.v8native.processor;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.chromium.sdk.Script;
 import org.chromium.sdk.internal.protocolparser.JsonProtocolParseException;
@@ -21,29 +31,184 @@ import org.chromium.sdk.internal.v8native.protocol.input.EventNotification;
 import org.chromium.sdk.internal.v8native.protocol.input.FailedCommandResponse.ErrorDetails;
 import org.chromium.sdk.internal.v8native.protocol.input.SuccessCommandResponse;
 import org.chromium.sdk.internal.v8native.protocol.input.data.ScriptHandle;
+import org.chromium.sdk.internal.v8native.protocol.input.data.SomeHandle;
 import org.chromium.sdk.internal.v8native.protocol.output.DebuggerMessageFactory;
 
 /**
  * Listens for scripts sent in the "afterCompile" events and requests their
  * sources.
+ * <p>
+ * Scripts compiled within a short time window are coalesced: their ids are requested
+ * in one "scripts" command and the result is reported to the listener in one batch.
+ * The window is set in "org.chromium.sdk.afterCompile.batchWindowMs" system property
+ * (0 requests every script immediately); a batch is also sent once it reaches
+ * "org.chromium.sdk.afterCompile.maxBatchSize" scripts.
+ * Scripts compiled by eval or Function constructor are handled according to
+ * {@link EvalScriptPolicy} set in "org.chromium.sdk.afterCompile.evalScripts" property.
+ * <p>
+ * A pending batch is flushed before a "break" or "exception" event is processed (see
+ * {@link #flush()}), so that the scripts are known by the time the call frames refer to them.
  */
 public class AfterCompileProcessor extends V8EventProcessor {
+  private static final Logger LOGGER = Logger.getLogger(AfterCompileProcessor.class.getName());
+
+  /**
+   * Defines how scripts compiled by eval or Function constructor are handled.
+   */
+  public enum EvalScriptPolicy {
+    /** Requests the script with its source like any other script. */
+    LOAD,
+    /**
+     * Reports the script from the event data without its source. The source is requested
+     * when a stack frame references the script or with an explicit
+     * {@link org.chromium.sdk.internal.v8native.ScriptManager#loadMissingSources} call.
+     */
+    LAZY,
+    /** Ignores the script. */
+    SKIP
+  }
+
+  private static final String EVAL_POLICY_PROPERTY = "org.chromium.sdk.afterCompile.evalScripts";
+
+  private static final int BATCH_WINDOW_MS =
+      Integer.getInteger("org.chromium.sdk.afterCompile.batchWindowMs", 50);
+  private static final int MAX_BATCH_SIZE =
+      Integer.getInteger("org.chromium.sdk.afterCompile.maxBatchSize", 100);
+  private static final EvalScriptPolicy EVAL_SCRIPT_POLICY = readEvalScriptPolicy();
+
+  /** Value of "compilationType" field for the scripts compiled by eval. */
+  private static final long COMPILATION_TYPE_EVAL = 1;
+
+  private static final ThreadFactory TIMER_THREAD_FACTORY = new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "afterCompile batch timer");
+      thread.setDaemon(true);
+      return thread;
+    }
+  };
+
+  /** Flushes batches of this session; its thread is only started with the first batch. */
+  private final ScheduledExecutorService batchTimer =
+      Executors.newSingleThreadScheduledExecutor(TIMER_THREAD_FACTORY);
+
+  /** The batch being collected or null. Guarded by 'this'. */
+  private Batch pendingBatch = null;
+
+  /** Guarded by 'this'. */
+  private boolean closed = false;
 
   public AfterCompileProcessor(DebugSession debugSession) {
     super(debugSession);
   }
 
+  /**
+   * Drops the pending batch and stops the timer. Called when the connection is closed.
+   */
+  public void close() {
+    synchronized (this) {
+      closed = true;
+      pendingBatch = null;
+    }
+    batchTimer.shutdownNow();
+  }
+
+  /**
+   * Sends the pending batch right away. Must be called from Dispatch thread. The "scripts"
+   * request goes out before any request sent after this call, so its response is
+   * processed first.
+   */
+  public void flush() {
+    Batch batch;
+    synchronized (this) {
+      batch = pendingBatch;
+      pendingBatch = null;
+    }
+    if (batch != null) {
+      sendBatch(batch, true);
+    }
+  }
+
   @Override
   public void messageReceived(EventNotification eventMessage) {
-    final DebugSession debugSession = getDebugSession();
+    DebugSession debugSession = getDebugSession();
     ScriptHandle script = getScriptToLoad(eventMessage,
         debugSession.getScriptManager().getContextFilter());
     if (script == null) {
       return;
     }
+    boolean isEval = script.compilationType() == COMPILATION_TYPE_EVAL;
+    if (isEval && EVAL_SCRIPT_POLICY == EvalScriptPolicy.SKIP) {
+      debugSession.getMetrics().getCounter("afterCompile.evalSkipped").increment();
+      return;
+    }
+    Batch readyBatch = null;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      if (pendingBatch == null) {
+        pendingBatch = new Batch();
+        if (BATCH_WINDOW_MS > 0) {
+          scheduleFlush(pendingBatch);
+        }
+      }
+      if (isEval && EVAL_SCRIPT_POLICY == EvalScriptPolicy.LAZY) {
+        pendingBatch.scriptsWithoutSource.add(script);
+        pendingBatch.refs.addAll(eventMessage.refs());
+      } else {
+        pendingBatch.idsToLoad.add(V8ProtocolUtil.getScriptIdFromResponse(script));
+      }
+      if (BATCH_WINDOW_MS <= 0 || pendingBatch.size() >= MAX_BATCH_SIZE) {
+        readyBatch = pendingBatch;
+        pendingBatch = null;
+      }
+    }
+    if (readyBatch != null) {
+      sendBatch(readyBatch, true);
+    }
+  }
+
+  private void scheduleFlush(final Batch batch) {
+    batchTimer.schedule(new Runnable() {
+      @Override
+      public void run() {
+        synchronized (AfterCompileProcessor.this) {
+          if (pendingBatch != batch) {
+            // Already sent because of its size.
+            return;
+          }
+          pendingBatch = null;
+        }
+        sendBatch(batch, false);
+      }
+    }, BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @param inDispatchThread whether the caller is in Dispatch thread
+   */
+  private void sendBatch(final Batch batch, boolean inDispatchThread) {
+    final DebugSession debugSession = getDebugSession();
+    debugSession.getMetrics().getCounter("afterCompile.batches").increment();
+    debugSession.getMetrics().getCounter("afterCompile.scripts").add(batch.size());
+    if (batch.idsToLoad.isEmpty()) {
+      if (inDispatchThread) {
+        addScripts(batch, Collections.<ScriptHandle>emptyList(),
+            Collections.<SomeHandle>emptyList());
+        return;
+      }
+      debugSession.getV8CommandProcessor().runInDispatchThread(new Runnable() {
+        @Override
+        public void run() {
+          addScripts(batch, Collections.<ScriptHandle>emptyList(),
+              Collections.<SomeHandle>emptyList());
+        }
+      }, null);
+      return;
+    }
     debugSession.sendMessageAsync(
-        DebuggerMessageFactory.scripts(
-            Collections.singletonList(V8ProtocolUtil.getScriptIdFromResponse(script)), true),
+        DebuggerMessageFactory.scripts(new ArrayList<Long>(batch.idsToLoad), true),
         true,
         new V8CommandCallbackBase() {
           @Override
@@ -54,23 +219,35 @@ public class AfterCompileProcessor extends V8EventProcessor {
             } catch (JsonProtocolParseException e) {
               throw new RuntimeException(e);
             }
-            // body is an array of scripts
-            if (body.size() == 0) {
-              return; // The script did not arrive (bad id?)
-            }
-            debugSession.getScriptManager().addScript(
-                body.get(0),
-                successResponse.refs());
+            // Scripts that did not arrive (bad id?) are simply missing in body.
+            addScripts(batch, body, successResponse.refs());
           }
 
           @Override
           public void failure(String message, ErrorDetails errorDetails) {
-            // The script is now missing.
+            // The requested scripts are now missing.
+            addScripts(batch, Collections.<ScriptHandle>emptyList(),
+                Collections.<SomeHandle>emptyList());
           }
         },
         null);
   }
 
+  private void addScripts(Batch batch, List<ScriptHandle> loadedScripts,
+      List<SomeHandle> loadedRefs) {
+    List<ScriptHandle> scripts = new ArrayList<ScriptHandle>(
+        batch.scriptsWithoutSource.size() + loadedScripts.size());
+    scripts.addAll(batch.scriptsWithoutSource);
+    scripts.addAll(loadedScripts);
+    if (scripts.isEmpty()) {
+      return;
+    }
+    List<SomeHandle> refs = new ArrayList<SomeHandle>(batch.refs.size() + loadedRefs.size());
+    refs.addAll(batch.refs);
+    refs.addAll(loadedRefs);
+    getDebugSession().getScriptManager().addScripts(scripts, refs);
+  }
+
   private static ScriptHandle getScriptToLoad(EventNotification eventResponse,
       V8ContextFilter contextFilter) {
     AfterCompileBody body;
@@ -88,4 +265,30 @@ public class AfterCompileProcessor extends V8EventProcessor {
     }
     return V8ProtocolUtil.validScript(script, eventResponse.refs(), contextFilter);
   }
+
+  private static EvalScriptPolicy readEvalScriptPolicy() {
+    String value = System.getProperty(EVAL_POLICY_PROPERTY);
+    if (value == null) {
+      return EvalScriptPolicy.LOAD;
+    }
+    try {
+      return EvalScriptPolicy.valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      LOGGER.log(Level.WARNING, "Incorrect value of " + EVAL_POLICY_PROPERTY, e);
+      return EvalScriptPolicy.LOAD;
+    }
+  }
+
+  /**
+   * Scripts compiled within one window.
+   */
+  private static class Batch {
+    final Set<Long> idsToLoad = new LinkedHashSet<Long>();
+    final List<ScriptHandle> scriptsWithoutSource = new ArrayList<ScriptHandle>(0);
+    final List<SomeHandle> refs = new ArrayList<SomeHandle>(0);
+
+    int size() {
+      return idsToLoad.size() + scriptsWithoutSource.size();
+    }
+  }
 }
@@ -6,10 +6,12 @@
 
 package org.chromium.sdk.internal.v8native.processor;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
+import org.chromium.sdk.CallFrame;
 import org.chromium.sdk.DebugContext;
 import org.chromium.sdk.JavascriptVm;
 import org.chromium.sdk.Script;
@@ -18,6 +20,7 @@ import org.chromium.sdk.internal.v8native.ContextBuilder;
 import org.chromium.sdk.internal.v8native.DebugSession;
 import org.chromium.sdk.internal.v8native.DebuggerCommand;
 import org.chromium.sdk.internal.v8native.V8CommandProcessor;
+import org.chromium.sdk.internal.v8native.V8Helper;
 import org.chromium.sdk.internal.v8native.protocol.input.BacktraceCommandBody;
 import org.chromium.sdk.internal.v8native.protocol.input.CommandResponse;
 import org.chromium.sdk.internal.v8native.protocol.input.FrameObject;
@@ -58,13 +61,40 @@ public class BacktraceProcessor implements V8CommandProcessor.V8HandlerCallback
       }
 
       @Override public void success(Collection<Script> scripts) {
-        debugSession.getDebugEventListener().suspended(debugContext);
+        loadFrameSources(debugContext, debugSession);
       }
     };
 
     debugSession.getScriptManagerProxy().getAllScripts(afterScriptsAreLoaded, null);
   }
 
+  /**
+   * Loads sources of the frame scripts that were reported without them, so that the user sees
+   * the source of every frame, and then reports the context.
+   */
+  private static void loadFrameSources(final DebugContext debugContext,
+      final DebugSession debugSession) {
+    List<Script> frameScripts = new ArrayList<Script>();
+    for (CallFrame frame : debugContext.getCallFrames()) {
+      if (frame.getScript() != null) {
+        frameScripts.add(frame.getScript());
+      }
+    }
+    V8Helper.ScriptLoadCallback callback = new V8Helper.ScriptLoadCallback() {
+      @Override
+      public void success() {
+        debugSession.getDebugEventListener().suspended(debugContext);
+      }
+
+      @Override
+      public void failure(String message) {
+        // Frames without sources are still usable.
+        debugSession.getDebugEventListener().suspended(debugContext);
+      }
+    };
+    debugSession.getScriptManager().loadMissingSources(frameScripts, callback, null);
+  }
+
   public static DebugContext setFrames(SuccessCommandResponse response,
       ContextBuilder.ExpectingBacktraceStep step2) {
     BacktraceCommandBody body;
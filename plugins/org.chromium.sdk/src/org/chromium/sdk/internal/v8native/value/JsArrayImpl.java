@@ -6,18 +6,16 @@
 
 package org.chromium.sdk.internal.v8native.value;
 
-import static org.chromium.sdk.util.BasicUtil.getSafe;
-
-import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
-import java.util.TreeMap;
 
 import org.chromium.sdk.JsArray;
 import org.chromium.sdk.JsFunction;
 import org.chromium.sdk.JsVariable;
 import org.chromium.sdk.util.JavaScriptExpressionBuilder;
 import org.chromium.sdk.util.MethodIsBlockingException;
+import org.chromium.sdk.util.SparseArrayIndex;
 
 /**
  * A generic implementation of the JsArray interface.
@@ -36,7 +34,7 @@ class JsArrayImpl extends JsObjectBase<JsArrayImpl.ArrayPropertyData> implements
 
   @Override
   public JsVariable get(long index) throws MethodIsBlockingException {
-    return getSafe(getPropertyData(true).ensureElementsMap(), index);
+    return getPropertyData(true).ensureElementsMap().get(index);
   }
 
   @Override
@@ -46,7 +44,7 @@ class JsArrayImpl extends JsObjectBase<JsArrayImpl.ArrayPropertyData> implements
 
   @Override
   public long getLength() throws MethodIsBlockingException {
-    SortedMap<Long, ?> map = getPropertyData(true).ensureElementsMap();
+    SparseArrayIndex<?> map = getPropertyData(true).ensureElementsMap();
     if (map.isEmpty()) {
       return 0;
     }
@@ -101,7 +99,7 @@ class JsArrayImpl extends JsObjectBase<JsArrayImpl.ArrayPropertyData> implements
     /**
      * An indexed sparse array of elements. Keys are indices, values are elements.
      */
-    private SortedMap<Long, JsVariableBase> indexToElementMap = null;
+    private SparseArrayIndex<JsVariableBase> indexToElementMap = null;
 
     ArrayPropertyData(BasicPropertyData basicPropertyData) {
       this.basicPropertyData = basicPropertyData;
@@ -111,11 +109,13 @@ class JsArrayImpl extends JsObjectBase<JsArrayImpl.ArrayPropertyData> implements
       return basicPropertyData;
     }
 
-    private synchronized SortedMap<Long, JsVariableBase> ensureElementsMap() {
+    private synchronized SparseArrayIndex<JsVariableBase> ensureElementsMap() {
       if (indexToElementMap == null) {
-        SortedMap<Long, JsVariableBase> map = new TreeMap<Long, JsVariableBase>();
+        List<? extends JsVariableBase> propertyList = basicPropertyData.getPropertyList();
+        SparseArrayIndex.Builder<JsVariableBase> builder =
+            new SparseArrayIndex.Builder<JsVariableBase>(propertyList.size());
 
-        for (JsVariableBase prop : basicPropertyData.getPropertyList()) {
+        for (JsVariableBase prop : propertyList) {
           Object name = prop.getRawNameAsObject();
           Long key;
           if (name instanceof Long) {
@@ -130,11 +130,10 @@ class JsArrayImpl extends JsObjectBase<JsArrayImpl.ArrayPropertyData> implements
               continue;
             }
           }
-          map.put(key, prop);
+          builder.add(key, prop);
         }
-        // We make map synchronized for such methods as entrySet, that are not thread-safe.
-        indexToElementMap =
-            Collections.unmodifiableSortedMap(Collections.synchronizedSortedMap(map));
+        // The index is immutable, so no synchronization is needed for its users.
+        indexToElementMap = builder.build();
       }
       return indexToElementMap;
     }
@@ -44,6 +44,9 @@ public abstract class JsScopeImpl<D extends JsScopeImpl.DataBase> implements JsS
         @Override ScopeMessage.Host getProtocolParameter() {
           return ScopeMessage.Host.createFrame(callFrameImpl.getIdentifier());
         }
+        @Override ValueLoaderImpl.PrefetchedScope takePrefetchedScope(int scopeIndex) {
+          return callFrameImpl.takePrefetchedScope(scopeIndex);
+        }
       };
     }
 
@@ -55,12 +58,21 @@ public abstract class JsScopeImpl<D extends JsScopeImpl.DataBase> implements JsS
         @Override ScopeMessage.Host getProtocolParameter() {
           return ScopeMessage.Host.createFunction(jsFunctionImpl.getRef());
         }
+        @Override ValueLoaderImpl.PrefetchedScope takePrefetchedScope(int scopeIndex) {
+          return null;
+        }
       };
     }
 
     abstract InternalContext getInternalContext();
 
     abstract ScopeMessage.Host getProtocolParameter();
+
+    /**
+     * @return scope data requested in advance or null; each prefetched scope is returned
+     *     only once
+     */
+    abstract ValueLoaderImpl.PrefetchedScope takePrefetchedScope(int scopeIndex);
   }
 
   private final Host host;
@@ -126,7 +138,7 @@ public abstract class JsScopeImpl<D extends JsScopeImpl.DataBase> implements JsS
   protected ObjectValueHandle loadScopeObject(ValueLoaderImpl valueLoader)
       throws MethodIsBlockingException {
     ScopeMessage.Ref ref = new ScopeMessage.Ref(scopeIndex, host.getProtocolParameter());
-    return valueLoader.loadScopeFields(ref);
+    return valueLoader.loadScopeFields(ref, host.takePrefetchedScope(scopeIndex));
   }
 
   public static Type convertType(int typeCode) {
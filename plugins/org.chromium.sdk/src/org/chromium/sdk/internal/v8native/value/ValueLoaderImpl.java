@@ -14,8 +14,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -43,6 +47,7 @@ import org.chromium.sdk.internal.v8native.protocol.output.DebuggerMessageFactory
 import org.chromium.sdk.internal.v8native.protocol.output.EvaluateMessage;
 import org.chromium.sdk.internal.v8native.protocol.output.LookupMessage;
 import org.chromium.sdk.internal.v8native.protocol.output.ScopeMessage;
+import org.chromium.sdk.util.CallbackFuture;
 import org.chromium.sdk.util.GenericCallback;
 import org.chromium.sdk.util.MethodIsBlockingException;
 import org.json.simple.JSONObject;
@@ -54,6 +59,8 @@ import org.json.simple.JSONObject;
  * strategies about whether to parse and add them into a map or save parsing time and ignore.
  */
 public class ValueLoaderImpl extends ValueLoader {
+  private static final long PREFETCH_WAIT_MS =
+      Long.getLong("org.chromium.sdk.scopePrefetchWaitMs", 2000);
 
   private final ConcurrentMap<Long, ValueMirror> refToMirror =
       new ConcurrentHashMap<Long, ValueMirror>();
@@ -65,6 +72,10 @@ public class ValueLoaderImpl extends ValueLoader {
 
   private final AtomicInteger cacheStateRef = new AtomicInteger(1);
 
+  /** Scope prefetches still in flight. They are failed once the caches are cleared. */
+  private final Set<PrefetchedScope> pendingPrefetches =
+      Collections.newSetFromMap(new ConcurrentHashMap<PrefetchedScope, Boolean>());
+
   public ValueLoaderImpl(InternalContext context) {
     this.context = context;
     this.loadableStringFactory = new StringFactory();
@@ -82,6 +93,11 @@ public class ValueLoaderImpl extends ValueLoader {
   public void clearCaches() {
     cacheStateRef.incrementAndGet();
     refToMirror.clear();
+    // Nobody should wait for data that is going to be dropped anyway.
+    for (PrefetchedScope prefetchedScope : pendingPrefetches) {
+      pendingPrefetches.remove(prefetchedScope);
+      prefetchedScope.future.failure(new Exception("Value caches have been cleared"));
+    }
   }
 
   @Override
@@ -207,6 +223,124 @@ public class ValueLoaderImpl extends ValueLoader {
     }
   }
 
+  /**
+   * Scope data requested in advance by {@link ValueLoaderImpl#prefetchScopeFields}.
+   */
+  public static class PrefetchedScope {
+    private final int cacheState;
+    private final CallbackFuture<ObjectValueHandle> future =
+        new CallbackFuture<ObjectValueHandle>();
+
+    PrefetchedScope(int cacheState) {
+      this.cacheState = cacheState;
+    }
+  }
+
+  /**
+   * Sends "scope" request without waiting for the response. The result is to be
+   * passed to {@link #loadScopeFields(ScopeMessage.Ref, PrefetchedScope)}.
+   */
+  public PrefetchedScope prefetchScopeFields(ScopeMessage.Ref scopeRef) {
+    final PrefetchedScope prefetchedScope = new PrefetchedScope(getCurrentCacheState());
+    pendingPrefetches.add(prefetchedScope);
+    V8CommandCallbackBase callback = new V8CommandCallbackBase() {
+      @Override
+      public void success(SuccessCommandResponse response) {
+        pendingPrefetches.remove(prefetchedScope);
+        if (prefetchedScope.cacheState != getCurrentCacheState()) {
+          prefetchedScope.future.failure(new Exception("Value caches have been cleared"));
+          return;
+        }
+        prefetchedScope.future.success(readFromScopeResponse(response));
+      }
+
+      @Override
+      public void failure(String message, FailedCommandResponse.ErrorDetails errorDetails) {
+        pendingPrefetches.remove(prefetchedScope);
+        prefetchedScope.future.failure(new Exception(message));
+      }
+    };
+    try {
+      context.sendV8CommandAsync(new ScopeMessage(scopeRef), true, callback,
+          prefetchedScope.future.asSyncCallback());
+    } catch (ContextDismissedCheckedException e) {
+      pendingPrefetches.remove(prefetchedScope);
+      prefetchedScope.future.failure(e);
+    }
+    return prefetchedScope;
+  }
+
+  /**
+   * Looks up data for scope, preferably from the prefetched response. A failed or outdated
+   * prefetch is dropped right away; a response still in flight is waited for no longer than
+   * "org.chromium.sdk.scopePrefetchWaitMs" system property (ms) before a regular request
+   * is sent.
+   * @param prefetchedScope result of {@link #prefetchScopeFields} or null
+   */
+  public ObjectValueHandle loadScopeFields(ScopeMessage.Ref scopeRef,
+      PrefetchedScope prefetchedScope) throws MethodIsBlockingException {
+    if (prefetchedScope != null && prefetchedScope.cacheState == getCurrentCacheState()) {
+      try {
+        ObjectValueHandle result =
+            prefetchedScope.future.get(PREFETCH_WAIT_MS, TimeUnit.MILLISECONDS);
+        if (prefetchedScope.cacheState == getCurrentCacheState()) {
+          return result;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ValueLoadException(e);
+      } catch (ExecutionException e) {
+        // Fall back to a regular request.
+      } catch (TimeoutException e) {
+        // Fall back to a regular request.
+      }
+    }
+    return loadScopeFields(scopeRef);
+  }
+
+  /**
+   * Requests values that are neither cached nor fully described by their references
+   * without waiting for the response. The loaded values are put into the cache.
+   */
+  public void prefetchValuesFromRefs(List<? extends PropertyReference> propertyRefs) {
+    final List<Long> refIds = new ArrayList<Long>(propertyRefs.size());
+    for (PropertyReference property : propertyRefs) {
+      DataWithRef dataWithRef = property.getValueObject();
+      if (refToMirror.containsKey(dataWithRef.ref())) {
+        continue;
+      }
+      RefWithDisplayData dataWithDisplayData = dataWithRef.getWithDisplayData();
+      if (dataWithDisplayData != null &&
+          ValueMirror.createIfSure(dataWithDisplayData) != null) {
+        continue;
+      }
+      refIds.add(dataWithRef.ref());
+    }
+    if (refIds.isEmpty()) {
+      return;
+    }
+    final int cacheState = getCurrentCacheState();
+    V8CommandCallbackBase callback = new V8CommandCallbackBase() {
+      @Override
+      public void success(SuccessCommandResponse successResponse) {
+        if (cacheState == getCurrentCacheState()) {
+          readResponseFromLookupRaw(successResponse, refIds);
+        }
+      }
+
+      @Override
+      public void failure(String message, FailedCommandResponse.ErrorDetails errorDetails) {
+        // The values will be requested again when needed.
+      }
+    };
+    try {
+      context.sendV8CommandAsync(DebuggerMessageFactory.lookup(refIds, false), true, callback,
+          null);
+    } catch (ContextDismissedCheckedException e) {
+      // Nothing to prefetch.
+    }
+  }
+
   private ObjectValueHandle readFromScopeResponse(SuccessCommandResponse response) {
     List<SomeHandle> refs = response.refs();
 
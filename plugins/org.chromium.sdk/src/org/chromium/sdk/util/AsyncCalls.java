@@ -0,0 +1,124 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.util;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.chromium.sdk.AsyncPropertiesExtension;
+import org.chromium.sdk.JavascriptVm;
+import org.chromium.sdk.JsEvaluateContext;
+import org.chromium.sdk.JsEvaluateContext.ResultOrException;
+import org.chromium.sdk.JsObject;
+import org.chromium.sdk.JsValue;
+import org.chromium.sdk.Script;
+
+/**
+ * Future-based counterparts of blocking SDK methods. Every method starts an asynchronous
+ * operation and returns immediately; no thread is held while the operation is in progress
+ * unless the VM only offers a blocking method (then it runs on a small shared thread pool).
+ */
+public class AsyncCalls {
+  private static final int BLOCKING_THREADS = 4;
+
+  /** Runs blocking calls for VMs that have no asynchronous counterpart. */
+  private static final ExecutorService BLOCKING_CALL_EXECUTOR;
+  static {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(BLOCKING_THREADS, BLOCKING_THREADS,
+        60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "SDK blocking call runner");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    BLOCKING_CALL_EXECUTOR = executor;
+  }
+
+  /**
+   * Non-blocking version of {@link JavascriptVm#getScripts(JavascriptVm.ScriptsCallback)}.
+   */
+  public static CallbackFuture<Collection<Script>> getScripts(JavascriptVm vm) {
+    final CallbackFuture<Collection<Script>> future = new CallbackFuture<Collection<Script>>();
+    JavascriptVm.ScriptsCallback callback = new JavascriptVm.ScriptsCallback() {
+      @Override
+      public void success(Collection<Script> scripts) {
+        future.success(scripts);
+      }
+
+      @Override
+      public void failure(String errorMessage) {
+        future.failure(new Exception(errorMessage));
+      }
+    };
+    vm.getScripts(callback, future.asSyncCallback());
+    return future;
+  }
+
+  /**
+   * Non-blocking version of {@link JsEvaluateContext#evaluateSync}.
+   * @param additionalContext may be null
+   */
+  public static CallbackFuture<ResultOrException> evaluate(JsEvaluateContext evaluateContext,
+      String expression, Map<String, ? extends JsValue> additionalContext) {
+    final CallbackFuture<ResultOrException> future = new CallbackFuture<ResultOrException>();
+    JsEvaluateContext.EvaluateCallback callback = new JsEvaluateContext.EvaluateCallback() {
+      @Override
+      public void success(ResultOrException result) {
+        future.success(result);
+      }
+
+      @Override
+      public void failure(Exception cause) {
+        future.failure(cause);
+      }
+    };
+    evaluateContext.evaluateAsync(expression, additionalContext, callback,
+        future.asSyncCallback());
+    return future;
+  }
+
+  /**
+   * Loads properties of the object without blocking. Once the future is done,
+   * {@link JsObject#getProperties()} and similar methods do not block. If the VM does not
+   * support {@link AsyncPropertiesExtension}, the blocking methods are called on a pool thread.
+   */
+  public static CallbackFuture<JsObject> loadProperties(JavascriptVm vm,
+      final JsObject jsObject) {
+    final CallbackFuture<JsObject> future = new CallbackFuture<JsObject>();
+    AsyncPropertiesExtension extension = vm.getAsyncPropertiesExtension();
+    if (extension == null) {
+      BLOCKING_CALL_EXECUTOR.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            jsObject.getProperties();
+            jsObject.getInternalProperties();
+          } catch (RuntimeException e) {
+            future.failure(e);
+            return;
+          }
+          future.success(jsObject);
+        }
+      });
+      return future;
+    }
+    extension.loadProperties(jsObject, future, future.asSyncCallback());
+    return future;
+  }
+
+  private AsyncCalls() {
+  }
+}
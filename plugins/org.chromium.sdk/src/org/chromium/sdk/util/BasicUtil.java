@@ -9,6 +9,8 @@ package org.chromium.sdk.util;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.reflect.Array;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.Map;
 
@@ -124,4 +126,37 @@ public class BasicUtil {
     printWriter.close();
     return stringWriter.toString();
   }
+
+  /**
+   * Computes SHA-1 of the text UTF-16 code units as a hex string. Streams characters in small
+   * portions, so no copy of the whole text is created.
+   */
+  public static String computeContentHash(CharSequence text) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+    byte[] buffer = new byte[8192];
+    int pos = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      buffer[pos++] = (byte) (ch >> 8);
+      buffer[pos++] = (byte) ch;
+      if (pos == buffer.length) {
+        digest.update(buffer, 0, pos);
+        pos = 0;
+      }
+    }
+    digest.update(buffer, 0, pos);
+    byte[] hashBytes = digest.digest();
+    StringBuilder result = new StringBuilder(hashBytes.length * 2);
+    for (byte b : hashBytes) {
+      result.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+    }
+    return result.toString();
+  }
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 }
@@ -0,0 +1,163 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.chromium.sdk.SyncCallback;
+
+/**
+ * A {@link Future} that gets completed by a {@link GenericCallback} call. It lets a client
+ * start an asynchronous SDK operation and either chain further processing with
+ * {@link #addCallback} (without holding a thread) or wait for the result in the standard
+ * {@link Future} way.
+ * <p>Typically the future itself is passed as a callback of the operation and its
+ * {@link #asSyncCallback()} is passed as a sync callback. The latter guarantees that
+ * the future gets completed even if the operation never calls the main callback.
+ * <p>Callbacks added by {@link #addCallback} are called either from the thread that
+ * completes the future (normally Dispatch thread, so they must not call blocking methods)
+ * or immediately from {@link #addCallback}, if the future is already done.
+ * @param <T> type of the result
+ */
+public class CallbackFuture<T> implements Future<T>, GenericCallback<T> {
+  private final CountDownLatch latch = new CountDownLatch(1);
+
+  // All fields are guarded by 'this'.
+  private boolean done = false;
+  private T result = null;
+  private Exception exception = null;
+  private List<GenericCallback<? super T>> callbacks =
+      new ArrayList<GenericCallback<? super T>>(1);
+
+  /**
+   * Completes the future with a result. Does nothing if the future is already done.
+   */
+  @Override
+  public void success(T value) {
+    complete(value, null);
+  }
+
+  /**
+   * Completes the future with a failure. Does nothing if the future is already done.
+   */
+  @Override
+  public void failure(Exception exception) {
+    if (exception == null) {
+      exception = new Exception("Unknown failure");
+    }
+    complete(null, exception);
+  }
+
+  /**
+   * @return a sync callback that fails the future if the operation finished without
+   *     completing it
+   */
+  public SyncCallback asSyncCallback() {
+    return new SyncCallback() {
+      @Override
+      public void callbackDone(RuntimeException e) {
+        if (e == null) {
+          failure(new Exception("Operation finished without result"));
+        } else {
+          failure(e);
+        }
+      }
+    };
+  }
+
+  /**
+   * Registers a callback that receives the outcome of the future.
+   */
+  public void addCallback(GenericCallback<? super T> callback) {
+    synchronized (this) {
+      if (!done) {
+        callbacks.add(callback);
+        return;
+      }
+    }
+    deliver(callback);
+  }
+
+  /**
+   * The underlying remote operation cannot be cancelled, so this method does nothing.
+   * @return false
+   */
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    return false;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return false;
+  }
+
+  @Override
+  public synchronized boolean isDone() {
+    return done;
+  }
+
+  @Override
+  public T get() throws InterruptedException, ExecutionException {
+    latch.await();
+    return getResult();
+  }
+
+  @Override
+  public T get(long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    if (!latch.await(timeout, unit)) {
+      throw new TimeoutException();
+    }
+    return getResult();
+  }
+
+  private void complete(T value, Exception failure) {
+    List<GenericCallback<? super T>> callbacksToCall;
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+      done = true;
+      result = value;
+      exception = failure;
+      callbacksToCall = callbacks;
+      callbacks = null;
+    }
+    latch.countDown();
+    for (GenericCallback<? super T> callback : callbacksToCall) {
+      deliver(callback);
+    }
+  }
+
+  private void deliver(GenericCallback<? super T> callback) {
+    T value;
+    Exception failure;
+    synchronized (this) {
+      value = result;
+      failure = exception;
+    }
+    if (failure == null) {
+      callback.success(value);
+    } else {
+      callback.failure(failure);
+    }
+  }
+
+  private synchronized T getResult() throws ExecutionException {
+    if (exception != null) {
+      throw new ExecutionException(exception);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,323 @@
+// Copyright (c) 2012 The Chromium Authors. All rights reserved.
+// This program and the accompanying materials are made available
+// under the terms of the Eclipse Public License v1.0 which accompanies
+// this distribution, and is available at
+// http://www.eclipse.org/legal/epl-v10.html
+
+package org.chromium.sdk.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * A compact immutable sorted map from array index to element, used to back
+ * {@link org.chromium.sdk.JsArray} implementations. Keys are kept in a primitive array
+ * and looked up by binary search; if the indices are exactly 0..n-1 (a dense array),
+ * no key array is kept at all.
+ * <p>The map is immutable and therefore thread-safe. Sub-map views share the arrays.
+ * @param <V> type of elements
+ */
+public class SparseArrayIndex<V> extends AbstractMap<Long, V> implements SortedMap<Long, V> {
+  private static final SparseArrayIndex<?> EMPTY =
+      new SparseArrayIndex<Object>(null, new Object[0], 0, 0);
+
+  @SuppressWarnings("unchecked")
+  public static <V> SparseArrayIndex<V> empty() {
+    return (SparseArrayIndex<V>) EMPTY;
+  }
+
+  /** Sorted keys or null if the map is dense (key equals position). */
+  private final long[] keys;
+  private final Object[] values;
+  /** Range of the arrays this map (or sub-map view) covers. */
+  private final int start;
+  private final int end;
+
+  private SparseArrayIndex(long[] keys, Object[] values, int start, int end) {
+    this.keys = keys;
+    this.values = values;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Returns an element by index without boxing the index.
+   * @return the element or null
+   */
+  public V get(long index) {
+    int pos = findPosition(index);
+    if (pos < 0) {
+      return null;
+    }
+    return getValueAt(pos);
+  }
+
+  /**
+   * @return whether indices are exactly 0..n-1
+   */
+  public boolean isDense() {
+    return keys == null && start == 0;
+  }
+
+  @Override
+  public V get(Object key) {
+    if (key instanceof Long == false) {
+      return null;
+    }
+    return get(((Long) key).longValue());
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (key instanceof Long == false) {
+      return false;
+    }
+    return findPosition((Long) key) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return end - start;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return end == start;
+  }
+
+  @Override
+  public Comparator<? super Long> comparator() {
+    return null;
+  }
+
+  @Override
+  public Long firstKey() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return getKeyAt(start);
+  }
+
+  @Override
+  public Long lastKey() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return getKeyAt(end - 1);
+  }
+
+  @Override
+  public SortedMap<Long, V> subMap(Long fromKey, Long toKey) {
+    if (fromKey > toKey) {
+      throw new IllegalArgumentException();
+    }
+    return createView(lowerBound(fromKey), lowerBound(toKey));
+  }
+
+  @Override
+  public SortedMap<Long, V> headMap(Long toKey) {
+    return createView(start, lowerBound(toKey));
+  }
+
+  @Override
+  public SortedMap<Long, V> tailMap(Long fromKey) {
+    return createView(lowerBound(fromKey), end);
+  }
+
+  @Override
+  public Set<Map.Entry<Long, V>> entrySet() {
+    return new AbstractSet<Map.Entry<Long, V>>() {
+      @Override
+      public Iterator<Map.Entry<Long, V>> iterator() {
+        return new Iterator<Map.Entry<Long, V>>() {
+          private int pos = start;
+
+          @Override
+          public boolean hasNext() {
+            return pos < end;
+          }
+
+          @Override
+          public Map.Entry<Long, V> next() {
+            if (pos >= end) {
+              throw new NoSuchElementException();
+            }
+            Map.Entry<Long, V> result =
+                new AbstractMap.SimpleImmutableEntry<Long, V>(getKeyAt(pos), getValueAt(pos));
+            pos++;
+            return result;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return end - start;
+      }
+    };
+  }
+
+  private SparseArrayIndex<V> createView(int newStart, int newEnd) {
+    if (newEnd < newStart) {
+      newEnd = newStart;
+    }
+    return new SparseArrayIndex<V>(keys, values, newStart, newEnd);
+  }
+
+  private long getKeyAt(int pos) {
+    return keys == null ? pos : keys[pos];
+  }
+
+  @SuppressWarnings("unchecked")
+  private V getValueAt(int pos) {
+    return (V) values[pos];
+  }
+
+  /**
+   * @return position of the key within [start, end) or -1
+   */
+  private int findPosition(long key) {
+    if (keys == null) {
+      if (key < start || key >= end) {
+        return -1;
+      }
+      return (int) key;
+    }
+    int pos = Arrays.binarySearch(keys, start, end, key);
+    return pos < 0 ? -1 : pos;
+  }
+
+  /**
+   * @return the first position within [start, end] whose key is not less than the given key
+   */
+  private int lowerBound(long key) {
+    if (keys == null) {
+      return (int) Math.max(start, Math.min(end, key));
+    }
+    int pos = Arrays.binarySearch(keys, start, end, key);
+    return pos < 0 ? -pos - 1 : pos;
+  }
+
+  /**
+   * Collects index/element pairs in any order. If an index is added several times,
+   * the last element wins.
+   */
+  public static class Builder<V> {
+    private long[] keys;
+    private Object[] values;
+    private int size = 0;
+    private boolean sorted = true;
+
+    public Builder() {
+      this(10);
+    }
+
+    public Builder(int expectedSize) {
+      keys = new long[Math.max(expectedSize, 1)];
+      values = new Object[keys.length];
+    }
+
+    public void add(long index, V value) {
+      if (size == keys.length) {
+        int newCapacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, newCapacity);
+        values = Arrays.copyOf(values, newCapacity);
+      }
+      if (size > 0 && keys[size - 1] >= index) {
+        sorted = false;
+      }
+      keys[size] = index;
+      values[size] = value;
+      size++;
+    }
+
+    public SparseArrayIndex<V> build() {
+      if (size == 0) {
+        return empty();
+      }
+      if (!sorted) {
+        sortAndRemoveDuplicates();
+      }
+      Object[] resultValues = size == values.length ? values : Arrays.copyOf(values, size);
+      long[] resultKeys;
+      if (keys[size - 1] == size - 1 && keys[0] == 0) {
+        // Keys are distinct and sorted, so they are exactly 0..size-1.
+        resultKeys = null;
+      } else {
+        resultKeys = size == keys.length ? keys : Arrays.copyOf(keys, size);
+      }
+      // The builder must not be reused with shared arrays.
+      keys = null;
+      values = null;
+      return new SparseArrayIndex<V>(resultKeys, resultValues, 0, size);
+    }
+
+    /**
+     * Stable merge sort of parallel arrays followed by removal of repeated keys (keeping
+     * the last added value).
+     */
+    private void sortAndRemoveDuplicates() {
+      long[] tempKeys = new long[size];
+      Object[] tempValues = new Object[size];
+      for (int width = 1; width < size; width *= 2) {
+        for (int left = 0; left < size; left += 2 * width) {
+          int middle = Math.min(left + width, size);
+          int right = Math.min(left + 2 * width, size);
+          merge(left, middle, right, tempKeys, tempValues);
+        }
+      }
+      int newSize = 0;
+      for (int i = 0; i < size; i++) {
+        if (newSize > 0 && keys[newSize - 1] == keys[i]) {
+          values[newSize - 1] = values[i];
+        } else {
+          keys[newSize] = keys[i];
+          values[newSize] = values[i];
+          newSize++;
+        }
+      }
+      Arrays.fill(values, newSize, size, null);
+      size = newSize;
+    }
+
+    private void merge(int left, int middle, int right, long[] tempKeys, Object[] tempValues) {
+      if (middle >= right || keys[middle - 1] <= keys[middle]) {
+        return;
+      }
+      int i = left;
+      int j = middle;
+      int k = left;
+      while (i < middle && j < right) {
+        if (keys[j] < keys[i]) {
+          tempKeys[k] = keys[j];
+          tempValues[k++] = values[j++];
+        } else {
+          tempKeys[k] = keys[i];
+          tempValues[k++] = values[i++];
+        }
+      }
+      while (i < middle) {
+        tempKeys[k] = keys[i];
+        tempValues[k++] = values[i++];
+      }
+      while (j < right) {
+        tempKeys[k] = keys[j];
+        tempValues[k++] = values[j++];
+      }
+      System.arraycopy(tempKeys, left, keys, left, right - left);
+      System.arraycopy(tempValues, left, values, left, right - left);
+    }
+  }
+}